@@ -1,8 +1,9 @@
 package cz.cesnet.shongo.client.web;
 
 import cz.cesnet.shongo.CommonReportSet;
-import cz.cesnet.shongo.ExpirationMap;
+import cz.cesnet.shongo.ConcurrentExpirationMap;
 import cz.cesnet.shongo.ExpirationSet;
+import cz.cesnet.shongo.LoadingExpirationMap;
 import cz.cesnet.shongo.TodoImplementException;
 import cz.cesnet.shongo.api.UserInformation;
 import cz.cesnet.shongo.client.web.auth.UserPermission;
@@ -17,7 +18,6 @@ import cz.cesnet.shongo.controller.api.rpc.AuthorizationService;
 import cz.cesnet.shongo.controller.api.rpc.ExecutableService;
 import cz.cesnet.shongo.controller.api.rpc.ReservationService;
 import cz.cesnet.shongo.controller.api.rpc.ResourceService;
-import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,9 +25,13 @@ import org.springframework.scheduling.annotation.Scheduled;
 
 import javax.annotation.Resource;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * Cache of {@link UserInformation}s, {@link ObjectPermission}s, {@link ReservationRequestSummary}s.
+ * <p/>
+ * Cached values are read without locking and missing values are loaded by {@link LoadingExpirationMap}s (concurrent
+ * requests for the same value share a single loading and requests for different values don't wait for each other).
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
@@ -55,61 +59,67 @@ public class Cache
     /**
      * {@link UserInformation}s by {@link SecurityToken}.
      */
-    private ExpirationMap<SecurityToken, Map<UserPermission, Boolean>> userPermissionsByToken =
-            new ExpirationMap<SecurityToken, Map<UserPermission, Boolean>>();
+    private ConcurrentExpirationMap<SecurityToken, Map<UserPermission, Boolean>> userPermissionsByToken =
+            new ConcurrentExpirationMap<SecurityToken, Map<UserPermission, Boolean>>();
 
     /**
      * {@link UserInformation}s by user-ids.
      */
-    private ExpirationMap<String, UserInformation> userInformationByUserId =
-            new ExpirationMap<String, UserInformation>();
+    private final LoadingExpirationMap<String, UserInformation> userInformationByUserId =
+            new LoadingExpirationMap<String, UserInformation>();
 
     /**
      * {@link Group}s by group-ids.
      */
-    private ExpirationMap<String, Group> groupByGroupId =
-            new ExpirationMap<String, Group>();
+    private final LoadingExpirationMap<String, Group> groupByGroupId =
+            new LoadingExpirationMap<String, Group>();
 
     /**
      * {@link UserState}s by {@link SecurityToken}.
      */
-    private ExpirationMap<SecurityToken, UserState> userStateByToken = new ExpirationMap<SecurityToken, UserState>();
+    private ConcurrentExpirationMap<SecurityToken, UserState> userStateByToken =
+            new ConcurrentExpirationMap<SecurityToken, UserState>();
 
     /**
      * {@link ResourceSummary} by identifier.
      */
-    private ExpirationMap<String, ResourceSummary> resourceById =
-            new ExpirationMap<String, ResourceSummary>();
+    private final LoadingExpirationMap<String, ResourceSummary> resourceById =
+            new LoadingExpirationMap<String, ResourceSummary>();
 
     /**
      * {@link ReservationRequestSummary} by identifier.
      */
-    private ExpirationMap<String, ReservationRequestSummary> reservationRequestById =
-            new ExpirationMap<String, ReservationRequestSummary>();
+    private ConcurrentExpirationMap<String, ReservationRequestSummary> reservationRequestById =
+            new ConcurrentExpirationMap<String, ReservationRequestSummary>();
 
     /**
      * {@link Reservation} by identifier.
      */
-    private ExpirationMap<String, Reservation> reservationById =
-            new ExpirationMap<String, Reservation>();
+    private final LoadingExpirationMap<String, Reservation> reservationById =
+            new LoadingExpirationMap<String, Reservation>();
 
     /**
      * Ids of resources with public calendar by their calendarUriKey
      */
-    private ExpirationMap<String,String> resourceIdsWithPublicCalendarByUriKey =
-            new ExpirationMap<String,String>();
+    private ConcurrentExpirationMap<String, String> resourceIdsWithPublicCalendarByUriKey =
+            new ConcurrentExpirationMap<String, String>();
 
     /**
      * {@link Reservation} by identifier.
      */
-    private ExpirationMap<String, Executable> executableById =
-            new ExpirationMap<String, Executable>();
+    private final LoadingExpirationMap<String, Executable> executableById =
+            new LoadingExpirationMap<String, Executable>();
 
     /**
      * @see ResourcesUtilization
      */
-    private final ExpirationMap<SecurityToken, ResourcesUtilization> resourcesUtilizationByToken =
-            new ExpirationMap<SecurityToken, ResourcesUtilization>();
+    private final ConcurrentExpirationMap<SecurityToken, ResourcesUtilization> resourcesUtilizationByToken =
+            new ConcurrentExpirationMap<SecurityToken, ResourcesUtilization>();
+
+    /**
+     * Maximum duration for waiting to loading of not cached values.
+     */
+    private volatile Duration fetchTimeout = LoadingExpirationMap.DEFAULT_FETCH_TIMEOUT;
 
     /**
      * Cached information for single user.
@@ -119,15 +129,16 @@ public class Cache
         /**
          * Set of permissions which the user has for object.
          */
-        private ExpirationMap<String, Set<ObjectPermission>> objectPermissionsByObject =
-                new ExpirationMap<String, Set<ObjectPermission>>();
+        private final LoadingExpirationMap<String, Set<ObjectPermission>> objectPermissionsByObject =
+                new LoadingExpirationMap<String, Set<ObjectPermission>>();
 
         /**
          * Constructor.
          */
-        public UserState()
+        public UserState(Duration fetchTimeout)
         {
             objectPermissionsByObject.setExpiration(Duration.standardMinutes(USER_EXPIRATION_MINUTES));
+            objectPermissionsByObject.setFetchTimeout(fetchTimeout);
         }
     }
 
@@ -139,42 +150,57 @@ public class Cache
         // Set expiration durations
         userPermissionsByToken.setExpiration(Duration.standardMinutes(5));
         userInformationByUserId.setExpiration(Duration.standardMinutes(USER_EXPIRATION_MINUTES));
+        userInformationByUserId.setRefreshAfter(Duration.standardMinutes(USER_EXPIRATION_MINUTES - 1));
         groupByGroupId.setExpiration(Duration.standardMinutes(USER_EXPIRATION_MINUTES));
         userStateByToken.setExpiration(Duration.standardHours(1));
         resourceById.setExpiration(Duration.standardHours(1));
         reservationRequestById.setExpiration(Duration.standardMinutes(5));
         reservationById.setExpiration(Duration.standardMinutes(5));
+        reservationById.setRefreshAfter(Duration.standardMinutes(1));
         executableById.setExpiration(Duration.standardSeconds(10));
+        executableById.setRefreshAfter(Duration.standardSeconds(5));
         resourcesUtilizationByToken.setExpiration(Duration.standardMinutes(10));
         resourceIdsWithPublicCalendarByUriKey.setExpiration(Duration.standardMinutes(10));
     }
 
+    /**
+     * @param fetchTimeout maximum duration for waiting to loading of not cached values
+     */
+    public void setFetchTimeout(Duration fetchTimeout)
+    {
+        this.fetchTimeout = fetchTimeout;
+        userInformationByUserId.setFetchTimeout(fetchTimeout);
+        groupByGroupId.setFetchTimeout(fetchTimeout);
+        resourceById.setFetchTimeout(fetchTimeout);
+        reservationById.setFetchTimeout(fetchTimeout);
+        executableById.setFetchTimeout(fetchTimeout);
+    }
+
     /**
      * Method called each 5 minutes to clear expired items.
      */
     @Scheduled(fixedDelay = (USER_EXPIRATION_MINUTES * 60 * 1000))
-    public synchronized void clearExpired()
+    public void clearExpired()
     {
         logger.debug("Clearing expired user cache...");
-        DateTime dateTimeNow = DateTime.now();
-        userPermissionsByToken.clearExpired(dateTimeNow);
-        userInformationByUserId.clearExpired(dateTimeNow);
-        userStateByToken.clearExpired(dateTimeNow);
+        userPermissionsByToken.clearExpired();
+        userInformationByUserId.clearExpired();
+        userStateByToken.clearExpired();
         for (UserState userState : userStateByToken) {
-            userState.objectPermissionsByObject.clearExpired(dateTimeNow);
-        }
-        resourceById.clearExpired(dateTimeNow);
-        reservationRequestById.clearExpired(dateTimeNow);
-        reservationById.clearExpired(dateTimeNow);
-        executableById.clearExpired(dateTimeNow);
-        resourcesUtilizationByToken.clearExpired(dateTimeNow);
-        resourceIdsWithPublicCalendarByUriKey.clearExpired(dateTimeNow);
+            userState.objectPermissionsByObject.clearExpired();
+        }
+        resourceById.clearExpired();
+        reservationRequestById.clearExpired();
+        reservationById.clearExpired();
+        executableById.clearExpired();
+        resourcesUtilizationByToken.clearExpired();
+        resourceIdsWithPublicCalendarByUriKey.clearExpired();
     }
 
     /**
      * @param executableId to be removed from the {@link #executableById}
      */
-    public synchronized void clearExecutable(String executableId)
+    public void clearExecutable(String executableId)
     {
         executableById.remove(executableId);
     }
@@ -182,7 +208,7 @@ public class Cache
     /**
      * @param securityToken to be removed from the {@link #userPermissionsByToken}
      */
-    public synchronized void clearUserPermissions(SecurityToken securityToken)
+    public void clearUserPermissions(SecurityToken securityToken)
     {
         userPermissionsByToken.remove(securityToken);
     }
@@ -200,12 +226,13 @@ public class Cache
 
     public boolean hasUserPermission(SecurityToken securityToken, UserPermission userPermission)
     {
-        Map<UserPermission, Boolean> userPermissions;
-        synchronized (this) {
-            userPermissions = userPermissionsByToken.get(securityToken);
-            if (userPermissions == null) {
-                userPermissions = new HashMap<UserPermission, Boolean>();
-                userPermissionsByToken.put(securityToken, userPermissions);
+        Map<UserPermission, Boolean> userPermissions = userPermissionsByToken.get(securityToken);
+        if (userPermissions == null) {
+            userPermissions = new HashMap<UserPermission, Boolean>();
+            Map<UserPermission, Boolean> existingUserPermissions =
+                    userPermissionsByToken.putIfAbsent(securityToken, userPermissions);
+            if (existingUserPermissions != null) {
+                userPermissions = existingUserPermissions;
             }
         }
         synchronized (userPermissions) {
@@ -248,35 +275,37 @@ public class Cache
      * @param userId        user-id of the requested user
      * @return {@link UserInformation} for given {@code userId}
      */
-    public synchronized UserInformation getUserInformation(SecurityToken securityToken, String userId)
+    public UserInformation getUserInformation(final SecurityToken securityToken, final String userId)
     {
         if (userId == null) {
             return null;
         }
-        UserInformation userInformation = userInformationByUserId.get(userId);
-        if (userInformation == null) {
-            try {
-                ListResponse<UserInformation> response = authorizationService.listUsers(
-                        new UserListRequest(securityToken, userId));
-                if (response.getCount() == 0) {
-                    throw new ControllerReportSet.UserNotExistsException(userId);
+        return userInformationByUserId.get(userId, new Callable<UserInformation>()
+        {
+            @Override
+            public UserInformation call() throws Exception
+            {
+                try {
+                    ListResponse<UserInformation> response = authorizationService.listUsers(
+                            new UserListRequest(securityToken, userId));
+                    if (response.getCount() == 0) {
+                        throw new ControllerReportSet.UserNotExistsException(userId);
+                    }
+                    return response.getItem(0);
+                }
+                catch (ControllerReportSet.UserNotExistsException exception) {
+                    logger.warn("User with id '" + userId + "' doesn't exist.", exception);
+                    return createNotExistingUserInformation(userId);
                 }
-                userInformation = response.getItem(0);
-            }
-            catch (ControllerReportSet.UserNotExistsException exception) {
-                logger.warn("User with id '" + userId + "' doesn't exist.", exception);
-                userInformation = createNotExistingUserInformation(userId);
             }
-            userInformationByUserId.put(userId, userInformation);
-        }
-        return userInformation;
+        });
     }
 
     /**
      * @param securityToken to be used for fetching the {@link UserInformation}s
      * @param userIds       user-ids of the requested users
      */
-    public synchronized void fetchUserInformation(SecurityToken securityToken, Collection<String> userIds)
+    public void fetchUserInformation(SecurityToken securityToken, Collection<String> userIds)
     {
         Set<String> missingUserIds = null;
         for (String userId : userIds) {
@@ -318,31 +347,36 @@ public class Cache
      * @param groupId       group-id of the requested group
      * @return {@link Group} for given {@code groupId}
      */
-    public synchronized Group getGroup(SecurityToken securityToken, String groupId)
+    public Group getGroup(final SecurityToken securityToken, final String groupId)
     {
-        Group group = groupByGroupId.get(groupId);
-        if (group == null) {
-            ListResponse<Group> response = authorizationService.listGroups(
-                    new GroupListRequest(securityToken, groupId));
-            if (response.getCount() == 0) {
-                throw new RuntimeException("Group with id '" + groupId + "' doesn't exist.");
+        return groupByGroupId.get(groupId, new Callable<Group>()
+        {
+            @Override
+            public Group call() throws Exception
+            {
+                ListResponse<Group> response = authorizationService.listGroups(
+                        new GroupListRequest(securityToken, groupId));
+                if (response.getCount() == 0) {
+                    throw new RuntimeException("Group with id '" + groupId + "' doesn't exist.");
+                }
+                return response.getItem(0);
             }
-            group = response.getItem(0);
-            groupByGroupId.put(groupId, group);
-        }
-        return group;
+        });
     }
 
     /**
      * @param securityToken
      * @return {@link UserState} for user with given {@code securityToken}
      */
-    private synchronized UserState getUserState(SecurityToken securityToken)
+    private UserState getUserState(SecurityToken securityToken)
     {
         UserState userState = userStateByToken.get(securityToken);
         if (userState == null) {
-            userState = new UserState();
-            userStateByToken.put(securityToken, userState);
+            userState = new UserState(fetchTimeout);
+            UserState existingUserState = userStateByToken.putIfAbsent(securityToken, userState);
+            if (existingUserState != null) {
+                userState = existingUserState;
+            }
         }
         return userState;
     }
@@ -352,18 +386,21 @@ public class Cache
      * @param objectId      of the object
      * @return set of {@link ObjectPermission} for requesting user and given {@code objectId}
      */
-    public synchronized Set<ObjectPermission> getObjectPermissions(SecurityToken securityToken, String objectId)
+    public Set<ObjectPermission> getObjectPermissions(final SecurityToken securityToken, final String objectId)
     {
         UserState userState = getUserState(securityToken);
-        Set<ObjectPermission> objectPermissions = userState.objectPermissionsByObject.get(objectId);
-        if (objectPermissions == null) {
-            Map<String, ObjectPermissionSet> permissionsByObject = authorizationService.listObjectPermissions(
-                    new ObjectPermissionListRequest(securityToken, objectId));
-            objectPermissions = new HashSet<ObjectPermission>();
-            objectPermissions.addAll(permissionsByObject.get(objectId).getObjectPermissions());
-            userState.objectPermissionsByObject.put(objectId, objectPermissions);
-        }
-        return objectPermissions;
+        return userState.objectPermissionsByObject.get(objectId, new Callable<Set<ObjectPermission>>()
+        {
+            @Override
+            public Set<ObjectPermission> call() throws Exception
+            {
+                Map<String, ObjectPermissionSet> permissionsByObject = authorizationService.listObjectPermissions(
+                        new ObjectPermissionListRequest(securityToken, objectId));
+                Set<ObjectPermission> objectPermissions = new HashSet<ObjectPermission>();
+                objectPermissions.addAll(permissionsByObject.get(objectId).getObjectPermissions());
+                return objectPermissions;
+            }
+        });
     }
 
     /**
@@ -399,7 +436,7 @@ public class Cache
      * @return set of {@link ObjectPermission} for requesting user and given {@code objectId}
      *         or null if the {@link ObjectPermission}s aren't cached
      */
-    public synchronized Set<ObjectPermission> getObjectPermissionsWithoutFetching(
+    public Set<ObjectPermission> getObjectPermissionsWithoutFetching(
             SecurityToken securityToken, String objectId)
     {
         UserState userState = getUserState(securityToken);
@@ -413,7 +450,7 @@ public class Cache
      * @param objectIds
      * @return fetched {@link ObjectPermission}s by {@code objectIds}
      */
-    public synchronized Map<String, Set<ObjectPermission>> fetchObjectPermissions(
+    public Map<String, Set<ObjectPermission>> fetchObjectPermissions(
             SecurityToken securityToken, Set<String> objectIds)
     {
         Map<String, Set<ObjectPermission>> result = new HashMap<String, Set<ObjectPermission>>();
@@ -425,13 +462,10 @@ public class Cache
                 authorizationService.listObjectPermissions(new ObjectPermissionListRequest(securityToken, objectIds));
         for (Map.Entry<String, ObjectPermissionSet> entry : permissionsByObject.entrySet()) {
             String objectId = entry.getKey();
-            Set<ObjectPermission> objectPermissions = userState.objectPermissionsByObject.get(objectId);
-            if (objectPermissions == null) {
-                objectPermissions = new HashSet<ObjectPermission>();
-                userState.objectPermissionsByObject.put(objectId, objectPermissions);
-            }
-            objectPermissions.clear();
-            objectPermissions.addAll(entry.getValue().getObjectPermissions());
+            // Cached sets are read without locking and thus they are replaced and not modified
+            Set<ObjectPermission> objectPermissions =
+                    new HashSet<ObjectPermission>(entry.getValue().getObjectPermissions());
+            userState.objectPermissionsByObject.put(objectId, objectPermissions);
             result.put(objectId, objectPermissions);
         }
         return result;
@@ -441,7 +475,7 @@ public class Cache
      * @param securityToken to be used for fetching the {@link ResourceSummary}s
      * @param resourceIds   resource-ids to be fetched
      */
-    public synchronized void fetchResourceSummaries(SecurityToken securityToken, Collection<String> resourceIds)
+    public void fetchResourceSummaries(SecurityToken securityToken, Collection<String> resourceIds)
     {
         Set<String> missingResourceIds = null;
         for (String resourceId : resourceIds) {
@@ -476,18 +510,26 @@ public class Cache
      * @param resourceId
      * @return {@link ResourceSummary} for given {@code resourceId}
      */
-    public ResourceSummary getResourceSummary(SecurityToken securityToken, String resourceId)
+    public ResourceSummary getResourceSummary(final SecurityToken securityToken, final String resourceId)
     {
-        ResourceSummary resourceSummary = resourceById.get(resourceId);
-        if (resourceSummary == null) {
-            ResourceListRequest request = new ResourceListRequest();
-            request.setSecurityToken(securityToken);
-            request.addResourceId(resourceId);
-            ListResponse<ResourceSummary> response = resourceService.listResources(request);
-            if (response.getItemCount() == 1) {
-                resourceSummary = response.getItem(0);
-                resourceById.put(resourceSummary.getId(), resourceSummary);
+        ResourceSummary resourceSummary = resourceById.get(resourceId, new Callable<ResourceSummary>()
+        {
+            @Override
+            public ResourceSummary call() throws Exception
+            {
+                ResourceListRequest request = new ResourceListRequest();
+                request.setSecurityToken(securityToken);
+                request.addResourceId(resourceId);
+                ListResponse<ResourceSummary> response = resourceService.listResources(request);
+                if (response.getItemCount() == 1) {
+                    return response.getItem(0);
+                }
+                return null;
             }
+        });
+        if (resourceSummary == null) {
+            // Not existing resource shouldn't be cached
+            resourceById.remove(resourceId);
         }
         return resourceSummary;
     }
@@ -498,7 +540,7 @@ public class Cache
      * @param securityToken
      * @param reservationRequestIds
      */
-    public synchronized void fetchReservationRequests(SecurityToken securityToken, Set<String> reservationRequestIds)
+    public void fetchReservationRequests(SecurityToken securityToken, Set<String> reservationRequestIds)
     {
         Set<String> missingReservationRequestIds = null;
         for (String reservationRequestId : reservationRequestIds) {
@@ -530,7 +572,7 @@ public class Cache
      * @param reservationRequestId
      * @return {@link ReservationRequestSummary} for given {@code reservationRequestId}
      */
-    public synchronized ReservationRequestSummary getReservationRequestSummary(SecurityToken securityToken,
+    public ReservationRequestSummary getReservationRequestSummary(SecurityToken securityToken,
             String reservationRequestId)
     {
         ReservationRequestSummary reservationRequest = reservationRequestById.get(reservationRequestId);
@@ -548,7 +590,7 @@ public class Cache
      * @param reservationRequestId
      * @return {@link ReservationRequestSummary} for given {@code reservationRequestId}
      */
-    public synchronized ReservationRequestSummary getAllocatedReservationRequestSummary(SecurityToken securityToken,
+    public ReservationRequestSummary getAllocatedReservationRequestSummary(SecurityToken securityToken,
             String reservationRequestId)
     {
         ReservationRequestSummary reservationRequest = reservationRequestById.get(reservationRequestId);
@@ -563,7 +605,7 @@ public class Cache
      * @param reservationRequestId
      * @return {@link ReservationRequestSummary} for given {@code reservationRequestId}
      */
-    public synchronized ReservationRequestSummary getReservationRequestSummaryNotCached(SecurityToken securityToken,
+    public ReservationRequestSummary getReservationRequestSummaryNotCached(SecurityToken securityToken,
             String reservationRequestId)
     {
         ReservationRequestListRequest request = new ReservationRequestListRequest();
@@ -585,14 +627,16 @@ public class Cache
      * @param reservationId
      * @return {@link Reservation} for given {@code reservationId}
      */
-    public synchronized Reservation getReservation(SecurityToken securityToken, String reservationId)
+    public Reservation getReservation(final SecurityToken securityToken, final String reservationId)
     {
-        Reservation reservation = reservationById.get(reservationId);
-        if (reservation == null) {
-            reservation = reservationService.getReservation(securityToken, reservationId);
-            reservationById.put(reservationId, reservation);
-        }
-        return reservation;
+        return reservationById.get(reservationId, new Callable<Reservation>()
+        {
+            @Override
+            public Reservation call() throws Exception
+            {
+                return reservationService.getReservation(securityToken, reservationId);
+            }
+        });
     }
 
     /**
@@ -600,7 +644,7 @@ public class Cache
      * @param executable
      * @return reservation request id for given {@code executable}
      */
-    public synchronized String getReservationRequestIdByExecutable(SecurityToken securityToken, Executable executable)
+    public String getReservationRequestIdByExecutable(SecurityToken securityToken, Executable executable)
     {
         Reservation reservation = getReservation(securityToken, executable.getReservationId());
         return reservation.getReservationRequestId();
@@ -611,7 +655,7 @@ public class Cache
      * @param objectId
      * @return reservation request id for given {@code objectId}
      */
-    public synchronized String getReservationRequestId(SecurityToken securityToken, String objectId)
+    public String getReservationRequestId(SecurityToken securityToken, String objectId)
     {
         if (objectId.contains(":req:")) {
             return objectId;
@@ -667,14 +711,16 @@ public class Cache
      * @param executableId
      * @return {@link Executable} for given {@code executableId}
      */
-    public synchronized Executable getExecutable(SecurityToken securityToken, String executableId)
+    public Executable getExecutable(final SecurityToken securityToken, final String executableId)
     {
-        Executable executable = executableById.get(executableId);
-        if (executable == null) {
-            executable = executableService.getExecutable(securityToken, executableId);
-            executableById.put(executableId, executable);
-        }
-        return executable;
+        return executableById.get(executableId, new Callable<Executable>()
+        {
+            @Override
+            public Executable call() throws Exception
+            {
+                return executableService.getExecutable(securityToken, executableId);
+            }
+        });
     }
 
     /**
@@ -704,7 +750,7 @@ public class Cache
     public String getResourceIdWithUriKey(String uriKey)
     {
 
-        resourceIdsWithPublicCalendarByUriKey.clearExpired(DateTime.now());
+        resourceIdsWithPublicCalendarByUriKey.clearExpired();
         //Check if resource really exists
         if (resourceIdsWithPublicCalendarByUriKey.size() == 0) {
             for (ResourceSummary resourceSummary: resourceService.getResourceIdsWithPublicCalendar()) {
@@ -3,6 +3,8 @@ package cz.cesnet.shongo.client.web;
 import com.google.common.base.Strings;
 import net.tanesha.recaptcha.ReCaptcha;
 import org.apache.commons.configuration.*;
+import org.joda.time.Duration;
+import org.joda.time.Period;
 
 import java.io.File;
 import java.net.MalformedURLException;
@@ -317,6 +319,13 @@ public class ClientWebConfiguration extends CombinedConfiguration {
         return design;
     }
 
+    /**
+     * @return maximum duration for waiting to loading of values which aren't cached
+     */
+    public Duration getCacheFetchTimeout() {
+        return Period.parse(getString("cache.fetch-timeout")).toStandardDuration();
+    }
+
     public boolean isOffline() {
         return getBoolean("testing.offline", false);
     }
@@ -1,7 +1,7 @@
 
 package cz.cesnet.shongo.client.web;
 
-import cz.cesnet.shongo.ExpirationMap;
+import cz.cesnet.shongo.LoadingExpirationMap;
 import cz.cesnet.shongo.api.MediaData;
 import cz.cesnet.shongo.api.Room;
 import cz.cesnet.shongo.api.RoomParticipant;
@@ -17,9 +17,14 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Resource;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * Cache of information for management of rooms.
+ * <p/>
+ * Information is loaded by {@link LoadingExpirationMap}s and thus a slow device blocks only requests for its rooms
+ * (concurrent requests for the same room share a single loading) and outdated information is served while it is
+ * reloaded in the background.
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
@@ -39,63 +44,78 @@ public class RoomCache
     /**
      * {@link RoomExecutable} by roomExecutableId.
      */
-    private final ExpirationMap<String, RoomExecutable> roomExecutableCache =
-            new ExpirationMap<String, RoomExecutable>();
+    private final LoadingExpirationMap<String, RoomExecutable> roomExecutableCache =
+            new LoadingExpirationMap<String, RoomExecutable>();
 
     /**
      * {@link Room} by roomExecutableId".
      */
-    private final ExpirationMap<String, Room> roomCache =
-            new ExpirationMap<String, Room>();
+    private final LoadingExpirationMap<String, Room> roomCache =
+            new LoadingExpirationMap<String, Room>();
 
     /**
      * Collection of {@link RoomParticipant}s by roomExecutableId.
      */
-    private final ExpirationMap<String, List<RoomParticipant>> roomParticipantsCache =
-            new ExpirationMap<String, List<RoomParticipant>>();
+    private final LoadingExpirationMap<String, List<RoomParticipant>> roomParticipantsCache =
+            new LoadingExpirationMap<String, List<RoomParticipant>>();
 
     /**
      * {@link RoomParticipant} by "roomExecutableId:participantId".
      */
-    private final ExpirationMap<String, RoomParticipant> roomParticipantCache =
-            new ExpirationMap<String, RoomParticipant>();
+    private final LoadingExpirationMap<String, RoomParticipant> roomParticipantCache =
+            new LoadingExpirationMap<String, RoomParticipant>();
 
     /**
      * Participant snapshots in {@link MediaData} by "roomExecutableId:participantId".
      */
-    private final ExpirationMap<String, MediaData> roomParticipantSnapshotCache =
-            new ExpirationMap<String, MediaData>();
+    private final LoadingExpirationMap<String, MediaData> roomParticipantSnapshotCache =
+            new LoadingExpirationMap<String, MediaData>();
 
     /**
      * Constructor.
      */
     public RoomCache()
     {
-        // Set expiration durations
+        // Set expiration durations (values older than refresh durations are reloaded in the background)
         roomCache.setExpiration(Duration.standardSeconds(30));
+        roomCache.setRefreshAfter(Duration.standardSeconds(10));
         roomParticipantsCache.setExpiration(Duration.standardSeconds(15));
+        roomParticipantsCache.setRefreshAfter(Duration.standardSeconds(5));
         roomExecutableCache.setExpiration(Duration.standardSeconds(15));
+        roomExecutableCache.setRefreshAfter(Duration.standardSeconds(5));
         roomParticipantSnapshotCache.setExpiration(Duration.standardSeconds(15));
     }
 
+    /**
+     * @param fetchTimeout maximum duration for waiting to loading of not cached information
+     */
+    public void setFetchTimeout(Duration fetchTimeout)
+    {
+        roomExecutableCache.setFetchTimeout(fetchTimeout);
+        roomCache.setFetchTimeout(fetchTimeout);
+        roomParticipantsCache.setFetchTimeout(fetchTimeout);
+        roomParticipantCache.setFetchTimeout(fetchTimeout);
+        roomParticipantSnapshotCache.setFetchTimeout(fetchTimeout);
+    }
+
     /**
      * @param securityToken
      * @param roomExecutableId
      * @return {@link Room} for given {@code roomExecutableId}
      */
-    public Room getRoom(SecurityToken securityToken, String roomExecutableId)
+    public Room getRoom(final SecurityToken securityToken, final String roomExecutableId)
     {
-        synchronized (roomCache) {
-            Room room = roomCache.get(roomExecutableId);
-            if (room == null) {
+        return roomCache.get(roomExecutableId, new Callable<Room>()
+        {
+            @Override
+            public Room call() throws Exception
+            {
                 RoomExecutable roomExecutable = getRoomExecutable(securityToken, roomExecutableId);
                 String resourceId = roomExecutable.getResourceId();
                 String resourceRoomId = roomExecutable.getRoomId();
-                room = resourceControlService.getRoom(securityToken, resourceId, resourceRoomId);
-                roomCache.put(roomExecutableId, room);
+                return resourceControlService.getRoom(securityToken, resourceId, resourceRoomId);
             }
-            return room;
-        }
+        });
     }
 
     /**
@@ -106,15 +126,13 @@ public class RoomCache
      */
     public void modifyRoom(SecurityToken securityToken, String roomExecutableId, Room room)
     {
-        synchronized (roomCache) {
-            RoomExecutable roomExecutable = getRoomExecutable(securityToken, roomExecutableId);
-            String resourceId = roomExecutable.getResourceId();
-            if (!room.getId().equals(roomExecutable.getRoomId())) {
-                throw new IllegalArgumentException("Room doesn't correspond to given executable.");
-            }
-            resourceControlService.modifyRoom(securityToken, resourceId, room);
-            roomCache.put(roomExecutableId, room);
+        RoomExecutable roomExecutable = getRoomExecutable(securityToken, roomExecutableId);
+        String resourceId = roomExecutable.getResourceId();
+        if (!room.getId().equals(roomExecutable.getRoomId())) {
+            throw new IllegalArgumentException("Room doesn't correspond to given executable.");
         }
+        resourceControlService.modifyRoom(securityToken, resourceId, room);
+        roomCache.put(roomExecutableId, room);
     }
 
     /**
@@ -122,26 +140,26 @@ public class RoomCache
      * @param roomExecutableId
      * @return collection of {@link RoomParticipant}s for given {@code roomExecutableId}
      */
-    public List<RoomParticipant> getRoomParticipants(SecurityToken securityToken, String roomExecutableId)
+    public List<RoomParticipant> getRoomParticipants(final SecurityToken securityToken,
+            final String roomExecutableId)
     {
-        synchronized (roomParticipantsCache) {
-            List<RoomParticipant> roomParticipants = roomParticipantsCache.get(roomExecutableId);
-            if (roomParticipants == null) {
+        return roomParticipantsCache.get(roomExecutableId, new Callable<List<RoomParticipant>>()
+        {
+            @Override
+            public List<RoomParticipant> call() throws Exception
+            {
                 RoomExecutable roomExecutable = getRoomExecutable(securityToken, roomExecutableId);
                 String resourceId = roomExecutable.getResourceId();
                 String resourceRoomId = roomExecutable.getRoomId();
-                roomParticipants = new LinkedList<RoomParticipant>();
-                synchronized (roomParticipantCache) {
-                    for (RoomParticipant roomParticipant : resourceControlService.listRoomParticipants(
-                            securityToken, resourceId, resourceRoomId)) {
-                        roomParticipants.add(roomParticipant);
-                        roomParticipantCache.put(roomExecutableId + ":" + roomParticipant.getId(), roomParticipant);
-                    }
+                List<RoomParticipant> roomParticipants = new LinkedList<RoomParticipant>();
+                for (RoomParticipant roomParticipant : resourceControlService.listRoomParticipants(
+                        securityToken, resourceId, resourceRoomId)) {
+                    roomParticipants.add(roomParticipant);
+                    roomParticipantCache.put(roomExecutableId + ":" + roomParticipant.getId(), roomParticipant);
                 }
-                roomParticipantsCache.put(roomExecutableId, roomParticipants);
+                return roomParticipants;
             }
-            return roomParticipants;
-        }
+        });
     }
 
     /**
@@ -150,24 +168,26 @@ public class RoomCache
      * @param roomParticipantId
      * @return {@link RoomParticipant} for given {@code roomExecutableId} and {@code roomParticipantId}
      */
-    public RoomParticipant getRoomParticipant(SecurityToken securityToken, String roomExecutableId, String roomParticipantId)
+    public RoomParticipant getRoomParticipant(final SecurityToken securityToken, final String roomExecutableId,
+            final String roomParticipantId)
     {
         String cacheId = roomExecutableId + ":" + roomParticipantId;
-        synchronized (roomParticipantCache) {
-            RoomParticipant roomParticipant = roomParticipantCache.get(cacheId);
-            if (roomParticipant == null) {
+        return roomParticipantCache.get(cacheId, new Callable<RoomParticipant>()
+        {
+            @Override
+            public RoomParticipant call() throws Exception
+            {
                 RoomExecutable roomExecutable = getRoomExecutable(securityToken, roomExecutableId);
                 String resourceId = roomExecutable.getResourceId();
                 String resourceRoomId = roomExecutable.getRoomId();
-                roomParticipant = resourceControlService.getRoomParticipant(
+                RoomParticipant roomParticipant = resourceControlService.getRoomParticipant(
                         securityToken, resourceId, resourceRoomId, roomParticipantId);
                 if (roomParticipant == null) {
                     throw new IllegalArgumentException("Room participant " + roomParticipantId + " doesn't exist.");
                 }
-                roomParticipantCache.put(cacheId, roomParticipant);
+                return roomParticipant;
             }
-            return roomParticipant;
-        }
+        });
     }
 
     /**
@@ -182,12 +202,8 @@ public class RoomCache
         String resourceRoomId = roomExecutable.getRoomId();
         roomParticipant.setRoomId(resourceRoomId);
         resourceControlService.modifyRoomParticipant(securityToken, resourceId, roomParticipant);
-        synchronized (roomParticipantCache) {
-            roomParticipantCache.remove(roomParticipant.getId());
-        }
-        synchronized (roomParticipantsCache) {
-            roomParticipantsCache.remove(roomExecutableId);
-        }
+        roomParticipantCache.remove(roomParticipant.getId());
+        roomParticipantsCache.remove(roomExecutableId);
     }
 
     /**
@@ -202,17 +218,13 @@ public class RoomCache
         String resourceRoomId = roomExecutable.getRoomId();
         roomParticipants.setRoomId(resourceRoomId);
         resourceControlService.modifyRoomParticipants(securityToken, resourceId, roomParticipants);
-        synchronized (roomParticipantCache) {
-            List<RoomParticipant> participants = roomParticipantsCache.get(roomExecutableId);
-            if (participants != null) {
-                for (RoomParticipant roomParticipant : participants) {
-                    roomParticipantCache.remove(roomExecutableId + ":" + roomParticipant.getId());
-                }
+        List<RoomParticipant> participants = roomParticipantsCache.get(roomExecutableId);
+        if (participants != null) {
+            for (RoomParticipant roomParticipant : participants) {
+                roomParticipantCache.remove(roomExecutableId + ":" + roomParticipant.getId());
             }
         }
-        synchronized (roomParticipantsCache) {
-            roomParticipantsCache.remove(roomExecutableId);
-        }
+        roomParticipantsCache.remove(roomExecutableId);
     }
 
     /**
@@ -221,11 +233,15 @@ public class RoomCache
      * @param roomParticipantId
      * @return {@link cz.cesnet.shongo.api.MediaData} snapshot of room participant
      */
-    public MediaData getRoomParticipantSnapshot(SecurityToken securityToken, String roomExecutableId, String roomParticipantId)
+    public MediaData getRoomParticipantSnapshot(final SecurityToken securityToken, final String roomExecutableId,
+            final String roomParticipantId)
     {
         String cacheId = roomExecutableId + ":" + roomParticipantId;
-        synchronized (roomParticipantSnapshotCache) {
-            if (!roomParticipantSnapshotCache.contains(cacheId)) {
+        return roomParticipantSnapshotCache.get(cacheId, new Callable<MediaData>()
+        {
+            @Override
+            public MediaData call() throws Exception
+            {
                 RoomExecutable roomExecutable = getRoomExecutable(securityToken, roomExecutableId);
                 String resourceId = roomExecutable.getResourceId();
                 String resourceRoomId = roomExecutable.getRoomId();
@@ -233,11 +249,9 @@ public class RoomCache
                 roomParticipantIds.add(roomParticipantId);
                 Map<String, MediaData> participantSnapshots = resourceControlService.getRoomParticipantSnapshots(
                         securityToken, resourceId, resourceRoomId, roomParticipantIds);
-                MediaData roomParticipantSnapshot = participantSnapshots.get(roomParticipantId);
-                roomParticipantSnapshotCache.put(cacheId, roomParticipantSnapshot);
+                return participantSnapshots.get(roomParticipantId);
             }
-            return roomParticipantSnapshotCache.get(cacheId);
-        }
+        });
     }
 
     /**
@@ -251,12 +265,8 @@ public class RoomCache
         String resourceId = roomExecutable.getResourceId();
         String resourceRoomId = roomExecutable.getRoomId();
         resourceControlService.disconnectRoomParticipant(securityToken, resourceId, resourceRoomId, roomParticipantId);
-        synchronized (roomParticipantCache) {
-            roomParticipantCache.remove(roomParticipantId);
-        }
-        synchronized (roomParticipantsCache) {
-            roomParticipantsCache.remove(roomExecutableId);
-        }
+        roomParticipantCache.remove(roomParticipantId);
+        roomParticipantsCache.remove(roomExecutableId);
     }
 
     /**
@@ -264,21 +274,21 @@ public class RoomCache
      * @param roomExecutableId
      * @return {@link RoomExecutable} for given {@code roomExecutableId}
      */
-    public RoomExecutable getRoomExecutable(SecurityToken securityToken, String roomExecutableId)
+    public RoomExecutable getRoomExecutable(final SecurityToken securityToken, final String roomExecutableId)
     {
-        synchronized (roomExecutableCache) {
-            RoomExecutable roomExecutable = roomExecutableCache.get(roomExecutableId);
-            if (roomExecutable == null) {
+        return roomExecutableCache.get(roomExecutableId, new Callable<RoomExecutable>()
+        {
+            @Override
+            public RoomExecutable call() throws Exception
+            {
                 Executable executable = cache.getExecutable(securityToken, roomExecutableId);
                 if (executable instanceof RoomExecutable) {
-                    roomExecutable = (RoomExecutable) executable;
+                    return (RoomExecutable) executable;
                 }
                 else {
                     throw new UnsupportedApiException(executable);
                 }
-                roomExecutableCache.put(roomExecutableId, roomExecutable);
             }
-            return roomExecutable;
-        }
+        });
     }
 }
@@ -143,6 +143,8 @@ public class DetailReservationRequestController extends AbstractDetailController
             @PathVariable(value = "objectId") String objectId,
             @RequestParam(value = "start", required = false) Integer start,
             @RequestParam(value = "count", required = false) Integer count,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "skip-count", required = false) Boolean skipCount,
             @RequestParam(value = "sort", required = false, defaultValue = "SLOT") ReservationRequestListRequest.Sort sort,
             @RequestParam(value = "sort-desc", required = false, defaultValue = "true") boolean sortDescending)
     {
@@ -153,6 +155,8 @@ public class DetailReservationRequestController extends AbstractDetailController
         request.setSecurityToken(securityToken);
         request.setStart(start);
         request.setCount(count);
+        request.setCursor(cursor);
+        request.setSkipCount(skipCount);
         request.setParentReservationRequestId(reservationRequestId);
         request.setSort(sort);
         request.setSortDescending(sortDescending);
@@ -220,6 +224,7 @@ public class DetailReservationRequestController extends AbstractDetailController
         Map<String, Object> data = new HashMap<String, Object>();
         data.put("start", response.getStart());
         data.put("count", response.getCount());
+        data.put("cursor", response.getCursor());
         data.put("sort", sort);
         data.put("sort-desc", sortDescending);
         data.put("items", children);
@@ -238,6 +243,8 @@ public class DetailReservationRequestController extends AbstractDetailController
             @PathVariable(value = "objectId") String objectId,
             @RequestParam(value = "start", required = false) Integer start,
             @RequestParam(value = "count", required = false) Integer count,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "skip-count", required = false) Boolean skipCount,
             @RequestParam(value = "sort", required = false, defaultValue = "SLOT") ReservationRequestListRequest.Sort sort,
             @RequestParam(value = "sort-desc", required = false, defaultValue = "true") boolean sortDescending)
     {
@@ -248,6 +255,8 @@ public class DetailReservationRequestController extends AbstractDetailController
         request.setSecurityToken(securityToken);
         request.setStart(start);
         request.setCount(count);
+        request.setCursor(cursor);
+        request.setSkipCount(skipCount);
         request.setSort(sort);
         request.setSortDescending(sortDescending);
         request.setReusedReservationRequestId(reservationRequestId);
@@ -297,6 +306,7 @@ public class DetailReservationRequestController extends AbstractDetailController
         Map<String, Object> data = new HashMap<String, Object>();
         data.put("start", response.getStart());
         data.put("count", response.getCount());
+        data.put("cursor", response.getCursor());
         data.put("sort", sort);
         data.put("sort-desc", sortDescending);
         data.put("items", usages);
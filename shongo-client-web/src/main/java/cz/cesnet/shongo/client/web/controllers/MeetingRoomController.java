@@ -75,6 +75,8 @@ public class MeetingRoomController {
             SecurityToken securityToken,
             @RequestParam(value = "start", required = false) Integer start,
             @RequestParam(value = "count", required = false) Integer count,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "skip-count", required = false) Boolean skipCount,
             @RequestParam(value = "sort", required = false,
                     defaultValue = "SLOT") ReservationRequestListRequest.Sort sort,
             @RequestParam(value = "sort-desc", required = false, defaultValue = "true") boolean sortDescending,
@@ -92,6 +94,8 @@ public class MeetingRoomController {
         request.setSecurityToken(securityToken);
         request.setStart(start);
         request.setCount(count);
+        request.setCursor(cursor);
+        request.setSkipCount(skipCount);
         request.setSort(sort);
         request.setSortDescending(sortDescending);
         request.setAllocationState(allocationState);
@@ -234,6 +238,7 @@ public class MeetingRoomController {
         Map<String, Object> data = new HashMap<String, Object>();
         data.put("start", response.getStart());
         data.put("count", response.getCount());
+        data.put("cursor", response.getCursor());
         data.put("sort", sort);
         data.put("sort-desc", sortDescending);
         data.put("items", items);
@@ -251,6 +256,8 @@ public class MeetingRoomController {
             SecurityToken securityToken,
             @RequestParam(value = "start", required = false) Integer start,
             @RequestParam(value = "count", required = false) Integer count,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "skip-count", required = false) Boolean skipCount,
             @RequestParam(value = "sort", required = false,
                     defaultValue = "SLOT") ReservationListRequest.Sort sort,
             @RequestParam(value = "sort-desc", required = false, defaultValue = "false") boolean sortDescending,
@@ -268,6 +275,8 @@ public class MeetingRoomController {
         request.setSecurityToken(securityToken);
         request.setStart(start);
         request.setCount(count);
+        request.setCursor(cursor);
+        request.setSkipCount(skipCount);
         request.setSort(sort);
         request.setSortDescending(sortDescending);
         request.addReservationType(ReservationSummary.Type.RESOURCE);
@@ -331,6 +340,7 @@ public class MeetingRoomController {
         Map<String, Object> data = new HashMap<String, Object>();
         data.put("start", response.getStart());
         data.put("count", response.getCount());
+        data.put("cursor", response.getCursor());
         data.put("sort", sort);
         data.put("sort-desc", sortDescending);
         data.put("items", items);
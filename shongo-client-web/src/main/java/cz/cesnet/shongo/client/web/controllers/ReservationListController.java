@@ -72,6 +72,8 @@ public class ReservationListController
             SecurityToken securityToken,
             @RequestParam(value = "start", required = false) Integer start,
             @RequestParam(value = "count", required = false) Integer count,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "skip-count", required = false) Boolean skipCount,
             @RequestParam(value = "sort", required = false,
                     defaultValue = "DATETIME") ReservationRequestListRequest.Sort sort,
             @RequestParam(value = "sort-desc", required = false, defaultValue = "true") boolean sortDescending,
@@ -90,6 +92,8 @@ public class ReservationListController
         request.setSecurityToken(securityToken);
         request.setStart(start);
         request.setCount(count);
+        request.setCursor(cursor);
+        request.setSkipCount(skipCount);
         request.setSort(sort);
         request.setSortDescending(sortDescending);
         request.setAllocationState(allocationState);
@@ -274,6 +278,7 @@ public class ReservationListController
         Map<String, Object> data = new HashMap<String, Object>();
         data.put("start", response.getStart());
         data.put("count", response.getCount());
+        data.put("cursor", response.getCursor());
         data.put("sort", sort);
         data.put("sort-desc", sortDescending);
         data.put("items", items);
@@ -27,6 +27,7 @@ paginationModule.controller('ReadyController', function ($scope) {
  *         count: <total-number-of-all-items>,
  *         sort: <column-by-which-are-items-sorted>,
  *         sort-desc: <boolean-whether-sorting-is-descending>,
+ *         cursor: <optional-cursor-for-items-following-the-requested-items>,
  *         items: [
  *             <requested-items>
  *         ]
@@ -177,7 +178,12 @@ paginationModule.controller('PaginationController', function ($scope, $applicati
             if (pageActive && pageIndex != $scope.pageIndex) {
                 $scope.pageIndex = pageIndex;
             }
-            $scope.pages.push({start: pageStart, active: pageActive});
+            var page = {start: pageStart, active: pageActive};
+            if (data.cursor != null && pageStart == (data.start + data.items.length)) {
+                // Following page can be fetched by cursor
+                page.cursor = data.cursor;
+            }
+            $scope.pages.push(page);
         }
 
         if ( $scope.onSetData != null ) {
@@ -304,14 +310,17 @@ paginationModule.controller('PaginationController', function ($scope, $applicati
 
             // Store configuration
             $scope.storeConfiguration();
-        });
+        }, page.cursor);
     };
 
-    $scope.performList = function (start, callback) {
+    $scope.performList = function (start, callback, cursor) {
         var listParameters = {
             'start': start,
             'count': $scope.pageSize
         };
+        if (cursor != null) {
+            listParameters['cursor'] = cursor;
+        }
         if ($scope.sort != null) {
             listParameters['sort'] = $scope.sort;
             listParameters['sort-desc'] = $scope.sortDesc;
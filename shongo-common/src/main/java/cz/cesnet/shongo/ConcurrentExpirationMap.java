@@ -0,0 +1,679 @@
+package cz.cesnet.shongo;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent variant of {@link ExpirationMap} with the same API which can be shared by many threads.
+ * <p/>
+ * Entries are stored in a lock-striped {@link ConcurrentHashMap} and thus reads are lock-free and writes lock only
+ * a part of the map. Each operation reads the monotonic {@link System#nanoTime()} at most once. Expired entries
+ * are not returned and they are removed by a background sweeper (which runs with {@link #sweepPeriod} as long
+ * as the map is reachable) or when they are read.
+ * <p/>
+ * Optionally the map can be limited by {@link #maximumSize}, when the least recently used entries are evicted
+ * whenever the size is exceeded (each evicted entry is the least recently used one from a small sample of entries,
+ * so the eviction doesn't scan or sort the whole map). Hits, misses, evictions and expirations are counted.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class ConcurrentExpirationMap<K, V> implements Iterable<V>
+{
+    /**
+     * Expiration time of entries which never expire.
+     */
+    private static final long NO_EXPIRATION = Long.MAX_VALUE;
+
+    /**
+     * Minimum and maximum period of the background sweeper.
+     */
+    private static final long MIN_SWEEP_PERIOD = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_SWEEP_PERIOD = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * When the {@link #maximumSize} is exceeded, entries are evicted until the size is lower by this fraction
+     * of the {@link #maximumSize} (so the eviction is not performed for each put).
+     */
+    private static final int EVICTION_FRACTION = 10;
+
+    /**
+     * Number of entries from which the least recently used one is evicted.
+     */
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    /**
+     * Single thread executor for sweeping expired entries of all maps.
+     */
+    private static final ScheduledExecutorService SWEEPER =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "expiration-map-sweeper");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * Entries by keys.
+     */
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<K, Entry<V>>();
+
+    /**
+     * Expiration in nanoseconds for newly put entries or {@code -1} when the entries don't expire.
+     */
+    private volatile long expiration = -1;
+
+    /**
+     * Maximum number of entries or {@code 0} when the number of entries isn't limited.
+     */
+    private volatile int maximumSize = 0;
+
+    /**
+     * Period of sweeping of expired entries in nanoseconds (by default derived from {@link #expiration}).
+     */
+    private long sweepPeriod = 0;
+
+    /**
+     * Scheduled sweeping of expired entries.
+     */
+    private ScheduledFuture<?> sweeperFuture;
+
+    /**
+     * Lock for evicting of least recently used entries.
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * Iterator over {@link #entries} from which the entries for eviction are sampled (guarded by the
+     * {@link #evictionLock}). It is continued by each eviction and thus all entries are sampled in turn.
+     */
+    private Iterator<Map.Entry<K, Entry<V>>> evictionIterator;
+
+    /**
+     * Number of reads which returned a value.
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * Number of reads which didn't return a value.
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Number of entries evicted because of {@link #maximumSize}.
+     */
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Number of removed expired entries.
+     */
+    private final AtomicLong expirationCount = new AtomicLong();
+
+    /**
+     * Constructor.
+     */
+    public ConcurrentExpirationMap()
+    {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expiration sets the {@link #expiration}
+     */
+    public ConcurrentExpirationMap(Duration expiration)
+    {
+        setExpiration(expiration);
+    }
+
+    /**
+     * @param expiration sets the {@link #expiration}
+     */
+    public synchronized void setExpiration(Duration expiration)
+    {
+        this.expiration = (expiration != null ? TimeUnit.MILLISECONDS.toNanos(expiration.getMillis()) : -1);
+        scheduleSweeper();
+    }
+
+    /**
+     * @param maximumSize sets the {@link #maximumSize}
+     */
+    public void setMaximumSize(int maximumSize)
+    {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Maximum size must not be negative.");
+        }
+        this.maximumSize = maximumSize;
+        if (maximumSize > 0 && entries.size() > maximumSize) {
+            evict();
+        }
+    }
+
+    /**
+     * @param sweepPeriod sets the {@link #sweepPeriod} ({@code null} means the default period)
+     */
+    public synchronized void setSweepPeriod(Duration sweepPeriod)
+    {
+        this.sweepPeriod = (sweepPeriod != null ? TimeUnit.MILLISECONDS.toNanos(sweepPeriod.getMillis()) : 0);
+        scheduleSweeper();
+    }
+
+    /**
+     * (Re)schedule the background sweeper according to the {@link #expiration} and {@link #sweepPeriod}.
+     */
+    private void scheduleSweeper()
+    {
+        if (sweeperFuture != null) {
+            sweeperFuture.cancel(false);
+            sweeperFuture = null;
+        }
+        if (expiration < 0) {
+            return;
+        }
+        long period = sweepPeriod;
+        if (period <= 0) {
+            period = Math.min(Math.max(expiration, MIN_SWEEP_PERIOD), MAX_SWEEP_PERIOD);
+        }
+        Sweeper sweeper = new Sweeper(this);
+        sweeperFuture = SWEEPER.scheduleWithFixedDelay(sweeper, period, period, TimeUnit.NANOSECONDS);
+        sweeper.future = sweeperFuture;
+    }
+
+    /**
+     * @param entry
+     * @param time  which represents "now" in {@link System#nanoTime()}
+     * @return true whether given {@code entry} is valid in given {@code time}, false whether it is expired
+     */
+    private static boolean isValid(Entry<?> entry, long time)
+    {
+        return entry.expirationTime == NO_EXPIRATION || entry.expirationTime - time > 0;
+    }
+
+    /**
+     * @param key
+     * @param time which represents "now" in {@link System#nanoTime()}
+     * @return valid {@link Entry} for given {@code key} or null
+     */
+    private Entry<V> getEntry(K key, long time)
+    {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            if (isValid(entry, time)) {
+                return entry;
+            }
+            if (entries.remove(key, entry)) {
+                expirationCount.incrementAndGet();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param key
+     * @return true if given {@code key} exists, false otherwise
+     */
+    public boolean contains(K key)
+    {
+        return getEntry(key, System.nanoTime()) != null;
+    }
+
+    /**
+     * @param key
+     * @return {@link V} by given {@code key}
+     */
+    public V get(K key)
+    {
+        long time = System.nanoTime();
+        Entry<V> entry = getEntry(key, time);
+        if (entry != null) {
+            if (maximumSize > 0) {
+                entry.accessTime = time;
+            }
+            hitCount.incrementAndGet();
+            return entry.value;
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param value
+     * @param time  which represents "now" in {@link System#nanoTime()}
+     * @return new {@link Entry} for given {@code value}
+     */
+    private Entry<V> createEntry(V value, long time)
+    {
+        long expiration = this.expiration;
+        return new Entry<V>(value, (expiration >= 0 ? time + expiration : NO_EXPIRATION), time);
+    }
+
+    /**
+     * Put given {@code value} to the cache by the given {@code key}.
+     *
+     * @param key
+     * @param value
+     */
+    public void put(K key, V value)
+    {
+        entries.put(key, createEntry(value, System.nanoTime()));
+        checkMaximumSize();
+    }
+
+    /**
+     * Put given {@code value} to the cache by the given {@code key} only when the {@code key} doesn't exist.
+     *
+     * @param key
+     * @param value
+     * @return existing value for the {@code key} or null when the given {@code value} was put
+     */
+    public V putIfAbsent(K key, V value)
+    {
+        long time = System.nanoTime();
+        Entry<V> newEntry = createEntry(value, time);
+        while (true) {
+            Entry<V> entry = entries.putIfAbsent(key, newEntry);
+            if (entry == null) {
+                checkMaximumSize();
+                return null;
+            }
+            if (isValid(entry, time)) {
+                return entry.value;
+            }
+            if (entries.replace(key, entry, newEntry)) {
+                expirationCount.incrementAndGet();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Remove given {@code key}.
+     *
+     * @param key
+     * @return removed value for the {@code key} or null
+     */
+    public V remove(K key)
+    {
+        Entry<V> entry = entries.remove(key);
+        if (entry != null) {
+            return entry.value;
+        }
+        else {
+            return null;
+        }
+    }
+
+    /**
+     * Removes all entries with given {@code value}.
+     *
+     * @param value
+     */
+    public void removeByValue(V value)
+    {
+        for (Map.Entry<K, Entry<V>> itemEntry : entries.entrySet()) {
+            Entry<V> entry = itemEntry.getValue();
+            if (entry.value == null ? value == null : entry.value.equals(value)) {
+                entries.remove(itemEntry.getKey(), entry);
+            }
+        }
+    }
+
+    /**
+     * @return number of added keys
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * @return true whether {@link #entries} are empty, false otherwise
+     */
+    public boolean isEmpty()
+    {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Clear all {@link #entries}.
+     */
+    public void clear()
+    {
+        entries.clear();
+    }
+
+    /**
+     * @return set of keys which are not expired
+     */
+    public Set<K> keySet()
+    {
+        long time = System.nanoTime();
+        Set<K> keys = new HashSet<K>();
+        for (Map.Entry<K, Entry<V>> itemEntry : entries.entrySet()) {
+            if (isValid(itemEntry.getValue(), time)) {
+                keys.add(itemEntry.getKey());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * @return collection of values which are not expired
+     */
+    public Collection<V> values()
+    {
+        long time = System.nanoTime();
+        List<V> values = new LinkedList<V>();
+        for (Entry<V> entry : entries.values()) {
+            if (isValid(entry, time)) {
+                values.add(entry.value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Remove all expired values.
+     * <p/>
+     * Expiration is measured by the monotonic {@link System#nanoTime()} and thus given {@code dateTime} is only
+     * converted to it by its offset from the current {@link System#currentTimeMillis()} (e.g., a {@code dateTime}
+     * fixed by {@link org.joda.time.DateTimeUtils} doesn't affect the expiration of put entries).
+     *
+     * @param dateTime which represents "now" (null means that all values should be removed)
+     * @return removed entries
+     * @deprecated kept only for compatibility with {@link ExpirationMap}, use {@link #clearExpired()} to remove
+     *             expired values or {@link #clear()} to remove all values
+     */
+    @Deprecated
+    public List<Map.Entry<K, V>> clearExpired(DateTime dateTime)
+    {
+        long time = System.nanoTime();
+        if (dateTime != null) {
+            time += TimeUnit.MILLISECONDS.toNanos(dateTime.getMillis() - System.currentTimeMillis());
+        }
+        List<Map.Entry<K, V>> cleared = new LinkedList<Map.Entry<K, V>>();
+        for (Map.Entry<K, Entry<V>> itemEntry : entries.entrySet()) {
+            Entry<V> entry = itemEntry.getValue();
+            K key = itemEntry.getKey();
+            if ((dateTime == null || !isValid(entry, time)) && entries.remove(key, entry)) {
+                cleared.add(new AbstractMap.SimpleImmutableEntry<K, V>(key, entry.value));
+            }
+        }
+        if (dateTime != null) {
+            expirationCount.addAndGet(cleared.size());
+        }
+        return cleared;
+    }
+
+    /**
+     * Remove all expired values (it is done periodically by the background sweeper).
+     *
+     * @return number of removed values
+     */
+    public int clearExpired()
+    {
+        long time = System.nanoTime();
+        int count = 0;
+        for (Map.Entry<K, Entry<V>> itemEntry : entries.entrySet()) {
+            Entry<V> entry = itemEntry.getValue();
+            if (!isValid(entry, time) && entries.remove(itemEntry.getKey(), entry)) {
+                count++;
+            }
+        }
+        expirationCount.addAndGet(count);
+        return count;
+    }
+
+    /**
+     * Evict least recently used entries when the {@link #maximumSize} is exceeded.
+     */
+    private void checkMaximumSize()
+    {
+        int maximumSize;
+        while ((maximumSize = this.maximumSize) > 0 && entries.size() > maximumSize) {
+            // Entries put during the eviction are checked again
+            if (!evict()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Evict least recently used entries to get below the {@link #maximumSize}.
+     *
+     * @return false when other thread is already evicting, true otherwise
+     */
+    private boolean evict()
+    {
+        if (!evictionLock.tryLock()) {
+            return false;
+        }
+        try {
+            int maximumSize = this.maximumSize;
+            int targetSize = maximumSize - maximumSize / EVICTION_FRACTION;
+            int evictCount = entries.size() - targetSize;
+            if (maximumSize == 0 || evictCount <= 0) {
+                return true;
+            }
+            long time = System.nanoTime();
+            // Entries can be concurrently replaced and thus the number of attempts is limited
+            for (int attempt = evictCount * 2; evictCount > 0 && attempt > 0; attempt--) {
+                // Approximate least recently used entry from a sample (expired entry is evicted immediately)
+                Map.Entry<K, Entry<V>> candidate = null;
+                for (int sample = 0; sample < EVICTION_SAMPLE_SIZE; sample++) {
+                    Map.Entry<K, Entry<V>> itemEntry = nextEvictionEntry();
+                    if (itemEntry == null) {
+                        break;
+                    }
+                    Entry<V> entry = itemEntry.getValue();
+                    if (!isValid(entry, time)) {
+                        candidate = itemEntry;
+                        break;
+                    }
+                    if (candidate == null || entry.accessTime - candidate.getValue().accessTime < 0) {
+                        candidate = itemEntry;
+                    }
+                }
+                if (candidate == null) {
+                    break;
+                }
+                Entry<V> entry = candidate.getValue();
+                if (entries.remove(candidate.getKey(), entry)) {
+                    if (isValid(entry, time)) {
+                        evictionCount.incrementAndGet();
+                    }
+                    else {
+                        expirationCount.incrementAndGet();
+                    }
+                    evictCount--;
+                }
+            }
+            return true;
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return next entry from the {@link #evictionIterator} (it is restarted when it is at the end)
+     *         or null when the {@link #entries} are empty
+     */
+    private Map.Entry<K, Entry<V>> nextEvictionEntry()
+    {
+        if (evictionIterator == null || !evictionIterator.hasNext()) {
+            evictionIterator = entries.entrySet().iterator();
+            if (!evictionIterator.hasNext()) {
+                return null;
+            }
+        }
+        return evictionIterator.next();
+    }
+
+    /**
+     * @return {@link #hitCount}
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * @return {@link #missCount}
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * @return {@link #evictionCount}
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return {@link #expirationCount}
+     */
+    public long getExpirationCount()
+    {
+        return expirationCount.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("size: %d, hits: %d, misses: %d, evictions: %d, expirations: %d",
+                size(), getHitCount(), getMissCount(), getEvictionCount(), getExpirationCount());
+    }
+
+    @Override
+    public Iterator<V> iterator()
+    {
+        final long time = System.nanoTime();
+        final Iterator<Entry<V>> iterator = entries.values().iterator();
+        return new Iterator<V>()
+        {
+            private Entry<V> next = findNext();
+
+            private Entry<V> findNext()
+            {
+                while (iterator.hasNext()) {
+                    Entry<V> entry = iterator.next();
+                    if (isValid(entry, time)) {
+                        return entry;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return next != null;
+            }
+
+            @Override
+            public V next()
+            {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                V value = next.value;
+                next = findNext();
+                return value;
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Entry for {@link ConcurrentExpirationMap}.
+     */
+    private static class Entry<V>
+    {
+        /**
+         * Value.
+         */
+        private final V value;
+
+        /**
+         * Expiration time in {@link System#nanoTime()} or {@link #NO_EXPIRATION}.
+         */
+        private final long expirationTime;
+
+        /**
+         * Last access time in {@link System#nanoTime()} (updated only when {@link #maximumSize} is set).
+         */
+        private volatile long accessTime;
+
+        /**
+         * Constructor.
+         *
+         * @param value          sets the {@link #value}
+         * @param expirationTime sets the {@link #expirationTime}
+         * @param accessTime     sets the {@link #accessTime}
+         */
+        private Entry(V value, long expirationTime, long accessTime)
+        {
+            this.value = value;
+            this.expirationTime = expirationTime;
+            this.accessTime = accessTime;
+        }
+    }
+
+    /**
+     * Task for {@link #SWEEPER} which doesn't prevent the map from being garbage collected.
+     */
+    private static class Sweeper implements Runnable
+    {
+        /**
+         * Swept map.
+         */
+        private final WeakReference<ConcurrentExpirationMap<?, ?>> map;
+
+        /**
+         * Scheduled execution of this task.
+         */
+        private volatile ScheduledFuture<?> future;
+
+        /**
+         * Constructor.
+         *
+         * @param map sets the {@link #map}
+         */
+        private Sweeper(ConcurrentExpirationMap<?, ?> map)
+        {
+            this.map = new WeakReference<ConcurrentExpirationMap<?, ?>>(map);
+        }
+
+        @Override
+        public void run()
+        {
+            ConcurrentExpirationMap<?, ?> map = this.map.get();
+            if (map != null) {
+                map.clearExpired();
+            }
+            else if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
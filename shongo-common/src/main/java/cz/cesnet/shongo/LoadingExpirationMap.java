@@ -0,0 +1,353 @@
+package cz.cesnet.shongo;
+
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ConcurrentExpirationMap} which loads missing values by given loaders.
+ * <p/>
+ * Loading is single-flight for each key (concurrent requests for the same key share a single loading) and
+ * it is performed in a shared thread pool, so that the waiting can be limited by {@link #fetchTimeout} (the loading
+ * isn't cancelled when the timeout elapses and the loaded value is still stored). Loadings of different keys never
+ * wait for each other.
+ * <p/>
+ * When {@link #refreshAfter} is set, values which are older are still returned (until they expire) but they are
+ * reloaded in the background (stale-while-revalidate).
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class LoadingExpirationMap<K, V>
+{
+    private static Logger logger = LoggerFactory.getLogger(LoadingExpirationMap.class);
+
+    /**
+     * Maximum number of threads which perform loadings for all maps (when all are busy the loading is performed
+     * in the requesting thread).
+     */
+    private static final int MAXIMUM_LOADING_THREAD_COUNT = 64;
+
+    /**
+     * Default {@link #fetchTimeout}.
+     */
+    public static final Duration DEFAULT_FETCH_TIMEOUT = Duration.standardSeconds(20);
+
+    /**
+     * Thread pool for loadings of all maps.
+     */
+    private static final ExecutorService LOADER = new ThreadPoolExecutor(0, MAXIMUM_LOADING_THREAD_COUNT,
+            60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory()
+    {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "expiration-map-loader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Loaded {@link Value}s by keys.
+     */
+    private final ConcurrentExpirationMap<K, Value<V>> values = new ConcurrentExpirationMap<K, Value<V>>();
+
+    /**
+     * Currently performed {@link Loading}s by keys.
+     */
+    private final ConcurrentHashMap<K, Loading> loadings = new ConcurrentHashMap<K, Loading>();
+
+    /**
+     * Age in nanoseconds after which the values are reloaded in the background or {@code -1} for no reloading.
+     */
+    private volatile long refreshAfter = -1;
+
+    /**
+     * Maximum time in milliseconds for waiting to a loading.
+     */
+    private volatile long fetchTimeout = DEFAULT_FETCH_TIMEOUT.getMillis();
+
+    /**
+     * Number of performed loadings.
+     */
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /**
+     * Number of loadings which haven't finished in {@link #fetchTimeout}.
+     */
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    /**
+     * @param expiration after which the values are removed
+     */
+    public void setExpiration(Duration expiration)
+    {
+        values.setExpiration(expiration);
+    }
+
+    /**
+     * @param refreshAfter sets the {@link #refreshAfter}
+     */
+    public void setRefreshAfter(Duration refreshAfter)
+    {
+        this.refreshAfter = (refreshAfter != null ? TimeUnit.MILLISECONDS.toNanos(refreshAfter.getMillis()) : -1);
+    }
+
+    /**
+     * @param fetchTimeout sets the {@link #fetchTimeout}
+     */
+    public void setFetchTimeout(Duration fetchTimeout)
+    {
+        this.fetchTimeout = fetchTimeout.getMillis();
+    }
+
+    /**
+     * @param key
+     * @return true whether the map contains value for given {@code key}, false otherwise
+     */
+    public boolean contains(K key)
+    {
+        return values.contains(key);
+    }
+
+    /**
+     * @param key
+     * @return value for given {@code key} or null when it isn't loaded or when it should be reloaded
+     */
+    public V get(K key)
+    {
+        Value<V> value = values.get(key);
+        if (value == null || isStale(value, System.nanoTime())) {
+            return null;
+        }
+        return value.value;
+    }
+
+    /**
+     * @param key
+     * @param loader to be used for loading of the value when it isn't loaded
+     * @return value for given {@code key}
+     * @throws RuntimeException when the loading fails or when it doesn't finish in {@link #fetchTimeout}
+     */
+    public V get(K key, Callable<V> loader)
+    {
+        Value<V> value = values.get(key);
+        if (value != null) {
+            if (isStale(value, System.nanoTime())) {
+                load(key, loader);
+            }
+            return value.value;
+        }
+        Loading loading = load(key, loader);
+        try {
+            return loading.get(fetchTimeout, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException exception) {
+            timeoutCount.incrementAndGet();
+            throw new RuntimeException("Loading of " + key + " hasn't finished in " + fetchTimeout + " ms.");
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Loading of " + key + " has been interrupted.", exception);
+        }
+        catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Loading of " + key + " failed.", cause);
+        }
+    }
+
+    /**
+     * Put given {@code value} to the map by the given {@code key} (a current loading for the {@code key}
+     * won't overwrite it).
+     *
+     * @param key
+     * @param value
+     */
+    public void put(K key, V value)
+    {
+        loadings.remove(key);
+        values.put(key, new Value<V>(value, System.nanoTime()));
+    }
+
+    /**
+     * Remove value for given {@code key} (a current loading for the {@code key} won't store the loaded value).
+     *
+     * @param key
+     */
+    public void remove(K key)
+    {
+        loadings.remove(key);
+        values.remove(key);
+    }
+
+    /**
+     * Remove all values.
+     */
+    public void clear()
+    {
+        loadings.clear();
+        values.clear();
+    }
+
+    /**
+     * Remove expired values.
+     *
+     * @return number of removed values
+     */
+    public int clearExpired()
+    {
+        return values.clearExpired();
+    }
+
+    /**
+     * @return number of values
+     */
+    public int size()
+    {
+        return values.size();
+    }
+
+    /**
+     * @return {@link #loadCount}
+     */
+    public long getLoadCount()
+    {
+        return loadCount.get();
+    }
+
+    /**
+     * @return {@link #timeoutCount}
+     */
+    public long getTimeoutCount()
+    {
+        return timeoutCount.get();
+    }
+
+    /**
+     * @param value
+     * @param time
+     * @return true whether given {@code value} should be reloaded
+     */
+    private boolean isStale(Value<V> value, long time)
+    {
+        long refreshAfter = this.refreshAfter;
+        return refreshAfter >= 0 && (time - value.loadTime) > refreshAfter;
+    }
+
+    /**
+     * Start loading for given {@code key} when it isn't already started.
+     *
+     * @param key
+     * @param loader
+     * @return {@link Loading} for given {@code key}
+     */
+    private Loading load(K key, Callable<V> loader)
+    {
+        Loading loading = loadings.get(key);
+        if (loading != null) {
+            return loading;
+        }
+        Loading newLoading = new Loading(key, loader);
+        loading = loadings.putIfAbsent(key, newLoading);
+        if (loading != null) {
+            return loading;
+        }
+        loadCount.incrementAndGet();
+        try {
+            LOADER.execute(newLoading);
+        }
+        catch (RejectedExecutionException exception) {
+            // All loading threads are busy
+            newLoading.run();
+        }
+        return newLoading;
+    }
+
+    /**
+     * Loaded value.
+     *
+     * @param <V>
+     */
+    private static class Value<V>
+    {
+        /**
+         * Loaded value.
+         */
+        private final V value;
+
+        /**
+         * {@link System#nanoTime()} when the {@link #value} was loaded.
+         */
+        private final long loadTime;
+
+        /**
+         * Constructor.
+         *
+         * @param value    sets the {@link #value}
+         * @param loadTime sets the {@link #loadTime}
+         */
+        private Value(V value, long loadTime)
+        {
+            this.value = value;
+            this.loadTime = loadTime;
+        }
+    }
+
+    /**
+     * Loading of a single value which stores the loaded value when it is still the current loading for the key.
+     */
+    private class Loading extends FutureTask<V>
+    {
+        /**
+         * Key for which the value is loaded.
+         */
+        private final K key;
+
+        /**
+         * Constructor.
+         *
+         * @param key    sets the {@link #key}
+         * @param loader to be used for loading
+         */
+        public Loading(K key, Callable<V> loader)
+        {
+            super(loader);
+            this.key = key;
+        }
+
+        @Override
+        protected void set(V value)
+        {
+            if (loadings.get(key) == this) {
+                values.put(key, new Value<V>(value, System.nanoTime()));
+            }
+            super.set(value);
+        }
+
+        @Override
+        protected void setException(Throwable throwable)
+        {
+            logger.debug("Loading of {} failed.", key, throwable);
+            super.setException(throwable);
+        }
+
+        @Override
+        protected void done()
+        {
+            loadings.remove(key, this);
+        }
+    }
+}
@@ -10,12 +10,19 @@ import jade.content.lang.sl.SLCodec;
 import jade.content.onto.Ontology;
 import jade.core.AID;
 import jade.domain.DFService;
+import jade.domain.FIPANames;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Represents an agent in JADE middle-ware.
  *
@@ -40,6 +47,37 @@ public class Agent extends jade.core.Agent
      */
     private Integer commandTimeout;
 
+    /**
+     * Maximum number of concurrently handled received {@link Command}s.
+     */
+    private int handlerThreadCount = CommandHandlerPool.DEFAULT_THREAD_COUNT;
+
+    /**
+     * Maximum number of received {@link Command}s waiting for handling.
+     */
+    private int handlerQueueSize = CommandHandlerPool.DEFAULT_QUEUE_SIZE;
+
+    /**
+     * {@link CommandHandlerPool} for handling received {@link Command}s.
+     */
+    private CommandHandlerPool commandHandlerPool;
+
+    /**
+     * Specifies whether {@link Command}s should be sent in {@link BinaryCodec} content language.
+     */
+    private boolean binaryContentEnabled = true;
+
+    /**
+     * Content larger than given number of bytes is compressed by {@link BinaryCodec} ({@code -1} means never).
+     */
+    private int compressionThreshold = BinaryCodec.DEFAULT_COMPRESSION_THRESHOLD;
+
+    /**
+     * Names of agents which don't understand {@link BinaryCodec} content language (and thus {@link SLCodec} is used).
+     */
+    private final Set<String> binaryContentUnsupportedAgentNames =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     /**
      * Constructor.
      */
@@ -80,24 +118,86 @@ public class Agent extends jade.core.Agent
         this.commandTimeout = commandTimeout;
     }
 
+    /**
+     * @param handlerThreadCount sets the {@link #handlerThreadCount}
+     * @param handlerQueueSize   sets the {@link #handlerQueueSize}
+     */
+    public void setCommandHandlerPoolSize(int handlerThreadCount, int handlerQueueSize)
+    {
+        if (commandHandlerPool != null) {
+            throw new IllegalStateException("Command handler pool is already created.");
+        }
+        this.handlerThreadCount = handlerThreadCount;
+        this.handlerQueueSize = handlerQueueSize;
+    }
+
+    /**
+     * @param binaryContentEnabled sets the {@link #binaryContentEnabled}
+     * @param compressionThreshold sets the {@link #compressionThreshold}
+     */
+    public void setBinaryContent(boolean binaryContentEnabled, int compressionThreshold)
+    {
+        if (agentDescription != null) {
+            throw new IllegalStateException("Content languages are already registered.");
+        }
+        this.binaryContentEnabled = binaryContentEnabled;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * @param receiverAgentId
+     * @return content language which should be used for messages to given {@code receiverAgentId}
+     */
+    public String getContentLanguage(AID receiverAgentId)
+    {
+        if (binaryContentEnabled && !binaryContentUnsupportedAgentNames.contains(receiverAgentId.getName())) {
+            return BinaryCodec.NAME;
+        }
+        return FIPANames.ContentLanguage.FIPA_SL;
+    }
+
+    /**
+     * Remember that given {@code receiverAgentId} doesn't understand {@link BinaryCodec} content language.
+     *
+     * @param receiverAgentId
+     */
+    public void setBinaryContentUnsupported(AID receiverAgentId)
+    {
+        if (binaryContentUnsupportedAgentNames.add(receiverAgentId.getName())) {
+            logger.info("Agent [{}] doesn't understand binary content, SL content will be used.",
+                    receiverAgentId.getName());
+        }
+    }
+
+    /**
+     * @return {@link #commandHandlerPool}
+     */
+    public CommandHandlerPool getCommandHandlerPool()
+    {
+        return commandHandlerPool;
+    }
+
     /**
      * Perform {@link LocalCommand} on this agent.
      *
      * @param localCommand command to be performed
+     * @return true when the {@code localCommand} has been passed to the agent, false otherwise
      */
-    public void performLocalCommand(LocalCommand localCommand)
+    public boolean performLocalCommand(LocalCommand localCommand)
     {
         if (!isStarted()) {
-            return;
+            return false;
         }
         try {
             // FIXME: should not be used by application code (according to Jade docs)
             // this.putO2AObject(command, ,AgentController.SYNC);
             // This works (it will pass tests)
             this.putO2AObject(localCommand, false);
+            return true;
         }
         catch (InterruptedException exception) {
             logger.error("Failed to put command object to agent queue.", exception);
+            return false;
         }
     }
 
@@ -110,13 +210,94 @@ public class Agent extends jade.core.Agent
      */
     public SendLocalCommand sendCommand(String receiverAgentName, Command command)
     {
-        SendLocalCommand sendLocalCommand = new SendLocalCommand(receiverAgentName, command);
-        if (!isStarted()) {
+        SendLocalCommand sendLocalCommand = sendCommandAsync(receiverAgentName, command, commandTimeout);
+        sendLocalCommand.waitForProcessed(commandTimeout);
+        return sendLocalCommand;
+    }
+
+    /**
+     * Send {@link Command} to target receiver agent without waiting for the result.
+     *
+     * @param receiverAgentName target receiver agent name
+     * @param command           to be send
+     * @return {@link SendLocalCommand} which is done when the result or failure is received or when the
+     *         {@link #commandTimeout} passes
+     */
+    public SendLocalCommand sendCommandAsync(String receiverAgentName, Command command)
+    {
+        return sendCommandAsync(receiverAgentName, command, commandTimeout);
+    }
+
+    /**
+     * Send {@link Command} to target receiver agent without waiting for the result.
+     *
+     * @param receiverAgentName target receiver agent name
+     * @param command           to be send
+     * @param timeout           in milliseconds after which the command fails ({@code null} means default timeout)
+     * @return {@link SendLocalCommand} which is done when the result or failure is received or when the
+     *         {@code timeout} passes
+     */
+    public SendLocalCommand sendCommandAsync(String receiverAgentName, Command command, Integer timeout)
+    {
+        SendLocalCommand sendLocalCommand = createSendLocalCommand(receiverAgentName, command, timeout);
+        if (!performLocalCommand(sendLocalCommand)) {
             sendLocalCommand.setFailed(new JadeReportSet.AgentNotStartedReport(getAID().getLocalName()));
-            return sendLocalCommand;
         }
-        performLocalCommand(sendLocalCommand);
-        sendLocalCommand.waitForProcessed(commandTimeout);
+        return sendLocalCommand;
+    }
+
+    /**
+     * Send multiple {@link Command}s to target receiver agent without waiting for the results. The commands are
+     * passed to this agent at once and they are performed by the receiver agent concurrently.
+     *
+     * @param receiverAgentName target receiver agent name
+     * @param commands          to be send
+     * @param timeout           in milliseconds after which the commands fail ({@code null} means default timeout)
+     * @return list of {@link SendLocalCommand} for given {@code commands} (in the same order)
+     */
+    public List<SendLocalCommand> sendCommandsAsync(String receiverAgentName, List<? extends Command> commands,
+            Integer timeout)
+    {
+        final List<SendLocalCommand> sendLocalCommands = new ArrayList<SendLocalCommand>();
+        for (Command command : commands) {
+            sendLocalCommands.add(createSendLocalCommand(receiverAgentName, command, timeout));
+        }
+        boolean performed = performLocalCommand(new LocalCommand()
+        {
+            @Override
+            public void process(Agent localAgent) throws LocalCommandException
+            {
+                for (SendLocalCommand sendLocalCommand : sendLocalCommands) {
+                    try {
+                        sendLocalCommand.process(localAgent);
+                    }
+                    catch (LocalCommandException exception) {
+                        logger.error("Error processing the local command", exception);
+                    }
+                }
+            }
+        });
+        if (!performed) {
+            for (SendLocalCommand sendLocalCommand : sendLocalCommands) {
+                sendLocalCommand.setFailed(new JadeReportSet.AgentNotStartedReport(getAID().getLocalName()));
+            }
+        }
+        return sendLocalCommands;
+    }
+
+    /**
+     * @param receiverAgentName target receiver agent name
+     * @param command           to be send
+     * @param timeout           in milliseconds after which the command fails ({@code null} means default timeout)
+     * @return new {@link SendLocalCommand}
+     */
+    protected SendLocalCommand createSendLocalCommand(String receiverAgentName, Command command, Integer timeout)
+    {
+        SendLocalCommand sendLocalCommand = new SendLocalCommand(receiverAgentName, command);
+        if (timeout == null) {
+            timeout = SendLocalCommand.DEFAULT_TIMEOUT;
+        }
+        sendLocalCommand.setDeadline(DateTime.now().plusMillis(timeout));
         return sendLocalCommand;
     }
 
@@ -126,8 +307,11 @@ public class Agent extends jade.core.Agent
             // Already initialized
             return;
         }
-        // Register content language
+        // Register content languages (SL is always registered for agents which don't understand binary content)
         getContentManager().registerLanguage(new SLCodec());
+        if (binaryContentEnabled) {
+            getContentManager().registerLanguage(new BinaryCodec(compressionThreshold));
+        }
 
         // Add common ontology
         addOntology(CommonOntology.getInstance());
@@ -135,6 +319,7 @@ public class Agent extends jade.core.Agent
         // Each agent is able to process commands passed via O2A channel
         addBehaviour(new LocalCommandBehaviour());
         // Each agent is able to respond to agent actions
+        commandHandlerPool = new CommandHandlerPool(getLocalName(), handlerThreadCount, handlerQueueSize);
         addBehaviour(new CommandResponderBehaviour(this));
 
         // Prepare agent description for DF
@@ -160,6 +345,12 @@ public class Agent extends jade.core.Agent
         started = false;
         agentDescription = null;
 
+        if (commandHandlerPool != null) {
+            logger.debug("Agent [{}] handled commands ({}).", getAID().getName(), commandHandlerPool);
+            commandHandlerPool.destroy();
+            commandHandlerPool = null;
+        }
+
         super.takeDown();
 
         logger.debug("Agent [{}] exiting!", getAID().getName());
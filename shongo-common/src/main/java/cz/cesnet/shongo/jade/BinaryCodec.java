@@ -0,0 +1,195 @@
+package cz.cesnet.shongo.jade;
+
+import jade.content.abs.AbsContentElement;
+import jade.content.lang.ByteArrayCodec;
+import jade.content.lang.leap.LEAPCodec;
+import jade.content.onto.Ontology;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary content language for {@link Agent}s.
+ * <p/>
+ * The content is encoded by {@link LEAPCodec} (which stores primitives and byte arrays in binary form instead of
+ * the SL text) and when the encoded content is larger than {@link #compressionThreshold} bytes, it is compressed
+ * by {@link Deflater}. The first byte of the content specifies whether it is compressed.
+ * <p/>
+ * Agents which don't support this language reply by {@link jade.lang.acl.ACLMessage#NOT_UNDERSTOOD} and
+ * {@link CommandRequesterBehaviour} falls back to the SL language for them.
+ */
+public class BinaryCodec extends ByteArrayCodec
+{
+    /**
+     * Name of the content language.
+     */
+    public static final String NAME = "shongo-binary";
+
+    /**
+     * Default value for {@link #compressionThreshold}.
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    /**
+     * Formats of the content.
+     */
+    private static final byte FORMAT_PLAIN = 0;
+    private static final byte FORMAT_DEFLATE = 1;
+
+    /**
+     * Maximum length of decompressed data (the length is read from the content and thus it cannot be trusted).
+     */
+    private static final int MAX_DECOMPRESSED_LENGTH = 64 * 1024 * 1024;
+
+    /**
+     * {@link LEAPCodec} is synchronized and thus each thread uses own instance.
+     */
+    private static final ThreadLocal<LEAPCodec> leapCodec = new ThreadLocal<LEAPCodec>()
+    {
+        @Override
+        protected LEAPCodec initialValue()
+        {
+            return new LEAPCodec();
+        }
+    };
+
+    /**
+     * Encoded content which is larger than given number of bytes is compressed ({@code -1} means never).
+     */
+    private final int compressionThreshold;
+
+    /**
+     * Constructor.
+     */
+    public BinaryCodec()
+    {
+        this(DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param compressionThreshold sets the {@link #compressionThreshold}
+     */
+    public BinaryCodec(int compressionThreshold)
+    {
+        super(NAME);
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] encode(AbsContentElement content) throws CodecException
+    {
+        return encode(null, content);
+    }
+
+    @Override
+    public byte[] encode(Ontology ontology, AbsContentElement content) throws CodecException
+    {
+        byte[] data = leapCodec.get().encode(ontology, content);
+        if (compressionThreshold >= 0 && data.length > compressionThreshold) {
+            byte[] compressedData = compress(data);
+            if (compressedData.length < data.length) {
+                return compressedData;
+            }
+        }
+        byte[] result = new byte[data.length + 1];
+        result[0] = FORMAT_PLAIN;
+        System.arraycopy(data, 0, result, 1, data.length);
+        return result;
+    }
+
+    @Override
+    public AbsContentElement decode(byte[] content) throws CodecException
+    {
+        throw new CodecException("Not supported");
+    }
+
+    @Override
+    public AbsContentElement decode(Ontology ontology, byte[] content) throws CodecException
+    {
+        if (content == null || content.length == 0) {
+            return null;
+        }
+        byte[] data;
+        switch (content[0]) {
+            case FORMAT_PLAIN:
+                data = new byte[content.length - 1];
+                System.arraycopy(content, 1, data, 0, data.length);
+                break;
+            case FORMAT_DEFLATE:
+                data = decompress(content);
+                break;
+            default:
+                throw new CodecException("Unknown content format " + content[0] + ".");
+        }
+        return leapCodec.get().decode(ontology, data);
+    }
+
+    /**
+     * @param data to be compressed
+     * @return {@link #FORMAT_DEFLATE} byte, length of given {@code data} and compressed {@code data}
+     */
+    private static byte[] compress(byte[] data)
+    {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 2 + 5);
+            outputStream.write(FORMAT_DEFLATE);
+            outputStream.write(ByteBuffer.allocate(4).putInt(data.length).array(), 0, 4);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                outputStream.write(buffer, 0, length);
+            }
+            return outputStream.toByteArray();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @param content {@link #FORMAT_DEFLATE} byte, length of the data and compressed data
+     * @return decompressed data
+     * @throws CodecException when the data cannot be decompressed
+     */
+    private static byte[] decompress(byte[] content) throws CodecException
+    {
+        if (content.length < 5) {
+            throw new CodecException("Compressed content is too short.");
+        }
+        int length = ByteBuffer.wrap(content, 1, 4).getInt();
+        if (length < 0 || length > MAX_DECOMPRESSED_LENGTH) {
+            throw new CodecException("Compressed content has invalid length " + length + ".");
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(content, 5, content.length - 5);
+            byte[] data = new byte[length];
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                int inflatedLength = inflater.inflate(data, offset, length - offset);
+                if (inflatedLength == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += inflatedLength;
+            }
+            if (offset != length) {
+                throw new CodecException("Compressed content is corrupted.");
+            }
+            return data;
+        }
+        catch (DataFormatException exception) {
+            throw new CodecException("Compressed content is corrupted.", exception);
+        }
+        finally {
+            inflater.end();
+        }
+    }
+}
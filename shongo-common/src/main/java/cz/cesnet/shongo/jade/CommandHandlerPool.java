@@ -0,0 +1,247 @@
+package cz.cesnet.shongo.jade;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of threads which handle {@link cz.cesnet.shongo.api.jade.Command}s received by single {@link Agent}
+ * (see {@link CommandResponderBehaviour}).
+ * <p/>
+ * When all threads are busy, the handlers are queued and when the queue is full, the handlers are rejected
+ * (the {@link CommandResponderBehaviour} answers them by failure).
+ */
+public class CommandHandlerPool
+{
+    /**
+     * Default maximum number of concurrently handled commands.
+     */
+    public static final int DEFAULT_THREAD_COUNT = 32;
+
+    /**
+     * Default maximum number of commands waiting for a free thread.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 256;
+
+    /**
+     * {@link ThreadPoolExecutor} for handling commands.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Maximum number of commands which were waiting for a free thread.
+     */
+    private int maxQueueDepth = 0;
+
+    /**
+     * Number of handled commands.
+     */
+    private long handledCount = 0;
+
+    /**
+     * Number of rejected commands.
+     */
+    private long rejectedCount = 0;
+
+    /**
+     * Total duration in milliseconds for which the handled commands waited for a free thread.
+     */
+    private long totalWaitingDuration = 0;
+
+    /**
+     * Maximum duration in milliseconds for which single command waited for a free thread.
+     */
+    private long maxWaitingDuration = 0;
+
+    /**
+     * Total duration in milliseconds of handling of commands.
+     */
+    private long totalHandlingDuration = 0;
+
+    /**
+     * Maximum duration in milliseconds of handling of single command.
+     */
+    private long maxHandlingDuration = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param name        prefix for names of threads
+     * @param threadCount maximum number of concurrently handled commands
+     * @param queueSize   maximum number of commands waiting for a free thread
+     */
+    public CommandHandlerPool(final String name, int threadCount, int queueSize)
+    {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("Queue size must not be negative.");
+        }
+        BlockingQueue<Runnable> queue;
+        if (queueSize > 0) {
+            queue = new LinkedBlockingQueue<Runnable>(queueSize);
+        }
+        else {
+            queue = new SynchronousQueue<Runnable>();
+        }
+        executor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS, queue, new ThreadFactory()
+        {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, name + "-handler-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stop all threads.
+     */
+    public void destroy()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Handle given {@code handler} in some thread from the pool.
+     *
+     * @param handler to be run
+     * @return true when the {@code handler} was accepted, false when it was rejected
+     */
+    public boolean execute(final Runnable handler)
+    {
+        final long queuedTime = System.currentTimeMillis();
+        try {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    long startTime = System.currentTimeMillis();
+                    try {
+                        handler.run();
+                    }
+                    finally {
+                        addHandled(startTime - queuedTime, System.currentTimeMillis() - startTime);
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException exception) {
+            synchronized (this) {
+                rejectedCount++;
+            }
+            return false;
+        }
+        synchronized (this) {
+            int queueDepth = executor.getQueue().size();
+            if (queueDepth > maxQueueDepth) {
+                maxQueueDepth = queueDepth;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param waitingDuration  duration in milliseconds for which the command waited for a free thread
+     * @param handlingDuration duration in milliseconds of handling of the command
+     */
+    private synchronized void addHandled(long waitingDuration, long handlingDuration)
+    {
+        handledCount++;
+        totalWaitingDuration += waitingDuration;
+        totalHandlingDuration += handlingDuration;
+        if (waitingDuration > maxWaitingDuration) {
+            maxWaitingDuration = waitingDuration;
+        }
+        if (handlingDuration > maxHandlingDuration) {
+            maxHandlingDuration = handlingDuration;
+        }
+    }
+
+    /**
+     * @return number of currently handled commands
+     */
+    public int getActiveCount()
+    {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return number of commands waiting for a free thread
+     */
+    public int getQueueDepth()
+    {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return {@link #maxQueueDepth}
+     */
+    public synchronized int getMaxQueueDepth()
+    {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return {@link #handledCount}
+     */
+    public synchronized long getHandledCount()
+    {
+        return handledCount;
+    }
+
+    /**
+     * @return {@link #rejectedCount}
+     */
+    public synchronized long getRejectedCount()
+    {
+        return rejectedCount;
+    }
+
+    /**
+     * @return average duration in milliseconds for which the commands waited for a free thread
+     */
+    public synchronized long getAverageWaitingDuration()
+    {
+        return (handledCount > 0 ? totalWaitingDuration / handledCount : 0);
+    }
+
+    /**
+     * @return {@link #maxWaitingDuration}
+     */
+    public synchronized long getMaxWaitingDuration()
+    {
+        return maxWaitingDuration;
+    }
+
+    /**
+     * @return average duration in milliseconds of handling of commands
+     */
+    public synchronized long getAverageHandlingDuration()
+    {
+        return (handledCount > 0 ? totalHandlingDuration / handledCount : 0);
+    }
+
+    /**
+     * @return {@link #maxHandlingDuration}
+     */
+    public synchronized long getMaxHandlingDuration()
+    {
+        return maxHandlingDuration;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("handled: %d, rejected: %d, active: %d, queued: %d (max %d),"
+                + " waiting: %d ms (max %d ms), handling: %d ms (max %d ms)",
+                handledCount, rejectedCount, getActiveCount(), getQueueDepth(), maxQueueDepth,
+                getAverageWaitingDuration(), maxWaitingDuration, getAverageHandlingDuration(), maxHandlingDuration);
+    }
+}
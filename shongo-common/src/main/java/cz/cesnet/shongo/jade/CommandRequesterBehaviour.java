@@ -17,6 +17,7 @@ import jade.proto.SimpleAchieveREInitiator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Vector;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,7 +50,7 @@ public class CommandRequesterBehaviour extends SimpleAchieveREInitiator
      */
     public CommandRequesterBehaviour(Agent agent, SendLocalCommand sendLocalCommand) throws Exception
     {
-        super(agent, createMessage(agent, sendLocalCommand.getReceiverAgentId(), sendLocalCommand.getCommand()));
+        super(agent, createMessage(agent, sendLocalCommand));
 
         this.sendLocalCommand = sendLocalCommand;
     }
@@ -57,21 +58,26 @@ public class CommandRequesterBehaviour extends SimpleAchieveREInitiator
     /**
      * Create {@link ACLMessage} which will be sent.
      *
-     * @param agentRequester  sender agent
-     * @param agentReceiverId receiver agent id
-     * @param command         {@link Command} which should be sent
+     * @param agentRequester   sender agent
+     * @param sendLocalCommand which defines the target agent, the {@link Command} and the deadline
      * @return the constructed message
      * @throws Exception when the message construction fails
      */
-    private static ACLMessage createMessage(Agent agentRequester, AID agentReceiverId, Command command)
+    private static ACLMessage createMessage(Agent agentRequester, SendLocalCommand sendLocalCommand)
             throws Exception
     {
+        AID agentReceiverId = sendLocalCommand.getReceiverAgentId();
+        Command command = sendLocalCommand.getCommand();
         ACLMessage message = new ACLMessage(ACLMessage.REQUEST);
         message.addReceiver(agentReceiverId);
         message.setSender(agentRequester.getAID());
-        message.setLanguage(FIPANames.ContentLanguage.FIPA_SL);
+        message.setLanguage(agentRequester.getContentLanguage(agentReceiverId));
         message.setProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST);
         message.setOntology(command.getOntology().getName());
+        if (sendLocalCommand.getDeadline() != null) {
+            // The behaviour stops waiting for the reply at the deadline (see handleAllResponses)
+            message.setReplyByDate(sendLocalCommand.getDeadline().toDate());
+        }
 
         ContentElement content = new jade.content.onto.basic.Action(agentRequester.getAID(), command);
         try {
@@ -103,14 +109,13 @@ public class CommandRequesterBehaviour extends SimpleAchieveREInitiator
                 Result result = (Result) contentElement;
                 logger.debug("Received a result of type {}, value {}.",
                         result.getValue().getClass(), result.getValue());
-                sendLocalCommand.setResult(result.getValue());
-                sendLocalCommand.setState(SendLocalCommand.State.SUCCESSFUL);
+                sendLocalCommand.setSuccessful(result.getValue());
             }
             else if (contentElement instanceof Done) {
                 // Notification that a command succeeded
                 Done done = (Done) contentElement;
                 logger.debug("Received confirmation of successful execution of an action.");
-                sendLocalCommand.setState(SendLocalCommand.State.SUCCESSFUL);
+                sendLocalCommand.setSuccessful(null);
             }
         }
         catch (Codec.CodecException exception) {
@@ -130,11 +135,35 @@ public class CommandRequesterBehaviour extends SimpleAchieveREInitiator
         }
     }
 
+    @Override
+    protected void handleAllResponses(Vector responses)
+    {
+        if (responses.isEmpty() && !sendLocalCommand.isProcessed()) {
+            // No reply has been received until the deadline
+            logger.error("Execution of '{}' failed, because the reply wasn't received in time.",
+                    sendLocalCommand.getCommand());
+            sendLocalCommand.setTimeout();
+        }
+    }
+
     @Override
     protected void handleNotUnderstood(ACLMessage msg)
     {
         logger.debug("Received message: {}", msg);
 
+        if (BinaryCodec.NAME.equals(msg.getLanguage())) {
+            // Receiver doesn't understand binary content and thus send the command again in SL content
+            Agent agent = (Agent) myAgent;
+            agent.setBinaryContentUnsupported(sendLocalCommand.getReceiverAgentId());
+            try {
+                sendLocalCommand.process(agent);
+                return;
+            }
+            catch (LocalCommandException exception) {
+                logger.error("Resending of '{}' failed.", sendLocalCommand.getCommand(), exception);
+            }
+        }
+
         logger.error("Execution of '{}' failed, because it was not understood.", sendLocalCommand.getCommand());
         sendLocalCommand.setFailed(new JadeReportSet.CommandNotUnderstoodReport(
                 sendLocalCommand.getCommand().toString(), sendLocalCommand.getReceiverAgentId().getName()));
@@ -75,11 +75,15 @@ public class CommandResponderBehaviour extends ParallelResponderBehaviour
         logger.debug("Received message: {}", requestMessage);
 
         RequestHandler handler = new RequestHandler(requestMessage);
-
-        Thread handlerThread = new Thread(handler);
-        handlerThread.setName(agent.getLocalName() + "-handler");
-        handlerThread.start();
-        addSubBehaviour(handler);
+        if (agent.getCommandHandlerPool().execute(handler)) {
+            addSubBehaviour(handler);
+        }
+        else {
+            logger.warn("Command handler pool of agent '{}' is full, rejecting request from '{}' ({}).",
+                    new Object[]{agent.getLocalName(), requestMessage.getSender().getName(),
+                            agent.getCommandHandlerPool()});
+            agent.send(handler.createRejectedReply());
+        }
     }
 
     /**
@@ -218,6 +222,30 @@ public class CommandResponderBehaviour extends ParallelResponderBehaviour
             restart();
         }
 
+        /**
+         * @return reply to the {@link #request} that it cannot be handled because the agent is overloaded
+         */
+        public ACLMessage createRejectedReply()
+        {
+            ACLMessage reply = request.createReply();
+            try {
+                Action action = (Action) agent.getContentManager().extractContent(request);
+                String commandName = action.getAction().getClass().getSimpleName();
+                if (action.getAction() instanceof Command) {
+                    commandName = ((Command) action.getAction()).getName();
+                }
+                ContentElement response = new Result(action, new JadeReportSet.CommandFailedReport(commandName,
+                        agent.getAID().getName(), null, "Agent is overloaded by too many requests."));
+                fillMessage(reply, ACLMessage.FAILURE, response);
+            }
+            catch (Exception exception) {
+                logger.error(String.format("Received a request which the agent did not understand: %s", request),
+                        exception);
+                reply.setPerformative(ACLMessage.NOT_UNDERSTOOD);
+            }
+            return reply;
+        }
+
         /**
          * Fill message content.
          *
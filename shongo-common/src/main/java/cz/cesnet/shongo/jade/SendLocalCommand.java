@@ -4,15 +4,33 @@ import cz.cesnet.shongo.JadeReport;
 import cz.cesnet.shongo.JadeReportSet;
 import cz.cesnet.shongo.api.jade.Command;
 import jade.core.AID;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
 
 /**
  * {@link LocalCommand} for sending an {@link Command} to target receiver agent via JADE middle-ware.
+ * <p/>
+ * It is also a {@link Future} which is done when the reply from the receiver agent is received, when the
+ * {@link #deadline} passes or when it is cancelled ({@link #get()} returns the command itself and
+ * {@link #getState()}, {@link #getResult()} and {@link #getJadeReport()} can be used to inspect the result).
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  * @author Ondrej Bouda <ondrej.bouda@cesnet.cz>
  */
-public class SendLocalCommand extends LocalCommand
+public class SendLocalCommand extends LocalCommand implements Future<SendLocalCommand>
 {
+    private static Logger logger = LoggerFactory.getLogger(SendLocalCommand.class);
+
+    /**
+     * Default timeout in milliseconds for waiting for the command result.
+     */
+    public static final int DEFAULT_TIMEOUT = 30000;
+
     /**
      * {@link AID} of the receiver agent.
      */
@@ -23,10 +41,30 @@ public class SendLocalCommand extends LocalCommand
      */
     private Command command;
 
+    /**
+     * Date/time until which the reply from the receiver agent is awaited ({@code null} means forever).
+     */
+    private DateTime deadline;
+
     /**
      * Current command state.
      */
-    private State state;
+    private volatile State state;
+
+    /**
+     * Specifies whether the command has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Released when the command is processed.
+     */
+    private final CountDownLatch processedLatch = new CountDownLatch(1);
+
+    /**
+     * {@link Listener}s which should be notified when the command is processed.
+     */
+    private final List<Listener> listeners = new ArrayList<Listener>();
 
     /**
      * @see JadeReport
@@ -72,6 +110,22 @@ public class SendLocalCommand extends LocalCommand
         return command;
     }
 
+    /**
+     * @return {@link #deadline}
+     */
+    public DateTime getDeadline()
+    {
+        return deadline;
+    }
+
+    /**
+     * @param deadline sets the {@link #deadline}
+     */
+    public void setDeadline(DateTime deadline)
+    {
+        this.deadline = deadline;
+    }
+
     @Override
     public String getName()
     {
@@ -118,7 +172,22 @@ public class SendLocalCommand extends LocalCommand
      */
     public void setState(State state)
     {
-        this.state = state;
+        if (State.UNKNOWN.equals(state)) {
+            this.state = state;
+        }
+        else {
+            complete(state, result, null, false);
+        }
+    }
+
+    /**
+     * Sets the {@link #state} as {@link State#SUCCESSFUL}.
+     *
+     * @param result sets the {@link #result}
+     */
+    public void setSuccessful(Object result)
+    {
+        complete(State.SUCCESSFUL, result, null, false);
     }
 
     /**
@@ -128,8 +197,65 @@ public class SendLocalCommand extends LocalCommand
      */
     public void setFailed(JadeReport failure)
     {
-        this.state = State.FAILED;
-        this.jadeReport = failure;
+        complete(State.FAILED, null, failure, false);
+    }
+
+    /**
+     * Set the final {@link #state} (only the first call has an effect, e.g., a reply received after the
+     * {@link #deadline} is ignored) and notify waiting threads and {@link #listeners}.
+     *
+     * @param state      final state
+     * @param result     sets the {@link #result}
+     * @param jadeReport sets the {@link #jadeReport}
+     * @param cancelled  sets the {@link #cancelled}
+     * @return true when the state has been set, false when the command has been already processed
+     */
+    private boolean complete(State state, Object result, JadeReport jadeReport, boolean cancelled)
+    {
+        List<Listener> listeners;
+        synchronized (this) {
+            if (isProcessed()) {
+                return false;
+            }
+            this.result = result;
+            this.jadeReport = jadeReport;
+            this.cancelled = cancelled;
+            this.state = state;
+            listeners = new ArrayList<Listener>(this.listeners);
+            this.listeners.clear();
+        }
+        processedLatch.countDown();
+        for (Listener listener : listeners) {
+            notifyListener(listener);
+        }
+        return true;
+    }
+
+    /**
+     * @param listener to be notified when the command is processed (immediately when it is already processed)
+     */
+    public void addListener(Listener listener)
+    {
+        synchronized (this) {
+            if (!isProcessed()) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        notifyListener(listener);
+    }
+
+    /**
+     * @param listener to be notified
+     */
+    private void notifyListener(Listener listener)
+    {
+        try {
+            listener.onProcessed(this);
+        }
+        catch (Exception exception) {
+            logger.error("Listener of " + getName() + " failed.", exception);
+        }
     }
 
     /**
@@ -181,50 +307,128 @@ public class SendLocalCommand extends LocalCommand
     /**
      * @param result sets the {@link #result}
      */
-    public void setResult(Object result)
+    public synchronized void setResult(Object result)
     {
-        this.result = result;
+        if (!isProcessed()) {
+            this.result = result;
+        }
     }
 
     /**
      * Wait for the command to be processed
      *
-     * @param timeout how long to wait in milliseconds for command result ({@code null} means default timeout)
+     * @param timeout how long to wait in milliseconds for command result
+     *                ({@code null} means until the {@link #deadline} or default timeout when it is not set)
      */
     public void waitForProcessed(Integer timeout)
     {
         if (timeout == null) {
-            timeout = 30000;
-        }
-        final int waitingTime = 50;
-
-        // FIXME: use some kind of IPC instead of busy waiting
-        int count = timeout / waitingTime;
-        while (!isProcessed() && count > 0) {
-            count--;
-            try {
-                Thread.sleep(waitingTime);
+            if (deadline != null) {
+                timeout = (int) Math.max(deadline.getMillis() - DateTime.now().getMillis(), 0);
             }
-            catch (InterruptedException exception) {
-                exception.printStackTrace();
+            else {
+                timeout = DEFAULT_TIMEOUT;
             }
         }
+        try {
+            processedLatch.await(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
         if (getState() == State.UNKNOWN) {
-            setFailed(new JadeReportSet.CommandTimeoutReport(command.getName(), receiverAgentId.getName()));
+            setTimeout();
+        }
+    }
+
+    /**
+     * Sets the {@link #state} as {@link State#FAILED} because the reply wasn't received in time.
+     */
+    public void setTimeout()
+    {
+        setFailed(new JadeReportSet.CommandTimeoutReport(command.getName(), receiverAgentId.getName()));
+    }
+
+    /**
+     * Cancel the command. It is marked as {@link State#FAILED} and the reply from the receiver agent is ignored
+     * (the command is still performed by the receiver agent when it was already sent).
+     *
+     * @param mayInterruptIfRunning not used
+     * @return true when the command has been cancelled, false when it has been already processed
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+        return complete(State.FAILED, null,
+                new JadeReportSet.CommandUnknownErrorReport(command.getName(), "Command has been cancelled."), true);
+    }
+
+    @Override
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return isProcessed();
+    }
+
+    @Override
+    public SendLocalCommand get() throws InterruptedException
+    {
+        processedLatch.await();
+        if (cancelled) {
+            throw new CancellationException();
         }
+        return this;
+    }
+
+    @Override
+    public SendLocalCommand get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException
+    {
+        if (!processedLatch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        return this;
     }
 
     @Override
     public void process(Agent localAgent) throws LocalCommandException
     {
+        if (isProcessed()) {
+            // Command has been cancelled or it has timed out before sending
+            return;
+        }
+        if (deadline != null && !deadline.isAfterNow()) {
+            setTimeout();
+            return;
+        }
         try {
             localAgent.addBehaviour(new CommandRequesterBehaviour(localAgent, this));
         }
         catch (Exception exception) {
+            setFailed(new JadeReportSet.CommandUnknownErrorReport(command.getName(), exception.getMessage()));
             throw new LocalCommandException("Error in sending the command.", exception);
         }
     }
 
+    /**
+     * Listener which is notified when a {@link SendLocalCommand} is processed. It is usually called from
+     * the thread of the sending {@link Agent} and thus it should not block.
+     */
+    public static interface Listener
+    {
+        /**
+         * @param sendLocalCommand which has been processed
+         */
+        public void onProcessed(SendLocalCommand sendLocalCommand);
+    }
+
     /**
      * State of the command.
      */
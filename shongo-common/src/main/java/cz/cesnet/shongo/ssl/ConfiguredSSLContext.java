@@ -2,7 +2,6 @@ package cz.cesnet.shongo.ssl;
 
 import org.apache.commons.configuration.HierarchicalConfiguration;
 import org.apache.http.client.HttpClient;
-import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
@@ -106,6 +105,17 @@ public class ConfiguredSSLContext
      * @return new {@link HttpClient} configured with the {@link ConfiguredSSLContext}
      */
     public DefaultHttpClient createHttpClient(int timeout)
+    {
+        return createHttpClient(timeout, 0);
+    }
+
+    /**
+     * @param timeout        connection and socket timeout in milliseconds
+     * @param maxConnections maximum number of pooled (keep-alive) connections per route
+     *                       (zero means the default of {@link PoolingClientConnectionManager})
+     * @return new {@link HttpClient} configured with the {@link ConfiguredSSLContext}
+     */
+    public DefaultHttpClient createHttpClient(int timeout, int maxConnections)
     {
         ConfiguredSSLContext configuredSSLContext = getInstance();
         SchemeRegistry registry = new SchemeRegistry();
@@ -113,7 +123,11 @@ public class ConfiguredSSLContext
                 configuredSSLContext.getContext(), configuredSSLContext.getHostnameVerifier());
         registry.register(new Scheme("http", 80, PlainSocketFactory.getSocketFactory()));
         registry.register(new Scheme("https", 443, socketFactory));
-        ClientConnectionManager connectionManager = new PoolingClientConnectionManager(registry);
+        PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager(registry);
+        if (maxConnections > 0) {
+            connectionManager.setDefaultMaxPerRoute(maxConnections);
+            connectionManager.setMaxTotal(Math.max(connectionManager.getMaxTotal(), maxConnections));
+        }
         DefaultHttpClient httpClient = new DefaultHttpClient(connectionManager);
         HttpParams httpClientParams = httpClient.getParams();
         HttpConnectionParams.setConnectionTimeout(httpClientParams, timeout);
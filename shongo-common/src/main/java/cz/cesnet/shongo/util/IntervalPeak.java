@@ -0,0 +1,211 @@
+package cz.cesnet.shongo.util;
+
+/**
+ * Computes the peak of summed weights of half-open intervals {@code [start, end)} by a sweep-line over primitive
+ * arrays. It is equivalent to summing the weights in each {@link RangeSet.Bucket} which intersects the queried
+ * range and taking the maximum, but it doesn't allocate anything per bucket.
+ * <p/>
+ * Each added interval is stored as two events (the start with positive weight and the end with negative weight).
+ * The events are sorted by time (ends before starts at the same time) and swept from left to right.
+ */
+public class IntervalPeak
+{
+    /**
+     * Times of events in milliseconds.
+     */
+    private long[] eventTimes;
+
+    /**
+     * Weight deltas of events.
+     */
+    private int[] eventDeltas;
+
+    /**
+     * Number of events.
+     */
+    private int eventCount = 0;
+
+    /**
+     * Specifies whether events are sorted.
+     */
+    private boolean sorted = true;
+
+    /**
+     * Constructor.
+     */
+    public IntervalPeak()
+    {
+        this(16);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param intervalCount expected number of intervals
+     */
+    public IntervalPeak(int intervalCount)
+    {
+        int capacity = Math.max(intervalCount, 1) * 2;
+        this.eventTimes = new long[capacity];
+        this.eventDeltas = new int[capacity];
+    }
+
+    /**
+     * Add new interval.
+     *
+     * @param start  of the interval in milliseconds (inclusive)
+     * @param end    of the interval in milliseconds (exclusive)
+     * @param weight of the interval
+     */
+    public void add(long start, long end, int weight)
+    {
+        if (eventCount + 2 > eventTimes.length) {
+            int capacity = eventTimes.length * 2;
+            long[] eventTimes = new long[capacity];
+            int[] eventDeltas = new int[capacity];
+            System.arraycopy(this.eventTimes, 0, eventTimes, 0, eventCount);
+            System.arraycopy(this.eventDeltas, 0, eventDeltas, 0, eventCount);
+            this.eventTimes = eventTimes;
+            this.eventDeltas = eventDeltas;
+        }
+        eventTimes[eventCount] = start;
+        eventDeltas[eventCount] = weight;
+        eventCount++;
+        eventTimes[eventCount] = end;
+        eventDeltas[eventCount] = -weight;
+        eventCount++;
+        sorted = false;
+    }
+
+    /**
+     * @return number of added intervals
+     */
+    public int size()
+    {
+        return eventCount / 2;
+    }
+
+    /**
+     * Remove all intervals.
+     */
+    public void clear()
+    {
+        eventCount = 0;
+        sorted = true;
+    }
+
+    /**
+     * @param start of the range in milliseconds (inclusive)
+     * @param end   of the range in milliseconds (exclusive)
+     * @return maximum sum of weights of intervals which overlap a single point in range {@code [start, end)},
+     *         or {@code 0} when no interval overlaps the range
+     */
+    public int getPeak(long start, long end)
+    {
+        if (!sorted) {
+            sort(0, eventCount - 1);
+            sorted = true;
+        }
+        int current = 0;
+        int index = 0;
+        while (index < eventCount && eventTimes[index] <= start) {
+            current += eventDeltas[index++];
+        }
+        if (start >= end) {
+            return 0;
+        }
+        int peak = current;
+        while (index < eventCount && eventTimes[index] < end) {
+            long time = eventTimes[index];
+            while (index < eventCount && eventTimes[index] == time) {
+                current += eventDeltas[index++];
+            }
+            if (current > peak) {
+                peak = current;
+            }
+        }
+        return Math.max(peak, 0);
+    }
+
+    /**
+     * @param index1
+     * @param index2
+     * @return negative number, zero or positive number whether event at {@code index1} is ordered before,
+     *         together or after event at {@code index2}
+     */
+    private int compare(int index1, int index2)
+    {
+        long time1 = eventTimes[index1];
+        long time2 = eventTimes[index2];
+        if (time1 != time2) {
+            return time1 < time2 ? -1 : 1;
+        }
+        return Integer.compare(eventDeltas[index1], eventDeltas[index2]);
+    }
+
+    /**
+     * @param index1
+     * @param index2
+     */
+    private void swap(int index1, int index2)
+    {
+        long time = eventTimes[index1];
+        eventTimes[index1] = eventTimes[index2];
+        eventTimes[index2] = time;
+        int delta = eventDeltas[index1];
+        eventDeltas[index1] = eventDeltas[index2];
+        eventDeltas[index2] = delta;
+    }
+
+    /**
+     * Sort events in range {@code [low, high]} by time and delta (in place, without allocations).
+     *
+     * @param low
+     * @param high
+     */
+    private void sort(int low, int high)
+    {
+        while (high - low > 16) {
+            int middle = (low + high) >>> 1;
+            if (compare(middle, low) < 0) {
+                swap(middle, low);
+            }
+            if (compare(high, low) < 0) {
+                swap(high, low);
+            }
+            if (compare(high, middle) < 0) {
+                swap(high, middle);
+            }
+            // Move pivot to the position high - 1
+            swap(middle, high - 1);
+            int pivot = high - 1;
+            int left = low;
+            int right = high - 1;
+            while (true) {
+                while (compare(++left, pivot) < 0) {
+                }
+                while (compare(--right, pivot) > 0) {
+                }
+                if (left >= right) {
+                    break;
+                }
+                swap(left, right);
+            }
+            swap(left, high - 1);
+            // Recurse into the smaller part and iterate over the larger one
+            if (left - low < high - left) {
+                sort(low, left - 1);
+                low = left + 1;
+            }
+            else {
+                sort(left + 1, high);
+                high = left - 1;
+            }
+        }
+        for (int index = low + 1; index <= high; index++) {
+            for (int position = index; position > low && compare(position, position - 1) < 0; position--) {
+                swap(position, position - 1);
+            }
+        }
+    }
+}
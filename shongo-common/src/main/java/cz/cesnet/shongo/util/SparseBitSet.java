@@ -0,0 +1,133 @@
+package cz.cesnet.shongo.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compressed set of bits addressed by {@code long} indexes. Bits are stored in chunks of {@link #CHUNK_SIZE} bits
+ * and only chunks containing at least one set bit are allocated, so huge sparse ranges (e.g., all 10-digit numbers)
+ * need memory only for the occupied parts.
+ */
+public class SparseBitSet
+{
+    /**
+     * Number of bits in single chunk.
+     */
+    public static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Number of {@code long} words in single chunk.
+     */
+    private static final int CHUNK_WORD_COUNT = CHUNK_SIZE / Long.SIZE;
+
+    /**
+     * Chunks of words by chunk index.
+     */
+    private final TreeMap<Long, long[]> chunks = new TreeMap<Long, long[]>();
+
+    /**
+     * @param index of bit to be set
+     */
+    public void set(long index)
+    {
+        checkIndex(index);
+        Long chunkIndex = index / CHUNK_SIZE;
+        long[] words = chunks.get(chunkIndex);
+        if (words == null) {
+            words = new long[CHUNK_WORD_COUNT];
+            chunks.put(chunkIndex, words);
+        }
+        int bitIndex = (int) (index % CHUNK_SIZE);
+        words[bitIndex / Long.SIZE] |= 1L << bitIndex;
+    }
+
+    /**
+     * @param index of bit to be cleared
+     */
+    public void clear(long index)
+    {
+        checkIndex(index);
+        long[] words = chunks.get(index / CHUNK_SIZE);
+        if (words != null) {
+            int bitIndex = (int) (index % CHUNK_SIZE);
+            words[bitIndex / Long.SIZE] &= ~(1L << bitIndex);
+        }
+    }
+
+    /**
+     * @param index of bit
+     * @return true whether bit with given {@code index} is set, false otherwise
+     */
+    public boolean get(long index)
+    {
+        checkIndex(index);
+        long[] words = chunks.get(index / CHUNK_SIZE);
+        if (words == null) {
+            return false;
+        }
+        int bitIndex = (int) (index % CHUNK_SIZE);
+        return (words[bitIndex / Long.SIZE] & (1L << bitIndex)) != 0;
+    }
+
+    /**
+     * @param fromIndex index from which the clear bit should be searched (inclusive)
+     * @return index of first bit which is not set and which is greater or equal to given {@code fromIndex}
+     */
+    public long nextClearBit(long fromIndex)
+    {
+        checkIndex(fromIndex);
+        long chunkIndex = fromIndex / CHUNK_SIZE;
+        int bitIndex = (int) (fromIndex % CHUNK_SIZE);
+        while (true) {
+            long[] words = chunks.get(chunkIndex);
+            if (words == null) {
+                return chunkIndex * CHUNK_SIZE + bitIndex;
+            }
+            int wordIndex = bitIndex / Long.SIZE;
+            long word = ~words[wordIndex] & (-1L << bitIndex);
+            while (true) {
+                if (word != 0) {
+                    return chunkIndex * CHUNK_SIZE + wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word);
+                }
+                if (++wordIndex == CHUNK_WORD_COUNT) {
+                    break;
+                }
+                word = ~words[wordIndex];
+            }
+            chunkIndex++;
+            bitIndex = 0;
+        }
+    }
+
+    /**
+     * @return number of set bits
+     */
+    public long cardinality()
+    {
+        long cardinality = 0;
+        for (Map.Entry<Long, long[]> entry : chunks.entrySet()) {
+            for (long word : entry.getValue()) {
+                cardinality += Long.bitCount(word);
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * Clear all bits.
+     */
+    public void clear()
+    {
+        chunks.clear();
+    }
+
+    /**
+     * @param index to be checked
+     */
+    private static void checkIndex(long index)
+    {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index must not be negative (" + index + ").");
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package cz.cesnet.shongo;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link ConcurrentExpirationMap}.
+ */
+public class ConcurrentExpirationMapTest
+{
+    /**
+     * Test that expired entries are not returned and that they are removed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExpiration() throws Exception
+    {
+        ConcurrentExpirationMap<String, String> map = new ConcurrentExpirationMap<String, String>();
+        map.setExpiration(Duration.standardMinutes(1));
+        map.put("1", "one");
+        map.put("2", "two");
+        Assert.assertTrue(map.contains("1"));
+        Assert.assertEquals("one", map.get("1"));
+        Assert.assertNull(map.get("3"));
+        Assert.assertEquals(1, map.getHitCount());
+        Assert.assertEquals(1, map.getMissCount());
+
+        Assert.assertEquals(0, map.clearExpired(DateTime.now()).size());
+        Assert.assertEquals(2, map.size());
+        List<Map.Entry<String, String>> cleared = map.clearExpired(DateTime.now().plusMinutes(2));
+        Assert.assertEquals(2, cleared.size());
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(2, map.getExpirationCount());
+
+        // Expired entries are removed when read and by the sweeper
+        map.setExpiration(Duration.millis(50));
+        map.setSweepPeriod(Duration.millis(50));
+        map.put("1", "one");
+        map.put("2", "two");
+        Thread.sleep(100);
+        Assert.assertFalse(map.contains("1"));
+        Assert.assertEquals(null, map.putIfAbsent("1", "one"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (map.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, map.size());
+    }
+
+    /**
+     * Test that least recently used entries are evicted when maximum size is exceeded.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMaximumSize() throws Exception
+    {
+        ConcurrentExpirationMap<Integer, String> map = new ConcurrentExpirationMap<Integer, String>();
+        map.setMaximumSize(10);
+        for (int index = 0; index < 10; index++) {
+            map.put(index, String.valueOf(index));
+            Thread.sleep(1);
+        }
+        // Access the oldest entry
+        Assert.assertEquals("0", map.get(0));
+        map.put(10, "10");
+        Assert.assertEquals(9, map.size());
+        Assert.assertEquals(2, map.getEvictionCount());
+        Assert.assertTrue(map.contains(0));
+        Assert.assertFalse(map.contains(1));
+        Assert.assertFalse(map.contains(2));
+        Assert.assertTrue(map.contains(10));
+        Assert.assertEquals("0", map.putIfAbsent(0, "zero"));
+    }
+
+    /**
+     * Test that recently used entries of large map are not evicted.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMaximumSizeSampling() throws Exception
+    {
+        ConcurrentExpirationMap<Integer, String> map = new ConcurrentExpirationMap<Integer, String>();
+        map.setMaximumSize(1000);
+        for (int index = 0; index < 1000; index++) {
+            map.put(index, String.valueOf(index));
+        }
+        Thread.sleep(1);
+        for (int index = 0; index < 1000; index += 10) {
+            Assert.assertEquals(String.valueOf(index), map.get(index));
+        }
+        map.put(1000, "1000");
+        Assert.assertEquals(900, map.size());
+        Assert.assertEquals(101, map.getEvictionCount());
+        for (int index = 0; index < 1000; index += 10) {
+            Assert.assertTrue(map.contains(index));
+        }
+    }
+
+    /**
+     * Test that entries with null values can be removed by value.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRemoveByValue() throws Exception
+    {
+        ConcurrentExpirationMap<String, String> map = new ConcurrentExpirationMap<String, String>();
+        map.put("null", null);
+        map.put("first", "value");
+        map.put("second", "value");
+        map.removeByValue("value");
+        Assert.assertEquals(1, map.size());
+        Assert.assertTrue(map.contains("null"));
+        map.removeByValue(null);
+        Assert.assertEquals(0, map.size());
+    }
+
+    /**
+     * Test concurrent reads and writes.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        final ConcurrentExpirationMap<Integer, Integer> map = new ConcurrentExpirationMap<Integer, Integer>();
+        map.setExpiration(Duration.standardMinutes(1));
+        map.setMaximumSize(100);
+        final int threadCount = 8;
+        final int operationCount = 10000;
+        final CountDownLatch latch = new CountDownLatch(threadCount);
+        final AtomicInteger errorCount = new AtomicInteger();
+        for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+            final int seed = threadIndex;
+            new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        for (int index = 0; index < operationCount; index++) {
+                            int key = (index * 31 + seed) % 200;
+                            Integer value = map.get(key);
+                            if (value == null) {
+                                map.put(key, key);
+                            }
+                            else if (value != key) {
+                                errorCount.incrementAndGet();
+                            }
+                        }
+                    }
+                    catch (Exception exception) {
+                        errorCount.incrementAndGet();
+                    }
+                    finally {
+                        latch.countDown();
+                    }
+                }
+            }.start();
+        }
+        latch.await();
+        Assert.assertEquals(0, errorCount.get());
+        Assert.assertTrue(map.size() <= 100 + threadCount);
+        Assert.assertEquals(threadCount * operationCount, map.getHitCount() + map.getMissCount());
+        Assert.assertTrue(map.getEvictionCount() > 0);
+    }
+}
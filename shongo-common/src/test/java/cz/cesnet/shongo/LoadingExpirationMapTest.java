@@ -0,0 +1,163 @@
+package cz.cesnet.shongo;
+
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link LoadingExpirationMap}.
+ */
+public class LoadingExpirationMapTest
+{
+    /**
+     * Test that concurrent requests for the same key share a single loading.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSingleFlight() throws Exception
+    {
+        final LoadingExpirationMap<String, String> map = new LoadingExpirationMap<String, String>();
+        map.setExpiration(Duration.standardMinutes(1));
+        final AtomicInteger loadCount = new AtomicInteger();
+        final CountDownLatch loadLatch = new CountDownLatch(1);
+        final Callable<String> loader = new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                loadCount.incrementAndGet();
+                loadLatch.await();
+                return "value";
+            }
+        };
+        final int threadCount = 10;
+        final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+        final AtomicInteger resultCount = new AtomicInteger();
+        for (int index = 0; index < threadCount; index++) {
+            new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        if ("value".equals(map.get("key", loader))) {
+                            resultCount.incrementAndGet();
+                        }
+                    }
+                    finally {
+                        doneLatch.countDown();
+                    }
+                }
+            }.start();
+        }
+        // Loading of other key isn't blocked
+        Assert.assertEquals("other", map.get("other", new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                return "other";
+            }
+        }));
+        Thread.sleep(100);
+        loadLatch.countDown();
+        doneLatch.await();
+        Assert.assertEquals(threadCount, resultCount.get());
+        Assert.assertEquals(1, loadCount.get());
+        Assert.assertEquals("value", map.get("key"));
+    }
+
+    /**
+     * Test that stale values are returned and reloaded in the background.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRefresh() throws Exception
+    {
+        LoadingExpirationMap<String, Integer> map = new LoadingExpirationMap<String, Integer>();
+        map.setExpiration(Duration.standardMinutes(1));
+        map.setRefreshAfter(Duration.millis(50));
+        final AtomicInteger version = new AtomicInteger();
+        Callable<Integer> loader = new Callable<Integer>()
+        {
+            @Override
+            public Integer call() throws Exception
+            {
+                return version.incrementAndGet();
+            }
+        };
+        Assert.assertEquals(Integer.valueOf(1), map.get("key", loader));
+        Assert.assertEquals(Integer.valueOf(1), map.get("key", loader));
+        Thread.sleep(100);
+        Assert.assertNull(map.get("key"));
+        Assert.assertEquals(Integer.valueOf(1), map.get("key", loader));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (map.get("key") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(Integer.valueOf(2), map.get("key"));
+        Assert.assertEquals(2, map.getLoadCount());
+    }
+
+    /**
+     * Test that waiting for a loading is limited and that removed value isn't stored by a current loading.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFetchTimeout() throws Exception
+    {
+        LoadingExpirationMap<String, String> map = new LoadingExpirationMap<String, String>();
+        map.setFetchTimeout(Duration.millis(50));
+        final CountDownLatch loadLatch = new CountDownLatch(1);
+        final CountDownLatch loadedLatch = new CountDownLatch(1);
+        Callable<String> loader = new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                try {
+                    loadLatch.await();
+                    return "value";
+                }
+                finally {
+                    loadedLatch.countDown();
+                }
+            }
+        };
+        try {
+            map.get("key", loader);
+            Assert.fail("Timeout should be thrown.");
+        }
+        catch (RuntimeException exception) {
+            Assert.assertEquals(1, map.getTimeoutCount());
+        }
+        map.remove("key");
+        loadLatch.countDown();
+        loadedLatch.await();
+        Thread.sleep(50);
+        Assert.assertFalse(map.contains("key"));
+
+        // Loading failure is thrown
+        try {
+            map.get("key", new Callable<String>()
+            {
+                @Override
+                public String call() throws Exception
+                {
+                    throw new IllegalStateException("failure");
+                }
+            });
+            Assert.fail("Failure should be thrown.");
+        }
+        catch (IllegalStateException exception) {
+            Assert.assertEquals("failure", exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package cz.cesnet.shongo.jade;
+
+import cz.cesnet.shongo.JadeReportSet;
+import cz.cesnet.shongo.api.jade.Command;
+import cz.cesnet.shongo.api.jade.CommandException;
+import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
+import cz.cesnet.shongo.api.jade.PingCommand;
+import jade.core.AID;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link CommandHandlerPool}.
+ */
+public class CommandHandlerPoolTest
+{
+    private Container jadeContainer;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        jadeContainer = Container.createMainContainer("localhost", 8585, "Shongo");
+        if (!jadeContainer.start()) {
+            throw new RuntimeException("Failed to start JADE container.");
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        jadeContainer.stop();
+    }
+
+    /**
+     * Test that commands over the limit of {@link CommandHandlerPool} are answered by failure.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRejection() throws Exception
+    {
+        final CountDownLatch handlingLatch = new CountDownLatch(1);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final Agent requester = new Agent();
+        Agent responder = new Agent()
+        {
+            @Override
+            public Object handleCommand(Command command, AID sender)
+                    throws CommandException, CommandUnsupportedException
+            {
+                handlingLatch.countDown();
+                try {
+                    releaseLatch.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.handleCommand(command, sender);
+            }
+        };
+        responder.setCommandHandlerPoolSize(1, 0);
+
+        jadeContainer.addAgent("requester", requester, null);
+        jadeContainer.addAgent("responder", responder, null);
+        jadeContainer.waitForJadeAgentsToStart();
+
+        // Occupy the only handler thread
+        final SendLocalCommand[] firstCommand = new SendLocalCommand[1];
+        Thread firstThread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                firstCommand[0] = requester.sendCommand("responder", new PingCommand());
+            }
+        };
+        firstThread.start();
+        Assert.assertTrue(handlingLatch.await(10, TimeUnit.SECONDS));
+
+        // Next command is rejected
+        SendLocalCommand secondCommand = requester.sendCommand("responder", new PingCommand());
+        Assert.assertEquals(SendLocalCommand.State.FAILED, secondCommand.getState());
+        Assert.assertTrue(secondCommand.getJadeReport() instanceof JadeReportSet.CommandFailedReport);
+
+        releaseLatch.countDown();
+        firstThread.join();
+        Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, firstCommand[0].getState());
+
+        CommandHandlerPool commandHandlerPool = responder.getCommandHandlerPool();
+        Assert.assertEquals(1, commandHandlerPool.getHandledCount());
+        Assert.assertEquals(1, commandHandlerPool.getRejectedCount());
+        Assert.assertTrue(commandHandlerPool.getMaxHandlingDuration() > 0);
+    }
+
+    /**
+     * Test that commands waiting in the queue are handled.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testQueue() throws Exception
+    {
+        CommandHandlerPool commandHandlerPool = new CommandHandlerPool("test", 2, 100);
+        try {
+            final CountDownLatch latch = new CountDownLatch(50);
+            for (int index = 0; index < 50; index++) {
+                Assert.assertTrue(commandHandlerPool.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try {
+                            Thread.sleep(1);
+                        }
+                        catch (InterruptedException exception) {
+                            Thread.currentThread().interrupt();
+                        }
+                        latch.countDown();
+                    }
+                }));
+            }
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            Assert.assertTrue(commandHandlerPool.getMaxQueueDepth() > 0);
+            Assert.assertEquals(0, commandHandlerPool.getRejectedCount());
+        }
+        finally {
+            commandHandlerPool.destroy();
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package cz.cesnet.shongo.jade;
 
+import cz.cesnet.shongo.JadeReportSet;
 import cz.cesnet.shongo.api.jade.CommandException;
 import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
 import cz.cesnet.shongo.api.jade.Command;
 import cz.cesnet.shongo.api.jade.PingCommand;
 import jade.core.AID;
+import jade.domain.FIPANames;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -12,6 +14,11 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Tests for {@link SendLocalCommand}
  *
@@ -72,4 +79,125 @@ public class SendLocalCommandTest
         Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, sendLocalCommand.getState());
         logger.info("Received Ping Result by {}: {}.", agent1.getLocalName(), sendLocalCommand.getResult());
     }
+
+    /**
+     * Test that agents which don't understand binary content get the command in SL content.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBinaryContentFallback() throws Exception
+    {
+        Agent agent1 = new Agent();
+        Agent agent2 = new Agent();
+        Agent agent3 = new Agent();
+        agent3.setBinaryContent(false, -1);
+
+        jadeContainer.addAgent("agent1", agent1, null);
+        jadeContainer.addAgent("agent2", agent2, null);
+        jadeContainer.addAgent("agent3", agent3, null);
+        jadeContainer.waitForJadeAgentsToStart();
+
+        SendLocalCommand sendLocalCommand = agent1.sendCommand(agent2.getLocalName(), new PingCommand());
+        Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, sendLocalCommand.getState());
+        Assert.assertEquals(BinaryCodec.NAME, agent1.getContentLanguage(agent2.getAID()));
+
+        sendLocalCommand = agent1.sendCommand(agent3.getLocalName(), new PingCommand());
+        Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, sendLocalCommand.getState());
+        Assert.assertEquals(FIPANames.ContentLanguage.FIPA_SL, agent1.getContentLanguage(agent3.getAID()));
+
+        sendLocalCommand = agent3.sendCommand(agent1.getLocalName(), new PingCommand());
+        Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, sendLocalCommand.getState());
+    }
+
+    /**
+     * Test sending multiple commands asynchronously.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSendCommandsAsync() throws Exception
+    {
+        final CountDownLatch handledLatch = new CountDownLatch(3);
+        Agent agent1 = new Agent();
+        Agent agent2 = new Agent()
+        {
+            @Override
+            public Object handleCommand(Command command, AID sender)
+                    throws CommandException, CommandUnsupportedException
+            {
+                handledLatch.countDown();
+                try {
+                    // All commands must be handled concurrently
+                    handledLatch.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException exception) {
+                    throw new CommandException("Interrupted.", exception);
+                }
+                return super.handleCommand(command, sender);
+            }
+        };
+
+        jadeContainer.addAgent("agent1", agent1, null);
+        jadeContainer.addAgent("agent2", agent2, null);
+        jadeContainer.waitForJadeAgentsToStart();
+
+        List<Command> commands = new ArrayList<Command>();
+        commands.add(new PingCommand());
+        commands.add(new PingCommand());
+        commands.add(new PingCommand());
+        List<SendLocalCommand> sendLocalCommands = agent1.sendCommandsAsync(agent2.getLocalName(), commands, 10000);
+        Assert.assertEquals(3, sendLocalCommands.size());
+        for (SendLocalCommand sendLocalCommand : sendLocalCommands) {
+            Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, sendLocalCommand.get().getState());
+            Assert.assertNotNull(sendLocalCommand.getResult());
+        }
+    }
+
+    /**
+     * Test deadline and cancellation of asynchronously sent commands.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSendCommandAsyncTimeout() throws Exception
+    {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        Agent agent1 = new Agent();
+        Agent agent2 = new Agent()
+        {
+            @Override
+            public Object handleCommand(Command command, AID sender)
+                    throws CommandException, CommandUnsupportedException
+            {
+                try {
+                    releaseLatch.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException exception) {
+                    throw new CommandException("Interrupted.", exception);
+                }
+                return super.handleCommand(command, sender);
+            }
+        };
+
+        jadeContainer.addAgent("agent1", agent1, null);
+        jadeContainer.addAgent("agent2", agent2, null);
+        jadeContainer.waitForJadeAgentsToStart();
+
+        // Reply is not received until the deadline
+        SendLocalCommand sendLocalCommand = agent1.sendCommandAsync(agent2.getLocalName(), new PingCommand(), 500);
+        Assert.assertFalse(sendLocalCommand.isDone());
+        sendLocalCommand.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(SendLocalCommand.State.FAILED, sendLocalCommand.getState());
+        Assert.assertTrue(sendLocalCommand.getJadeReport() instanceof JadeReportSet.CommandTimeoutReport);
+
+        // Cancelled command ignores the reply
+        sendLocalCommand = agent1.sendCommandAsync(agent2.getLocalName(), new PingCommand(), 10000);
+        Assert.assertTrue(sendLocalCommand.cancel(false));
+        Assert.assertTrue(sendLocalCommand.isCancelled());
+        Assert.assertTrue(sendLocalCommand.isDone());
+        releaseLatch.countDown();
+        Assert.assertEquals(SendLocalCommand.State.FAILED, sendLocalCommand.getState());
+        Assert.assertFalse(sendLocalCommand.cancel(false));
+    }
 }
@@ -0,0 +1,70 @@
+package cz.cesnet.shongo.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link IntervalPeak}.
+ */
+public class IntervalPeakTest
+{
+    @Test
+    public void test() throws Exception
+    {
+        IntervalPeak intervalPeak = new IntervalPeak(1);
+        Assert.assertEquals(0, intervalPeak.getPeak(0, 100));
+
+        intervalPeak.add(0, 100, 1);
+        intervalPeak.add(100, 200, 2);
+        intervalPeak.add(150, 300, 4);
+        intervalPeak.add(50, 120, 8);
+        Assert.assertEquals(4, intervalPeak.size());
+        Assert.assertEquals(10, intervalPeak.getPeak(0, 400));
+        Assert.assertEquals(9, intervalPeak.getPeak(0, 100));
+        Assert.assertEquals(1, intervalPeak.getPeak(0, 50));
+        Assert.assertEquals(10, intervalPeak.getPeak(100, 120));
+        Assert.assertEquals(6, intervalPeak.getPeak(120, 400));
+        Assert.assertEquals(4, intervalPeak.getPeak(200, 400));
+        Assert.assertEquals(0, intervalPeak.getPeak(300, 400));
+
+        intervalPeak.clear();
+        Assert.assertEquals(0, intervalPeak.size());
+        Assert.assertEquals(0, intervalPeak.getPeak(0, 400));
+    }
+
+    /**
+     * Compare {@link IntervalPeak} with summing weights in {@link RangeSet.Bucket}s.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRangeSetEquivalence() throws Exception
+    {
+        Random random = new Random(0);
+        for (int iteration = 0; iteration < 100; iteration++) {
+            RangeSet<Integer, Long> rangeSet = new RangeSet<Integer, Long>();
+            IntervalPeak intervalPeak = new IntervalPeak();
+            int[] weights = new int[1 + random.nextInt(100)];
+            for (int index = 0; index < weights.length; index++) {
+                long start = random.nextInt(1000);
+                long end = start + 1 + random.nextInt(200);
+                weights[index] = 1 + random.nextInt(10);
+                rangeSet.add(index, start, end);
+                intervalPeak.add(start, end, weights[index]);
+            }
+            long start = random.nextInt(1000);
+            long end = start + 1 + random.nextInt(500);
+            int expectedPeak = 0;
+            for (RangeSet.Bucket<Long, Integer> bucket : rangeSet.getBuckets(start, end)) {
+                int bucketWeight = 0;
+                for (Integer index : bucket) {
+                    bucketWeight += weights[index];
+                }
+                expectedPeak = Math.max(expectedPeak, bucketWeight);
+            }
+            Assert.assertEquals(expectedPeak, intervalPeak.getPeak(start, end));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package cz.cesnet.shongo.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Tests for {@link SparseBitSet}.
+ */
+public class SparseBitSetTest
+{
+    @Test
+    public void test() throws Exception
+    {
+        SparseBitSet bitSet = new SparseBitSet();
+        Assert.assertEquals(0, bitSet.nextClearBit(0));
+        Assert.assertEquals(9999999999L, bitSet.nextClearBit(9999999999L));
+
+        for (long index = 1; index < 3 * SparseBitSet.CHUNK_SIZE; index++) {
+            bitSet.set(index);
+        }
+        bitSet.set(9999999999L);
+        Assert.assertEquals(3 * SparseBitSet.CHUNK_SIZE, bitSet.cardinality());
+        Assert.assertEquals(0, bitSet.nextClearBit(0));
+        Assert.assertEquals(3 * SparseBitSet.CHUNK_SIZE, bitSet.nextClearBit(1));
+        Assert.assertEquals(10000000000L, bitSet.nextClearBit(9999999999L));
+
+        bitSet.clear(SparseBitSet.CHUNK_SIZE + 100);
+        Assert.assertFalse(bitSet.get(SparseBitSet.CHUNK_SIZE + 100));
+        Assert.assertTrue(bitSet.get(SparseBitSet.CHUNK_SIZE + 101));
+        Assert.assertEquals(SparseBitSet.CHUNK_SIZE + 100, bitSet.nextClearBit(1));
+
+        bitSet.clear();
+        Assert.assertEquals(0, bitSet.cardinality());
+        Assert.assertEquals(1, bitSet.nextClearBit(1));
+    }
+
+    /**
+     * Compare {@link SparseBitSet} with {@link BitSet}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBitSetEquivalence() throws Exception
+    {
+        Random random = new Random(0);
+        SparseBitSet sparseBitSet = new SparseBitSet();
+        BitSet bitSet = new BitSet();
+        for (int iteration = 0; iteration < 100000; iteration++) {
+            int index = random.nextInt(4 * SparseBitSet.CHUNK_SIZE);
+            if (random.nextInt(4) == 0) {
+                sparseBitSet.clear(index);
+                bitSet.clear(index);
+            }
+            else {
+                sparseBitSet.set(index);
+                bitSet.set(index);
+            }
+            int fromIndex = random.nextInt(4 * SparseBitSet.CHUNK_SIZE);
+            Assert.assertEquals(bitSet.get(fromIndex), sparseBitSet.get(fromIndex));
+            Assert.assertEquals(bitSet.nextClearBit(fromIndex), sparseBitSet.nextClearBit(fromIndex));
+        }
+        Assert.assertEquals(bitSet.cardinality(), sparseBitSet.cardinality());
+    }
+}
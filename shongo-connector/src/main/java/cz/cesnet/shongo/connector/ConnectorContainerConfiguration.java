@@ -1,6 +1,8 @@
 package cz.cesnet.shongo.connector;
 
 import cz.cesnet.shongo.connector.api.ConnectorInitException;
+import cz.cesnet.shongo.jade.BinaryCodec;
+import cz.cesnet.shongo.jade.CommandHandlerPool;
 import org.apache.commons.configuration.*;
 import org.apache.commons.configuration.tree.NodeCombiner;
 import org.apache.commons.configuration.tree.UnionCombiner;
@@ -30,6 +32,10 @@ public class ConnectorContainerConfiguration extends CombinedConfiguration
     public static final String CONTROLLER_CONNECTION_CHECK_PERIOD = "controller.connection-check-period";
     public static final String JADE_HOST = "jade.host";
     public static final String JADE_PORT = "jade.port";
+    public static final String JADE_HANDLER_THREAD_COUNT = "jade.handler-thread-count";
+    public static final String JADE_HANDLER_QUEUE_SIZE = "jade.handler-queue-size";
+    public static final String JADE_BINARY_CONTENT = "jade.binary-content";
+    public static final String JADE_COMPRESSION_THRESHOLD = "jade.compression-threshold";
 
     Map<String, CombinedConfiguration> connectorConfigurationByName = new LinkedHashMap<String, CombinedConfiguration>();
 
@@ -134,6 +140,38 @@ public class ConnectorContainerConfiguration extends CombinedConfiguration
         return getDuration("jade.command-timeout");
     }
 
+    /**
+     * @return maximum number of concurrently handled commands by single agent
+     */
+    public int getJadeHandlerThreadCount()
+    {
+        return getInt(JADE_HANDLER_THREAD_COUNT, CommandHandlerPool.DEFAULT_THREAD_COUNT);
+    }
+
+    /**
+     * @return maximum number of commands waiting for handling by single agent
+     */
+    public int getJadeHandlerQueueSize()
+    {
+        return getInt(JADE_HANDLER_QUEUE_SIZE, CommandHandlerPool.DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * @return true when commands should be sent in binary content language (when the receiver understands it)
+     */
+    public boolean isJadeBinaryContent()
+    {
+        return getBoolean(JADE_BINARY_CONTENT, true);
+    }
+
+    /**
+     * @return number of bytes of binary content above which the content is compressed ({@code -1} means never)
+     */
+    public int getJadeCompressionThreshold()
+    {
+        return getInt(JADE_COMPRESSION_THRESHOLD, BinaryCodec.DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
     /**
      * @param configurationFileName
      * @return {@link AbstractConfiguration}
@@ -47,6 +47,9 @@ import java.net.MalformedURLException;
 import java.net.SocketException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -76,6 +79,12 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
      */
     public static final String ROOM_NUMBER_EXTRACTION_FROM_H323_NUMBER = "room-number-extraction-from-h323-number";
     public static final String ROOM_NUMBER_EXTRACTION_FROM_SIP_URI = "room-number-extraction-from-sip-uri";
+    public static final String MAX_CONCURRENT_REQUESTS = "max-concurrent-requests";
+
+    /**
+     * Default maximum number of requests which are performed on the device concurrently.
+     */
+    public static final int MAX_CONCURRENT_REQUESTS_DEFAULT = 4;
 
     /**
      * Maximum length of string which can be sent to the device.
@@ -105,12 +114,36 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
     /**
      * {@link XmlRpcClient} used for the XML-RPC API communication with the device.
      */
-    private XmlRpcClient xmlRpcClient;
+    private volatile XmlRpcClient xmlRpcClient;
+
+    /**
+     * {@link KeepAliveTransportFactory} with pool of connections for {@link #xmlRpcClient}.
+     */
+    private KeepAliveTransportFactory xmlRpcTransportFactory;
 
     /**
      * {@link XmlRpcClient} used for the Http communication with the device.
      */
-    private HttpClient httpClient;
+    private volatile HttpClient httpClient;
+
+    /**
+     * Limits the number of requests (XML-RPC API and Http) which are performed on the device concurrently
+     * (the device accepts parallel connections but it doesn't cope with unlimited number of them).
+     */
+    private volatile Semaphore requestPermits;
+
+    /**
+     * Lock for {@link #loginHttp()}, so that concurrent requests which find out that the {@link #httpClient}
+     * isn't logged in perform only single login.
+     */
+    private final Object loginHttpLock = new Object();
+
+    /**
+     * Locks for {@link #execApiEnumerate} by {@link #getCommandCacheId}. Enumerations of the same command must
+     * be performed sequentially, because each one asks for the difference since the revision stored in the
+     * {@link #resultsCache} by the previous one (different commands are performed concurrently).
+     */
+    private final ConcurrentMap<String, Object> enumerateLocks = new ConcurrentHashMap<String, Object>();
 
     /**
      * Detector for {@link MediaType}s.
@@ -146,7 +179,7 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
      * Cache of results of previous calls to commands supporting revision numbers.
      * Map of cache ID to previous results.
      */
-    private final Map<String, ResultsCache> resultsCache = new HashMap<String, ResultsCache>();
+    private final ConcurrentMap<String, ResultsCache> resultsCache = new ConcurrentHashMap<String, ResultsCache>();
 
     /**
      * Cache of snapshot URL for room participants ("roomId:roomParticipantId").
@@ -209,6 +242,12 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
         roomNumberFromH323Number = configuration.getOptionPattern(ROOM_NUMBER_EXTRACTION_FROM_H323_NUMBER);
         roomNumberFromSIPURI = configuration.getOptionPattern(ROOM_NUMBER_EXTRACTION_FROM_SIP_URI);
 
+        int maxConcurrentRequests = configuration.getOptionInt(MAX_CONCURRENT_REQUESTS, MAX_CONCURRENT_REQUESTS_DEFAULT);
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("Option " + MAX_CONCURRENT_REQUESTS + " must be positive.");
+        }
+        requestPermits = new Semaphore(maxConcurrentRequests, true);
+
         hiddenParticipantAddresses.clear();
         for (Configuration participant : configuration.getOptionConfigurationList("participants.participant")) {
             boolean hide = participant.getBool("hide");
@@ -231,12 +270,14 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
             config.setServerURL(getDeviceApiUrl());
             config.setConnectionTimeout(requestTimeout);
             config.setReplyTimeout(requestTimeout);
-            xmlRpcClient = new XmlRpcClient();
+            XmlRpcClient xmlRpcClient = new XmlRpcClient();
             xmlRpcClient.setConfig(config);
-            xmlRpcClient.setTransportFactory(new KeepAliveTransportFactory(xmlRpcClient));
+            xmlRpcTransportFactory = new KeepAliveTransportFactory(xmlRpcClient, maxConcurrentRequests);
+            xmlRpcClient.setTransportFactory(xmlRpcTransportFactory);
+            this.xmlRpcClient = xmlRpcClient;
 
             // Create HttpClient for Http communication
-            httpClient = ConfiguredSSLContext.getInstance().createHttpClient(requestTimeout);
+            httpClient = ConfiguredSSLContext.getInstance().createHttpClient(requestTimeout, maxConcurrentRequests);
 
             // Get and check device info
             Map<String, Object> device = execApi(new Command("device.query"));
@@ -280,12 +321,10 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
     public ConnectionState getConnectionState()
     {
         try {
-            synchronized (this) {
-                XmlRpcClientConfigImpl configuration = ((XmlRpcClientConfigImpl) xmlRpcClient.getConfig());
-                configuration.setReplyTimeout(CONNECTION_STATE_TIMEOUT);
-                execApi("device.query", null);
-                configuration.setReplyTimeout(requestTimeout);
-            }
+            // Use own configuration, the shared one is used by concurrent requests
+            XmlRpcClientConfigImpl configuration = ((XmlRpcClientConfigImpl) xmlRpcClient.getConfig()).cloneMe();
+            configuration.setReplyTimeout(CONNECTION_STATE_TIMEOUT);
+            execApi(configuration, "device.query", null);
             return ConnectionState.CONNECTED;
         }
         catch (Exception exception) {
@@ -300,6 +339,14 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
         // TODO: consider publishing feedback events from the MCU
         // no real operation - the communication protocol is stateless
         xmlRpcClient = null; // just for sure the attributes are not used anymore
+        if (xmlRpcTransportFactory != null) {
+            xmlRpcTransportFactory.shutdown();
+            xmlRpcTransportFactory = null;
+        }
+        if (httpClient != null) {
+            httpClient.getConnectionManager().shutdown();
+            httpClient = null;
+        }
 
         //Disconnect Alias service
         if (this.lifeSizeUVCClearSea != null) {
@@ -972,8 +1019,9 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
      * @return content as {@link MediaData}
      * @throws CommandException
      */
-    private synchronized MediaData execHttp(String file) throws CommandException
+    private MediaData execHttp(String file) throws CommandException
     {
+        acquireRequestPermit();
         try {
             URL requestUrl = getDeviceHttpUrl(file);
             HttpGet request = new HttpGet(requestUrl.toURI());
@@ -983,6 +1031,8 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
             StatusLine responseStatusLine = response.getStatusLine();
             if (responseStatusLine.getStatusCode() == HttpStatus.SC_OK) {
                 if (responseRequest.getRequestLine().getUri().startsWith("/login.html")) {
+                    // Release the pooled connection
+                    EntityUtils.consume(response.getEntity());
                     // Perform login
                     loginHttp();
                     // Perform the request again
@@ -995,6 +1045,7 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
                     return new MediaData(mediaType, mediaContent);
                 }
             }
+            EntityUtils.consume(response.getEntity());
             throw new RuntimeException(response.getStatusLine().toString());
         }
         catch (CommandException exception) {
@@ -1003,6 +1054,9 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
         catch (Exception exception) {
             throw new CommandException("Http request " + file + " failed.", exception);
         }
+        finally {
+            requestPermits.release();
+        }
     }
 
     /**
@@ -1011,6 +1065,16 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
      * @throws CommandException when login fails
      */
     private void loginHttp() throws CommandException
+    {
+        synchronized (loginHttpLock) {
+            loginHttpLocked();
+        }
+    }
+
+    /**
+     * @see #loginHttp()
+     */
+    private void loginHttpLocked() throws CommandException
     {
         try {
             HttpPost request = new HttpPost(getDeviceHttpUrl("/login_change.html").toURI());
@@ -1023,6 +1087,7 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
             HttpResponse response = httpClient.execute(request, context);
             HttpRequest responseRequest = (HttpRequest) context.getAttribute(ExecutionContext.HTTP_REQUEST);
             StatusLine responseStatusLine = response.getStatusLine();
+            EntityUtils.consume(response.getEntity());
             if (responseStatusLine.getStatusCode() != HttpStatus.SC_OK) {
                 throw new RuntimeException("Wrong status " + responseStatusLine);
             }
@@ -1050,7 +1115,7 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
         int retryCount = 5;
         while (retryCount > 0) {
             try {
-                return execApi(command.getCommand(), command.getParameters());
+                return execApi(null, command.getCommand(), command.getParameters());
             }
             catch (XmlRpcException exception) {
                 if (isExecApiRetryPossible(exception)) {
@@ -1067,14 +1132,17 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
     }
 
     /**
-     * Sends a command to the device. Blocks until response to the command is complete.
+     * Sends a command to the device. Blocks until response to the command is complete (and until the request
+     * is permitted by {@link #requestPermits}, when the maximum number of concurrent requests is reached).
      *
+     * @param config to be used for the request ({@code null} means the default configuration of {@link #xmlRpcClient})
      * @param command
      * @param params
      * @return output of the command
      * @throws XmlRpcException
      */
-    private synchronized Map<String, Object> execApi(String command, Map<String, Object> params) throws XmlRpcException
+    private Map<String, Object> execApi(XmlRpcClientConfigImpl config, String command, Map<String, Object> params)
+            throws XmlRpcException
     {
         logger.debug(String.format("Issuing command '%s' on %s", command, deviceAddress));
         HashMap<String, Object> content = new HashMap<String, Object>();
@@ -1083,9 +1151,39 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
         }
         content.put("authenticationUser", authUsername);
         content.put("authenticationPassword", authPassword);
-        @SuppressWarnings("unchecked")
-        Map<String, Object> result = (Map<String, Object>) xmlRpcClient.execute(command, new Object[]{content});
-        return result;
+        Object[] contents = new Object[]{content};
+        XmlRpcClient xmlRpcClient = this.xmlRpcClient;
+        try {
+            acquireRequestPermit();
+        }
+        catch (CommandException exception) {
+            throw new XmlRpcException(exception.getMessage(), exception);
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> result = (Map<String, Object>) (config != null
+                    ? xmlRpcClient.execute(config, command, contents) : xmlRpcClient.execute(command, contents));
+            return result;
+        }
+        finally {
+            requestPermits.release();
+        }
+    }
+
+    /**
+     * Wait for a permit to perform a request on the device.
+     *
+     * @throws CommandException when the waiting is interrupted
+     */
+    private void acquireRequestPermit() throws CommandException
+    {
+        try {
+            requestPermits.acquire();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new CommandException("Interrupted while waiting for request to the device.", exception);
+        }
     }
 
     /**
@@ -1113,7 +1211,27 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
      *         the list is unmodifiable (so that it may be reused by the execApiEnumerate() method)
      * @throws CommandException
      */
-    private synchronized List<Map<String, Object>> execApiEnumerate(Command command, String enumField)
+    private List<Map<String, Object>> execApiEnumerate(Command command, String enumField)
+            throws CommandException
+    {
+        String cacheId = getCommandCacheId(command);
+        Object enumerateLock = enumerateLocks.get(cacheId);
+        if (enumerateLock == null) {
+            Object newEnumerateLock = new Object();
+            enumerateLock = enumerateLocks.putIfAbsent(cacheId, newEnumerateLock);
+            if (enumerateLock == null) {
+                enumerateLock = newEnumerateLock;
+            }
+        }
+        synchronized (enumerateLock) {
+            return execApiEnumerateLocked(command, enumField);
+        }
+    }
+
+    /**
+     * @see #execApiEnumerate
+     */
+    private List<Map<String, Object>> execApiEnumerateLocked(Command command, String enumField)
             throws CommandException
     {
         List<Map<String, Object>> results = new ArrayList<Map<String, Object>>();
@@ -1223,6 +1341,7 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
     {
         // we got just the difference since lastRevision (or full set if this is the first issue of the command)
         final String cacheId = getCommandCacheId(command);
+        final ResultsCache cache = resultsCache.get(cacheId);
 
         if (lastRevision != null) {
             // fill the values that have not changed since lastRevision
@@ -1238,8 +1357,7 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
                     iterator.remove();
                 }
                 else if (!hasItemChanged(item)) {
-                    ResultsCache cache = resultsCache.get(cacheId);
-                    Map<String, Object> it = cache.getItem(item);
+                    Map<String, Object> it = (cache != null ? cache.getItem(item) : null);
                     if (it == null) {
                         throw new CommandException(
                                 "Item reported as not changed by the device, but was not found in the cache: " + item
@@ -1251,12 +1369,7 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
         }
 
         // store the results and the revision number for the next time
-        ResultsCache rc = resultsCache.get(cacheId);
-        if (rc == null) {
-            rc = new ResultsCache();
-            resultsCache.put(cacheId, rc);
-        }
-        rc.store(currentRevision, results);
+        resultsCache.put(cacheId, new ResultsCache(currentRevision, results));
     }
 
     /**
@@ -1368,7 +1481,7 @@ ParamsLoop:
         return roomSummary;
     }
 
-    private synchronized Collection<RoomParticipant> getRoomParticipants(String roomId, boolean withHidden) throws CommandException
+    private Collection<RoomParticipant> getRoomParticipants(String roomId, boolean withHidden) throws CommandException
     {
         Command cmd = new Command("participant.enumerate");
         cmd.setParameter("operationScope", new String[]{"currentState"});
@@ -1490,22 +1603,23 @@ ParamsLoop:
     {
         String roomParticipantSnapshotUrl;
         String cacheId = roomId + ":" + roomParticipantId;
-        synchronized (this) {
+        synchronized (roomParticipantSnapshotUrlCache) {
+            roomParticipantSnapshotUrl = roomParticipantSnapshotUrlCache.get(cacheId);
+        }
+        if (roomParticipantSnapshotUrl == null) {
+            // The request is performed without lock, concurrent requests for the same participant are harmless
+            Command cmd = new Command("participant.status");
+            cmd.setParameter("operationScope", new String[]{"currentState"});
+            identifyParticipant(cmd, roomId, roomParticipantId);
+            Map<String, Object> result = execApi(cmd);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> state = (Map<String, Object>) result.get("currentState");
+            roomParticipantSnapshotUrl = (String) state.get("previewURL");
+            if (roomParticipantSnapshotUrl == null) {
+                throw new CommandException("Participant " + roomParticipantId + " doesn't have snapshot.");
+            }
             synchronized (roomParticipantSnapshotUrlCache) {
-                roomParticipantSnapshotUrl = roomParticipantSnapshotUrlCache.get(cacheId);
-                if (roomParticipantSnapshotUrl == null) {
-                    Command cmd = new Command("participant.status");
-                    cmd.setParameter("operationScope", new String[]{"currentState"});
-                    identifyParticipant(cmd, roomId, roomParticipantId);
-                    Map<String, Object> result = execApi(cmd);
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> state = (Map<String, Object>) result.get("currentState");
-                    roomParticipantSnapshotUrl = (String) state.get("previewURL");
-                    if (roomParticipantSnapshotUrl == null) {
-                        throw new CommandException("Participant " + roomParticipantId + " doesn't have snapshot.");
-                    }
-                    roomParticipantSnapshotUrlCache.put(cacheId, roomParticipantSnapshotUrl);
-                }
+                roomParticipantSnapshotUrlCache.put(cacheId, roomParticipantSnapshotUrl);
             }
         }
 
@@ -1754,10 +1868,12 @@ ParamsLoop:
      * If the item contains a "participantName" key, the value under this key is used as the item unique ID.
      * If the item contains a "conferenceName" key, the value under this key is used as the item unique ID.
      * Otherwise, only items with equal contents are considered equal.
+     * <p/>
+     * Instances are immutable, a new instance is put to the {@link #resultsCache} for each new revision.
      */
-    private class ResultsCache
+    private static class ResultsCache
     {
-        private class Item
+        private static class Item
         {
 
             private final Map<String, Object> contents;
@@ -1817,34 +1933,31 @@ ParamsLoop:
 
         }
 
-        private int revision;
+        private final int revision;
 
-        private List<Item> results;
+        private final Map<Item, Map<String, Object>> results;
 
-        public int getRevision()
+        public ResultsCache(int revision, List<Map<String, Object>> results)
         {
-            return revision;
+            this.revision = revision;
+            this.results = new HashMap<Item, Map<String, Object>>(results.size() * 2);
+            for (Map<String, Object> res : results) {
+                Item item = new Item(res);
+                if (!this.results.containsKey(item)) {
+                    // keep the first of equal items (as the former linear search did)
+                    this.results.put(item, res);
+                }
+            }
         }
 
-        public Map<String, Object> getItem(Map<String, Object> item)
+        public int getRevision()
         {
-            final Item it = new Item(item);
-            // FIXME: optimize - should be O(1) rather than O(n)
-            for (Item cachedItem : results) {
-                if (cachedItem.equals(it)) {
-                    return cachedItem.getContents();
-                }
-            }
-            return null;
+            return revision;
         }
 
-        public void store(int revision, List<Map<String, Object>> results)
+        public Map<String, Object> getItem(Map<String, Object> item)
         {
-            this.revision = revision;
-            this.results = new ArrayList<Item>(results.size());
-            for (Map<String, Object> res : results) {
-                this.results.add(new Item(res));
-            }
+            return results.get(new Item(item));
         }
 
     }
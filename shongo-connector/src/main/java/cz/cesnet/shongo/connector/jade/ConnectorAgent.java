@@ -65,6 +65,10 @@ public class ConnectorAgent extends Agent
         addOntology(ConnectorOntology.getInstance());
         addOntology(ControllerOntology.getInstance());
         setCommandTimeout((int) connectorContainerConfiguration.getJadeCommandTimeout().getMillis());
+        setCommandHandlerPoolSize(connectorContainerConfiguration.getJadeHandlerThreadCount(),
+                connectorContainerConfiguration.getJadeHandlerQueueSize());
+        setBinaryContent(connectorContainerConfiguration.isJadeBinaryContent(),
+                connectorContainerConfiguration.getJadeCompressionThreshold());
 
         // Create and initialize connector
         Class<? extends CommonService> connectorClass;
@@ -144,29 +148,37 @@ public class ConnectorAgent extends Agent
     }
 
     @Override
-    public SendLocalCommand sendCommand(String receiverAgentName, Command command)
+    protected SendLocalCommand createSendLocalCommand(String receiverAgentName, final Command command,
+            Integer timeout)
     {
         ConnectorContainer.requestedCommands.info("Action:{} {}.", command.getId(), command);
-        SendLocalCommand sendLocalCommand = super.sendCommand(receiverAgentName, command);
-        String commandState;
-        switch (sendLocalCommand.getState()) {
-            case SUCCESSFUL:
-                Object result = sendLocalCommand.getResult();
-                if (result != null && result instanceof String) {
-                    commandState = String.format("OK: %s", result);
-                }
-                else {
-                    commandState = "OK";
+        SendLocalCommand sendLocalCommand = super.createSendLocalCommand(receiverAgentName, command, timeout);
+        sendLocalCommand.addListener(new SendLocalCommand.Listener()
+        {
+            @Override
+            public void onProcessed(SendLocalCommand sendLocalCommand)
+            {
+                String commandState;
+                switch (sendLocalCommand.getState()) {
+                    case SUCCESSFUL:
+                        Object result = sendLocalCommand.getResult();
+                        if (result != null && result instanceof String) {
+                            commandState = String.format("OK: %s", result);
+                        }
+                        else {
+                            commandState = "OK";
+                        }
+                        break;
+                    case FAILED:
+                        commandState = String.format("FAILED: %s", sendLocalCommand.getJadeReport().getMessage());
+                        break;
+                    default:
+                        commandState = "UNKNOWN";
+                        break;
                 }
-                break;
-            case FAILED:
-                commandState = String.format("FAILED: %s", sendLocalCommand.getJadeReport().getMessage());
-                break;
-            default:
-                commandState = "UNKNOWN";
-                break;
-        }
-        ConnectorContainer.requestedCommands.info("Action:{} Done ({}).", command.getId(), commandState);
+                ConnectorContainer.requestedCommands.info("Action:{} Done ({}).", command.getId(), commandState);
+            }
+        });
         return sendLocalCommand;
     }
 
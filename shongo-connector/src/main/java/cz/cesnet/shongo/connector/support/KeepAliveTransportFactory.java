@@ -1,10 +1,17 @@
 package cz.cesnet.shongo.connector.support;
 
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.xmlrpc.XmlRpcRequest;
 import org.apache.xmlrpc.client.*;
 
 /**
  * Represents an improved {@link XmlRpcTransportFactory} which allows for keep-alive connection.
+ * <p/>
+ * By default a single {@link XmlRpcTransport} is used and thus requests must not be performed concurrently.
+ * When created with maximum number of connections, a new {@link XmlRpcTransport} is created for each request
+ * and all transports share a pool of keep-alive connections (and thus requests can be performed concurrently).
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
@@ -15,6 +22,11 @@ public class KeepAliveTransportFactory extends XmlRpcCommonsTransportFactory
      */
     private XmlRpcTransport transport;
 
+    /**
+     * Pool of keep-alive connections shared by concurrent transports (or {@code null} for single transport).
+     */
+    private MultiThreadedHttpConnectionManager connectionManager;
+
     /**
      * Creates a new instance.
      *
@@ -25,15 +37,45 @@ public class KeepAliveTransportFactory extends XmlRpcCommonsTransportFactory
         super(pClient);
     }
 
+    /**
+     * Creates a new instance which allows concurrent requests.
+     *
+     * @param pClient        The client, which is controlling the factory.
+     * @param maxConnections maximum number of pooled connections (and thus of concurrent requests)
+     */
+    public KeepAliveTransportFactory(XmlRpcClient pClient, int maxConnections)
+    {
+        super(pClient);
+        connectionManager = new MultiThreadedHttpConnectionManager();
+        HttpConnectionManagerParams params = connectionManager.getParams();
+        params.setDefaultMaxConnectionsPerHost(maxConnections);
+        params.setMaxTotalConnections(maxConnections);
+        setHttpClient(new HttpClient(connectionManager));
+    }
+
     @Override
     public XmlRpcTransport getTransport()
     {
+        if (connectionManager != null) {
+            // Transport holds state of single request, so each concurrent request needs its own
+            return new Transport(this);
+        }
         if (transport == null) {
             transport = new Transport(this);
         }
         return transport;
     }
 
+    /**
+     * Close all pooled connections.
+     */
+    public void shutdown()
+    {
+        if (connectionManager != null) {
+            connectionManager.shutdown();
+        }
+    }
+
     public static class Transport extends XmlRpcCommonsTransport
     {
         public Transport(XmlRpcCommonsTransportFactory pFactory)
@@ -0,0 +1,194 @@
+package cz.cesnet.shongo.connector;
+
+import cz.cesnet.shongo.api.util.DeviceAddress;
+import cz.cesnet.shongo.connector.common.ConnectorConfigurationImpl;
+import cz.cesnet.shongo.connector.device.CiscoMCUConnector;
+import org.apache.xmlrpc.server.PropertyHandlerMapping;
+import org.apache.xmlrpc.server.XmlRpcServer;
+import org.apache.xmlrpc.server.XmlRpcServerConfigImpl;
+import org.apache.xmlrpc.webserver.WebServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for concurrent requests of {@link CiscoMCUConnector} against a local XML-RPC stub of the MCU.
+ */
+public class CiscoMCUConnectorTest
+{
+    private static Logger logger = LoggerFactory.getLogger(CiscoMCUConnectorTest.class);
+
+    /**
+     * Duration of a single request on the stub device in milliseconds.
+     */
+    private static final int REQUEST_DURATION = 50;
+
+    /**
+     * Maximum number of concurrent requests configured for the connector.
+     */
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
+
+    /**
+     * Number of commands performed for each concurrency level.
+     */
+    private static final int COMMAND_COUNT = 24;
+
+    /**
+     * Number of requests currently being processed by the stub device.
+     */
+    private static final AtomicInteger activeRequests = new AtomicInteger();
+
+    /**
+     * Maximum number of requests which have been processed by the stub device concurrently.
+     */
+    private static final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+    private WebServer webServer;
+
+    @Before
+    public void before() throws Exception
+    {
+        webServer = new WebServer(0);
+        XmlRpcServer xmlRpcServer = webServer.getXmlRpcServer();
+        PropertyHandlerMapping handlerMapping = new PropertyHandlerMapping();
+        handlerMapping.addHandler("device", McuRpcDevice.class);
+        handlerMapping.addHandler("device.health", McuRpcDeviceHealth.class);
+        xmlRpcServer.setHandlerMapping(handlerMapping);
+        XmlRpcServerConfigImpl serverConfig = (XmlRpcServerConfigImpl) xmlRpcServer.getConfig();
+        serverConfig.setEnabledForExtensions(true);
+        serverConfig.setContentLengthOptional(false);
+        serverConfig.setKeepAliveEnabled(true);
+        webServer.start();
+    }
+
+    @After
+    public void after() throws Exception
+    {
+        webServer.shutdown();
+    }
+
+    /**
+     * Measure throughput for 1, 4 and 8 concurrent commands and check that commands are performed concurrently
+     * (but not more than {@link #MAX_CONCURRENT_REQUESTS} of them).
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentRequests() throws Exception
+    {
+        final CiscoMCUConnector connector = new CiscoMCUConnector();
+        connector.connect(new ConnectorConfigurationImpl(
+                DeviceAddress.parseAddress("http://127.0.0.1:" + webServer.getPort()), "test", "test")
+        {
+            @Override
+            public String getOptionString(String option)
+            {
+                if (CiscoMCUConnector.MAX_CONCURRENT_REQUESTS.equals(option)) {
+                    return String.valueOf(MAX_CONCURRENT_REQUESTS);
+                }
+                return super.getOptionString(option);
+            }
+        });
+        try {
+            Map<Integer, Long> durations = new HashMap<Integer, Long>();
+            for (int threadCount : new int[]{1, 4, 8}) {
+                maxActiveRequests.set(0);
+                long duration = performCommands(connector, threadCount);
+                durations.put(threadCount, duration);
+                logger.info("{} concurrent commands: {} commands in {} ms ({} commands/s, {} concurrent requests).",
+                        new Object[]{threadCount, COMMAND_COUNT, duration, COMMAND_COUNT * 1000 / duration,
+                                maxActiveRequests.get()});
+                Assert.assertTrue(maxActiveRequests.get() <= Math.min(threadCount, MAX_CONCURRENT_REQUESTS));
+            }
+            // Commands must not be serialized
+            Assert.assertTrue(durations.get(4) * 2 < durations.get(1));
+        }
+        finally {
+            connector.disconnect();
+        }
+    }
+
+    /**
+     * @param connector   to be used
+     * @param threadCount number of threads which perform the commands
+     * @return duration of all commands in milliseconds
+     * @throws Exception
+     */
+    private long performCommands(final CiscoMCUConnector connector, int threadCount) throws Exception
+    {
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            long start = System.currentTimeMillis();
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int index = 0; index < COMMAND_COUNT; index++) {
+                results.add(executorService.submit(new Callable<Object>()
+                {
+                    @Override
+                    public Object call() throws Exception
+                    {
+                        return connector.getDeviceLoadInfo();
+                    }
+                }));
+            }
+            for (Future<Object> result : results) {
+                Assert.assertNotNull(result.get());
+            }
+            return Math.max(System.currentTimeMillis() - start, 1);
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Simulate processing of a single request on the device.
+     */
+    private static void processRequest() throws InterruptedException
+    {
+        int active = activeRequests.incrementAndGet();
+        try {
+            int maxActive = maxActiveRequests.get();
+            while (active > maxActive && !maxActiveRequests.compareAndSet(maxActive, active)) {
+                maxActive = maxActiveRequests.get();
+            }
+            Thread.sleep(REQUEST_DURATION);
+        }
+        finally {
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    public static class McuRpcDevice
+    {
+        public Map query(Map parameters) throws Exception
+        {
+            processRequest();
+            Map<String, Object> result = new HashMap<String, Object>();
+            result.put("apiVersion", "2.9");
+            result.put("model", "Codian MCU Test");
+            result.put("uptime", 1);
+            return result;
+        }
+    }
+
+    public static class McuRpcDeviceHealth
+    {
+        public Map query(Map parameters) throws Exception
+        {
+            processRequest();
+            Map<String, Object> result = new HashMap<String, Object>();
+            result.put("cpuLoad", 10);
+            return result;
+        }
+    }
+}
@@ -19,6 +19,11 @@ public class ForeignDomainConnectException extends Exception
      */
     private String url;
 
+    /**
+     * HTTP response code of the foreign domain (or {@code null} when no response has been received).
+     */
+    private Integer responseCode;
+
     public ForeignDomainConnectException(String url, Throwable cause)
     {
         super(cause);
@@ -39,6 +44,23 @@ public class ForeignDomainConnectException extends Exception
         this.url = url;
     }
 
+    public ForeignDomainConnectException(Domain domain, String url, int responseCode, String message)
+    {
+        this(domain, url, message);
+        this.responseCode = responseCode;
+    }
+
+    /**
+     * @return {@link #responseCode} of this or of the cause {@link ForeignDomainConnectException}
+     */
+    public Integer getResponseCode()
+    {
+        if (responseCode == null && getCause() instanceof ForeignDomainConnectException) {
+            return ((ForeignDomainConnectException) getCause()).getResponseCode();
+        }
+        return responseCode;
+    }
+
     @Override
     public String getMessage()
     {
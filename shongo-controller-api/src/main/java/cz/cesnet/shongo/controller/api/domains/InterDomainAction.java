@@ -15,11 +15,14 @@ public class InterDomainAction {
     public final static String DOMAIN_ALLOCATE_ROOM = "/domain/allocate/room";
     public final static String DOMAIN_RESERVATION_DATA = "/domain/reservation/data";
     public final static String DOMAIN_RESOURCE_RESERVATION_LIST = "/domain/resource_reservation/list";
+    public final static String DOMAIN_RESOURCE_CHANGES = "/domain/resource/changes";
+    public final static String DOMAIN_RESOURCE_RESERVATION_CHANGES = "/domain/resource_reservation/changes";
     public final static String DOMAIN_RESERVATION_REQUEST_DELETE = "/domain/reservation_request/delete";
     public final static String DOMAIN_VIRTUAL_ROOM_PARTICIPANT_LIST = "/domain/virtual_room/participant/list";
     public final static String DOMAIN_VIRTUAL_ROOM_PARTICIPANT_UPDATE = "/domain/virtual_room/participant/update";
     public final static String DOMAIN_VIRTUAL_ROOM_ACTION = "/domain/virtual_room/action";
     public final static String DOMAIN_RESERVATION_DELETED = "/domain/reservation/deleted";
+    public final static String DOMAIN_RESERVATION_STATE = "/domain/reservation/state";
 
     public enum HttpMethod {
         GET("GET"), POST("POST"), PUT("PUT"), DELETE("DELETE");
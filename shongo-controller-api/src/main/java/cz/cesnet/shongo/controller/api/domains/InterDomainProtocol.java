@@ -27,12 +27,14 @@ public interface InterDomainProtocol {
             throws NotAuthorizedException;
 
     Reservation handleAllocateResource(HttpServletRequest request, Interval slot, String resourceId,
-                                              String userId, String description, String reservationRequestId)
+                                              String userId, String description, String reservationRequestId,
+                                              Boolean notifyState)
             throws NotAuthorizedException, ForbiddenException;
 
     Reservation handleAllocateRoom(HttpServletRequest request, Interval slot, int participantCount, List<Technology> technologies,
                                           String userId, String description, String roomPin, AdobeConnectPermissions roomAccessMode,
-                                          Boolean roomRecorded, String reservationRequestId, List<ForeignRoomParticipantRole> participants)
+                                          Boolean roomRecorded, String reservationRequestId, Boolean notifyState,
+                                          List<ForeignRoomParticipantRole> participants)
             throws NotAuthorizedException, ForbiddenException;
 
     Reservation handleGetReservation(HttpServletRequest request, String reservationRequestId)
@@ -44,6 +46,12 @@ public interface InterDomainProtocol {
     List<Reservation> handleListReservations(HttpServletRequest request, String resourceId, Interval slot)
             throws NotAuthorizedException, ForbiddenException;
 
+    ChangeSet<DomainCapability> handleListResourceChanges(HttpServletRequest request, Long epoch, Long sequence)
+            throws NotAuthorizedException;
+
+    ChangeSet<Reservation> handleListResourceReservationChanges(HttpServletRequest request, Long epoch, Long sequence)
+            throws NotAuthorizedException, ForbiddenException;
+
     AbstractResponse handleSetParticipants(HttpServletRequest request, String reservationRequestId, List<ForeignRoomParticipantRole> participants)
             throws NotAuthorizedException, ForbiddenException;
 
@@ -56,6 +64,9 @@ public interface InterDomainProtocol {
     AbstractResponse handleDeletedReservation(HttpServletRequest request, String foreignReservationRequestId, String reason)
             throws NotAuthorizedException, ForbiddenException;
 
+    AbstractResponse handleReservationState(HttpServletRequest request, String notificationId, Reservation reservation)
+            throws NotAuthorizedException, ForbiddenException;
+
     class NotAuthorizedException extends Exception {
         public NotAuthorizedException(String message) {
             super(message);
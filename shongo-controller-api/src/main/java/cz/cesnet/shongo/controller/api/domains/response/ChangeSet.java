@@ -0,0 +1,109 @@
+package cz.cesnet.shongo.controller.api.domains.response;
+
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents changes of a list of objects (e.g., {@link DomainCapability}s or {@link Reservation}s) since given
+ * sequence number.
+ * <p/>
+ * Each domain numbers the changes of lists for every foreign domain by monotonic sequence numbers. When the requested
+ * sequence number is too old (or it comes from different {@link #epoch}), the {@link ChangeSet} contains all objects
+ * and {@link #full} is set.
+ *
+ * @param <T> type of changed objects
+ */
+@JsonIgnoreProperties({"empty"})
+public class ChangeSet<T>
+{
+    /**
+     * Identifies the sequence (it changes e.g. when the domain controller is restarted).
+     */
+    @JsonProperty("epoch")
+    private long epoch;
+
+    /**
+     * Sequence number of the last change.
+     */
+    @JsonProperty("sequence")
+    private long sequence;
+
+    /**
+     * Specifies whether {@link #items} contains all objects (and thus cached objects should be replaced).
+     */
+    @JsonProperty("full")
+    private boolean full;
+
+    /**
+     * Added or modified objects (or all objects when {@link #full} is set).
+     */
+    @JsonProperty("items")
+    private List<T> items = new ArrayList<T>();
+
+    /**
+     * Identifiers of removed objects.
+     */
+    @JsonProperty("removedIds")
+    private List<String> removedIds = new ArrayList<String>();
+
+    public long getEpoch()
+    {
+        return epoch;
+    }
+
+    public void setEpoch(long epoch)
+    {
+        this.epoch = epoch;
+    }
+
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    public void setSequence(long sequence)
+    {
+        this.sequence = sequence;
+    }
+
+    public boolean isFull()
+    {
+        return full;
+    }
+
+    public void setFull(boolean full)
+    {
+        this.full = full;
+    }
+
+    public List<T> getItems()
+    {
+        return items;
+    }
+
+    public void addItem(T item)
+    {
+        items.add(item);
+    }
+
+    public List<String> getRemovedIds()
+    {
+        return removedIds;
+    }
+
+    public void addRemovedId(String removedId)
+    {
+        removedIds.add(removedId);
+    }
+
+    /**
+     * @return true when no object has been changed
+     */
+    public boolean isEmpty()
+    {
+        return !full && items.isEmpty() && removedIds.isEmpty();
+    }
+}
@@ -20,6 +20,18 @@ public class ListRequest extends AbstractRequest
      */
     private Integer count;
 
+    /**
+     * Continuation cursor from {@link ListResponse#getCursor()} of previous request. When it is set, items are
+     * fetched right after the last item of the previous response (and {@link #start} is ignored).
+     */
+    private String cursor;
+
+    /**
+     * Specifies whether the exact total number of items should not be computed (the {@link ListResponse#getCount()}
+     * is then only estimated from the fetched items).
+     */
+    private Boolean skipCount;
+
     /**
      * Constructor.
      */
@@ -115,8 +127,42 @@ public class ListRequest extends AbstractRequest
         this.count = count;
     }
 
+    /**
+     * @return {@link #cursor}
+     */
+    public String getCursor()
+    {
+        return cursor;
+    }
+
+    /**
+     * @param cursor sets the {@link #cursor}
+     */
+    public void setCursor(String cursor)
+    {
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return {@link #skipCount}
+     */
+    public boolean isSkipCount()
+    {
+        return skipCount != null && skipCount;
+    }
+
+    /**
+     * @param skipCount sets the {@link #skipCount}
+     */
+    public void setSkipCount(Boolean skipCount)
+    {
+        this.skipCount = skipCount;
+    }
+
     private static final String START = "start";
     private static final String COUNT = "count";
+    private static final String CURSOR = "cursor";
+    private static final String SKIP_COUNT = "skipCount";
 
     @Override
     public DataMap toData()
@@ -124,6 +170,8 @@ public class ListRequest extends AbstractRequest
         DataMap dataMap = super.toData();
         dataMap.set(START, start);
         dataMap.set(COUNT, count);
+        dataMap.set(CURSOR, cursor);
+        dataMap.set(SKIP_COUNT, skipCount);
         return dataMap;
     }
 
@@ -133,5 +181,7 @@ public class ListRequest extends AbstractRequest
         super.fromData(dataMap);
         start = dataMap.getInteger(START);
         count = dataMap.getInteger(COUNT);
+        cursor = dataMap.getString(CURSOR);
+        skipCount = dataMap.getBoolean(SKIP_COUNT);
     }
 }
@@ -26,6 +26,12 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
      */
     private int count = 0;
 
+    /**
+     * Continuation cursor for fetching items following the {@link #items} by {@link ListRequest#setCursor}
+     * or {@code null} when no more items are available.
+     */
+    private String cursor;
+
     /**
      * List of fetched items.
      */
@@ -70,6 +76,22 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
         this.count = count;
     }
 
+    /**
+     * @return {@link #cursor}
+     */
+    public String getCursor()
+    {
+        return cursor;
+    }
+
+    /**
+     * @param cursor sets the {@link #cursor}
+     */
+    public void setCursor(String cursor)
+    {
+        this.cursor = cursor;
+    }
+
     /**
      * @return {@link #items}
      */
@@ -121,6 +143,7 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
 
     private static final String START = "start";
     private static final String COUNT = "count";
+    private static final String CURSOR = "cursor";
     private static final String ITEMS = "items";
 
     @Override
@@ -129,6 +152,7 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
         DataMap dataMap = super.toData();
         dataMap.set(START, start);
         dataMap.set(COUNT, count);
+        dataMap.set(CURSOR, cursor);
         dataMap.set(ITEMS, items);
         return dataMap;
     }
@@ -139,6 +163,7 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
         super.fromData(dataMap);
         start = dataMap.getInt(START);
         count = dataMap.getInt(COUNT);
+        cursor = dataMap.getString(CURSOR);
         items = (List<T>) dataMap.getList(ITEMS, Object.class);
     }
 
@@ -0,0 +1,107 @@
+package cz.cesnet.shongo.controller;
+
+import cz.cesnet.shongo.controller.acl.AclEntry;
+import cz.cesnet.shongo.controller.authorization.AuthorizationManager;
+import cz.cesnet.shongo.controller.booking.executable.Executable;
+import cz.cesnet.shongo.controller.executor.Executor;
+import cz.cesnet.shongo.controller.scheduler.Scheduler;
+
+/**
+ * This class represents a watermark of commits which is used in {@link Scheduler} and {@link Executor} to not load
+ * {@link Executable}s for execution while they are being committed.
+ * <p/>
+ * It is required because we don't want to execute some {@link Executable} for which hasn't been
+ * created all {@link AclEntry}s yet. {@link AclEntry}s are stored in the same database transaction as the
+ * {@link Executable}s, but they are added to the {@link cz.cesnet.shongo.controller.authorization.Authorization}
+ * cache only after the transaction is committed (by {@link AuthorizationManager#commitTransaction}).
+ * <p/>
+ * The {@link Scheduler} performs each commit (from the database commit to the authorization cache update) between
+ * {@link #beginCommit()} and {@link #endCommit()}. The {@link Executor} takes a watermark by {@link #await()}
+ * (which waits for active commits to end), loads the {@link Executable}s and uses them only when
+ * {@link #isCurrent(long)} confirms that no commit has begun in the meantime. The commits are never blocked by
+ * the {@link Executor} (which would deadlock with database locks held by the committed transaction) and thus
+ * {@link Scheduler#run} and {@link Executor#execute} can run concurrently.
+ * <p/>
+ * The {@link Executor} marks the loaded {@link Executable}s as being executed before it checks the watermark and
+ * the {@link Scheduler} begins the commit before it determines the {@link Executable}s for deletion. Thus either
+ * the deletion skips the marked {@link Executable}s or the {@link Executor} loads them again.
+ */
+public class CommitWatermark
+{
+    /**
+     * Number of active commits.
+     */
+    private static int activeCommitCount = 0;
+
+    /**
+     * Number of begun commits.
+     */
+    private static long commitCount = 0;
+
+    /**
+     * Monitor for {@link #activeCommitCount} and {@link #commitCount}.
+     */
+    private static final Object monitor = new Object();
+
+    /**
+     * No instance can be created.
+     */
+    private CommitWatermark()
+    {
+    }
+
+    /**
+     * Begin commit of {@link Executable}s and corresponding {@link AclEntry}s.
+     */
+    public static void beginCommit()
+    {
+        synchronized (monitor) {
+            activeCommitCount++;
+            commitCount++;
+        }
+    }
+
+    /**
+     * End commit of {@link Executable}s and corresponding {@link AclEntry}s.
+     */
+    public static void endCommit()
+    {
+        synchronized (monitor) {
+            if (activeCommitCount == 0) {
+                throw new IllegalStateException("No commit is active.");
+            }
+            activeCommitCount--;
+            if (activeCommitCount == 0) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait for all active commits to end.
+     *
+     * @return current watermark
+     * @throws InterruptedException when the waiting is interrupted
+     */
+    public static long await() throws InterruptedException
+    {
+        synchronized (monitor) {
+            while (activeCommitCount > 0) {
+                monitor.wait();
+            }
+            return commitCount;
+        }
+    }
+
+    /**
+     * @param watermark previously returned by {@link #await()}
+     * @return true whether no commit has begun since the given {@code watermark} was returned,
+     *         false otherwise
+     */
+    public static boolean isCurrent(long watermark)
+    {
+        synchronized (monitor) {
+            return activeCommitCount == 0 && commitCount == watermark;
+        }
+    }
+}
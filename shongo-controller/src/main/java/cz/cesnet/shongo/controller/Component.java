@@ -2,6 +2,7 @@ package cz.cesnet.shongo.controller;
 
 import cz.cesnet.shongo.controller.authorization.Authorization;
 import cz.cesnet.shongo.controller.notification.NotificationManager;
+import cz.cesnet.shongo.controller.scheduler.SchedulerQueue;
 
 import javax.persistence.EntityManagerFactory;
 
@@ -109,6 +110,17 @@ public abstract class Component
         public void setNotificationManager(NotificationManager notificationManager);
     }
 
+    /**
+     * Class extending {@link Component} can implement this interface to be aware of {@link SchedulerQueue}.
+     */
+    public static interface SchedulerQueueAware
+    {
+        /**
+         * @param schedulerQueue {@link SchedulerQueue} which can be used by implementing {@link Component}
+         */
+        public void setSchedulerQueue(SchedulerQueue schedulerQueue);
+    }
+
     /**
      * Class extending {@link Component} can implement this interface and the thread returned from
      * the {@link #getThread()} method will be automatically started after the controller is started.
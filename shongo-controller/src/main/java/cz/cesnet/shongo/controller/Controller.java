@@ -8,6 +8,7 @@ import cz.cesnet.shongo.controller.api.rpc.*;
 import cz.cesnet.shongo.controller.authorization.Authorization;
 import cz.cesnet.shongo.controller.authorization.ServerAuthorization;
 import cz.cesnet.shongo.controller.cache.Cache;
+import cz.cesnet.shongo.controller.cache.CacheSnapshot;
 import cz.cesnet.shongo.controller.calendar.CalendarManager;
 import cz.cesnet.shongo.controller.calendar.connector.CalDAVConnector;
 import cz.cesnet.shongo.controller.calendar.connector.CalendarConnector;
@@ -17,10 +18,14 @@ import cz.cesnet.shongo.controller.domains.SSLClientCertFilter;
 import cz.cesnet.shongo.controller.executor.Executor;
 import cz.cesnet.shongo.controller.notification.executor.EmailNotificationExecutor;
 import cz.cesnet.shongo.controller.notification.executor.NotificationExecutor;
+import cz.cesnet.shongo.controller.notification.EmailOutbox;
 import cz.cesnet.shongo.controller.notification.NotificationManager;
 import cz.cesnet.shongo.controller.scheduler.Preprocessor;
 import cz.cesnet.shongo.controller.scheduler.Scheduler;
+import cz.cesnet.shongo.controller.scheduler.SchedulerQueue;
 import cz.cesnet.shongo.controller.util.NativeQuery;
+import cz.cesnet.shongo.controller.util.CacheStatisticsLogger;
+import cz.cesnet.shongo.controller.util.SummaryConsistencyChecker;
 import cz.cesnet.shongo.jade.Agent;
 import cz.cesnet.shongo.jade.Container;
 import cz.cesnet.shongo.ssl.ConfiguredSSLContext;
@@ -165,6 +170,11 @@ public class Controller
 
     private CalendarManager calendarManager = new CalendarManager();
 
+    /**
+     * @see SchedulerQueue
+     */
+    private SchedulerQueue schedulerQueue = new SchedulerQueue();
+
     /**
      * Constructor.
      *
@@ -467,6 +477,14 @@ public class Controller
         return calendarManager;
     }
 
+    /**
+     * @return {@link #schedulerQueue}
+     */
+    public SchedulerQueue getSchedulerQueue()
+    {
+        return schedulerQueue;
+    }
+
     /**
      * @param notificationExecutor to be added to the {@link #notificationManager}
      */
@@ -524,6 +542,10 @@ public class Controller
                 Component.NotificationManagerAware notificationManagerAware = (Component.NotificationManagerAware) component;
                 notificationManagerAware.setNotificationManager(notificationManager);
             }
+            if (component instanceof Component.SchedulerQueueAware) {
+                Component.SchedulerQueueAware schedulerQueueAware = (Component.SchedulerQueueAware) component;
+                schedulerQueueAware.setSchedulerQueue(schedulerQueue);
+            }
             component.init(configuration);
         }
     }
@@ -732,7 +754,7 @@ public class Controller
     }
 
     /**
-     * Start worker thread which periodically runs preprocessor and scheduler
+     * Start worker thread which runs preprocessor and scheduler periodically and for changes in {@link #schedulerQueue}
      */
     public void startWorkerThread()
     {
@@ -740,6 +762,8 @@ public class Controller
                 notificationManager, calendarManager, entityManagerFactory);
         workerThread.setPeriod(configuration.getDuration(ControllerConfiguration.WORKER_PERIOD));
         workerThread.setLookahead(configuration.getPeriod(ControllerConfiguration.WORKER_LOOKAHEAD));
+        workerThread.setSchedulerQueue(schedulerQueue);
+        schedulerQueue.setDebounce(configuration.getDuration(ControllerConfiguration.WORKER_DEBOUNCE).getMillis());
         addThread(workerThread);
     }
 
@@ -1072,6 +1096,11 @@ public class Controller
                 controller.getConfiguration().getString(ControllerConfiguration.DATABASE_USERNAME));
         properties.put("hibernate.connection.password",
                 controller.getConfiguration().getString(ControllerConfiguration.DATABASE_PASSWORD));
+        String cacheEnabled = Boolean.toString(
+                controller.getConfiguration().getBoolean(ControllerConfiguration.DATABASE_CACHE_ENABLED));
+        properties.put("hibernate.cache.use_second_level_cache", cacheEnabled);
+        properties.put("hibernate.cache.use_query_cache", cacheEnabled);
+        properties.put("hibernate.generate_statistics", cacheEnabled);
         EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("controller", properties);
         logger.debug("Entity manager factory created in {} ms.", timer.stop());
 
@@ -1093,8 +1122,19 @@ public class Controller
         Executor executor = new Executor(notificationManager);
         controller.addComponent(executor);
 
+        EmailOutbox emailOutbox = new EmailOutbox(controller.getEmailSender());
+        controller.addComponent(emailOutbox);
+        controller.addComponent(new SummaryConsistencyChecker());
+        if (configuration.getBoolean(ControllerConfiguration.DATABASE_CACHE_ENABLED)) {
+            controller.addComponent(new CacheStatisticsLogger());
+        }
+        String cacheSnapshotFile = configuration.getString(ControllerConfiguration.CACHE_SNAPSHOT_FILE);
+        if (cacheSnapshotFile != null && !cacheSnapshotFile.isEmpty()) {
+            controller.addComponent(new CacheSnapshot());
+        }
+
         // Add mail notification executor
-        controller.addNotificationExecutor(new EmailNotificationExecutor(controller.getEmailSender(), configuration));
+        controller.addNotificationExecutor(new EmailNotificationExecutor(emailOutbox, configuration));
 
         controller.addCalendarConnector(controller.getCalendarConnector());
 
@@ -9,6 +9,8 @@ import cz.cesnet.shongo.controller.api.jade.ControllerCommand;
 import cz.cesnet.shongo.controller.api.jade.ControllerOntology;
 import cz.cesnet.shongo.controller.api.jade.Service;
 import cz.cesnet.shongo.jade.Agent;
+import cz.cesnet.shongo.jade.BinaryCodec;
+import cz.cesnet.shongo.jade.CommandHandlerPool;
 import cz.cesnet.shongo.jade.SendLocalCommand;
 import cz.cesnet.shongo.shell.CommandHandler;
 import cz.cesnet.shongo.shell.CommandSet;
@@ -38,6 +40,15 @@ public class ControllerAgent extends Agent
     public ControllerAgent(ControllerConfiguration configuration)
     {
         setCommandTimeout((int) configuration.getJadeCommandTimeout().getMillis());
+        setCommandHandlerPoolSize(
+                configuration.getInt(ControllerConfiguration.JADE_HANDLER_THREAD_COUNT,
+                        CommandHandlerPool.DEFAULT_THREAD_COUNT),
+                configuration.getInt(ControllerConfiguration.JADE_HANDLER_QUEUE_SIZE,
+                        CommandHandlerPool.DEFAULT_QUEUE_SIZE));
+        setBinaryContent(
+                configuration.getBoolean(ControllerConfiguration.JADE_BINARY_CONTENT, true),
+                configuration.getInt(ControllerConfiguration.JADE_COMPRESSION_THRESHOLD,
+                        BinaryCodec.DEFAULT_COMPRESSION_THRESHOLD));
     }
 
     /**
@@ -87,29 +98,37 @@ public class ControllerAgent extends Agent
     }
 
     @Override
-    public SendLocalCommand sendCommand(String receiverAgentName, Command command)
+    protected SendLocalCommand createSendLocalCommand(String receiverAgentName, final Command command,
+            Integer timeout)
     {
         Controller.loggerRequestedCommands.info("Action:{} {}.", command.getId(), command);
-        SendLocalCommand sendLocalCommand = super.sendCommand(receiverAgentName, command);
-        String commandState;
-        switch (sendLocalCommand.getState()) {
-            case SUCCESSFUL:
-                Object result = sendLocalCommand.getResult();
-                if (result != null && result instanceof String) {
-                    commandState = String.format("OK: %s", result);
-                }
-                else {
-                    commandState = "OK";
+        SendLocalCommand sendLocalCommand = super.createSendLocalCommand(receiverAgentName, command, timeout);
+        sendLocalCommand.addListener(new SendLocalCommand.Listener()
+        {
+            @Override
+            public void onProcessed(SendLocalCommand sendLocalCommand)
+            {
+                String commandState;
+                switch (sendLocalCommand.getState()) {
+                    case SUCCESSFUL:
+                        Object result = sendLocalCommand.getResult();
+                        if (result != null && result instanceof String) {
+                            commandState = String.format("OK: %s", result);
+                        }
+                        else {
+                            commandState = "OK";
+                        }
+                        break;
+                    case FAILED:
+                        commandState = String.format("FAILED: %s", sendLocalCommand.getJadeReport().getMessage());
+                        break;
+                    default:
+                        commandState = "UNKNOWN";
+                        break;
                 }
-                break;
-            case FAILED:
-                commandState = String.format("FAILED: %s", sendLocalCommand.getJadeReport().getMessage());
-                break;
-            default:
-                commandState = "UNKNOWN";
-                break;
-        }
-        Controller.loggerRequestedCommands.info("Action:{} Done ({}).", command.getId(), commandState);
+                Controller.loggerRequestedCommands.info("Action:{} Done ({}).", command.getId(), commandState);
+            }
+        });
         return sendLocalCommand;
     }
 
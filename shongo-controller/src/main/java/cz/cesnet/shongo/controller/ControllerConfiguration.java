@@ -45,6 +45,36 @@ public class ControllerConfiguration extends CombinedConfiguration
     public static final String DATABASE_USERNAME = "database.username";
     public static final String DATABASE_PASSWORD = "database.password";
 
+    /**
+     * Period in which the summary tables are checked for consistency with summary views.
+     */
+    public static final String DATABASE_SUMMARY_CHECK_PERIOD = "database.summary-check-period";
+
+    /**
+     * Specifies whether the second-level and query cache should be used for read-mostly entities.
+     */
+    public static final String DATABASE_CACHE_ENABLED = "database.cache.enabled";
+
+    /**
+     * Period in which the statistics of the second-level and query cache are logged.
+     */
+    public static final String DATABASE_CACHE_STATISTICS_PERIOD = "database.cache.statistics-period";
+
+    /**
+     * File to which the warm-start snapshot of the controller cache is stored (snapshot is disabled when not set).
+     */
+    public static final String CACHE_SNAPSHOT_FILE = "cache.snapshot.file";
+
+    /**
+     * Period in which the warm-start snapshot of the controller cache is stored.
+     */
+    public static final String CACHE_SNAPSHOT_PERIOD = "cache.snapshot.period";
+
+    /**
+     * Maximum age of the warm-start snapshot which can be loaded when the controller starts.
+     */
+    public static final String CACHE_SNAPSHOT_MAX_AGE = "cache.snapshot.max-age";
+
     /**
      * XML-RPC configuration
      */
@@ -58,6 +88,10 @@ public class ControllerConfiguration extends CombinedConfiguration
     public static final String JADE_PORT = "jade.port";
     public static final String JADE_AGENT_NAME = "jade.agent-name";
     public static final String JADE_PLATFORM_ID = "jade.platform-id";
+    public static final String JADE_HANDLER_THREAD_COUNT = "jade.handler-thread-count";
+    public static final String JADE_HANDLER_QUEUE_SIZE = "jade.handler-queue-size";
+    public static final String JADE_BINARY_CONTENT = "jade.binary-content";
+    public static final String JADE_COMPRESSION_THRESHOLD = "jade.compression-threshold";
 
     /**
      * Interdomains configuration
@@ -73,18 +107,31 @@ public class ControllerConfiguration extends CombinedConfiguration
     public static final String INTERDOMAIN_COMMAND_TIMEOUT = INTERDOMAIN + ".command-timeout";
     public static final String INTERDOMAIN_CACHE_REFRESH_RATE = INTERDOMAIN + ".cache-refresh-rate";
     public static final String INTERDOMAIN_BASIC_AUTH_PASSWORD = INTERDOMAIN + ".basic-auth.password";
+    public static final String INTERDOMAIN_THREAD_COUNT = INTERDOMAIN + ".thread-count";
+    public static final String INTERDOMAIN_CIRCUIT_BREAKER_FAILURES = INTERDOMAIN + ".circuit-breaker.failures";
+    public static final String INTERDOMAIN_CIRCUIT_BREAKER_DURATION = INTERDOMAIN + ".circuit-breaker.duration";
+    public static final String INTERDOMAIN_RESERVATION_POLL_PERIOD = INTERDOMAIN + ".reservation-poll-period";
+    public static final String INTERDOMAIN_CACHE_CHANGE_LOG_SIZE = INTERDOMAIN + ".cache-change-log-size";
 
     /**
      * Worker configuration (it runs scheduler and executor).
      */
     public static final String WORKER_PERIOD = "worker.period";
     public static final String WORKER_LOOKAHEAD = "worker.lookahead";
+    public static final String WORKER_DEBOUNCE = "worker.debounce";
+    public static final String WORKER_PREPROCESSOR_CHUNK_SIZE = "worker.preprocessor.chunk-size";
+    public static final String WORKER_PREPROCESSOR_THREAD_COUNT = "worker.preprocessor.thread-count";
 
     /**
      * Maximum duration of reservations.
      */
     public static final String RESERVATION_ROOM_MAX_DURATION = "reservation.room.max-duration";
 
+    /**
+     * Number of threads which check availability of periodic reservation requests.
+     */
+    public static final String RESERVATION_AVAILABILITY_CHECK_THREAD_COUNT = "reservation.availability-check.thread-count";
+
     /**
      * SMTP configuration.
      */
@@ -94,6 +141,17 @@ public class ControllerConfiguration extends CombinedConfiguration
     public static final String SMTP_USERNAME = "smtp.username";
     public static final String SMTP_PASSWORD = "smtp.password";
 
+    /**
+     * Email outbox configuration (period of sending, maximum number of messages sent by one connection,
+     * delay before the first retry which is doubled for each next retry, maximum number of attempts
+     * and duration for which the sent messages are kept).
+     */
+    public static final String SMTP_OUTBOX_PERIOD = "smtp.outbox.period";
+    public static final String SMTP_OUTBOX_BATCH_SIZE = "smtp.outbox.batch-size";
+    public static final String SMTP_OUTBOX_RETRY_DELAY = "smtp.outbox.retry-delay";
+    public static final String SMTP_OUTBOX_MAX_ATTEMPT_COUNT = "smtp.outbox.max-attempt-count";
+    public static final String SMTP_OUTBOX_RETENTION = "smtp.outbox.retention";
+
     /**
      * CalDAV connector configuration.
      */
@@ -133,6 +191,18 @@ public class ControllerConfiguration extends CombinedConfiguration
      */
     public static final String EXECUTOR_STARTING_DURATION_ROOM = "executor.starting-duration.room";
 
+    /**
+     * Maximum number of {@link cz.cesnet.shongo.controller.executor.ExecutionAction}s which are concurrently performed
+     * by {@link cz.cesnet.shongo.controller.executor.Executor}.
+     */
+    public static final String EXECUTOR_THREAD_COUNT = "executor.thread-count";
+
+    /**
+     * Maximum number of {@link cz.cesnet.shongo.controller.executor.ExecutionAction}s which are concurrently performed
+     * by {@link cz.cesnet.shongo.controller.executor.Executor} for single device ({@code 0} means unlimited).
+     */
+    public static final String EXECUTOR_DEVICE_ACTION_COUNT = "executor.device-action-count";
+
     /**
      * URL to AA server.
      */
@@ -163,6 +233,21 @@ public class ControllerConfiguration extends CombinedConfiguration
      */
     public static final String SECURITY_LDAP_BINDDN = "security.ldap.binddn";
 
+    /**
+     * Maximum number of pooled connections to AA server.
+     */
+    public static final String SECURITY_SERVER_MAX_CONNECTIONS = "security.server-max-connections";
+
+    /**
+     * Maximum number of pooled connections to LDAP AA server.
+     */
+    public static final String SECURITY_LDAP_MAX_CONNECTIONS = "security.ldap.max-connections";
+
+    /**
+     * Period in which the latency statistics of requests to AA servers are logged.
+     */
+    public static final String SECURITY_STATISTICS_PERIOD = "security.statistics-period";
+
     /**
      * Specifies expiration of cache for user-id by access-token.
      */
@@ -183,6 +268,12 @@ public class ControllerConfiguration extends CombinedConfiguration
      */
     public static final String SECURITY_EXPIRATION_GROUP = "security.expiration.group";
 
+    /**
+     * Specifies how are list queries filtered by user permissions
+     * (see {@link cz.cesnet.shongo.controller.authorization.AclPermissionFilter.Mode}).
+     */
+    public static final String SECURITY_ACL_QUERY = "security.acl-query";
+
     /**
      * Specifies filename where the root access token will be written when controller starts.
      */
@@ -571,6 +662,26 @@ public class ControllerConfiguration extends CombinedConfiguration
         return getDuration(ControllerConfiguration.INTERDOMAIN_CACHE_REFRESH_RATE).toStandardSeconds().getSeconds();
     }
 
+    public int getInterDomainThreadCount() {
+        return getInt(ControllerConfiguration.INTERDOMAIN_THREAD_COUNT);
+    }
+
+    public int getInterDomainCircuitBreakerFailures() {
+        return getInt(ControllerConfiguration.INTERDOMAIN_CIRCUIT_BREAKER_FAILURES);
+    }
+
+    public Duration getInterDomainCircuitBreakerDuration() {
+        return getDuration(ControllerConfiguration.INTERDOMAIN_CIRCUIT_BREAKER_DURATION);
+    }
+
+    public Duration getInterDomainReservationPollPeriod() {
+        return getDuration(ControllerConfiguration.INTERDOMAIN_RESERVATION_POLL_PERIOD);
+    }
+
+    public int getInterDomainCacheChangeLogSize() {
+        return getInt(ControllerConfiguration.INTERDOMAIN_CACHE_CHANGE_LOG_SIZE);
+    }
+
     public boolean hasCalDAVBasicAuth()
     {
         if (Strings.isNullOrEmpty(getCalDAVEncodedBasicAuth())) {
@@ -12,6 +12,7 @@ import javax.mail.*;
 import javax.mail.internet.*;
 import javax.mail.util.ByteArrayDataSource;
 import java.awt.*;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
@@ -55,6 +56,20 @@ public class EmailSender
         }
     }
 
+    /**
+     * Constructor.
+     *
+     * @param sender
+     * @param subjectPrefix
+     * @param session       sets the {@link #session}
+     */
+    public EmailSender(String sender, String subjectPrefix, Session session)
+    {
+        this(sender, subjectPrefix);
+
+        this.session = session;
+    }
+
     /**
      * Constructor.
      *
@@ -144,7 +159,7 @@ public class EmailSender
             properties.setProperty("mail.smtp.auth", "true");
             authenticator = new PasswordAuthenticator(smtpUserName, smtpPassword);
         }
-        session = Session.getDefaultInstance(properties, authenticator);
+        session = Session.getInstance(properties, authenticator);
     }
 
     /**
@@ -167,6 +182,36 @@ public class EmailSender
         if (session == null) {
             return;
         }
+        MimeMessage message = createMessage(email);
+        logger.debug("Sending email '{}' from '{}' to '{}'...",
+                new Object[]{email.subject, sender, getRecipientString(message)});
+        Transport.send(message);
+    }
+
+    /**
+     * @return new connected {@link Transport} which can be used for sending multiple messages
+     * @throws MessagingException when the connecting fails
+     */
+    public Transport connectTransport() throws MessagingException
+    {
+        if (session == null) {
+            throw new IllegalStateException("SMTP is not configured.");
+        }
+        Transport transport = session.getTransport("smtp");
+        transport.connect();
+        return transport;
+    }
+
+    /**
+     * @param email
+     * @return new {@link MimeMessage} for given {@code email}
+     * @throws MessagingException
+     */
+    public MimeMessage createMessage(Email email) throws MessagingException
+    {
+        if (session == null) {
+            throw new IllegalStateException("SMTP is not configured.");
+        }
         MimeMessage message = new MimeMessage(session);
         message.setFrom(new InternetAddress(sender));
         for (InternetAddress recipient : email.recipients) {
@@ -216,7 +261,27 @@ public class EmailSender
 
         // Set message multipart content
         message.setContent(messageMultipart);
+        message.saveChanges();
+        return message;
+    }
 
+    /**
+     * @param data of message which was written by {@link MimeMessage#writeTo}
+     * @return {@link MimeMessage} parsed from given {@code data}
+     * @throws MessagingException
+     */
+    public MimeMessage parseMessage(byte[] data) throws MessagingException
+    {
+        return new MimeMessage(session, new ByteArrayInputStream(data));
+    }
+
+    /**
+     * @param message
+     * @return string with all TO recipients of given {@code message}
+     * @throws MessagingException
+     */
+    public static String getRecipientString(Message message) throws MessagingException
+    {
         StringBuilder recipientString = new StringBuilder();
         Address[] recipients = message.getRecipients(Message.RecipientType.TO);
         if (recipients != null) {
@@ -227,8 +292,7 @@ public class EmailSender
                 recipientString.append(recipient.toString());
             }
         }
-        logger.debug("Sending email '{}' from '{}' to '{}'...", new Object[]{email.subject, sender, recipientString});
-        Transport.send(message);
+        return recipientString.toString();
     }
 
     public static class Email
@@ -2,9 +2,11 @@ package cz.cesnet.shongo.controller;
 
 import cz.cesnet.shongo.Temporal;
 import cz.cesnet.shongo.controller.calendar.CalendarManager;
+import cz.cesnet.shongo.controller.domains.InterDomainAgent;
 import cz.cesnet.shongo.controller.notification.NotificationManager;
 import cz.cesnet.shongo.controller.scheduler.Preprocessor;
 import cz.cesnet.shongo.controller.scheduler.Scheduler;
+import cz.cesnet.shongo.controller.scheduler.SchedulerQueue;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.joda.time.Interval;
@@ -14,9 +16,12 @@ import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.Set;
 
 /**
- * Thread which periodically runs {@link Preprocessor} and {@link Scheduler}.
+ * Thread which runs {@link Preprocessor} and {@link Scheduler} for reservation requests which have been changed
+ * (see {@link SchedulerQueue}) and periodically for all reservation requests.
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
@@ -25,7 +30,7 @@ public class WorkerThread extends Thread
     private static Logger logger = LoggerFactory.getLogger(WorkerThread.class);
 
     /**
-     * Period in which the worker works.
+     * Period in which the worker works on all reservation requests.
      */
     private Duration period;
 
@@ -44,6 +49,11 @@ public class WorkerThread extends Thread
      */
     private Scheduler scheduler;
 
+    /**
+     * @see SchedulerQueue
+     */
+    private SchedulerQueue schedulerQueue;
+
     /**
      * @see NotificationManager
      */
@@ -99,6 +109,14 @@ public class WorkerThread extends Thread
         this.lookahead = lookahead;
     }
 
+    /**
+     * @param schedulerQueue sets the {@link #schedulerQueue}
+     */
+    public void setSchedulerQueue(SchedulerQueue schedulerQueue)
+    {
+        this.schedulerQueue = schedulerQueue;
+    }
+
     @Override
     public void run()
     {
@@ -111,20 +129,26 @@ public class WorkerThread extends Thread
             throw new IllegalStateException("Worker must have lookahead length set!");
         }
 
-        try {
-            Thread.sleep(period.getMillis());
-        }
-        catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        if (schedulerQueue == null) {
+            schedulerQueue = new SchedulerQueue();
         }
 
+        long workTime = System.currentTimeMillis() + period.getMillis();
         while (!Thread.interrupted()) {
-            work();
             try {
-                Thread.sleep(period.getMillis());
+                if (schedulerQueue.await(workTime)) {
+                    // Work only on changed reservation requests
+                    work(schedulerQueue.drain(), false);
+                }
+                else {
+                    // Work periodically on all reservation requests
+                    work(schedulerQueue.drain(), true);
+                    workTime = System.currentTimeMillis() + period.getMillis();
+                }
             }
             catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
+                break;
             }
         }
 
@@ -147,44 +171,52 @@ public class WorkerThread extends Thread
 
     /**
      * Run {@link Preprocessor} and {@link Scheduler}.
+     *
+     * @param changedReservationRequests reservation requests from {@link #schedulerQueue}
+     * @param all                        specifies whether all reservation requests should be allocated or only
+     *                                   the {@code changedReservationRequests}
      */
-    private void work()
+    private void work(Map<Long, Long> changedReservationRequests, boolean all)
     {
-        // Globally synchronized (see ThreadLock documentation)
-        //logger.debug("Worker waiting for lock...........................");
-        synchronized (ThreadLock.class) {
-            //logger.debug("Worker lock acquired...   [[[[[")
-
-            // We want to pre-process and schedule only reservation requests in specific interval
-            Interval interval = new Interval(Temporal.nowRoundedToSeconds(), lookahead);
+        // We want to pre-process and schedule only reservation requests in specific interval
+        Interval interval = new Interval(Temporal.nowRoundedToSeconds(), lookahead);
 
-            EntityManager entityManager = entityManagerFactory.createEntityManager();
-            EntityManager bypassEntityManager = entityManagerFactory.createEntityManager();
-            Reporter reporter = Reporter.getInstance();
-            try {
-                // Run preprocessor, scheduler and notifications
-                preprocessor.run(interval, entityManager);
-                scheduler.run(interval, entityManager, bypassEntityManager);
-                notificationManager.executeNotifications(entityManager);
-                calendarManager.sendCalendarNotifications(entityManager);
-
-                // Clear reporter cache once per hour
-                DateTime clearCacheDateTime = Temporal.nowRoundedToHours();
-                if (!clearCacheDateTime.equals(this.clearCacheDateTime)) {
-                    reporter.clearCache(interval.getStart());
-                    this.clearCacheDateTime = clearCacheDateTime;
-                }
-            }
-            catch (Exception exception) {
-                reporter.reportInternalError(Reporter.WORKER, exception);
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityManager bypassEntityManager = entityManagerFactory.createEntityManager();
+        Reporter reporter = Reporter.getInstance();
+        try {
+            // Run preprocessor, scheduler and notifications
+            Set<Long> reservationRequestIds = (all ? null : changedReservationRequests.keySet());
+            preprocessor.run(interval, entityManager, reservationRequestIds);
+            Scheduler.Result result = scheduler.run(interval, entityManager, bypassEntityManager,
+                    reservationRequestIds);
+            int allocatedCount = schedulerQueue.addLatencies(changedReservationRequests,
+                    result.getAllocatedReservationRequestIds(), System.currentTimeMillis());
+            if (allocatedCount > 0) {
+                logger.info("Changed reservation requests allocated (count: {}, average latency: {} ms,"
+                        + " maximum latency: {} ms).", new Object[]{allocatedCount,
+                        schedulerQueue.getAverageLatency(), schedulerQueue.getMaxLatency()});
             }
-            finally {
-                entityManager.close();
-                bypassEntityManager.close();
+            notificationManager.executeNotifications(entityManager);
+            if (InterDomainAgent.isInitialized()) {
+                // Push allocation states to foreign domains which have requested the reservation requests
+                InterDomainAgent.getInstance().getReservationStateNotifier().notifySubscribers();
             }
+            calendarManager.sendCalendarNotifications(entityManager);
 
-            //logger.debug("Worker releasing lock...  ]]]]]");
+            // Clear reporter cache once per hour
+            DateTime clearCacheDateTime = Temporal.nowRoundedToHours();
+            if (!clearCacheDateTime.equals(this.clearCacheDateTime)) {
+                reporter.clearCache(interval.getStart());
+                this.clearCacheDateTime = clearCacheDateTime;
+            }
+        }
+        catch (Exception exception) {
+            reporter.reportInternalError(Reporter.WORKER, exception);
+        }
+        finally {
+            entityManager.close();
+            bypassEntityManager.close();
         }
-        //logger.debug("Worker lock released...");
     }
 }
@@ -4,6 +4,8 @@ import cz.cesnet.shongo.SimplePersistentObject;
 import cz.cesnet.shongo.api.AbstractComplexType;
 import cz.cesnet.shongo.controller.AclIdentityType;
 import cz.cesnet.shongo.controller.api.Controller;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
@@ -13,8 +15,10 @@ import javax.persistence.*;
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = {"type", "principal_id"}))
-@NamedQuery(name = "AclIdentity.find", query = "SELECT i FROM AclIdentity i WHERE i.type = :type AND i.principalId = :principalId")
+@NamedQuery(name = "AclIdentity.find", query = "SELECT i FROM AclIdentity i WHERE i.type = :type AND i.principalId = :principalId",
+        hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
 public class AclIdentity extends SimplePersistentObject
 {
     /**
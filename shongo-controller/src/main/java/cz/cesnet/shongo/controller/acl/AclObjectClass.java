@@ -2,10 +2,13 @@ package cz.cesnet.shongo.controller.acl;
 
 import cz.cesnet.shongo.SimplePersistentObject;
 import cz.cesnet.shongo.api.AbstractComplexType;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.NamedQuery;
+import javax.persistence.QueryHint;
 
 /**
  * Represents a class of objects which can have a {@link AclObjectIdentity}.
@@ -13,7 +16,9 @@ import javax.persistence.NamedQuery;
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
 @Entity
-@NamedQuery(name="AclObjectClass.find", query="SELECT c FROM AclObjectClass c WHERE c.className = :className")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NamedQuery(name="AclObjectClass.find", query="SELECT c FROM AclObjectClass c WHERE c.className = :className",
+        hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
 public class AclObjectClass extends SimplePersistentObject
 {
     /**
@@ -3,7 +3,9 @@ package cz.cesnet.shongo.controller.api.rpc;
 import cz.cesnet.shongo.controller.Component;
 import cz.cesnet.shongo.controller.api.request.ListRequest;
 import cz.cesnet.shongo.controller.api.request.ListResponse;
+import cz.cesnet.shongo.controller.util.NativeQuery;
 import cz.cesnet.shongo.controller.util.QueryFilter;
+import cz.cesnet.shongo.controller.util.QueryKeyset;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
@@ -13,7 +15,9 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Abstract implementation of service.
@@ -65,6 +69,102 @@ public abstract class AbstractServiceImpl extends Component
         return getResponse(queryList, queryCount, queryFilter, listRequest, listResponse);
     }
 
+    /**
+     * Perform native list request which is paged by given {@code queryKeyset}. When the {@link ListRequest#getCursor()}
+     * contains values of the last record from the previous response, the records are fetched by seeking to
+     * the following records (instead of skipping them by offset). When {@link ListRequest#isSkipCount()} is set,
+     * the count statement isn't performed and the {@link ListResponse#getCount()} is only estimated.
+     *
+     * @param nativeQuery   name of native query which contains "filter" and "order" parameters
+     * @param parameters    other parameters for the {@code nativeQuery}
+     * @param queryFilter   {@link QueryFilter} for filtering select and count statement
+     * @param queryKeyset   {@link QueryKeyset} for ordering select statement
+     * @param listRequest   {@link ListRequest}  object
+     * @param listResponse  {@link ListResponse} object
+     * @param entityManager to be used for performing queries
+     * @return list of objects
+     */
+    protected List<Object[]> performNativeListRequest(String nativeQuery, Map<String, String> parameters,
+            QueryFilter queryFilter, QueryKeyset queryKeyset, ListRequest listRequest, ListResponse listResponse,
+            EntityManager entityManager)
+    {
+        queryKeyset.parseCursor(listRequest.getCursor());
+        String queryWhere = queryFilter.toQueryWhere();
+        parameters = new HashMap<String, String>(parameters);
+        parameters.put("filter", queryWhere);
+        parameters.put("order", queryKeyset.toQueryOrderBy());
+        String query = NativeQuery.getNativeQuery(nativeQuery, parameters);
+
+        // Count all records (without seek filter)
+        Integer totalResultCount = null;
+        int maxResultCount = listRequest.getCount();
+        if (maxResultCount != -1 && !listRequest.isSkipCount()) {
+            Query queryCount = entityManager.createNativeQuery("SELECT COUNT(*) FROM (" + query + ") AS count_result");
+            queryFilter.fillQueryParameters(queryCount);
+            totalResultCount = ((Number) queryCount.getSingleResult()).intValue();
+        }
+
+        // Restrict first result by seek filter or by offset
+        Integer firstResult = queryKeyset.getCursorPosition();
+        if (firstResult == null) {
+            firstResult = listRequest.getStart(0);
+        }
+        Query queryList;
+        if (queryKeyset.isSeeking()) {
+            parameters.put("filter", queryWhere + " AND (" + queryKeyset.toQueryWhere() + ")");
+            queryList = entityManager.createNativeQuery(NativeQuery.getNativeQuery(nativeQuery, parameters));
+            queryKeyset.fillQueryParameters(queryList);
+        }
+        else {
+            queryList = entityManager.createNativeQuery(query);
+            queryList.setFirstResult(firstResult);
+        }
+        queryFilter.fillQueryParameters(queryList);
+
+        // Restrict result count (one more record is fetched to determine whether more records are available)
+        if (maxResultCount != -1) {
+            if (totalResultCount != null) {
+                maxResultCount = Math.max(0, Math.min(maxResultCount, totalResultCount - firstResult));
+                queryList.setMaxResults(maxResultCount);
+            }
+            else {
+                queryList.setMaxResults(maxResultCount + 1);
+            }
+        }
+
+        // List requested results
+        @SuppressWarnings("unchecked")
+        List<Object[]> resultList;
+        if (queryList.getMaxResults() > 0) {
+            resultList = (List<Object[]>) queryList.getResultList();
+        }
+        else {
+            resultList = Collections.emptyList();
+        }
+        boolean hasMoreResults;
+        if (totalResultCount != null) {
+            hasMoreResults = (firstResult + resultList.size()) < totalResultCount;
+        }
+        else {
+            hasMoreResults = maxResultCount != -1 && resultList.size() > maxResultCount;
+            if (hasMoreResults) {
+                resultList = resultList.subList(0, maxResultCount);
+            }
+            // Estimate the total count
+            totalResultCount = firstResult + resultList.size() + (hasMoreResults ? 1 : 0);
+        }
+
+        // Setup response
+        listResponse.setCount(totalResultCount);
+        listResponse.setStart(firstResult);
+        if (hasMoreResults && !resultList.isEmpty()) {
+            int nextResult = firstResult + resultList.size();
+            listResponse.setCursor(queryKeyset.formatCursor(nextResult, resultList.get(resultList.size() - 1)));
+        }
+
+        return resultList;
+    }
+
     /**
      * @param query            query
      * @param queryFilter      {@link QueryFilter} for filtering select and count statement
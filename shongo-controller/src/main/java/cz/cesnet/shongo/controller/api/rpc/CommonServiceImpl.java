@@ -116,14 +116,22 @@ public class CommonServiceImpl extends AbstractServiceImpl
                 deviceResourceMap.put(agentName, deviceResource);
             }
 
-            List<Connector> connectorList = new ArrayList<Connector>();
+            // Request status from all connector agents at once
+            Map<String, SendLocalCommand> sendLocalCommands = new LinkedHashMap<String, SendLocalCommand>();
             for (AID aid : controllerAgent.listConnectorAgents()) {
                 String agentName = aid.getLocalName();
+                sendLocalCommands.put(agentName, controllerAgent.sendCommandAsync(agentName, new GetStatus()));
+            }
+
+            List<Connector> connectorList = new ArrayList<Connector>();
+            for (Map.Entry<String, SendLocalCommand> entry : sendLocalCommands.entrySet()) {
+                String agentName = entry.getKey();
 
                 Connector connector = new Connector();
                 connector.setName(agentName);
 
-                SendLocalCommand sendLocalCommand = controllerAgent.sendCommand(agentName, new GetStatus());
+                SendLocalCommand sendLocalCommand = entry.getValue();
+                sendLocalCommand.waitForProcessed(null);
                 if (sendLocalCommand.getState().equals(SendLocalCommand.State.SUCCESSFUL)) {
                     ConnectorStatus connectorStatus = (ConnectorStatus) sendLocalCommand.getResult();
                     connector.setAgentState(Connector.AgentState.AVAILABLE);
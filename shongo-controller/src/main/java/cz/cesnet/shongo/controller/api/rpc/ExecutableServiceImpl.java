@@ -461,18 +461,16 @@ public class ExecutableServiceImpl extends AbstractServiceImpl
                     }
                     executionPlan.build();
 
-                    // Perform execution plan
-                    while (!executionPlan.isEmpty()) {
-                        Collection<ExecutionAction> executionActions = executionPlan.popExecutionActions();
-                        for (ExecutionAction executionAction : executionActions) {
-                            executionAction.start();
-                        }
-                        try {
-                            Thread.sleep(100);
-                        }
-                        catch (InterruptedException exception) {
-                            executor.getLogger().error("Execution interrupted.", exception);
-                        }
+                    // Perform execution plan (executables of checked services must not be deleted meanwhile)
+                    ExecutableManager.beginExecution(executionPlan.getExecutableIds());
+                    try {
+                        executor.getExecutionActionPool().perform(executionPlan);
+                    }
+                    catch (InterruptedException exception) {
+                        executor.getLogger().error("Execution interrupted.", exception);
+                    }
+                    finally {
+                        ExecutableManager.endExecution(executionPlan.getExecutableIds());
                     }
 
                     // Set services as checked
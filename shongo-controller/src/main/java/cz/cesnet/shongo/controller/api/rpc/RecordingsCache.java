@@ -1,11 +1,11 @@
 package cz.cesnet.shongo.controller.api.rpc;
 
-import cz.cesnet.shongo.ExpirationMap;
+import cz.cesnet.shongo.ConcurrentExpirationMap;
 import cz.cesnet.shongo.controller.api.ResourceRecording;
 import cz.cesnet.shongo.controller.booking.executable.Executable;
 import org.joda.time.Duration;
 
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -18,8 +18,8 @@ public class RecordingsCache
     /**
      * Collection of {@link cz.cesnet.shongo.api.Recording}s by executableId.
      */
-    private final ExpirationMap<Long, List<ResourceRecording>> executableRecordingsCache =
-            new ExpirationMap<Long, List<ResourceRecording>>();
+    private final ConcurrentExpirationMap<Long, List<ResourceRecording>> executableRecordingsCache =
+            new ConcurrentExpirationMap<Long, List<ResourceRecording>>();
 
     /**
      * Constructor.
@@ -33,7 +33,7 @@ public class RecordingsCache
      * @param executableId
      * @return list of {@link ResourceRecording}s for {@link Executable} with given {@code executableId}
      */
-    public synchronized List<ResourceRecording> getExecutableRecordings(Long executableId)
+    public List<ResourceRecording> getExecutableRecordings(Long executableId)
     {
         return executableRecordingsCache.get(executableId);
     }
@@ -42,7 +42,7 @@ public class RecordingsCache
      * @param executableId
      * @param recordings to be stored for {@link Executable} with given {@code executableId}
      */
-    public synchronized void putExecutableRecordings(Long executableId, List<ResourceRecording> recordings)
+    public void putExecutableRecordings(Long executableId, List<ResourceRecording> recordings)
     {
         executableRecordingsCache.put(executableId, recordings);
     }
@@ -50,37 +50,37 @@ public class RecordingsCache
     /**
      * @param executableId for {@link Executable} for which the cache should be cleared
      */
-    public synchronized void removeExecutableRecordings(Long executableId)
+    public void removeExecutableRecordings(Long executableId)
     {
         executableRecordingsCache.remove(executableId);
     }
 
-
     /**
-     * Remove recording from cache.
+     * Remove recording from cache (the cached lists are replaced and not modified, because they can be used
+     * by other threads).
      *
      * @param deviceResourceId
      * @param recordingFolderId
      * @param recordingId
      */
-    public synchronized void removeRecording(String deviceResourceId, String recordingFolderId, String recordingId)
+    public void removeRecording(String deviceResourceId, String recordingFolderId, String recordingId)
     {
-        Iterator<List<ResourceRecording>> executableIterator = executableRecordingsCache.iterator();
-        while (executableIterator.hasNext()) {
-            List<ResourceRecording> recordings = executableIterator.next();
-            Iterator<ResourceRecording> recordingIterator = recordings.iterator();
-            while (recordingIterator.hasNext()) {
-                ResourceRecording recording = recordingIterator.next();
-                if (!deviceResourceId.equals(recording.getResourceId())) {
-                    continue;
-                }
-                if (!recordingFolderId.equals(recording.getRecordingFolderId())) {
-                    continue;
-                }
-                if (!recordingId.equals(recording.getId())) {
+        for (Long executableId : executableRecordingsCache.keySet()) {
+            List<ResourceRecording> recordings = executableRecordingsCache.get(executableId);
+            if (recordings == null) {
+                continue;
+            }
+            List<ResourceRecording> newRecordings = new ArrayList<ResourceRecording>(recordings.size());
+            for (ResourceRecording recording : recordings) {
+                if (deviceResourceId.equals(recording.getResourceId())
+                        && recordingFolderId.equals(recording.getRecordingFolderId())
+                        && recordingId.equals(recording.getId())) {
                     continue;
                 }
-                recordingIterator.remove();
+                newRecordings.add(recording);
+            }
+            if (newRecordings.size() != recordings.size()) {
+                executableRecordingsCache.put(executableId, newRecordings);
             }
         }
     }
@@ -31,6 +31,7 @@ import cz.cesnet.shongo.controller.notification.ReservationRequestDeniedNotifica
 import cz.cesnet.shongo.controller.scheduler.*;
 import cz.cesnet.shongo.controller.util.NativeQuery;
 import cz.cesnet.shongo.controller.util.QueryFilter;
+import cz.cesnet.shongo.controller.util.QueryKeyset;
 import cz.cesnet.shongo.controller.util.iCalendar;
 import cz.cesnet.shongo.report.Report;
 import org.joda.time.*;
@@ -46,7 +47,7 @@ import java.util.*;
  */
 public class ReservationServiceImpl extends AbstractServiceImpl
         implements ReservationService, Component.EntityManagerFactoryAware,
-                   Component.AuthorizationAware, Component.NotificationManagerAware
+                   Component.AuthorizationAware, Component.NotificationManagerAware, Component.SchedulerQueueAware
 {
     /**
      * @see cz.cesnet.shongo.controller.cache.Cache
@@ -68,6 +69,16 @@ public class ReservationServiceImpl extends AbstractServiceImpl
      */
     private NotificationManager notificationManager;
 
+    /**
+     * @see SchedulerQueue
+     */
+    private SchedulerQueue schedulerQueue;
+
+    /**
+     * @see AvailabilityChecker
+     */
+    private AvailabilityChecker availabilityChecker;
+
     /**
      * Constructor.
      */
@@ -94,12 +105,32 @@ public class ReservationServiceImpl extends AbstractServiceImpl
         this.notificationManager = notificationManager;
     }
 
+    @Override
+    public void setSchedulerQueue(SchedulerQueue schedulerQueue)
+    {
+        this.schedulerQueue = schedulerQueue;
+    }
+
     @Override
     public void init(ControllerConfiguration configuration)
     {
         checkDependency(entityManagerFactory, EntityManagerFactory.class);
         checkDependency(authorization, Authorization.class);
         super.init(configuration);
+
+        availabilityChecker = new AvailabilityChecker(entityManagerFactory, cache, authorization, configuration.getInt(
+                ControllerConfiguration.RESERVATION_AVAILABILITY_CHECK_THREAD_COUNT,
+                AvailabilityChecker.DEFAULT_THREAD_COUNT));
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (availabilityChecker != null) {
+            availabilityChecker.destroy();
+            availabilityChecker = null;
+        }
+        super.destroy();
     }
 
     @Override
@@ -234,139 +265,50 @@ public class ReservationServiceImpl extends AbstractServiceImpl
             }
         }
 
-        EntityManager entityManager = entityManagerFactory.createEntityManager();
-        ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
-        try {
-            List<Interval> slots = new ArrayList<Interval>();
-            for (PeriodicDateTimeSlot slot : request.getSlots()) {
-                PeriodicDateTime periodicDateTime = new PeriodicDateTime(slot.getStart(), slot.getPeriod(), slot.getEnd(), slot.getPeriodicityDayOrder(), slot.getPeriodicityDayInMonth());
-                periodicDateTime.setTimeZone(slot.getTimeZone());
-                periodicDateTime.addAllRules(PeriodicDateTime.RuleType.DISABLE, slot.getExcludeDates());
-
-                for (DateTime slotStart : periodicDateTime.enumerate()) {
-                    slots.add(new Interval(slotStart, slot.getDuration()));
-                }
-            }
-
-            boolean rollback = false;
-            // For each time slot in periodic reservation request
-            for (Interval slotToTest : slots) {
-                // We must check only the future (because scheduler allocates only in future)
-                DateTime minimumDateTime = DateTime.now();
-                Interval slot = slotToTest;
-                if (slot.getEnd().isBefore(minimumDateTime)) {
-                    throw new ControllerReportSet.ReservationRequestEmptyDurationException();
-                }
-                if (slot.getStart().isBefore(minimumDateTime)) {
-                    slot = slot.withStart(minimumDateTime);
-                }
-
-                Specification specificationApi = request.getSpecification();
-                cz.cesnet.shongo.controller.booking.specification.Specification specification = null;
-                Interval allocationSlot = slot;
-                if (specificationApi != null) {
-                    specification = cz.cesnet.shongo.controller.booking.specification.Specification.createFromApi(
-                            specificationApi, entityManager);
-                    if (specification instanceof SpecificationIntervalUpdater) {
-                        SpecificationIntervalUpdater intervalUpdater = (SpecificationIntervalUpdater) specification;
-                        allocationSlot = intervalUpdater.updateInterval(allocationSlot, minimumDateTime);
-                    }
-                }
-
-                // Create scheduler context
-                SchedulerContext schedulerContext = new SchedulerContext(DateTime.now(), cache, entityManager,
-                        new AuthorizationManager(entityManager, authorization));
-                schedulerContext.setUserId(securityToken.getUserId());
-                schedulerContext.setPurpose(request.getPurpose());
-
+        List<Interval> slots = new ArrayList<Interval>();
+        for (PeriodicDateTimeSlot slot : request.getSlots()) {
+            PeriodicDateTime periodicDateTime = new PeriodicDateTime(slot.getStart(), slot.getPeriod(), slot.getEnd(), slot.getPeriodicityDayOrder(), slot.getPeriodicityDayInMonth());
+            periodicDateTime.setTimeZone(slot.getTimeZone());
+            periodicDateTime.addAllRules(PeriodicDateTime.RuleType.DISABLE, slot.getExcludeDates());
 
-                // Ignore reservations for already allocated reservation request
-                SchedulerContextState schedulerContextState = schedulerContext.getState();
-                String ignoredReservationRequestId = request.getIgnoredReservationRequestId();
-                if (ignoredReservationRequestId != null) {
-                    ObjectIdentifier objectId = ObjectIdentifier.parse(
-                            ignoredReservationRequestId, ObjectType.RESERVATION_REQUEST);
-                    cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest ignoredReservationRequest =
-                            reservationRequestManager.get(objectId.getPersistenceId());
-                    for (cz.cesnet.shongo.controller.booking.reservation.Reservation reservation :
-                            ignoredReservationRequest.getAllocation().getReservations()) {
-                        if (allocationSlot.overlaps(reservation.getSlot())) {
-                            schedulerContextState.addAvailableReservation(
-                                    reservation, AvailableReservation.Type.REALLOCATABLE);
-                        }
-                    }
-
-                    for (cz.cesnet.shongo.controller.booking.request.ReservationRequest childReservationRequest :
-                            ignoredReservationRequest.getAllocation().getChildReservationRequests()) {
-                        for (cz.cesnet.shongo.controller.booking.reservation.Reservation reservation :
-                                childReservationRequest.getAllocation().getReservations()) {
-                            if (reservation.getSlot().overlaps(slot)) {
-                                schedulerContextState.addAvailableReservation(
-                                        reservation, AvailableReservation.Type.REALLOCATABLE);
-                            }
-                        }
-                    }
-                }
-
-                try {
-                    // Check reservation request reusability (TODO: check if permanent room)
-                    String reservationRequestId = request.getReservationRequestId();
-                    if (reservationRequestId != null) {
-                        ObjectIdentifier objectId = ObjectIdentifier.parse(
-                                reservationRequestId, ObjectType.RESERVATION_REQUEST);
-                        cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest reservationRequest =
-                                reservationRequestManager.get(objectId.getPersistenceId());
-                        schedulerContext.setReusableAllocation(reservationRequest.getAllocation(), slot);
-                    }
+            for (DateTime slotStart : periodicDateTime.enumerate()) {
+                slots.add(new Interval(slotStart, slot.getDuration()));
+            }
+        }
 
-                    // Check specification availability
-                    if (specification != null) {
-                        if (specification instanceof ReservationTaskProvider) {
-                            entityManager.getTransaction().begin();
-                            try {
-                                schedulerContext.setAvailabilityCheck(true);
-                                ReservationTaskProvider reservationTaskProvider = (ReservationTaskProvider) specification;
-                                ReservationTask reservationTask =
-                                        reservationTaskProvider.createReservationTask(schedulerContext, slot);
-                                reservationTask.perform();
-                            } finally {
-                                rollback = true;
-                            }
-                        } else {
-                            throw new SchedulerReportSet.SpecificationNotAllocatableException(specification);
-                        }
-                    }
-                }
-                catch (SchedulerException exception) {
-                    SchedulerReport schedulerReport = exception.getReport();
-
-                    // Specification cannot be allocated or reservation request cannot be reused in requested time slot
-                    /* TODO: PREPARED for reporting all errors at once
-                    if (slotsLeft > 0) {
-                        AvailabilityCheckRequest newRequest = request;
-                        newRequest.setSlot(slots.get(slots.size()-slotsLeft));
-                        Object availabilityCheckResult = checkPeriodicAvailability(newRequest);
-                        if (!Boolean.TRUE.equals(availabilityCheckResult)) {
-                            AllocationStateReport report = (AllocationStateReport) availabilityCheckResult;
-                            return schedulerReport.toAllocationStateReport(report);
-                        }
-                    }*/
-                    return schedulerReport.toAllocationStateReport(authorization.isAdministrator(securityToken) ?
-                            Report.UserType.DOMAIN_ADMIN : Report.UserType.USER);
-                }
-                finally {
-                    if (rollback) {
-                        entityManager.getTransaction().rollback();
-                    }
-                }
+        // We must check only the future (because scheduler allocates only in future)
+        DateTime minimumDateTime = DateTime.now();
+        for (Interval slot : slots) {
+            if (slot.getEnd().isBefore(minimumDateTime)) {
+                throw new ControllerReportSet.ReservationRequestEmptyDurationException();
+            }
+        }
 
-            } //END OF FOR-EACH LOOP
+        AvailabilityChecker.Request availabilityCheckRequest = new AvailabilityChecker.Request();
+        availabilityCheckRequest.setSpecification(request.getSpecification());
+        availabilityCheckRequest.setUserId(securityToken.getUserId());
+        availabilityCheckRequest.setPurpose(request.getPurpose());
+        availabilityCheckRequest.setReservationRequestId(request.getReservationRequestId());
+        availabilityCheckRequest.setIgnoredReservationRequestId(request.getIgnoredReservationRequestId());
+        List<AvailabilityChecker.Failure> failures = availabilityChecker.check(availabilityCheckRequest, slots);
+        if (failures.isEmpty()) {
             // Request is available
             return Boolean.TRUE;
         }
-        finally {
-            entityManager.close();
+
+        // Specification cannot be allocated or reservation request cannot be reused in some time slots
+        AllocationStateReport allocationStateReport = null;
+        for (AvailabilityChecker.Failure failure : failures) {
+            SchedulerReport schedulerReport = failure.getReport();
+            if (allocationStateReport == null) {
+                allocationStateReport = schedulerReport.toAllocationStateReport(
+                        authorization.isAdministrator(securityToken) ? Report.UserType.DOMAIN_ADMIN : Report.UserType.USER);
+            }
+            else {
+                allocationStateReport = schedulerReport.toAllocationStateReport(allocationStateReport);
+            }
         }
+        return allocationStateReport;
     }
 
     @Override
@@ -439,6 +381,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(securityToken);
+            addToSchedulerQueue(reservationRequest);
 
             if (reservationRequest instanceof ReservationRequest) {
                 ReservationRequest simpleReservationRequest = (ReservationRequest) reservationRequest;
@@ -576,6 +519,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(securityToken);
+            addToSchedulerQueue(newReservationRequest);
 
             return ObjectIdentifier.formatId(newReservationRequest);
         }
@@ -645,6 +589,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
             reservationRequestManager.update(reservationRequest);
 
             entityManager.getTransaction().commit();
+            addToSchedulerQueue(reservationRequest);
         }
         finally {
             if (entityManager.getTransaction().isActive()) {
@@ -848,6 +793,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(securityToken);
+            addToSchedulerQueue(modifiedReservationRequest);
 
             return ObjectIdentifier.formatId(modifiedReservationRequest);
         }
@@ -899,6 +845,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(securityToken);
+            addToSchedulerQueue(reservationRequest);
         }
         finally {
             if (authorizationManager.isTransactionActive()) {
@@ -946,6 +893,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(securityToken);
+            addToSchedulerQueue(reservationRequest);
         }
         finally {
             if (authorizationManager.isTransactionActive()) {
@@ -1008,6 +956,7 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction(securityToken);
+            addToSchedulerQueue(abstractReservationRequest);
         }
         finally {
             if (authorizationManager.isTransactionActive()) {
@@ -1020,6 +969,19 @@ public class ReservationServiceImpl extends AbstractServiceImpl
         }
     }
 
+    /**
+     * Notify the {@link #schedulerQueue} that given {@code reservationRequest} has been changed.
+     *
+     * @param reservationRequest which has been created/modified/deleted
+     */
+    private void addToSchedulerQueue(
+            cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest reservationRequest)
+    {
+        if (schedulerQueue != null) {
+            schedulerQueue.add(reservationRequest.getId());
+        }
+    }
+
     @Override
     public ListResponse<ReservationRequestSummary> listReservationRequests(ReservationRequestListRequest request)
     {
@@ -1181,63 +1143,55 @@ public class ReservationServiceImpl extends AbstractServiceImpl
             }
 
             // Query order by
-            String queryOrderBy;
+            Boolean sortDescending = request.getSortDescending();
+            sortDescending = (sortDescending != null ? sortDescending : false);
+            QueryKeyset queryKeyset = new QueryKeyset(sortDescending);
             ReservationRequestListRequest.Sort sort = request.getSort();
             if (sort != null) {
                 switch (sort) {
                     case ALIAS_ROOM_NAME:
-                        queryOrderBy = "specification_summary.alias_room_name";
+                        queryKeyset.addColumn("specification_summary.alias_room_name", null);
                         break;
                     case RESOURCE_ROOM_NAME:
-                        queryOrderBy = "resource_summary.name";
+                        queryKeyset.addColumn("resource_summary.name", null);
                         break;
                     case DATETIME:
-                        queryOrderBy = "reservation_request_summary.created_at";
+                        queryKeyset.addColumn("reservation_request_summary.created_at", 3);
                         break;
                     case REUSED_RESERVATION_REQUEST:
-                        queryOrderBy = "reservation_request_summary.reused_reservation_request_id IS NOT NULL";
+                        queryKeyset.addColumn("reservation_request_summary.reused_reservation_request_id IS NOT NULL", null);
                         break;
                     case ROOM_PARTICIPANT_COUNT:
-                        queryOrderBy = "specification_summary.room_participant_count";
+                        queryKeyset.addColumn("specification_summary.room_participant_count", null);
                         break;
                     case SLOT:
-                        queryOrderBy = "reservation_request_summary.slot_end";
+                        queryKeyset.addColumn("reservation_request_summary.slot_end", null);
                         break;
                     case SLOT_NEAREST:
-                        queryOrderBy = "reservation_request_summary.slot_nearness_priority, reservation_request_summary.slot_nearness_value";
+                        queryKeyset.addColumn("reservation_request_summary.slot_nearness_priority, reservation_request_summary.slot_nearness_value", null);
                         break;
                     case STATE:
-                        queryOrderBy = "reservation_request_summary.allocation_state, reservation_request_summary.executable_state";
+                        queryKeyset.addColumn("reservation_request_summary.allocation_state, reservation_request_summary.executable_state", null);
                         break;
                     case TECHNOLOGY:
-                        queryOrderBy = "specification_summary.technologies";
+                        queryKeyset.addColumn("specification_summary.technologies", null);
                         break;
                     case TYPE:
-                        queryOrderBy = "specification_summary.type";
+                        queryKeyset.addColumn("specification_summary.type", null);
                         break;
                     case USER:
-                        queryOrderBy = "reservation_request_summary.created_by";
+                        queryKeyset.addColumn("reservation_request_summary.created_by", 4);
                         break;
                     default:
                         throw new TodoImplementException(sort);
                 }
             }
-            else {
-                queryOrderBy = "reservation_request_summary.id";
-            }
-            Boolean sortDescending = request.getSortDescending();
-            sortDescending = (sortDescending != null ? sortDescending : false);
-            if (sortDescending) {
-                queryOrderBy = queryOrderBy + " DESC";
-            }
-
-            Map<String, String> parameters = new HashMap<String, String>();
-            parameters.put("filter", queryFilter.toQueryWhere());
-            parameters.put("order", queryOrderBy);
-            String query = NativeQuery.getNativeQuery(NativeQuery.RESERVATION_REQUEST_LIST, parameters);
+            // Identifier makes the order unique
+            queryKeyset.addColumn("reservation_request_summary.id", 0);
 
             ListResponse<ReservationRequestSummary> response = new ListResponse<ReservationRequestSummary>();
-            List<Object[]> records = performNativeListRequest(query, queryFilter, request, response, entityManager);
+            List<Object[]> records = performNativeListRequest(NativeQuery.RESERVATION_REQUEST_LIST,
+                    Collections.<String, String>emptyMap(), queryFilter, queryKeyset, request, response, entityManager);
             for (Object[] record : records) {
                 ReservationRequestSummary reservationRequestSummary = getReservationRequestSummary(record);
                 response.addItem(reservationRequestSummary);
@@ -1581,21 +1535,17 @@ public class ReservationServiceImpl extends AbstractServiceImpl
                 }
             }
             // List only reservations which is current user permitted to read or which allocates resource owned by the user
-            Set<Long> readableReservationIds = null;
+            String readableReservationFilter = null;
             if (!hasReadForAll) {
-                readableReservationIds = authorization.getEntitiesWithPermission(securityToken,
+                readableReservationFilter = queryFilter.createFilterId("id", authorization, securityToken,
                         cz.cesnet.shongo.controller.booking.reservation.Reservation.class, ObjectPermission.READ);
             }
-            if (readableReservationIds != null) {
+            if (readableReservationFilter != null) {
                 Set<Long> ownedResourceIds = authorization.getEntitiesWithRole(securityToken,
                         cz.cesnet.shongo.controller.booking.resource.Resource.class, ObjectRole.OWNER);
                 StringBuilder filterBuilder = new StringBuilder();
-                filterBuilder.append("1=0");
                 //TODO: except reservations without slot (see AbstractForeingReservation)
-                if (!readableReservationIds.isEmpty()) {
-                    filterBuilder.append(" OR reservation_summary.id IN(:readableReservationIds)");
-                    queryFilter.addFilterParameter("readableReservationIds", readableReservationIds);
-                }
+                filterBuilder.append(readableReservationFilter);
                 if (!ownedResourceIds.isEmpty()) {
                     filterBuilder.append(" OR reservation_summary.resource_id IN(:ownedResourceIds)");
                     queryFilter.addFilterParameter("ownedResourceIds", ownedResourceIds);
@@ -1651,33 +1601,25 @@ public class ReservationServiceImpl extends AbstractServiceImpl
             }
 
             // Sort query part
-            String queryOrderBy;
+            Boolean sortDescending = request.getSortDescending();
+            sortDescending = (sortDescending != null ? sortDescending : false);
+            QueryKeyset queryKeyset = new QueryKeyset(sortDescending);
             ReservationListRequest.Sort sort = request.getSort();
             if (sort != null) {
                 switch (sort) {
                     case SLOT:
-                        queryOrderBy = "reservation_summary.slot_start";
+                        queryKeyset.addColumn("reservation_summary.slot_start", null);
                         break;
                     default:
                         throw new TodoImplementException(sort);
                 }
             }
-            else {
-                queryOrderBy = "reservation_summary.id";
-            }
-            Boolean sortDescending = request.getSortDescending();
-            sortDescending = (sortDescending != null ? sortDescending : false);
-            if (sortDescending) {
-                queryOrderBy = queryOrderBy + " DESC";
-            }
-
-            Map<String, String> parameters = new HashMap<String, String>();
-            parameters.put("filter", queryFilter.toQueryWhere());
-            parameters.put("order", queryOrderBy);
-            String query = NativeQuery.getNativeQuery(NativeQuery.RESERVATION_LIST, parameters);
+            // Identifier makes the order unique
+            queryKeyset.addColumn("reservation_summary.id", 0);
 
             ListResponse<ReservationSummary> response = new ListResponse<ReservationSummary>();
-            List<Object[]> records = performNativeListRequest(query, queryFilter, request, response, entityManager);
+            List<Object[]> records = performNativeListRequest(NativeQuery.RESERVATION_LIST,
+                    Collections.<String, String>emptyMap(), queryFilter, queryKeyset, request, response, entityManager);
 
             Set<Long> writableReservationIds = authorization.getEntitiesWithPermission(securityToken,
                     cz.cesnet.shongo.controller.booking.reservation.Reservation.class, ObjectPermission.WRITE);
@@ -653,7 +653,7 @@ public class ResourceServiceImpl extends AbstractServiceImpl
 
             // Fill resource allocations
             Collection<cz.cesnet.shongo.controller.booking.resource.ResourceReservation> resourceReservations =
-                    resourceManager.listResourceReservationsInInterval(objectId.getPersistenceId(), slot);
+                    cache.getResourceCache().getResourceReservations(objectId.getPersistenceId(), slot, entityManager);
             for (ResourceReservation resourceReservation : resourceReservations) {
                 resourceAllocation.addReservation(
                         resourceReservation.toApi(entityManager, authorization.isOperator(securityToken)));
@@ -0,0 +1,92 @@
+package cz.cesnet.shongo.controller.authorization;
+
+import cz.cesnet.shongo.controller.ObjectPermission;
+import cz.cesnet.shongo.controller.acl.AclEntry;
+import cz.cesnet.shongo.controller.acl.AclIdentity;
+import cz.cesnet.shongo.controller.acl.AclObjectClass;
+
+import java.util.Set;
+
+/**
+ * Represents a condition for objects for which an user has an {@link ObjectPermission}, which can be evaluated
+ * in database by joining the {@link AclEntry}s (instead of listing all the object identifiers in the query).
+ */
+public class AclPermissionFilter
+{
+    /**
+     * Mode in which the list queries are filtered by {@link ObjectPermission}s.
+     */
+    public static enum Mode
+    {
+        /**
+         * Identifiers of permitted objects are passed to the query as a parameter list.
+         */
+        IN,
+
+        /**
+         * Permitted objects are determined in the query by {@link AclPermissionFilter}.
+         */
+        JOIN
+    }
+
+    /**
+     * Identifier of {@link AclObjectClass} of the objects.
+     */
+    private final Long aclObjectClassId;
+
+    /**
+     * Identifiers of {@link AclIdentity}s of the user (the user itself, its groups and everyone group).
+     */
+    private final Set<Long> aclIdentityIds;
+
+    /**
+     * Roles which grants the {@link ObjectPermission}.
+     */
+    private final Set<String> roles;
+
+    /**
+     * Constructor.
+     *
+     * @param aclObjectClassId sets the {@link #aclObjectClassId}
+     * @param aclIdentityIds   sets the {@link #aclIdentityIds}
+     * @param roles            sets the {@link #roles}
+     */
+    public AclPermissionFilter(Long aclObjectClassId, Set<Long> aclIdentityIds, Set<String> roles)
+    {
+        this.aclObjectClassId = aclObjectClassId;
+        this.aclIdentityIds = aclIdentityIds;
+        this.roles = roles;
+    }
+
+    /**
+     * @return {@link #aclObjectClassId}
+     */
+    public Long getAclObjectClassId()
+    {
+        return aclObjectClassId;
+    }
+
+    /**
+     * @return {@link #aclIdentityIds}
+     */
+    public Set<Long> getAclIdentityIds()
+    {
+        return aclIdentityIds;
+    }
+
+    /**
+     * @return {@link #roles}
+     */
+    public Set<String> getRoles()
+    {
+        return roles;
+    }
+
+    /**
+     * @return true whether no object can match the filter
+     */
+    public boolean isEmpty()
+    {
+        return aclIdentityIds.isEmpty() || roles.isEmpty();
+    }
+}
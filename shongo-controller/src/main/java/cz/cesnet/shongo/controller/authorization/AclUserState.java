@@ -53,6 +53,12 @@ public class AclUserState
      */
     private Map<AclObjectClass, Set<Long>> writableObjectsByClass = new HashMap<>();
 
+    /**
+     * Identifiers of {@link cz.cesnet.shongo.controller.acl.AclIdentity}s from which the {@link #aclEntries}
+     * were loaded (the user itself, its groups and everyone group).
+     */
+    private Set<Long> aclIdentityIds = Collections.emptySet();
+
     /**
      * @param aclEntry to be added to the {@link AclUserState}
      */
@@ -323,6 +329,22 @@ public class AclUserState
         return null;
     }
 
+    /**
+     * @return {@link #aclIdentityIds}
+     */
+    public synchronized Set<Long> getAclIdentityIds()
+    {
+        return aclIdentityIds;
+    }
+
+    /**
+     * @param aclIdentityIds sets the {@link #aclIdentityIds}
+     */
+    public synchronized void setAclIdentityIds(Set<Long> aclIdentityIds)
+    {
+        this.aclIdentityIds = Collections.unmodifiableSet(aclIdentityIds);
+    }
+
     /**
      * Represents an object state for the user.
      */
@@ -93,6 +93,11 @@ public abstract class Authorization
      */
     private Map<SecurityToken, UserSessionSettings> userSessionSettings = new HashMap<SecurityToken, UserSessionSettings>();
 
+    /**
+     * @see AclPermissionFilter.Mode
+     */
+    private AclPermissionFilter.Mode aclQueryMode;
+
     /**
      * {@link AuthorizationExpression} for decision whether an user can perform administration as system administrator.
      */
@@ -147,6 +152,9 @@ public abstract class Authorization
                 ControllerConfiguration.SECURITY_EXPIRATION_ACL));
         this.cache.setGroupExpiration(configuration.getDuration(
                 ControllerConfiguration.SECURITY_EXPIRATION_GROUP));
+        this.aclQueryMode = AclPermissionFilter.Mode.valueOf(
+                configuration.getString(ControllerConfiguration.SECURITY_ACL_QUERY,
+                        AclPermissionFilter.Mode.JOIN.toString()).toUpperCase());
 
         // Authorization expressions
         this.administratorExpression = new AuthorizationExpression(
@@ -409,12 +417,78 @@ public abstract class Authorization
             // Add root user information to result
             userInformationList.add(ROOT_USER_DATA.getUserInformation());
         }
+        if (filterUserIds != null && !filterUserIds.isEmpty() && search == null) {
+            // Use cached users and retrieve the rest by single request (and cache them)
+            Set<String> notCachedUserIds = new HashSet<String>();
+            for (String userId : filterUserIds) {
+                if (cache.hasUserDataByUserId(userId)) {
+                    UserData userData = cache.getUserDataByUserId(userId);
+                    if (userData != null) {
+                        userInformationList.add(userData.getUserInformation());
+                    }
+                }
+                else {
+                    notCachedUserIds.add(userId);
+                }
+            }
+            if (!notCachedUserIds.isEmpty()) {
+                for (UserData userData : onListUserData(notCachedUserIds, null)) {
+                    cache.putUserDataByUserId(userData.getUserId(), userData);
+                    userInformationList.add(userData.getUserInformation());
+                }
+            }
+            return userInformationList;
+        }
         for (UserData userData : onListUserData(filterUserIds, search)) {
             userInformationList.add(userData.getUserInformation());
         }
         return userInformationList;
     }
 
+    /**
+     * @return collection of {@link UserData}s which are currently cached in the {@link AuthorizationCache}
+     */
+    public final Collection<UserData> listCachedUserData()
+    {
+        List<UserData> userDataList = new LinkedList<UserData>();
+        for (String userId : cache.getUserDataUserIds()) {
+            UserData userData = cache.getUserDataByUserId(userId);
+            if (userData != null) {
+                userDataList.add(userData);
+            }
+        }
+        return userDataList;
+    }
+
+    /**
+     * Put given {@code userDataList} (e.g., loaded from a snapshot) to the {@link AuthorizationCache}.
+     *
+     * @param userDataList to be cached
+     */
+    public final void putCachedUserData(Collection<UserData> userDataList)
+    {
+        for (UserData userData : userDataList) {
+            cache.putUserDataByUserId(userData.getUserId(), userData);
+        }
+    }
+
+    /**
+     * Refresh {@link UserData}s in the {@link AuthorizationCache} for given {@code userIds} by single request.
+     *
+     * @param userIds of users to be refreshed
+     */
+    public final void refreshCachedUserData(Set<String> userIds)
+    {
+        Set<String> notExistingUserIds = new HashSet<String>(userIds);
+        for (UserData userData : onListUserData(userIds, null)) {
+            cache.putUserDataByUserId(userData.getUserId(), userData);
+            notExistingUserIds.remove(userData.getUserId());
+        }
+        for (String userId : notExistingUserIds) {
+            cache.putUserDataByUserId(userId, null);
+        }
+    }
+
     /**
      * @param userId
      * @return true if the user is Shongo admin (should have all permissions),
@@ -656,6 +730,57 @@ public abstract class Authorization
         return entities;
     }
 
+    /**
+     * @return {@link #aclQueryMode}
+     */
+    public AclPermissionFilter.Mode getAclQueryMode()
+    {
+        return aclQueryMode;
+    }
+
+    /**
+     * @param aclQueryMode sets the {@link #aclQueryMode}
+     */
+    public void setAclQueryMode(AclPermissionFilter.Mode aclQueryMode)
+    {
+        this.aclQueryMode = aclQueryMode;
+    }
+
+    /**
+     * @param securityToken    of the user
+     * @param objectClass      of objects which should be filtered
+     * @param objectPermission which the user must have for the objects
+     * @return {@link AclPermissionFilter} for objects for which the user has given {@code objectPermission}
+     * or null if the user has permission for all objects (same as {@link #getEntitiesWithPermission})
+     */
+    public AclPermissionFilter getEntitiesWithPermissionFilter(SecurityToken securityToken,
+            Class<? extends PersistentObject> objectClass, ObjectPermission objectPermission)
+    {
+        AclObjectClass aclObjectClass = aclProvider.getObjectClass(objectClass);
+        if (isAdministrator(securityToken)) {
+            // Administrator has all possible permissions for all objects
+            return null;
+        }
+        if (ObjectPermission.READ.equals(objectPermission) && isOperator(securityToken)) {
+            // Operator has READ permission for all objects
+            return null;
+        }
+        String userId = securityToken.getUserId();
+        AclUserState aclUserState = cache.getAclUserStateByUserId(userId);
+        if (aclUserState == null) {
+            aclUserState = fetchAclUserState(userId);
+            cache.putAclUserStateByUserId(userId, aclUserState);
+        }
+        ObjectType objectType = ObjectTypeResolver.getObjectType(aclObjectClass);
+        Set<String> roles = new HashSet<String>();
+        for (ObjectRole objectRole : objectType.getRoles()) {
+            if (objectType.getRolePermissions(objectRole).contains(objectPermission)) {
+                roles.add(objectRole.toString());
+            }
+        }
+        return new AclPermissionFilter(aclObjectClass.getId(), aclUserState.getAclIdentityIds(), roles);
+    }
+
     /**
      * @param persistentObject for which the users must have given {@code role}
      * @param objectRole       which the users must have for given {@code persistentObject}
@@ -1048,6 +1173,11 @@ public abstract class Authorization
             aclIdentities.add(aclProvider.getIdentity(AclIdentityType.GROUP, groupId));
         }
         aclIdentities.add(aclProvider.getIdentity(AclIdentityType.GROUP, EVERYONE_GROUP_ID));
+        Set<Long> aclIdentityIds = new HashSet<Long>();
+        for (AclIdentity aclIdentity : aclIdentities) {
+            aclIdentityIds.add(aclIdentity.getId());
+        }
+        aclUserState.setAclIdentityIds(aclIdentityIds);
         EntityManager entityManager = entityManagerFactory.createEntityManager();
         AuthorizationManager authorizationManager = new AuthorizationManager(entityManager, authorization);
         try {
@@ -1,6 +1,6 @@
 package cz.cesnet.shongo.controller.authorization;
 
-import cz.cesnet.shongo.ExpirationMap;
+import cz.cesnet.shongo.ConcurrentExpirationMap;
 import cz.cesnet.shongo.api.UserInformation;
 import cz.cesnet.shongo.controller.acl.AclEntry;
 import cz.cesnet.shongo.controller.acl.AclObjectIdentity;
@@ -12,7 +12,8 @@ import java.util.List;
 import java.util.Set;
 
 /**
- * Represents a cache of {@link AclEntry}s
+ * Represents a cache of {@link AclEntry}s (and other authorization data). The cache is accessed concurrently
+ * by all RPC requests and thus it isn't synchronized (all the caches are {@link ConcurrentExpirationMap}s).
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
@@ -21,60 +22,64 @@ public class AuthorizationCache
     /**
      * Cache of user-id by access token.
      */
-    private ExpirationMap<String, String> userIdByAccessTokenCache = new ExpirationMap<String, String>();
+    private ConcurrentExpirationMap<String, String> userIdByAccessTokenCache =
+            new ConcurrentExpirationMap<String, String>();
 
     /**
      * Cache of user-id by principal name.
      */
-    private ExpirationMap<String, String> userIdByPrincipalNameCache = new ExpirationMap<String, String>();
+    private ConcurrentExpirationMap<String, String> userIdByPrincipalNameCache =
+            new ConcurrentExpirationMap<String, String>();
 
     /**
      * Cache of {@link UserInformation} by user-id.
      */
-    private ExpirationMap<String, UserData> userDataByUserIdCache =
-            new ExpirationMap<String, UserData>();
+    private ConcurrentExpirationMap<String, UserData> userDataByUserIdCache =
+            new ConcurrentExpirationMap<String, UserData>();
 
     /**
      * Cache of {@link UserAuthorizationData} by access token.
      */
-    private ExpirationMap<String, UserAuthorizationData> userAuthorizationDataByAccessTokenCache =
-            new ExpirationMap<String, UserAuthorizationData>();
+    private ConcurrentExpirationMap<String, UserAuthorizationData> userAuthorizationDataByAccessTokenCache =
+            new ConcurrentExpirationMap<String, UserAuthorizationData>();
 
     /**
      * Cache of {@link AclEntry} by {@link AclEntry#id}.
      */
-    private ExpirationMap<Long, AclEntry> aclEntryCache = new ExpirationMap<Long, AclEntry>();
+    private ConcurrentExpirationMap<Long, AclEntry> aclEntryCache = new ConcurrentExpirationMap<Long, AclEntry>();
 
     /**
      * Cache of {@link AclUserState} by user-id.
      */
-    private ExpirationMap<String, AclUserState> aclUserStateCache = new ExpirationMap<String, AclUserState>();
+    private ConcurrentExpirationMap<String, AclUserState> aclUserStateCache =
+            new ConcurrentExpirationMap<String, AclUserState>();
 
     /**
      * Cache of {@link AclObjectState} by {@link AclObjectIdentity}.
      */
-    private ExpirationMap<AclObjectIdentity, AclObjectState> aclObjectStateCache =
-            new ExpirationMap<AclObjectIdentity, AclObjectState>();
+    private ConcurrentExpirationMap<AclObjectIdentity, AclObjectState> aclObjectStateCache =
+            new ConcurrentExpirationMap<AclObjectIdentity, AclObjectState>();
 
     /**
      * Cache of {@link Group} by group-id.
      */
-    private ExpirationMap<String, Group> groupByGroupId = new ExpirationMap<String, Group>();
+    private ConcurrentExpirationMap<String, Group> groupByGroupId = new ConcurrentExpirationMap<String, Group>();
 
     /**
      * Cache of group-id by group name.
      */
-    private ExpirationMap<String, String> groupIdByName = new ExpirationMap<String, String>();
+    private ConcurrentExpirationMap<String, String> groupIdByName = new ConcurrentExpirationMap<String, String>();
 
     /**
      * Cache of user-ids by group-ids for users which are in the group.
      */
-    private ExpirationMap<String, UserIdSet> userIdsByGroupId = new ExpirationMap<String, UserIdSet>();
+    private ConcurrentExpirationMap<String, UserIdSet> userIdsByGroupId =
+            new ConcurrentExpirationMap<String, UserIdSet>();
 
     /**
      * @param expiration sets the {@link #userIdByAccessTokenCache} expiration
      */
-    public synchronized void setUserIdExpiration(Duration expiration)
+    public void setUserIdExpiration(Duration expiration)
     {
         userIdByAccessTokenCache.setExpiration(expiration);
         userIdByPrincipalNameCache.setExpiration(expiration);
@@ -83,7 +88,7 @@ public class AuthorizationCache
     /**
      * @param expiration sets the {@link #userDataByUserIdCache} expiration
      */
-    public synchronized void setUserInformationExpiration(Duration expiration)
+    public void setUserInformationExpiration(Duration expiration)
     {
         userDataByUserIdCache.setExpiration(expiration);
         userAuthorizationDataByAccessTokenCache.setExpiration(expiration);
@@ -92,7 +97,7 @@ public class AuthorizationCache
     /**
      * @param expiration sets the {@link #aclUserStateCache} expiration
      */
-    public synchronized void setAclExpiration(Duration expiration)
+    public void setAclExpiration(Duration expiration)
     {
         aclEntryCache.setExpiration(expiration);
         aclUserStateCache.setExpiration(expiration);
@@ -102,7 +107,7 @@ public class AuthorizationCache
     /**
      * @param expiration sets the {@link #groupIdByName} expiration
      */
-    public synchronized void setGroupExpiration(Duration expiration)
+    public void setGroupExpiration(Duration expiration)
     {
         groupByGroupId.setExpiration(expiration);
         groupIdByName.setExpiration(expiration);
@@ -111,7 +116,7 @@ public class AuthorizationCache
     /**
      * Clear the cache.
      */
-    public synchronized void clear()
+    public void clear()
     {
         userIdByAccessTokenCache.clear();
         userIdByPrincipalNameCache.clear();
@@ -128,7 +133,7 @@ public class AuthorizationCache
      * @param accessToken
      * @return user-id by given {@code accessToken}
      */
-    public synchronized String getUserIdByAccessToken(String accessToken)
+    public String getUserIdByAccessToken(String accessToken)
     {
         return userIdByAccessTokenCache.get(accessToken);
     }
@@ -139,7 +144,7 @@ public class AuthorizationCache
      * @param accessToken
      * @param userId
      */
-    public synchronized void putUserIdByAccessToken(String accessToken, String userId)
+    public void putUserIdByAccessToken(String accessToken, String userId)
     {
         userIdByAccessTokenCache.put(accessToken, userId);
     }
@@ -148,7 +153,7 @@ public class AuthorizationCache
      * @param principalName
      * @return user-id by given {@code principalName}
      */
-    public synchronized String getUserIdByPrincipalName(String principalName)
+    public String getUserIdByPrincipalName(String principalName)
     {
         return userIdByPrincipalNameCache.get(principalName);
     }
@@ -157,7 +162,7 @@ public class AuthorizationCache
      * @param principalName
      * @return whether user with given {@code principalName} exists in cache
      */
-    public synchronized boolean hasUserIdByPrincipalName(String principalName)
+    public boolean hasUserIdByPrincipalName(String principalName)
     {
         return userIdByPrincipalNameCache.contains(principalName);
     }
@@ -168,7 +173,7 @@ public class AuthorizationCache
      * @param principalName
      * @param userId
      */
-    public synchronized void putUserIdByPrincipalName(String principalName, String userId)
+    public void putUserIdByPrincipalName(String principalName, String userId)
     {
         userIdByPrincipalNameCache.put(principalName, userId);
     }
@@ -177,7 +182,7 @@ public class AuthorizationCache
      * @param userId
      * @return {@link UserData} by given {@code userId}
      */
-    public synchronized UserData getUserDataByUserId(String userId)
+    public UserData getUserDataByUserId(String userId)
     {
         return userDataByUserIdCache.get(userId);
     }
@@ -186,7 +191,7 @@ public class AuthorizationCache
      * @param userId
      * @return true whether user with given {@code userId} has cached {@link UserData}
      */
-    public synchronized boolean hasUserDataByUserId(String userId)
+    public boolean hasUserDataByUserId(String userId)
     {
         return userDataByUserIdCache.contains(userId);
     }
@@ -197,16 +202,24 @@ public class AuthorizationCache
      * @param userId
      * @param userData
      */
-    public synchronized void putUserDataByUserId(String userId, UserData userData)
+    public void putUserDataByUserId(String userId, UserData userData)
     {
         userDataByUserIdCache.put(userId, userData);
     }
 
+    /**
+     * @return set of user-ids which have cached {@link UserData}
+     */
+    public Set<String> getUserDataUserIds()
+    {
+        return userDataByUserIdCache.keySet();
+    }
+
     /**
      * @param accessToken
      * @return {@link UserAuthorizationData} by given {@code accessToken}
      */
-    public synchronized UserAuthorizationData getUserAuthorizationDataByAccessToken(String accessToken)
+    public UserAuthorizationData getUserAuthorizationDataByAccessToken(String accessToken)
     {
         return userAuthorizationDataByAccessTokenCache.get(accessToken);
     }
@@ -215,7 +228,7 @@ public class AuthorizationCache
      * @param accessToken
      * @return true whether user with given {@code accessToken} has cached {@link UserAuthorizationData}
      */
-    public synchronized boolean hasUserAuthorizationDataByAccessToken(String accessToken)
+    public boolean hasUserAuthorizationDataByAccessToken(String accessToken)
     {
         return userAuthorizationDataByAccessTokenCache.contains(accessToken);
     }
@@ -226,7 +239,7 @@ public class AuthorizationCache
      * @param accessToken
      * @param userAuthorizationData
      */
-    public synchronized void putUserAuthorizationDataByAccessToken(String accessToken,
+    public void putUserAuthorizationDataByAccessToken(String accessToken,
             UserAuthorizationData userAuthorizationData)
     {
         userAuthorizationDataByAccessTokenCache.put(accessToken, userAuthorizationData);
@@ -236,7 +249,7 @@ public class AuthorizationCache
      * @param aclEntryId
      * @return {@link AclEntry} by given {@code aclEntryId}
      */
-    public synchronized AclEntry getAclEntryById(Long aclEntryId)
+    public AclEntry getAclEntryById(Long aclEntryId)
     {
         return aclEntryCache.get(aclEntryId);
     }
@@ -244,7 +257,7 @@ public class AuthorizationCache
     /**
      * @return {@link AclEntry}s
      */
-    public synchronized Iterable<AclEntry> getAclEntries()
+    public Iterable<AclEntry> getAclEntries()
     {
         return aclEntryCache;
     }
@@ -254,7 +267,7 @@ public class AuthorizationCache
      *
      * @param aclEntry
      */
-    public synchronized void putAclEntryById(AclEntry aclEntry)
+    public void putAclEntryById(AclEntry aclEntry)
     {
         aclEntryCache.put(aclEntry.getId(), aclEntry);
     }
@@ -265,7 +278,7 @@ public class AuthorizationCache
      * @param aclEntry
      * @return removed {@link AclEntry}
      */
-    public synchronized AclEntry removeAclEntryById(AclEntry aclEntry)
+    public AclEntry removeAclEntryById(AclEntry aclEntry)
     {
         return aclEntryCache.remove(aclEntry.getId());
     }
@@ -274,7 +287,7 @@ public class AuthorizationCache
      * @param userId
      * @return {@link AclUserState} by given {@code userId}
      */
-    public synchronized AclUserState getAclUserStateByUserId(String userId)
+    public AclUserState getAclUserStateByUserId(String userId)
     {
         return aclUserStateCache.get(userId);
     }
@@ -282,7 +295,7 @@ public class AuthorizationCache
     /**
      * @return List of {@link AclUserState}
      */
-    public synchronized Collection<AclUserState> listAclUserStates()
+    public Collection<AclUserState> listAclUserStates()
     {
         return aclUserStateCache.values();
     }
@@ -293,7 +306,7 @@ public class AuthorizationCache
      * @param userId
      * @param aclUserState
      */
-    public synchronized void putAclUserStateByUserId(String userId, AclUserState aclUserState)
+    public void putAclUserStateByUserId(String userId, AclUserState aclUserState)
     {
         aclUserStateCache.put(userId, aclUserState);
     }
@@ -302,7 +315,7 @@ public class AuthorizationCache
      * @param aclObjectIdentity
      * @return {@link AclObjectState} by given {@code aclObjectIdentity}
      */
-    public synchronized AclObjectState getAclObjectStateByIdentity(AclObjectIdentity aclObjectIdentity)
+    public AclObjectState getAclObjectStateByIdentity(AclObjectIdentity aclObjectIdentity)
     {
         return aclObjectStateCache.get(aclObjectIdentity);
     }
@@ -313,7 +326,7 @@ public class AuthorizationCache
      * @param aclObjectIdentity
      * @param aclObjectState
      */
-    public synchronized void putAclObjectStateByIdentity(AclObjectIdentity aclObjectIdentity,
+    public void putAclObjectStateByIdentity(AclObjectIdentity aclObjectIdentity,
             AclObjectState aclObjectState)
     {
         aclObjectStateCache.put(aclObjectIdentity, aclObjectState);
@@ -323,7 +336,7 @@ public class AuthorizationCache
      * @param groupId
      * @return {@link Group} by given {@code groupId}
      */
-    public synchronized Group getGroupByGroupId(String groupId)
+    public Group getGroupByGroupId(String groupId)
     {
         return groupByGroupId.get(groupId);
     }
@@ -332,7 +345,7 @@ public class AuthorizationCache
      * @param groupId
      * @return true whether group with given {@code groupId} has cached {@link Group}
      */
-    public synchronized boolean hasGroupByGroupId(String groupId)
+    public boolean hasGroupByGroupId(String groupId)
     {
         return groupByGroupId.contains(groupId);
     }
@@ -343,7 +356,7 @@ public class AuthorizationCache
      * @param groupId
      * @param group
      */
-    public synchronized void putGroupByGroupId(String groupId, Group group)
+    public void putGroupByGroupId(String groupId, Group group)
     {
         groupByGroupId.put(groupId, group);
     }
@@ -352,7 +365,7 @@ public class AuthorizationCache
      * @param groupName
      * @return group-id for given {@code groupName}
      */
-    public synchronized String getGroupIdByName(String groupName)
+    public String getGroupIdByName(String groupName)
     {
         return groupIdByName.get(groupName);
     }
@@ -363,7 +376,7 @@ public class AuthorizationCache
      * @param groupName
      * @param groupId
      */
-    public synchronized void putGroupIdByName(String groupName, String groupId)
+    public void putGroupIdByName(String groupName, String groupId)
     {
         groupIdByName.put(groupName, groupId);
     }
@@ -372,7 +385,7 @@ public class AuthorizationCache
      * @param groupId
      * @return set of user-ids for given {@code groupId}
      */
-    public synchronized UserIdSet getUserIdsInGroup(String groupId)
+    public UserIdSet getUserIdsInGroup(String groupId)
     {
         return userIdsByGroupId.get(groupId);
     }
@@ -383,7 +396,7 @@ public class AuthorizationCache
      * @param groupId
      * @param userIds
      */
-    public synchronized void putUserIdsInGroup(String groupId, UserIdSet userIds)
+    public void putUserIdsInGroup(String groupId, UserIdSet userIds)
     {
         userIdsByGroupId.put(groupId, userIds);
     }
@@ -393,7 +406,7 @@ public class AuthorizationCache
      *
      * @param groupId
      */
-    public synchronized void removeGroup(String groupId)
+    public void removeGroup(String groupId)
     {
         groupIdByName.removeByValue(groupId);
         userIdsByGroupId.remove(groupId);
@@ -0,0 +1,95 @@
+package cz.cesnet.shongo.controller.authorization;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coalesces concurrent requests with the same key into single request. The first thread which performs a request
+ * for a key executes it and all other threads which perform a request for the same key in the meantime wait for
+ * and share its result (or its exception).
+ *
+ * @param <V> type of request result
+ */
+public class RequestCoalescer<V>
+{
+    /**
+     * Requests which are currently being executed by key.
+     */
+    private final ConcurrentMap<String, FutureTask<V>> pendingRequests = new ConcurrentHashMap<String, FutureTask<V>>();
+
+    /**
+     * Number of threads which are currently waiting for a request executed by another thread.
+     */
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    /**
+     * Perform given {@code request} or wait for result of pending request with the same {@code key}.
+     *
+     * @param key     which identifies the request
+     * @param request to be performed
+     * @return result of the request
+     */
+    public V perform(String key, Callable<V> request)
+    {
+        FutureTask<V> futureTask = new FutureTask<V>(request);
+        FutureTask<V> pendingTask = pendingRequests.putIfAbsent(key, futureTask);
+        if (pendingTask == null) {
+            try {
+                futureTask.run();
+            }
+            finally {
+                pendingRequests.remove(key, futureTask);
+            }
+            pendingTask = futureTask;
+        }
+        else {
+            waitingCount.incrementAndGet();
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return pendingTask.get();
+                }
+                catch (InterruptedException exception) {
+                    // Wait for the result anyway, the request is being executed by another thread
+                    interrupted = true;
+                }
+            }
+        }
+        catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        finally {
+            if (pendingTask != futureTask) {
+                waitingCount.decrementAndGet();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return number of requests which are currently being executed
+     */
+    public int getPendingRequestCount()
+    {
+        return pendingRequests.size();
+    }
+
+    /**
+     * @return number of threads which are currently waiting for a request executed by another thread
+     */
+    public int getWaitingCount()
+    {
+        return waitingCount.get();
+    }
+}
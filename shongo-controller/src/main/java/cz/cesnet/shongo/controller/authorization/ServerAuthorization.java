@@ -7,8 +7,10 @@ import cz.cesnet.shongo.controller.ControllerConfiguration;
 import cz.cesnet.shongo.controller.ControllerReportSet;
 import cz.cesnet.shongo.controller.api.Group;
 import cz.cesnet.shongo.controller.api.SecurityToken;
+import cz.cesnet.shongo.controller.util.LatencyHistogram;
 import cz.cesnet.shongo.report.ReportRuntimeException;
 import cz.cesnet.shongo.ssl.ConfiguredSSLContext;
+import cz.cesnet.shongo.util.Timer;
 import org.apache.http.*;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.*;
@@ -21,6 +23,7 @@ import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.node.ObjectNode;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,6 +37,7 @@ import java.lang.reflect.Method;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Provides methods for performing authentication and authorization.
@@ -49,6 +53,11 @@ public class ServerAuthorization extends Authorization
      */
     private static final String AUTHENTICATION_SERVICE_PATH = "/oidc-authn/oic";
 
+    /**
+     * Timeout in milliseconds for requests to auth-server.
+     */
+    private static final int HTTP_TIMEOUT = 30000;
+
     /**
      * User web service path in auth-server.
      */
@@ -86,6 +95,16 @@ public class ServerAuthorization extends Authorization
 
     private static final String PERUN_SOURCE_CESNET_IDP_PATTERN = "https://login.cesnet.cz/idp/";
 
+    /**
+     * Maximum number of user-ids which are searched in LDAP by single filter.
+     */
+    private static final int LDAP_FILTER_BATCH_SIZE = 50;
+
+    /**
+     * Timeout in milliseconds after which idle pooled LDAP connections are closed.
+     */
+    private static final int LDAP_POOL_TIMEOUT = 300000;
+
     /**
      * @see cz.cesnet.shongo.controller.ControllerConfiguration
      */
@@ -112,10 +131,45 @@ public class ServerAuthorization extends Authorization
     private String requestAuthorizationHeader;
 
     /**
-     * {@link HttpClient} for performing auth-server requests.
+     * Environment for creating LDAP contexts.
+     */
+    private Hashtable<String, String> ldapEnvironment;
+
+    /**
+     * {@link HttpClient} with pool of keep-alive connections for performing auth-server requests.
      */
     private HttpClient httpClient;
 
+    /**
+     * Coalesces concurrent requests for {@link UserData} by access token.
+     */
+    private final RequestCoalescer<UserData> userDataByAccessTokenRequests = new RequestCoalescer<UserData>();
+
+    /**
+     * Coalesces concurrent requests for {@link UserData} by user-id.
+     */
+    private final RequestCoalescer<UserData> userDataByUserIdRequests = new RequestCoalescer<UserData>();
+
+    /**
+     * Latencies of user information requests to authentication service.
+     */
+    private final LatencyHistogram authenticationServerLatency = new LatencyHistogram("authentication server");
+
+    /**
+     * Latencies of requests to web services (e.g., groups).
+     */
+    private final LatencyHistogram webServiceLatency = new LatencyHistogram("web service");
+
+    /**
+     * Latencies of LDAP searches.
+     */
+    private final LatencyHistogram ldapLatency = new LatencyHistogram("LDAP");
+
+    /**
+     * Periodically logs the latency statistics.
+     */
+    private ScheduledExecutorService statisticsExecutor;
+
     /**
      * @see ObjectMapper
      */
@@ -160,11 +214,71 @@ public class ServerAuthorization extends Authorization
         requestAuthorizationHeader = "Basic " + Base64.encode(bytes, 0, bytes.length, 0, "");
 
         // Create http client
-        httpClient = ConfiguredSSLContext.getInstance().createHttpClient();
+        httpClient = ConfiguredSSLContext.getInstance().createHttpClient(HTTP_TIMEOUT,
+                configuration.getInt(ControllerConfiguration.SECURITY_SERVER_MAX_CONNECTIONS, 20));
+
+        // LDAP client initialization
+        configureLdapConnectionPool(configuration.getInt(ControllerConfiguration.SECURITY_LDAP_MAX_CONNECTIONS, 10));
+        ldapEnvironment = new Hashtable<String, String>();
+        ldapEnvironment.put("com.sun.jndi.ldap.connect.pool", "true");
+        ldapEnvironment.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
+        ldapEnvironment.put(Context.SECURITY_AUTHENTICATION, "simple");
+        ldapEnvironment.put(Context.PROVIDER_URL, ldapAuthorizationServer);
+        String ldapClientDn = configuration.getString(ControllerConfiguration.SECURITY_LDAP_BINDDN);
+        if (ldapClientDn != null) {
+            ldapEnvironment.put(Context.SECURITY_PRINCIPAL, ldapClientDn);
+        }
+        String ldapClientSecret = configuration.getString(ControllerConfiguration.SECURITY_LDAP_CLIENT_SECRET);
+        if (ldapClientSecret != null) {
+            ldapEnvironment.put(Context.SECURITY_CREDENTIALS, ldapClientSecret);
+        }
+
+        // Statistics
+        Duration statisticsPeriod = configuration.getDuration(ControllerConfiguration.SECURITY_STATISTICS_PERIOD);
+        if (statisticsPeriod != null && statisticsPeriod.getMillis() > 0) {
+            statisticsExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "authorization-statistics");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            statisticsExecutor.scheduleAtFixedRate(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    logStatistics();
+                }
+            }, statisticsPeriod.getMillis(), statisticsPeriod.getMillis(), TimeUnit.MILLISECONDS);
+        }
 
         initialize();
     }
 
+    @Override
+    public void destroy()
+    {
+        if (statisticsExecutor != null) {
+            statisticsExecutor.shutdownNow();
+        }
+        httpClient.getConnectionManager().shutdown();
+        super.destroy();
+    }
+
+    /**
+     * Log latency statistics of requests to AA servers.
+     */
+    public void logStatistics()
+    {
+        logger.info("Authorization latency of {}.", authenticationServerLatency);
+        logger.info("Authorization latency of {}.", webServiceLatency);
+        logger.info("Authorization latency of {}.", ldapLatency);
+    }
+
     /**
      * Initialize {@link #rootAccessToken}.
      */
@@ -198,7 +312,7 @@ public class ServerAuthorization extends Authorization
         return super.onValidate(securityToken);
     }
     @Override
-    protected UserData onGetUserDataByAccessToken(String accessToken)
+    protected UserData onGetUserDataByAccessToken(final String accessToken)
             throws ControllerReportSet.UserNotExistsException
     {
         // Testing security token represents root user
@@ -206,15 +320,38 @@ public class ServerAuthorization extends Authorization
             return ROOT_USER_DATA;
         }
 
+        // Concurrent requests for the same access token are performed only once
+        return userDataByAccessTokenRequests.perform(accessToken, new Callable<UserData>()
+        {
+            @Override
+            public UserData call() throws Exception
+            {
+                return getUserDataFromAuthenticationServer(accessToken);
+            }
+        });
+    }
+
+    /**
+     * @param accessToken of an user
+     * @return {@link UserData} for given {@code accessToken} retrieved from user info of authentication service
+     * @throws ControllerReportSet.UserNotExistsException when user not exists
+     */
+    private UserData getUserDataFromAuthenticationServer(String accessToken)
+            throws ControllerReportSet.UserNotExistsException
+    {
         Exception errorException = null;
         String errorReason = null;
+        HttpGet httpGet = null;
+        Timer timer = new Timer();
+        boolean success = false;
         try {
             URIBuilder uriBuilder = new URIBuilder(getAuthenticationUrl() + "/userinfo");
             uriBuilder.setParameter("schema", "openid");
-            HttpGet httpGet = new HttpGet(uriBuilder.build());
+            httpGet = new HttpGet(uriBuilder.build());
             httpGet.setHeader("Authorization", "Bearer " + accessToken);
             HttpResponse response = httpClient.execute(httpGet);
             if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+                success = true;
                 JsonNode jsonNode = readJson(response.getEntity());
                 if (jsonNode == null) {
                     throw new ControllerReportSet.UserNotExistsException(accessToken);
@@ -227,6 +364,7 @@ public class ServerAuthorization extends Authorization
                     String error = jsonNode.get("error").getTextValue();
                     String errorDescription = jsonNode.get("error_description").getTextValue();
                     if (error.contains("invalid_token")) {
+                        success = true;
                         throw new ControllerReportSet.SecurityInvalidTokenException(accessToken);
                     }
                     errorReason = String.format("%s, %s", error, errorDescription);
@@ -245,6 +383,12 @@ public class ServerAuthorization extends Authorization
         catch (Exception exception) {
             errorException = exception;
         }
+        finally {
+            authenticationServerLatency.record(timer.stop(), success);
+            if (httpGet != null) {
+                httpGet.releaseConnection();
+            }
+        }
         // Handle error
         String errorMessage = String.format("Retrieving user information by access token '%s' failed.", accessToken);
         if (errorReason != null) {
@@ -252,42 +396,49 @@ public class ServerAuthorization extends Authorization
         }
         throw new RuntimeException(errorMessage, errorException);
     }
+
     @Override
-    protected UserData onGetUserDataByUserId(final String userId) throws ControllerReportSet.UserNotExistsException {
+    protected UserData onGetUserDataByUserId(final String userId) throws ControllerReportSet.UserNotExistsException
+    {
+        // Concurrent requests for the same user-id are performed only once
+        return userDataByUserIdRequests.perform(userId, new Callable<UserData>()
+        {
+            @Override
+            public UserData call() throws Exception
+            {
+                return getUserDataFromLdap(userId);
+            }
+        });
+    }
+
+    /**
+     * @param userId of an user
+     * @return {@link UserData} for given {@code userId} retrieved from LDAP
+     * @throws ControllerReportSet.UserNotExistsException when user not exists
+     */
+    private UserData getUserDataFromLdap(final String userId) throws ControllerReportSet.UserNotExistsException
+    {
         String filter = "eduPersonPrincipalNames=" + userId;
         SearchControls ctrls = new SearchControls();
         ctrls.setSearchScope(SearchControls.SUBTREE_SCOPE);
         ctrls.setCountLimit(1);
 
-        DirContext ctx = null;
-        NamingEnumeration results = null;
-        UserData userData;
-
         try {
-            ctx = getLdapContext();
-            results = ctx.search("", filter, ctrls);
-            if (results.hasMore()) {
-                SearchResult result = (SearchResult) results.next();
-                userData = createUserDataFromLdapData(result);
-            } else {
-                throw new ControllerReportSet.UserNotExistsException(userId);
-            }
-        } catch (NamingException e) {
-            throw new ControllerReportSet.UserNotExistsException(userId);
-        } finally {
-            try {
-                if (results != null) {
-                    results.close();
-                }
-                if (ctx != null) {
-                    ctx.close();
+            return performLdapSearch(filter, ctrls, new LdapSearchHandler<UserData>()
+            {
+                @Override
+                public UserData handle(NamingEnumeration<SearchResult> results) throws NamingException
+                {
+                    if (results.hasMore()) {
+                        return createUserDataFromLdapData(results.next());
+                    }
+                    throw new ControllerReportSet.UserNotExistsException(userId);
                 }
-            }
-            catch (Exception ignored) {
-                // Ignore.
-            }
+            });
+        }
+        catch (NamingException e) {
+            throw new ControllerReportSet.UserNotExistsException(userId);
         }
-        return userData;
     }
 
     @Override
@@ -308,53 +459,53 @@ public class ServerAuthorization extends Authorization
     @Override
     protected Collection<UserData> onListUserData(final Set<String> filterUserIds, String search)
     {
-        StringBuilder filter = new StringBuilder();
+        List<String> filters = new LinkedList<>();
         SearchControls ctrls = new SearchControls();
         ctrls.setSearchScope(SearchControls.SUBTREE_SCOPE);
 
-        DirContext ctx = null;
-        NamingEnumeration results = null;
-        List<UserData> userDataList = new LinkedList<>();
+        final List<UserData> userDataList = new LinkedList<>();
 
         if (filterUserIds != null && filterUserIds.size() > 0) {
-            filter.append("(|");
-            for (String id : filterUserIds) {
-                filter.append("(eduPersonPrincipalNames=" + id + ")");
+            // Users are searched in batches to keep the LDAP filters reasonably small
+            List<String> userIds = new ArrayList<>(filterUserIds);
+            for (int index = 0; index < userIds.size(); index += LDAP_FILTER_BATCH_SIZE) {
+                StringBuilder filter = new StringBuilder();
+                filter.append("(|");
+                for (String id : userIds.subList(index, Math.min(index + LDAP_FILTER_BATCH_SIZE, userIds.size()))) {
+                    filter.append("(eduPersonPrincipalNames=" + id + ")");
+                }
+                filter.append(")");
+                filters.add(filter.toString());
             }
-            filter.append(")");
         } else if (search != null) {
-            filter.append("(&(displayName=*" + search + "*)(eduPersonPrincipalNames=*))");
+            filters.add("(&(displayName=*" + search + "*)(eduPersonPrincipalNames=*))");
         } else {
-            filter.append("objectClass=*");
+            filters.add("objectClass=*");
         }
 
         try {
-            ctx = getLdapContext();
-            results = ctx.search("", filter.toString(), ctrls);
-            while (results.hasMore()) {
-                SearchResult result = (SearchResult) results.next();
-                // An alumn user
-                if (result.getAttributes().get("eduPersonPrincipalNames") != null) {
-                    UserData userData = createUserDataFromLdapData(result);
-                    if (userData != null) {
-                        userDataList.add(userData);
+            for (String filter : filters) {
+                performLdapSearch(filter, ctrls, new LdapSearchHandler<Void>()
+                {
+                    @Override
+                    public Void handle(NamingEnumeration<SearchResult> results) throws NamingException
+                    {
+                        while (results.hasMore()) {
+                            SearchResult result = results.next();
+                            // An alumn user
+                            if (result.getAttributes().get("eduPersonPrincipalNames") != null) {
+                                UserData userData = createUserDataFromLdapData(result);
+                                if (userData != null) {
+                                    userDataList.add(userData);
+                                }
+                            }
+                        }
+                        return null;
                     }
-                }
+                });
             }
         } catch (NamingException e) {
             throw new CommonReportSet.UnknownErrorException(e, "Unable to list user data from LDAP.");
-        } finally {
-            try {
-                if (results != null) {
-                    results.close();
-                }
-                if (ctx != null) {
-                    ctx.close();
-                }
-            }
-            catch (Exception ignored) {
-                // Ignore.
-            }
         }
         return userDataList;
     }
@@ -368,35 +519,21 @@ public class ServerAuthorization extends Authorization
         ctrls.setSearchScope(SearchControls.SUBTREE_SCOPE);
         ctrls.setCountLimit(1);
 
-        DirContext ctx = null;
-        NamingEnumeration results = null;
-        Group group;
-
         try {
-            ctx = getLdapContext();
-            results = ctx.search("", filter, ctrls);
-            if (results.hasMore()) {
-                SearchResult result = (SearchResult) results.next();
-                group = createGroupFromLdapData(result);
-            } else {
-                throw new ControllerReportSet.GroupNotExistsException(groupId);
-            }
+            return performLdapSearch(filter, ctrls, new LdapSearchHandler<Group>()
+            {
+                @Override
+                public Group handle(NamingEnumeration<SearchResult> results) throws NamingException
+                {
+                    if (results.hasMore()) {
+                        return createGroupFromLdapData(results.next());
+                    }
+                    throw new ControllerReportSet.GroupNotExistsException(groupId);
+                }
+            });
         } catch (NamingException e) {
             throw new ControllerReportSet.GroupNotExistsException(groupId);
-        } finally {
-            try {
-                if (results != null) {
-                    results.close();
-                }
-                if (ctx != null) {
-                    ctx.close();
-                }
-            }
-            catch (Exception ignored) {
-                // Ignore.
-            }
         }
-        return group;
     }
 
     @Override
@@ -407,9 +544,7 @@ public class ServerAuthorization extends Authorization
         SearchControls ctrls = new SearchControls();
         ctrls.setSearchScope(SearchControls.SUBTREE_SCOPE);
 
-        DirContext ctx = null;
-        NamingEnumeration results = null;
-        List<Group> groupsList = new LinkedList<>();
+        final List<Group> groupsList = new LinkedList<>();
 
         filter.append("(|");
         if (filterGroupIds != null && filterGroupIds.size() > 0) {
@@ -426,29 +561,22 @@ public class ServerAuthorization extends Authorization
         filter.append(")");
 
         try {
-            ctx = getLdapContext();
-            results = ctx.search("", filter.toString(), ctrls);
-            while (results.hasMore()) {
-                SearchResult result = (SearchResult) results.next();
-                Group group = createGroupFromLdapData(result);
-                if (group != null) {
-                    groupsList.add(group);
+            performLdapSearch(filter.toString(), ctrls, new LdapSearchHandler<Void>()
+            {
+                @Override
+                public Void handle(NamingEnumeration<SearchResult> results) throws NamingException
+                {
+                    while (results.hasMore()) {
+                        Group group = createGroupFromLdapData(results.next());
+                        if (group != null) {
+                            groupsList.add(group);
+                        }
+                    }
+                    return null;
                 }
-            }
+            });
         } catch (NamingException e) {
             throw new CommonReportSet.UnknownErrorException(e, "Unable to list groups data from LDAP.");
-        } finally {
-            try {
-                if (results != null) {
-                    results.close();
-                }
-                if (ctx != null) {
-                    ctx.close();
-                }
-            }
-            catch (Exception ignored) {
-                // Ignore.
-            }
         }
         return groupsList;
 
@@ -466,34 +594,25 @@ public class ServerAuthorization extends Authorization
         SearchControls ctrls = new SearchControls();
         ctrls.setSearchScope(SearchControls.SUBTREE_SCOPE);
 
-        DirContext ctx = null;
-        NamingEnumeration results = null;
-        List<UserData> userDataList = new LinkedList<>();
+        final List<UserData> userDataList = new LinkedList<>();
 
         try {
-            ctx = getLdapContext();
-            results = ctx.search("", filter, ctrls);
-            while (results.hasMore()) {
-            SearchResult result = (SearchResult) results.next();
-                UserData userData = createUserDataFromLdapData(result);
-                if (userData != null) {
-                    userDataList.add(userData);
+            performLdapSearch(filter, ctrls, new LdapSearchHandler<Void>()
+            {
+                @Override
+                public Void handle(NamingEnumeration<SearchResult> results) throws NamingException
+                {
+                    while (results.hasMore()) {
+                        UserData userData = createUserDataFromLdapData(results.next());
+                        if (userData != null) {
+                            userDataList.add(userData);
+                        }
+                    }
+                    return null;
                 }
-            }
+            });
         } catch (NamingException e) {
             throw new CommonReportSet.UnknownErrorException(e, "Unable to list user data from LDAP.");
-        } finally {
-            try {
-                if (results != null) {
-                    results.close();
-                }
-                if (ctx != null) {
-                    ctx.close();
-                }
-            }
-            catch (Exception ignored) {
-                // Ignore.
-            }
         }
 
         Set<String> userIds = new HashSet<String>();
@@ -508,39 +627,28 @@ public class ServerAuthorization extends Authorization
     {
         UserData userData = onGetUserDataByUserId(userId);
         String filter = "uniqueMember=" + userData.getSecondaryId();
-        Set<String> userGroupIds = new HashSet<>();
+        final Set<String> userGroupIds = new HashSet<>();
 
         SearchControls ctrls = new SearchControls();
         ctrls.setSearchScope(SearchControls.SUBTREE_SCOPE);
 
-        DirContext ctx = null;
-        NamingEnumeration results = null;
-
-
         try {
-            ctx = getLdapContext();
-            results = ctx.search("", filter, ctrls);
-            while (results.hasMore()) {
-                SearchResult result = (SearchResult) results.next();
-                Group group = createGroupFromLdapData(result);
-                if (group != null) {
-                    userGroupIds.add(group.getId());
+            performLdapSearch(filter, ctrls, new LdapSearchHandler<Void>()
+            {
+                @Override
+                public Void handle(NamingEnumeration<SearchResult> results) throws NamingException
+                {
+                    while (results.hasMore()) {
+                        Group group = createGroupFromLdapData(results.next());
+                        if (group != null) {
+                            userGroupIds.add(group.getId());
+                        }
+                    }
+                    return null;
                 }
-            }
+            });
         } catch (NamingException e) {
             throw new CommonReportSet.UnknownErrorException(e, "Unable to list data from LDAP.");
-        } finally {
-            try {
-                if (results != null) {
-                    results.close();
-                }
-                if (ctx != null) {
-                    ctx.close();
-                }
-            }
-            catch (Exception ignored) {
-                // Ignore.
-            }
         }
 
         return userGroupIds;
@@ -669,22 +777,79 @@ public class ServerAuthorization extends Authorization
     }
 
     /**
-     * Creates context with pooled connection for LDAP.
+     * Configure the JNDI LDAP connection pool. The pool can be configured only by system properties which are read
+     * when the pool is used for the first time and thus it must be called before the first {@link #getLdapContext()}.
+     * Properties which are already set (e.g., on command line) are kept.
+     *
+     * @param maxConnections maximum number of pooled connections
+     */
+    private static void configureLdapConnectionPool(int maxConnections)
+    {
+        // Pool also secured connections (only plain connections are pooled by default)
+        setSystemPropertyIfNotSet("com.sun.jndi.ldap.connect.pool.protocol", "plain ssl");
+        setSystemPropertyIfNotSet("com.sun.jndi.ldap.connect.pool.maxsize", Integer.toString(maxConnections));
+        setSystemPropertyIfNotSet("com.sun.jndi.ldap.connect.pool.timeout", Integer.toString(LDAP_POOL_TIMEOUT));
+    }
+
+    /**
+     * @param key   of the system property
+     * @param value to be set to the system property when it isn't set
+     */
+    private static void setSystemPropertyIfNotSet(String key, String value)
+    {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * Creates context with pooled connection for LDAP (closing the context returns the connection to the pool).
      *
      * @return {@link DirContext}
      */
     private DirContext getLdapContext() throws NamingException {
-        // LDAP client initialization
-        String ldapClientDn = configuration.getString(ControllerConfiguration.SECURITY_LDAP_BINDDN );
-        String ldapClientSecret = configuration.getString(ControllerConfiguration.SECURITY_LDAP_CLIENT_SECRET);
-        Hashtable<String,String> env = new Hashtable <String,String>();
-        env.put("com.sun.jndi.ldap.connect.pool", "true");
-        env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
-        env.put(Context.SECURITY_AUTHENTICATION, "simple");
-        env.put(Context.PROVIDER_URL, ldapAuthorizationServer);
-        env.put(Context.SECURITY_PRINCIPAL, ldapClientDn);
-        env.put(Context.SECURITY_CREDENTIALS, ldapClientSecret);
-        return new InitialDirContext(env);
+        return new InitialDirContext(ldapEnvironment);
+    }
+
+    /**
+     * Perform LDAP search with pooled connection.
+     *
+     * @param filter         LDAP filter
+     * @param searchControls for the search
+     * @param searchHandler  to handle search results
+     * @return result from given {@code searchHandler}
+     * @throws NamingException when the search fails
+     */
+    private <T> T performLdapSearch(String filter, SearchControls searchControls, LdapSearchHandler<T> searchHandler)
+            throws NamingException
+    {
+        Timer timer = new Timer();
+        boolean success = true;
+        DirContext ctx = null;
+        NamingEnumeration<SearchResult> results = null;
+        try {
+            ctx = getLdapContext();
+            results = ctx.search("", filter, searchControls);
+            return searchHandler.handle(results);
+        }
+        catch (NamingException exception) {
+            success = false;
+            throw exception;
+        }
+        finally {
+            ldapLatency.record(timer.stop(), success);
+            try {
+                if (results != null) {
+                    results.close();
+                }
+                if (ctx != null) {
+                    ctx.close();
+                }
+            }
+            catch (Exception ignored) {
+                // Ignore.
+            }
+        }
     }
 
     /**
@@ -855,6 +1020,8 @@ public class ServerAuthorization extends Authorization
      */
     private <T> T performRequest(HttpRequestBase httpRequest, String description, RequestHandler<T> requestHandler)
     {
+        Timer timer = new Timer();
+        boolean success = false;
         try {
             httpRequest.addHeader("Authorization", requestAuthorizationHeader);
             httpRequest.setHeader("Accept", "application/hal+json");
@@ -862,6 +1029,7 @@ public class ServerAuthorization extends Authorization
             HttpResponse response = httpClient.execute(httpRequest);
             StatusLine statusLine = response.getStatusLine();
             int statusCode = statusLine.getStatusCode();
+            success = statusCode < HttpStatus.SC_INTERNAL_SERVER_ERROR;
             if (statusCode == HttpStatus.SC_NO_CONTENT) {
                 return null;
             }
@@ -905,6 +1073,7 @@ public class ServerAuthorization extends Authorization
             throw new CommonReportSet.UnknownErrorException(exception, description + ".");
         }
         finally {
+            webServiceLatency.record(timer.stop(), success);
             httpRequest.releaseConnection();
         }
     }
@@ -1319,6 +1488,21 @@ public class ServerAuthorization extends Authorization
         }
     }
 
+    /**
+     * LDAP search results handler for {@link #performLdapSearch}.
+     */
+    private static interface LdapSearchHandler<T>
+    {
+        /**
+         * Handle LDAP search results.
+         *
+         * @param results of the search
+         * @return parsed results
+         * @throws NamingException
+         */
+        public T handle(NamingEnumeration<SearchResult> results) throws NamingException;
+    }
+
     /**
      * Http request handler for {@link #performRequest}
      */
@@ -6,6 +6,7 @@ import cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest;
 import cz.cesnet.shongo.controller.booking.request.ReservationRequest;
 import cz.cesnet.shongo.controller.booking.request.ReservationRequestSet;
 import cz.cesnet.shongo.controller.booking.reservation.Reservation;
+import org.hibernate.annotations.BatchSize;
 import org.joda.time.Interval;
 
 import javax.persistence.*;
@@ -22,6 +23,7 @@ import java.util.*;
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
 @Entity
+@BatchSize(size = 50)
 public class Allocation extends SimplePersistentObject
 {
     /**
@@ -99,6 +101,7 @@ public class Allocation extends SimplePersistentObject
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "parentAllocation")
     @Access(AccessType.FIELD)
     @OrderBy("slotStart")
+    @BatchSize(size = 50)
     public List<ReservationRequest> getChildReservationRequests()
     {
         return Collections.unmodifiableList(childReservationRequests);
@@ -139,6 +142,7 @@ public class Allocation extends SimplePersistentObject
     @OneToMany
     @OrderBy("slotStart")
     @Access(AccessType.FIELD)
+    @BatchSize(size = 50)
     public List<Reservation> getReservations()
     {
         return Collections.unmodifiableList(reservations);
@@ -595,14 +595,17 @@ public abstract class Executable extends ExecutionTarget
      * This table is initialized based on view executable_summary_view. For more see init.sql.
      *
      * IMPORTANT: it is necessary to call this method EVERY time change of any entity {@link Executable} is made!!!
-     * Otherwise list of reservation requests will be inconsistent.
+     * Otherwise list of reservation requests will be inconsistent. The table is updated at the end of the active
+     * transaction (see {@link cz.cesnet.shongo.controller.util.SummaryRefreshQueue}).
      *
      * @param entityManager
      * @param deleteOnly
      */
     public void updateExecutableSummary(EntityManager entityManager, boolean deleteOnly)
     {
-        entityManager.flush();
+        if (getId() == null) {
+            entityManager.flush();
+        }
         ExecutableManager executableManager = new ExecutableManager(entityManager);
         executableManager.updateExecutableSummary(this, deleteOnly);
     }
@@ -12,13 +12,19 @@ import cz.cesnet.shongo.controller.booking.room.ResourceRoomEndpoint;
 import cz.cesnet.shongo.controller.booking.room.RoomEndpoint;
 import cz.cesnet.shongo.controller.booking.room.UsedRoomEndpoint;
 import cz.cesnet.shongo.controller.executor.ExecutionReportSet;
-import cz.cesnet.shongo.controller.util.NativeQuery;
 import cz.cesnet.shongo.controller.util.QueryFilter;
+import cz.cesnet.shongo.controller.util.SummaryRefreshQueue;
 import cz.cesnet.shongo.jade.SendLocalCommand;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.entity.EntityPersister;
 import org.joda.time.DateTime;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.TypedQuery;
 import java.util.*;
 
@@ -29,6 +35,13 @@ import java.util.*;
  */
 public class ExecutableManager extends AbstractManager
 {
+    /**
+     * Number of running executions by identifiers of {@link ExecutionTarget}s which are being executed
+     * (such {@link ExecutionTarget}s must not be deleted by {@link #deleteAllNotReferenced} nor modified
+     * by other transactions, see {@link #checkExecutingNotModified()}).
+     */
+    private static final Map<Long, Integer> executionCountByExecutableId = new HashMap<Long, Integer>();
+
     /**
      * List of {@link cz.cesnet.shongo.controller.executor.ExecutionReport}s which have been created.
      */
@@ -72,22 +85,15 @@ public class ExecutableManager extends AbstractManager
 
     /**
      * Updates table executable_summary, DO NOT USE directly, for more see {@link Executable#updateExecutableSummary(EntityManager, boolean)}
+     * (the table is updated at the end of the active transaction by {@link SummaryRefreshQueue}).
      *
      * @param executable
      * @param deleteOnly
      */
     public void updateExecutableSummary(Executable executable, boolean deleteOnly)
     {
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put("executable_id", executable.getId().toString());
-
-        String deleteQuery = NativeQuery.getNativeQuery(NativeQuery.EXECUTABLE_SUMMARY_DELETE, parameters);
-        entityManager.createNativeQuery(deleteQuery).executeUpdate();
-
-        if (!deleteOnly) {
-            String updateQuery = NativeQuery.getNativeQuery(NativeQuery.EXECUTABLE_SUMMARY_INSERT, parameters);
-            entityManager.createNativeQuery(updateQuery).executeUpdate();
-        }
+        SummaryRefreshQueue.enqueue(entityManager, SummaryRefreshQueue.Summary.EXECUTABLE,
+                executable.getId(), deleteOnly);
     }
 
     /**
@@ -331,6 +337,14 @@ public class ExecutableManager extends AbstractManager
                 .setParameter("toDelete", Executable.State.TO_DELETE)
                 .getResultList();
 
+        // Executables which are being executed will be deleted later
+        Iterator<Executable> executableForDeletionIterator = executablesForDeletion.iterator();
+        while (executableForDeletionIterator.hasNext()) {
+            if (isExecuting(SimplePersistentObject.getLazyImplementation(executableForDeletionIterator.next()))) {
+                executableForDeletionIterator.remove();
+            }
+        }
+
         List<Executable> referencedExecutables = new LinkedList<Executable>();
         for (Executable executableForDeletion : executablesForDeletion) {
             getReferencedExecutables(SimplePersistentObject.getLazyImplementation(executableForDeletion),
@@ -350,6 +364,116 @@ public class ExecutableManager extends AbstractManager
         return executablesForDeletion.size() > 0;
     }
 
+    /**
+     * Mark given {@link Executable}s as being executed (until {@link #endExecution} is called).
+     *
+     * @param executableIds identifiers of {@link Executable}s
+     */
+    public static void beginExecution(Collection<Long> executableIds)
+    {
+        synchronized (executionCountByExecutableId) {
+            for (Long executableId : executableIds) {
+                Integer executionCount = executionCountByExecutableId.get(executableId);
+                executionCountByExecutableId.put(executableId, (executionCount != null ? executionCount + 1 : 1));
+            }
+        }
+    }
+
+    /**
+     * Mark given {@link Executable}s as no longer executed (by the execution begun by {@link #beginExecution}).
+     *
+     * @param executableIds identifiers of {@link Executable}s
+     */
+    public static void endExecution(Collection<Long> executableIds)
+    {
+        synchronized (executionCountByExecutableId) {
+            for (Long executableId : executableIds) {
+                Integer executionCount = executionCountByExecutableId.get(executableId);
+                if (executionCount == null || executionCount <= 1) {
+                    executionCountByExecutableId.remove(executableId);
+                }
+                else {
+                    executionCountByExecutableId.put(executableId, executionCount - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param executableId identifier of {@link Executable}
+     * @return true whether the {@link Executable} with given {@code executableId} is being executed,
+     *         false otherwise
+     */
+    public static boolean isExecuting(Long executableId)
+    {
+        synchronized (executionCountByExecutableId) {
+            return executionCountByExecutableId.containsKey(executableId);
+        }
+    }
+
+    /**
+     * Flush the {@link #entityManager} and check that no {@link ExecutionTarget} which is being executed has been
+     * modified or deleted by it. It must be called inside {@link cz.cesnet.shongo.controller.CommitWatermark} commit
+     * before the transaction is committed (the executor marks the {@link ExecutionTarget}s as being executed before
+     * it checks the watermark).
+     *
+     * @throws OptimisticLockException when an {@link ExecutionTarget} which is being executed has been modified
+     */
+    public void checkExecutingNotModified()
+    {
+        Set<Long> executionTargetIds;
+        synchronized (executionCountByExecutableId) {
+            if (executionCountByExecutableId.isEmpty()) {
+                return;
+            }
+            executionTargetIds = new HashSet<Long>(executionCountByExecutableId.keySet());
+        }
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        PersistenceContext persistenceContext = session.getPersistenceContext();
+        EntityPersister persister = session.getFactory().getEntityPersister(ExecutionTarget.class.getName());
+        Map<Object, Object> versionByExecutionTarget = new IdentityHashMap<Object, Object>();
+        for (Long executionTargetId : executionTargetIds) {
+            Object executionTarget = persistenceContext.getEntity(
+                    session.generateEntityKey(executionTargetId, persister));
+            if (executionTarget != null) {
+                versionByExecutionTarget.put(executionTarget, persistenceContext.getEntry(executionTarget).getVersion());
+            }
+        }
+        if (versionByExecutionTarget.isEmpty()) {
+            return;
+        }
+
+        // Flushed update or delete changes the version or the status of the entry
+        entityManager.flush();
+        for (Map.Entry<Object, Object> entry : versionByExecutionTarget.entrySet()) {
+            Object executionTarget = entry.getKey();
+            EntityEntry entityEntry = persistenceContext.getEntry(executionTarget);
+            if (entityEntry == null || !Status.MANAGED.equals(entityEntry.getStatus())
+                    || !entry.getValue().equals(entityEntry.getVersion())) {
+                throw new OptimisticLockException(String.format("Execution target '%d' is being executed.",
+                        ((ExecutionTarget) executionTarget).getId()), null, executionTarget);
+            }
+        }
+    }
+
+    /**
+     * @param executable
+     * @return true whether given {@code executable} or any its child {@link Executable} is being executed,
+     *         false otherwise
+     */
+    private boolean isExecuting(Executable executable)
+    {
+        if (isExecuting(executable.getId())) {
+            return true;
+        }
+        for (Executable childExecutable : executable.getChildExecutables()) {
+            if (isExecuting(childExecutable)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * @param deviceResourceId
      * @param roomId
@@ -42,6 +42,12 @@ public abstract class ExecutionTarget extends PersistentObject implements Report
      */
     private DateTime slotEnd;
 
+    /**
+     * Version for optimistic locking (the {@link ExecutionTarget} can be modified concurrently by
+     * the {@link cz.cesnet.shongo.controller.scheduler.Scheduler} and the {@link ExecutionAction}s).
+     */
+    private int version;
+
     /**
      * Number of attempts which were performed by {@link ExecutionAction}
      */
@@ -129,6 +135,24 @@ public abstract class ExecutionTarget extends PersistentObject implements Report
         this.slotEnd = slotEnd;
     }
 
+    /**
+     * @return {@link #version}
+     */
+    @Version
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @param version sets the {@link #version}
+     */
+    public void setVersion(int version)
+    {
+        this.version = version;
+    }
+
     /**
      * @return {@link #attemptCount}
      */
@@ -20,6 +20,7 @@ import cz.cesnet.shongo.hibernate.PersistentDateTime;
 import cz.cesnet.shongo.report.Report;
 import cz.cesnet.shongo.report.ReportableSimple;
 import cz.cesnet.shongo.util.ObjectHelper;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Index;
 import org.joda.time.DateTime;
 import org.joda.time.Period;
@@ -35,6 +36,7 @@ import java.util.Map;
  */
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
+@BatchSize(size = 50)
 public abstract class AbstractReservationRequest extends PersistentObject implements ReportableSimple
 {
     /**
@@ -18,6 +18,7 @@ import cz.cesnet.shongo.controller.scheduler.SchedulerReportSet;
 import cz.cesnet.shongo.hibernate.PersistentDateTime;
 import cz.cesnet.shongo.report.Report;
 import cz.cesnet.shongo.util.ObjectHelper;
+import org.hibernate.annotations.BatchSize;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.joda.time.Period;
@@ -191,6 +192,7 @@ public class ReservationRequest extends AbstractReservationRequest implements Re
      */
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @Access(AccessType.FIELD)
+    @BatchSize(size = 50)
     public List<SchedulerReport> getReports()
     {
         return Collections.unmodifiableList(reports);
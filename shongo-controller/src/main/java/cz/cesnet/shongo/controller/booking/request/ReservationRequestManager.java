@@ -14,7 +14,7 @@ import cz.cesnet.shongo.controller.booking.specification.Specification;
 import cz.cesnet.shongo.controller.booking.reservation.Reservation;
 import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
 import cz.cesnet.shongo.controller.scheduler.SchedulerReport;
-import cz.cesnet.shongo.controller.util.NativeQuery;
+import cz.cesnet.shongo.controller.util.SummaryRefreshQueue;
 import org.joda.time.Interval;
 
 import javax.persistence.EntityManager;
@@ -29,6 +29,12 @@ import java.util.*;
  */
 public class ReservationRequestManager extends AbstractManager
 {
+    /**
+     * Maximum number of {@link ReservationRequest}s which are fetched by single query
+     * (see {@link #fetchForAllocation}).
+     */
+    private static final int FETCH_BATCH_SIZE = 200;
+
     /**
      * Constructor.
      *
@@ -40,23 +46,16 @@ public class ReservationRequestManager extends AbstractManager
     }
 
     /**
-     * Updates table executable_summary, DO NOT USE directly, for more see {@link Specification#updateSpecificationSummary(EntityManager, boolean)}
+     * Updates table specification_summary, DO NOT USE directly, for more see {@link Specification#updateSpecificationSummary(EntityManager, boolean)}
+     * (the table is updated at the end of the active transaction by {@link SummaryRefreshQueue}).
      *
      * @param specification
      * @param deleteOnly
      */
     public void updateSpecificationSummary(Specification specification, boolean deleteOnly)
     {
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put("specification_id", specification.getId().toString());
-
-        String deleteQuery = NativeQuery.getNativeQuery(NativeQuery.SPECIFICATION_SUMMARY_DELETE, parameters);
-        entityManager.createNativeQuery(deleteQuery).executeUpdate();
-
-        if (!deleteOnly) {
-            String updateQuery = NativeQuery.getNativeQuery(NativeQuery.SPECIFICATION_SUMMARY_INSERT, parameters);
-            entityManager.createNativeQuery(updateQuery).executeUpdate();
-        }
+        SummaryRefreshQueue.enqueue(entityManager, SummaryRefreshQueue.Summary.SPECIFICATION,
+                specification.getId(), deleteOnly);
     }
 
     /**
@@ -386,6 +385,34 @@ public class ReservationRequestManager extends AbstractManager
         return reservationRequestList;
     }
 
+    /**
+     * @param interval
+     * @param reservationRequestSetIds identifiers of {@link ReservationRequestSet}s
+     * @return list of {@link ReservationRequestSet}s which are specified by given {@code reservationRequestSetIds}
+     *         and which aren't preprocessed in given interval
+     */
+    public List<ReservationRequestSet> listNotPreprocessedReservationRequestSets(Interval interval,
+            Set<Long> reservationRequestSetIds)
+    {
+        if (reservationRequestSetIds.isEmpty()) {
+            return new LinkedList<ReservationRequestSet>();
+        }
+        List<ReservationRequestSet> reservationRequestList = entityManager
+                .createQuery("SELECT reservationRequest FROM ReservationRequestSet reservationRequest"
+                        + " WHERE reservationRequest.state = :activeState"
+                        + " AND reservationRequest.id IN(:reservationRequestSetIds)"
+                        + " AND reservationRequest NOT IN ("
+                        + " SELECT state.reservationRequest FROM PreprocessedState state"
+                        + " WHERE state.start <= :from AND state.end >= :to)",
+                        ReservationRequestSet.class)
+                .setParameter("activeState", AbstractReservationRequest.State.ACTIVE)
+                .setParameter("reservationRequestSetIds", reservationRequestSetIds)
+                .setParameter("from", interval.getStart())
+                .setParameter("to", interval.getEnd())
+                .getResultList();
+        return reservationRequestList;
+    }
+
     /**
      * @param interval
      * @return list of {@link ReservationRequest}s in {@link ReservationRequest.AllocationState#COMPLETE} state and
@@ -409,6 +436,69 @@ public class ReservationRequestManager extends AbstractManager
         return reservationRequests;
     }
 
+    /**
+     * @param interval
+     * @param reservationRequestIds identifiers of {@link ReservationRequest}s or of their parent
+     *                              {@link AbstractReservationRequest}s
+     * @return list of {@link ReservationRequest}s which are specified by given {@code reservationRequestIds}
+     *         and which are ready for allocation in given {@code interval}
+     */
+    public List<ReservationRequest> listCompletedReservationRequests(Interval interval,
+            Set<Long> reservationRequestIds)
+    {
+        if (reservationRequestIds.isEmpty()) {
+            return new LinkedList<ReservationRequest>();
+        }
+        List<ReservationRequest> reservationRequests = entityManager.createQuery(
+                "SELECT reservationRequest FROM ReservationRequest reservationRequest"
+                        + " LEFT JOIN reservationRequest.parentAllocation parentAllocation"
+                        + " WHERE reservationRequest.state = :activeState"
+                        + " AND reservationRequest.allocationState = :allocationState"
+                        + " AND reservationRequest.slotStart < :end"
+                        + " AND reservationRequest.slotEnd > :start"
+                        + " AND (reservationRequest.id IN(:reservationRequestIds)"
+                        + "   OR parentAllocation.reservationRequest.id IN(:reservationRequestIds))",
+                ReservationRequest.class)
+                .setParameter("activeState", AbstractReservationRequest.State.ACTIVE)
+                .setParameter("allocationState", ReservationRequest.AllocationState.COMPLETE)
+                .setParameter("start", interval.getStart())
+                .setParameter("end", interval.getEnd())
+                .setParameter("reservationRequestIds", reservationRequestIds)
+                .getResultList();
+        return reservationRequests;
+    }
+
+    /**
+     * Fetch allocations (with allocated reservations), parent allocations, reused allocations and specifications
+     * of given {@code reservationRequests} to the persistence context by batched JOIN FETCH queries (so they are
+     * not lazily loaded one by one for each {@link ReservationRequest} during allocation).
+     *
+     * @param reservationRequests to be fetched
+     */
+    public void fetchForAllocation(Collection<ReservationRequest> reservationRequests)
+    {
+        List<Long> reservationRequestIds = new ArrayList<Long>();
+        for (ReservationRequest reservationRequest : reservationRequests) {
+            reservationRequestIds.add(reservationRequest.getId());
+        }
+        for (int index = 0; index < reservationRequestIds.size(); index += FETCH_BATCH_SIZE) {
+            List<Long> batchIds = reservationRequestIds.subList(
+                    index, Math.min(index + FETCH_BATCH_SIZE, reservationRequestIds.size()));
+            entityManager.createQuery(
+                    "SELECT DISTINCT reservationRequest FROM ReservationRequest reservationRequest"
+                            + " JOIN FETCH reservationRequest.allocation allocation"
+                            + " LEFT JOIN FETCH allocation.reservations"
+                            + " JOIN FETCH reservationRequest.specification"
+                            + " LEFT JOIN FETCH reservationRequest.parentAllocation parentAllocation"
+                            + " LEFT JOIN FETCH parentAllocation.reservationRequest"
+                            + " LEFT JOIN FETCH reservationRequest.reusedAllocation"
+                            + " WHERE reservationRequest.id IN(:reservationRequestIds)",
+                    ReservationRequest.class)
+                    .setParameter("reservationRequestIds", batchIds)
+                    .getResultList();
+        }
+    }
+
     /**
      * @param reservationRequest
      * @return list of {@link AbstractReservationRequest}s which reuse given {@code reservationRequest}
@@ -602,7 +692,7 @@ public class ReservationRequestManager extends AbstractManager
      * @param parentReservationRequest for which the child {@link ReservationRequest}s should be returned
      * @param interval                 in which the {@link ReservationRequest}s must take place
      * @return list of child {@link ReservationRequest}s for a given {@link AbstractReservationRequest} taking place in
-     *         given {@code interval}
+     *         given {@code interval} (sorted by slot start)
      */
     public List<ReservationRequest> listChildReservationRequests(AbstractReservationRequest parentReservationRequest,
             Interval interval)
@@ -611,7 +701,8 @@ public class ReservationRequestManager extends AbstractManager
                 "SELECT reservationRequest FROM ReservationRequest reservationRequest"
                         + " WHERE reservationRequest.parentAllocation = :allocation"
                         + "   AND reservationRequest.slotStart < :end"
-                        + "   AND reservationRequest.slotEnd > :start",
+                        + "   AND reservationRequest.slotEnd > :start"
+                        + " ORDER BY reservationRequest.slotStart, reservationRequest.id",
                 ReservationRequest.class)
                 .setParameter("allocation", parentReservationRequest.getAllocation())
                 .setParameter("start", interval.getStart())
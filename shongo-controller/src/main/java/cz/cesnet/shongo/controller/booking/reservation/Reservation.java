@@ -15,6 +15,7 @@ import cz.cesnet.shongo.controller.booking.room.RoomReservation;
 import cz.cesnet.shongo.controller.booking.value.ValueReservation;
 import cz.cesnet.shongo.hibernate.PersistentDateTime;
 import cz.cesnet.shongo.report.ReportableSimple;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Index;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
@@ -29,6 +30,7 @@ import java.util.*;
  */
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
+@BatchSize(size = 50)
 public class Reservation extends PersistentObject implements ReportableSimple
 {
     /**
@@ -299,6 +301,7 @@ public class Reservation extends PersistentObject implements ReportableSimple
      */
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "parentReservation")
     @Access(AccessType.FIELD)
+    @BatchSize(size = 50)
     public List<Reservation> getChildReservations()
     {
         return childReservations;
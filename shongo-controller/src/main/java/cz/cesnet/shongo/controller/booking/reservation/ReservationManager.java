@@ -210,6 +210,23 @@ public class ReservationManager extends AbstractManager
         return reservations;
     }
 
+    /**
+     * @param interval        which the requested {@link Reservation}s should overlap
+     * @param reservationType type of requested {@link Reservation}s
+     * @return list of {@link Reservation}s which overlap given {@code interval}
+     */
+    public <R extends Reservation> List<R> listByOverlappingInterval(Interval interval, Class<R> reservationType)
+    {
+        List<R> reservations = entityManager.createQuery(
+                "SELECT reservation FROM " + reservationType.getSimpleName() + " reservation"
+                        + " WHERE reservation.slotStart < :end AND reservation.slotEnd > :start",
+                reservationType)
+                .setParameter("start", interval.getStart())
+                .setParameter("end", interval.getEnd())
+                .getResultList();
+        return reservations;
+    }
+
     /**
      * Get list of {@link ExistingReservation} which reuse the given {@code reusedReservation}
      * in given {@code interval}.
@@ -460,6 +477,28 @@ public class ReservationManager extends AbstractManager
         return typedQuery.getResultList();
     }
 
+    /**
+     * @param foreignReservationRequestId identifier of reservation request in foreign domain
+     * @return identifiers of local {@link ReservationRequest}s whose {@link AbstractForeignReservation}s are allocated
+     * by given {@code foreignReservationRequestId}
+     */
+    public Set<Long> getReservationRequestIdsByForeignReservationRequestId(String foreignReservationRequestId)
+    {
+        Set<Long> reservationRequestIds = new HashSet<Long>();
+        reservationRequestIds.addAll(entityManager.createQuery(
+                "SELECT reservation.allocation.reservationRequest.id FROM AbstractForeignReservation reservation"
+                        + " WHERE reservation.foreignReservationRequestId = :foreignReservationRequestId", Long.class)
+                .setParameter("foreignReservationRequestId", foreignReservationRequestId)
+                .getResultList());
+        reservationRequestIds.addAll(entityManager.createQuery(
+                "SELECT reservation.allocation.reservationRequest.id FROM ForeignRoomReservation reservation"
+                        + " JOIN reservation.foreignReservationRequestsIds foreignReservationRequestsId"
+                        + " WHERE foreignReservationRequestsId = :foreignReservationRequestId", Long.class)
+                .setParameter("foreignReservationRequestId", foreignReservationRequestId)
+                .getResultList());
+        return reservationRequestIds;
+    }
+
     /**
      * @param allocation to be checked if it is reused by any {@link ReservationRequest}
      * @return true if given {@code allocation} is reused by any {@link ReservationRequest},
@@ -17,6 +17,8 @@ import cz.cesnet.shongo.controller.booking.alias.AliasProviderCapability;
 import cz.cesnet.shongo.controller.booking.datetime.DateTimeSpecification;
 import cz.cesnet.shongo.controller.settings.UserSettingsManager;
 import cz.cesnet.shongo.report.ReportableComplex;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.joda.time.DateTime;
 
 import javax.persistence.*;
@@ -28,6 +30,7 @@ import java.util.*;
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Inheritance(strategy = InheritanceType.JOINED)
 public class Resource extends PersistentObject implements ReportableComplex
 {
@@ -222,6 +225,7 @@ public class Resource extends PersistentObject implements ReportableComplex
      */
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "resource", orphanRemoval = true)
     @Access(AccessType.FIELD)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     public List<Capability> getCapabilities()
     {
         return Collections.unmodifiableList(capabilities);
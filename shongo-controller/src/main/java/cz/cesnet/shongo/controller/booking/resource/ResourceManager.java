@@ -18,6 +18,7 @@ import cz.cesnet.shongo.controller.booking.value.provider.FilteredValueProvider;
 import cz.cesnet.shongo.controller.booking.value.provider.ValueProvider;
 import cz.cesnet.shongo.controller.scheduler.SchedulerReport;
 import org.apache.commons.lang.RandomStringUtils;
+import org.hibernate.ejb.QueryHints;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 
@@ -26,6 +27,7 @@ import javax.persistence.NoResultException;
 import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -242,6 +244,7 @@ public class ResourceManager extends AbstractManager
     {
         TypedQuery<Resource> query = entityManager.createQuery("SELECT resource FROM Resource resource",
                 Resource.class);
+        query.setHint(QueryHints.HINT_CACHEABLE, true);
         return query.getResultList();
     }
 
@@ -252,16 +255,12 @@ public class ResourceManager extends AbstractManager
      */
     public Resource get(Long resourceId) throws CommonReportSet.ObjectNotExistsException
     {
-        try {
-            Resource resource = entityManager.createQuery(
-                    "SELECT resource FROM Resource resource WHERE resource.id = :id",
-                    Resource.class).setParameter("id", resourceId)
-                    .getSingleResult();
-            return resource;
-        }
-        catch (NoResultException exception) {
+        // Find by identifier is resolved from the second-level cache when the resource is cached
+        Resource resource = entityManager.find(Resource.class, resourceId);
+        if (resource == null) {
             return ControllerReportSetHelper.throwObjectNotExistFault(Resource.class, resourceId);
         }
+        return resource;
     }
 
     /**
@@ -275,6 +274,7 @@ public class ResourceManager extends AbstractManager
             DeviceResource deviceResource = entityManager.createQuery(
                     "SELECT device FROM DeviceResource device WHERE device.id = :id",
                     DeviceResource.class).setParameter("id", deviceResourceId)
+                    .setHint(QueryHints.HINT_CACHEABLE, true)
                     .getSingleResult();
             return deviceResource;
         }
@@ -297,6 +297,7 @@ public class ResourceManager extends AbstractManager
                 + "  GROUP BY resource.id"
                 + " )", Resource.class)
                 .setParameter("capability", capabilityType)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
                 .getResultList();
         return resources;
     }
@@ -309,6 +310,7 @@ public class ResourceManager extends AbstractManager
         List<DeviceResource> resourceList = entityManager
                 .createQuery("SELECT device FROM DeviceResource device WHERE device.mode.class = ManagedMode",
                         DeviceResource.class)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
                 .getResultList();
         return resourceList;
     }
@@ -325,6 +327,7 @@ public class ResourceManager extends AbstractManager
                     "SELECT device FROM DeviceResource device " +
                             "WHERE device.mode.class = ManagedMode AND device.mode.connectorAgentName = :name",
                     DeviceResource.class).setParameter("name", agentName)
+                    .setHint(QueryHints.HINT_CACHEABLE, true)
                     .getSingleResult();
             return deviceResource;
         }
@@ -341,6 +344,7 @@ public class ResourceManager extends AbstractManager
     {
         List<T> capabilities = entityManager.createQuery("SELECT capability"
                 + " FROM " + capabilityType.getSimpleName() + " capability", capabilityType)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
                 .getResultList();
         return capabilities;
     }
@@ -352,6 +356,7 @@ public class ResourceManager extends AbstractManager
     {
         List<ValueProvider> valueProviders = entityManager.createQuery("SELECT valueProvider"
                 + " FROM ValueProvider valueProvider", ValueProvider.class)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
                 .getResultList();
         return valueProviders;
     }
@@ -404,6 +409,34 @@ public class ResourceManager extends AbstractManager
         return typedQuery.getResultList();
     }
 
+    /**
+     * @param valueProviderId
+     * @param interval
+     * @param excludedReservationIds identifiers of {@link ValueReservation}s which should be ignored
+     * @return list of distinct values of {@link ValueReservation}s for value provider with given
+     *         {@code valueProviderId} which intersects given {@code interval} (only the values are selected
+     *         so that no reservation entities nor their slots need to be loaded)
+     */
+    public List<String> listValuesInInterval(Long valueProviderId, Interval interval,
+            Collection<Long> excludedReservationIds)
+    {
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("SELECT DISTINCT reservation.value FROM ValueReservation reservation");
+        queryBuilder.append(" WHERE reservation.valueProvider.id = :id");
+        queryBuilder.append(" AND NOT(reservation.slotStart >= :end OR reservation.slotEnd <= :start)");
+        if (!excludedReservationIds.isEmpty()) {
+            queryBuilder.append(" AND reservation.id NOT IN(:excludedReservationIds)");
+        }
+        TypedQuery<String> query = entityManager.createQuery(queryBuilder.toString(), String.class)
+                .setParameter("id", valueProviderId)
+                .setParameter("start", interval.getStart())
+                .setParameter("end", interval.getEnd());
+        if (!excludedReservationIds.isEmpty()) {
+            query.setParameter("excludedReservationIds", excludedReservationIds);
+        }
+        return query.getResultList();
+    }
+
     /**
      * @param roomProviderCapabilityId
      * @param interval
@@ -453,6 +486,7 @@ public class ResourceManager extends AbstractManager
         query.select(tagRoot);
 
         TypedQuery<Tag> typedQuery = entityManager.createQuery(query);
+        typedQuery.setHint(QueryHints.HINT_CACHEABLE, true);
 
         return typedQuery.getResultList();
     }
@@ -590,6 +624,7 @@ public class ResourceManager extends AbstractManager
         query.select(tagRoot).where(param1);
 
         TypedQuery<Tag> typedQuery = entityManager.createQuery(query);
+        typedQuery.setHint(QueryHints.HINT_CACHEABLE, true);
 
         return typedQuery.getSingleResult();
     }
@@ -734,6 +769,7 @@ public class ResourceManager extends AbstractManager
             query.where(param1);
 
             TypedQuery<Domain> typedQuery = entityManager.createQuery(query);
+            typedQuery.setHint(QueryHints.HINT_CACHEABLE, true);
 
             return typedQuery.getSingleResult();
         }
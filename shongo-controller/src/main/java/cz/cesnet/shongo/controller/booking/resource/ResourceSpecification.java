@@ -11,6 +11,7 @@ import cz.cesnet.shongo.controller.booking.request.ReservationRequest;
 import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
 import cz.cesnet.shongo.controller.booking.specification.Specification;
 import cz.cesnet.shongo.controller.booking.reservation.Reservation;
+import cz.cesnet.shongo.controller.domains.CachedDomainsConnector;
 import cz.cesnet.shongo.controller.domains.InterDomainAgent;
 import cz.cesnet.shongo.controller.scheduler.*;
 import cz.cesnet.shongo.util.ObjectHelper;
@@ -19,6 +20,7 @@ import org.joda.time.Interval;
 import javax.persistence.Entity;
 import javax.persistence.EntityManager;
 import javax.persistence.OneToOne;
+import java.util.Collections;
 
 
 /**
@@ -186,8 +188,13 @@ public class ResourceSpecification extends Specification implements ReservationT
                         cz.cesnet.shongo.controller.api.Domain domain = foreignResourceReservation.getDomain().toApi();
                         String requestId = foreignResourceReservation.getForeignReservationRequestId();
 
+                        CachedDomainsConnector connector = InterDomainAgent.getInstance().getConnector();
+                        // Skip when foreign domain has not pushed new state and it is not time to poll the state
+                        if (!connector.isReservationStateChanged(Collections.singleton(requestId))) {
+                            return foreignResourceReservation;
+                        }
                         try {
-                            foreignReservation = InterDomainAgent.getInstance().getConnector().getReservationByRequest(domain, requestId);
+                            foreignReservation = connector.getPendingReservationByRequest(domain, requestId);
                         }
                         catch (ForeignDomainConnectException e) {
                             //TODO process foreign exception
@@ -419,13 +419,17 @@ public class ResourceRoomEndpoint extends RoomEndpoint
         // Update user permissions to recording folders
         if (recordingFolderIds.size() > 0) {
             Map<String, RecordingFolder.UserPermission> userPermissions = getRecordingFolderUserPermissions();
+            ControllerAgent controllerAgent = executor.getControllerAgent();
+            List<SendLocalCommand> sendLocalCommands = new ArrayList<SendLocalCommand>();
             for (Map.Entry<RecordingCapability, String> entry : recordingFolderIds.entrySet()) {
                 DeviceResource deviceResource = entry.getKey().getDeviceResource();
                 ManagedMode managedMode = deviceResource.requireManaged();
                 String agentName = managedMode.getConnectorAgentName();
-                ControllerAgent controllerAgent = executor.getControllerAgent();
-                SendLocalCommand sendLocalCommand = controllerAgent.sendCommand(agentName,
-                        new ModifyRecordingFolder(entry.getValue(), userPermissions));
+                sendLocalCommands.add(controllerAgent.sendCommandAsync(agentName,
+                        new ModifyRecordingFolder(entry.getValue(), userPermissions)));
+            }
+            for (SendLocalCommand sendLocalCommand : sendLocalCommands) {
+                sendLocalCommand.waitForProcessed(null);
                 if (sendLocalCommand.isFailed()) {
                     executableManager.createExecutionReport(this, sendLocalCommand);
                     return Boolean.FALSE;
@@ -482,17 +486,21 @@ public class ResourceRoomEndpoint extends RoomEndpoint
     protected State onFinalize(Executor executor, ExecutableManager executableManager)
     {
         State state = State.FINALIZED;
-        Iterator<Map.Entry<RecordingCapability, String>> iterator = recordingFolderIds.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<RecordingCapability, String> entry = iterator.next();
+        ControllerAgent controllerAgent = executor.getControllerAgent();
+        Map<RecordingCapability, SendLocalCommand> sendLocalCommands =
+                new LinkedHashMap<RecordingCapability, SendLocalCommand>();
+        for (Map.Entry<RecordingCapability, String> entry : recordingFolderIds.entrySet()) {
             DeviceResource deviceResource = entry.getKey().getDeviceResource();
             ManagedMode managedMode = deviceResource.requireManaged();
             String agentName = managedMode.getConnectorAgentName();
-            ControllerAgent controllerAgent = executor.getControllerAgent();
-            SendLocalCommand sendLocalCommand = controllerAgent.sendCommand(agentName,
-                    new DeleteRecordingFolder(entry.getValue()));
+            sendLocalCommands.put(entry.getKey(), controllerAgent.sendCommandAsync(agentName,
+                    new DeleteRecordingFolder(entry.getValue())));
+        }
+        for (Map.Entry<RecordingCapability, SendLocalCommand> entry : sendLocalCommands.entrySet()) {
+            SendLocalCommand sendLocalCommand = entry.getValue();
+            sendLocalCommand.waitForProcessed(null);
             if (sendLocalCommand.isSuccessful()) {
-                iterator.remove();
+                recordingFolderIds.remove(entry.getKey());
             }
             else {
                 executableManager.createExecutionReport(this, sendLocalCommand);
@@ -24,6 +24,7 @@ import cz.cesnet.shongo.controller.executor.ExecutionReportSet;
 import cz.cesnet.shongo.controller.executor.Executor;
 import cz.cesnet.shongo.controller.notification.NotificationState;
 import cz.cesnet.shongo.controller.notification.RoomAvailableNotification;
+import cz.cesnet.shongo.controller.util.SummaryRefreshQueue;
 import cz.cesnet.shongo.report.Report;
 import cz.cesnet.shongo.report.ReportException;
 import org.eclipse.jetty.server.UserIdentity;
@@ -535,6 +536,7 @@ public abstract class RoomEndpoint extends Endpoint
 
         // Determine whether room has recording service and recordings
         // (use executable_summary for used_room_endpoints to be taken into account)
+        SummaryRefreshQueue.flush(entityManager);
         Object[] result = (Object[]) entityManager.createNativeQuery(
                 "SELECT room_has_recording_service, room_has_recordings FROM executable_summary WHERE id = :id")
                 .setParameter("id", getId())
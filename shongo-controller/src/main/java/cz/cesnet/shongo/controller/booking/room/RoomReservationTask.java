@@ -42,6 +42,7 @@ import cz.cesnet.shongo.controller.booking.room.settting.RoomSetting;
 import cz.cesnet.shongo.controller.booking.specification.ExecutableServiceSpecification;
 import cz.cesnet.shongo.controller.cache.Cache;
 import cz.cesnet.shongo.controller.cache.ResourceCache;
+import cz.cesnet.shongo.controller.domains.CachedDomainsConnector;
 import cz.cesnet.shongo.controller.domains.InterDomainAgent;
 import cz.cesnet.shongo.controller.notification.NotificationState;
 import cz.cesnet.shongo.controller.notification.RoomNotification;
@@ -552,8 +553,14 @@ public class RoomReservationTask extends ReservationTask
         if (!Controller.isInterDomainInitialized()) {
             throw new IllegalStateException("Inter domain controller must be running for foreign allocations.");
         }
+        CachedDomainsConnector connector = InterDomainAgent.getInstance().getConnector();
+        // Skip when no foreign domain has pushed new state and it is not time to poll the states
+        if (!connector.isReservationStateChanged(currentReservation.getForeignReservationRequestsIds())) {
+            schedulerContext.setRequestWantedState(ReservationRequest.AllocationState.COMPLETE);
+            return currentReservation;
+        }
         List<cz.cesnet.shongo.controller.api.domains.response.Reservation> result;
-        result = InterDomainAgent.getInstance().getConnector().getReservationsByRequests(currentReservation.getForeignReservationRequestsIds());
+        result = connector.getReservationsByRequests(currentReservation.getForeignReservationRequestsIds());
         SortedSet<cz.cesnet.shongo.controller.api.domains.response.Reservation> reservations;
         reservations = new TreeSet<>(result);
         // Test if all any request is still pending (if request is processed it must be failed or success with reservation)
@@ -15,6 +15,7 @@ import cz.cesnet.shongo.controller.booking.resource.ResourceSpecification;
 import cz.cesnet.shongo.controller.booking.room.RoomSpecification;
 import cz.cesnet.shongo.controller.booking.value.ValueSpecification;
 import cz.cesnet.shongo.report.ReportableSimple;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
 import java.util.*;
@@ -29,6 +30,7 @@ import java.util.*;
  */
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
+@BatchSize(size = 50)
 public abstract class Specification extends SimplePersistentObject implements ReportableSimple
 {
     /**
@@ -110,15 +112,17 @@ public abstract class Specification extends SimplePersistentObject implements Re
      * This table is initialized based on view specification_summary_view. For more see init.sql.
      *
      * IMPORTANT: it is necessary to call this method EVERY time change of any entity {@link Specification} is made!!!
-     * Otherwise list of reservation requests will be inconsistent.
+     * Otherwise list of reservation requests will be inconsistent. The table is updated at the end of the active
+     * transaction (see {@link cz.cesnet.shongo.controller.util.SummaryRefreshQueue}).
      *
      * @param entityManager
      * @param deleteOnly
-     * @param flush
+     * @param flush         specifies whether the {@code entityManager} can be flushed when this specification
+     *                      has not been assigned identifier yet
      */
     public void updateSpecificationSummary(EntityManager entityManager, boolean deleteOnly, boolean flush)
     {
-        if (flush) {
+        if (flush && getId() == null) {
             entityManager.flush();
         }
         ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
@@ -75,7 +75,8 @@ public class ValueReservationTask extends ReservationTask
         }
 
         // Already used values for targetValueProvider in the interval
-        Map<String, Interval> usedValues = getUsedValues(targetValueProvider, slot);
+        Set<Long> availableReservationIds = getAvailableReservationIds(targetValueProvider, slot);
+        Set<String> usedValues = getUsedValues(targetValueProvider, slot, availableReservationIds);
 
         // Get available value reservations
         List<AvailableReservation<ValueReservation>> availableReservations =
@@ -128,10 +129,10 @@ public class ValueReservationTask extends ReservationTask
             }
             // Generate new value
             if (requestedValue != null) {
-                value = valueProvider.generateValue(usedValues.keySet(), requestedValue);
+                value = valueProvider.generateValue(usedValues, requestedValue);
             }
             else {
-                value = valueProvider.generateValue(usedValues.keySet());
+                value = valueProvider.generateValue(usedValues);
             }
             valueReservation.setSlot(slot);
             valueReservation.setValueProvider(targetValueProvider);
@@ -142,11 +143,16 @@ public class ValueReservationTask extends ReservationTask
             throw new SchedulerReportSet.ValueInvalidException(requestedValue);
         }
         catch (ValueProvider.ValueAlreadyAllocatedException exception) {
-            throw new SchedulerReportSet.ValueAlreadyAllocatedException(requestedValue, usedValues.get(requestedValue));
+            Map<String, Interval> usedValueSlots =
+                    getUsedValueSlots(targetValueProvider, slot, availableReservationIds);
+            throw new SchedulerReportSet.ValueAlreadyAllocatedException(requestedValue,
+                    usedValueSlots.get(requestedValue));
         }
         catch (ValueProvider.NoAvailableValueException exception) {
+            Map<String, Interval> usedValueSlots =
+                    getUsedValueSlots(targetValueProvider, slot, availableReservationIds);
             Interval overlapInterval = slot;
-            for (Interval interval : usedValues.values()) {
+            for (Interval interval : usedValueSlots.values()) {
                 Interval newOverlapInterval = overlapInterval.overlap(interval);
                 if (newOverlapInterval != null) {
                     overlapInterval = newOverlapInterval;
@@ -157,32 +163,67 @@ public class ValueReservationTask extends ReservationTask
     }
 
     /**
-     * @param valueProvider for which the used values should be returned
+     * @param valueProvider for which the available reservations should be returned
      * @param interval      for which interval
+     * @return identifiers of {@link ValueReservation}s for given {@code valueProvider} in given {@code interval}
+     *         which are available in the current transaction (and thus their values aren't used)
+     */
+    private Set<Long> getAvailableReservationIds(ValueProvider valueProvider, Interval interval)
+    {
+        Set<Long> availableReservationIds = new HashSet<>();
+        for (AvailableReservation<ValueReservation> availableReservation :
+                schedulerContextState.getAvailableValueReservations(valueProvider, interval)) {
+            availableReservationIds.add(availableReservation.getTargetReservation().getId());
+        }
+        return availableReservationIds;
+    }
+
+    /**
+     * Only distinct values are queried so that the reservations needn't be loaded for each allocation.
+     *
+     * @param valueProvider           for which the used values should be returned
+     * @param interval                for which interval
+     * @param availableReservationIds see {@link #getAvailableReservationIds}
      * @return set of used values for given {@code valueProvider} in given {@code interval}
      */
-    private Map<String, Interval> getUsedValues(ValueProvider valueProvider, Interval interval)
+    private Set<String> getUsedValues(ValueProvider valueProvider, Interval interval,
+            Set<Long> availableReservationIds)
     {
         ResourceManager resourceManager = new ResourceManager(schedulerContext.getEntityManager());
-        Long valueProviderId = valueProvider.getId();
-        List<Tuple> allocatedValues =
-                resourceManager.listValueReservationsInInterval(valueProviderId, interval);
+        Set<String> usedValues = new HashSet<>(
+                resourceManager.listValuesInInterval(valueProvider.getId(), interval, availableReservationIds));
+        for (ValueReservation reservation :
+                schedulerContextState.getAllocatedValueReservations(valueProvider, interval)) {
+            usedValues.add(reservation.getValue());
+        }
+        return usedValues;
+    }
 
-        Map<Long, Map.Entry<String, Interval>> usedReservations = new HashMap<>();
-        for (Tuple allocatedValue : allocatedValues) {
+    /**
+     * Slots of used values are needed only for reporting of failed allocation.
+     *
+     * @param valueProvider           for which the used values should be returned
+     * @param interval                for which interval
+     * @param availableReservationIds see {@link #getAvailableReservationIds}
+     * @return map of used values with their slots for given {@code valueProvider} in given {@code interval}
+     */
+    private Map<String, Interval> getUsedValueSlots(ValueProvider valueProvider, Interval interval,
+            Set<Long> availableReservationIds)
+    {
+        ResourceManager resourceManager = new ResourceManager(schedulerContext.getEntityManager());
+        Map<String, Interval> usedValueSlots = new HashMap<>();
+        for (Tuple allocatedValue : resourceManager.listValueReservationsInInterval(valueProvider.getId(), interval)) {
+            if (availableReservationIds.contains((Long) allocatedValue.get(0))) {
+                continue;
+            }
             DateTime slotStart = (DateTime) allocatedValue.get(2);
             DateTime slotEnd = (DateTime) allocatedValue.get(3);
-            Map.Entry<String, Interval> value = new AbstractMap.SimpleEntry<>((String) allocatedValue.get(1), new Interval(slotStart, slotEnd));
-            usedReservations.put((Long) allocatedValue.get(0), value);
+            usedValueSlots.put((String) allocatedValue.get(1), new Interval(slotStart, slotEnd));
         }
-
-        schedulerContextState.applyValueReservations(valueProviderId, slot, usedReservations);
-
-        Map<String, Interval> usedValues = new HashMap<>();
-        for (Map.Entry<String, Interval> reservation : usedReservations.values()) {
-            usedValues.put(reservation.getKey(), reservation.getValue());
+        for (ValueReservation reservation :
+                schedulerContextState.getAllocatedValueReservations(valueProvider, interval)) {
+            usedValueSlots.put(reservation.getValue(), reservation.getSlot());
         }
-
-        return usedValues;
+        return usedValueSlots;
     }
 }
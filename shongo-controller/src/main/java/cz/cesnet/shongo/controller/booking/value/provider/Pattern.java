@@ -38,6 +38,16 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
      */
     private int generatedCount = 0;
 
+    /**
+     * Number of ordinals for numeric pattern, {@code 0} for not numeric pattern, {@code null} when not determined yet.
+     */
+    private Long ordinalCount;
+
+    /**
+     * Ordinal of the first generated value for numeric pattern.
+     */
+    private long firstOrdinal;
+
     /**
      * Parse pattern from string.
      *
@@ -125,6 +135,149 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
         return builder.toString();
     }
 
+    /**
+     * @return true whether values of this {@link Pattern} can be addressed by ordinals (see {@link #getOrdinal}),
+     *         false otherwise
+     */
+    public boolean isNumeric()
+    {
+        if (ordinalCount == null) {
+            // Pattern is numeric when it consists only of digit components or of single number range component
+            // (other combinations are generated by {@link #generate()} in different order)
+            int digitCount = 0;
+            int numberRangeCount = 0;
+            long ordinalCount = 1;
+            for (PatternComponent patternComponent : this) {
+                if (patternComponent instanceof DigitPatternComponent) {
+                    digitCount++;
+                }
+                else if (patternComponent instanceof NumberRangePatternComponent) {
+                    numberRangeCount++;
+                }
+                else if (!(patternComponent instanceof ConstantPatternComponent)) {
+                    ordinalCount = 0;
+                    break;
+                }
+                if (patternComponent instanceof NumericPatternComponent) {
+                    long valueCount = ((NumericPatternComponent) patternComponent).getValueCount();
+                    if (ordinalCount > Long.MAX_VALUE / valueCount) {
+                        ordinalCount = 0;
+                        break;
+                    }
+                    ordinalCount *= valueCount;
+                }
+            }
+            if (!((digitCount > 0 && numberRangeCount == 0) || (digitCount == 0 && numberRangeCount == 1))) {
+                ordinalCount = 0;
+            }
+            this.ordinalCount = ordinalCount;
+            // All-zero digits are never generated (the first generated value already has the last digit incremented)
+            this.firstOrdinal = (digitCount > 0 ? 1 : 0);
+        }
+        return ordinalCount > 0;
+    }
+
+    /**
+     * @return ordinal of the first value which is generated by {@link #generate()}
+     */
+    public long getFirstOrdinal()
+    {
+        if (!isNumeric()) {
+            throw new IllegalStateException("Pattern isn't numeric.");
+        }
+        return firstOrdinal;
+    }
+
+    /**
+     * @return number of ordinals (ordinals are from {@code 0} to {@code getOrdinalCount() - 1})
+     */
+    public long getOrdinalCount()
+    {
+        if (!isNumeric()) {
+            throw new IllegalStateException("Pattern isn't numeric.");
+        }
+        return ordinalCount;
+    }
+
+    /**
+     * @param value to be parsed
+     * @return ordinal of given {@code value} in this numeric {@link Pattern},
+     *         or {@code -1} when the {@code value} cannot be generated by this {@link Pattern}
+     */
+    public long getOrdinal(String value)
+    {
+        if (!isNumeric()) {
+            throw new IllegalStateException("Pattern isn't numeric.");
+        }
+        return getOrdinal(value, 0, 0, 0);
+    }
+
+    /**
+     * @param value          to be parsed
+     * @param position       in the {@code value} from which the {@code componentIndex} should be parsed
+     * @param componentIndex index of component to be parsed
+     * @param ordinal        ordinal of already parsed components
+     * @return ordinal of given {@code value}, or {@code -1} when the {@code value} cannot be parsed
+     */
+    private long getOrdinal(String value, int position, int componentIndex, long ordinal)
+    {
+        if (componentIndex == size()) {
+            return (position == value.length() ? ordinal : -1);
+        }
+        PatternComponent patternComponent = get(componentIndex);
+        if (patternComponent instanceof NumericPatternComponent) {
+            NumericPatternComponent numericPatternComponent = (NumericPatternComponent) patternComponent;
+            int maximumLength = Math.min(numericPatternComponent.getMaximumLength(), value.length() - position);
+            for (int length = numericPatternComponent.getMinimumLength(); length <= maximumLength; length++) {
+                long componentOrdinal = numericPatternComponent.getOrdinal(value.substring(position, position + length));
+                if (componentOrdinal >= 0) {
+                    long result = getOrdinal(value, position + length, componentIndex + 1,
+                            ordinal * numericPatternComponent.getValueCount() + componentOrdinal);
+                    if (result >= 0) {
+                        return result;
+                    }
+                }
+            }
+            return -1;
+        }
+        else {
+            String constant = patternComponent.getConstant();
+            if (!value.startsWith(constant, position)) {
+                return -1;
+            }
+            return getOrdinal(value, position + constant.length(), componentIndex + 1, ordinal);
+        }
+    }
+
+    /**
+     * @param ordinal of value to be generated
+     * @return value for given {@code ordinal} in this numeric {@link Pattern}
+     */
+    public String generate(long ordinal)
+    {
+        if (ordinal < 0 || ordinal >= getOrdinalCount()) {
+            throw new IllegalArgumentException("Ordinal " + ordinal + " is out of range.");
+        }
+        String[] values = new String[size()];
+        for (int index = size() - 1; index >= 0; index--) {
+            PatternComponent patternComponent = get(index);
+            if (patternComponent instanceof NumericPatternComponent) {
+                NumericPatternComponent numericPatternComponent = (NumericPatternComponent) patternComponent;
+                long valueCount = numericPatternComponent.getValueCount();
+                values[index] = numericPatternComponent.getValue(ordinal % valueCount);
+                ordinal /= valueCount;
+            }
+            else {
+                values[index] = patternComponent.getConstant();
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String value : values) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
     /**
      * {@link Pattern} component.
      */
@@ -207,10 +360,43 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
         public boolean available();
     }
 
+    /**
+     * {@link GeneratedPatternComponent} which returns numbers whose values can be addressed by ordinals.
+     */
+    public static interface NumericPatternComponent extends GeneratedPatternComponent
+    {
+        /**
+         * @return number of values (ordinals are from {@code 0} to {@code getValueCount() - 1})
+         */
+        public long getValueCount();
+
+        /**
+         * @param ordinal of the value
+         * @return value for given {@code ordinal}
+         */
+        public String getValue(long ordinal);
+
+        /**
+         * @param value to be parsed
+         * @return ordinal of given {@code value} or {@code -1} when the {@code value} isn't generated by the component
+         */
+        public long getOrdinal(String value);
+
+        /**
+         * @return minimum length of generated values
+         */
+        public int getMinimumLength();
+
+        /**
+         * @return maximum length of generated values
+         */
+        public int getMaximumLength();
+    }
+
     /**
      * {@link PatternComponent} which returns increasing numbers of given length.
      */
-    public static class DigitPatternComponent implements GeneratedPatternComponent
+    public static class DigitPatternComponent implements NumericPatternComponent
     {
         /**
          * Maximum length.
@@ -275,6 +461,40 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
             return currentValue <= maxValue;
         }
 
+        @Override
+        public long getValueCount()
+        {
+            return (long) maxValue + 1;
+        }
+
+        @Override
+        public String getValue(long ordinal)
+        {
+            return String.format(format, ordinal);
+        }
+
+        @Override
+        public long getOrdinal(String value)
+        {
+            if (value.length() != length) {
+                return -1;
+            }
+            long ordinal = parseDigits(value);
+            return (ordinal <= maxValue ? ordinal : -1);
+        }
+
+        @Override
+        public int getMinimumLength()
+        {
+            return length;
+        }
+
+        @Override
+        public int getMaximumLength()
+        {
+            return length;
+        }
+
         @Override
         public String getRegexPattern()
         {
@@ -295,7 +515,7 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
     /**
      * {@link PatternComponent} which returns increasing numbers of given length.
      */
-    public static class NumberRangePatternComponent implements GeneratedPatternComponent
+    public static class NumberRangePatternComponent implements NumericPatternComponent
     {
         /**
          * Min value.
@@ -312,6 +532,11 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
          */
         private String format;
 
+        /**
+         * Minimum length of generated numbers.
+         */
+        private int minimumLength;
+
         /**
          * Regex pattern.
          */
@@ -336,6 +561,7 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
                 throw new IllegalArgumentException("Min value cannot be greater than max value.");
             }
             this.format = "%0" + Integer.valueOf(minValue.length()).toString() + "d";
+            this.minimumLength = minValue.length();
 
             StringBuilder regexPatternBuilder = new StringBuilder();
             regexPatternBuilder.append("\\d{");
@@ -375,6 +601,40 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
             return currentValue <= maxValue;
         }
 
+        @Override
+        public long getValueCount()
+        {
+            return (long) maxValue - minValue + 1;
+        }
+
+        @Override
+        public String getValue(long ordinal)
+        {
+            return String.format(format, minValue + ordinal);
+        }
+
+        @Override
+        public long getOrdinal(String value)
+        {
+            long number = parseDigits(value);
+            if (number < minValue || number > maxValue || !value.equals(String.format(format, number))) {
+                return -1;
+            }
+            return number - minValue;
+        }
+
+        @Override
+        public int getMinimumLength()
+        {
+            return minimumLength;
+        }
+
+        @Override
+        public int getMaximumLength()
+        {
+            return Math.max(minimumLength, Integer.toString(maxValue).length());
+        }
+
         @Override
         public String getRegexPattern()
         {
@@ -389,6 +649,27 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
         }
     }
 
+    /**
+     * @param value to be parsed
+     * @return number parsed from given {@code value} which must contain only digits, {@code -1} otherwise
+     *         (or when the number is too big)
+     */
+    private static long parseDigits(String value)
+    {
+        if (value.isEmpty()) {
+            return -1;
+        }
+        long number = 0;
+        for (int index = 0; index < value.length(); index++) {
+            char character = value.charAt(index);
+            if (character < '0' || character > '9' || number > (Long.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            number = number * 10 + (character - '0');
+        }
+        return number;
+    }
+
     /**
      * {@link PatternComponent} which returns alphanumeric string of given length
      */
@@ -4,6 +4,7 @@ import cz.cesnet.shongo.api.AbstractComplexType;
 import cz.cesnet.shongo.controller.api.Synchronization;
 import cz.cesnet.shongo.controller.booking.resource.Capability;
 import cz.cesnet.shongo.TodoImplementException;
+import cz.cesnet.shongo.util.SparseBitSet;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -209,10 +210,26 @@ public class PatternValueProvider extends ValueProvider
     {
         String value = null;
         for (Pattern pattern : getParsedPatterns()) {
-            pattern.reset();
-            do {
-                value = pattern.generate();
-            } while (value != null && usedValues.contains(value));
+            if (pattern.isNumeric()) {
+                // Find first free ordinal in bitmap of used values instead of generating all values one by one
+                SparseBitSet usedOrdinals = new SparseBitSet();
+                for (String usedValue : usedValues) {
+                    long usedOrdinal = pattern.getOrdinal(usedValue);
+                    if (usedOrdinal >= 0) {
+                        usedOrdinals.set(usedOrdinal);
+                    }
+                }
+                long ordinal = usedOrdinals.nextClearBit(pattern.getFirstOrdinal());
+                if (ordinal < pattern.getOrdinalCount()) {
+                    value = pattern.generate(ordinal);
+                }
+            }
+            else {
+                pattern.reset();
+                do {
+                    value = pattern.generate();
+                } while (value != null && usedValues.contains(value));
+            }
             if (value != null) {
                 break;
             }
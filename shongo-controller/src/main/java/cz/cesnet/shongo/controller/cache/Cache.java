@@ -158,6 +158,12 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
             finally {
                 entityManager.close();
             }
+
+            // Keep reservations of cached resources in memory
+            ReservationIndex reservationIndex = resourceCache.getReservationIndex();
+            if (reservationIndex.init(entityManagerFactory)) {
+                logger.debug("Reservation index activated.");
+            }
         }
     }
 
@@ -166,6 +172,8 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
     {
         logger.debug("Stopping cache...");
 
+        resourceCache.getReservationIndex().destroy();
+
         super.destroy();
     }
 
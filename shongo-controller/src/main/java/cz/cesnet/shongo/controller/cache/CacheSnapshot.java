@@ -0,0 +1,367 @@
+package cz.cesnet.shongo.controller.cache;
+
+import cz.cesnet.shongo.api.UserInformation;
+import cz.cesnet.shongo.controller.Component;
+import cz.cesnet.shongo.controller.ControllerConfiguration;
+import cz.cesnet.shongo.controller.authorization.Authorization;
+import cz.cesnet.shongo.controller.authorization.UserAuthorizationData;
+import cz.cesnet.shongo.controller.authorization.UserData;
+import cz.cesnet.shongo.util.Timer;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Component which stores a warm-start snapshot of the authorization cache to a file (periodically and when
+ * the controller is stopped) and loads it when the controller is started. The snapshot contains {@link UserData}s
+ * of recently active users, i.e., the user information which is otherwise fetched from the authentication server
+ * on first requests after restart.
+ * <p/>
+ * Restored {@link UserData}s are served immediately and refreshed in the background by batched requests.
+ * ACL states aren't stored, because they depend on user groups from the authentication server which can change
+ * at any time, and thus they are always built with freshly resolved groups.
+ * <p/>
+ * Only user data are warmed by the snapshot. Resources and capabilities aren't stored and {@link Cache#init}
+ * loads them from the database on every start (the second-level cache regions are kept only in memory and
+ * thus they are empty after restart).
+ */
+public class CacheSnapshot extends Component
+        implements Component.WithThread, Component.AuthorizationAware, Runnable
+{
+    private static Logger logger = LoggerFactory.getLogger(CacheSnapshot.class);
+
+    /**
+     * Identifies snapshot file.
+     */
+    private static final int MAGIC = 0x53484353;
+
+    /**
+     * Version of the snapshot format (it must be incremented whenever the format is changed, snapshots with
+     * other versions are ignored).
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    /**
+     * Number of users whose {@link UserData}s are refreshed by single request.
+     */
+    private static final int REFRESH_BATCH_SIZE = 100;
+
+    /**
+     * {@link Authorization} whose cache is stored.
+     */
+    private Authorization authorization;
+
+    /**
+     * @see ControllerConfiguration#CACHE_SNAPSHOT_FILE
+     */
+    private File file;
+
+    /**
+     * @see ControllerConfiguration#CACHE_SNAPSHOT_PERIOD
+     */
+    private Duration period;
+
+    /**
+     * @see ControllerConfiguration#CACHE_SNAPSHOT_MAX_AGE
+     */
+    private Duration maxAge;
+
+    /**
+     * User-ids with {@link UserData}s restored from the snapshot which should be refreshed.
+     */
+    private final Set<String> restoredUserDataUserIds = new HashSet<String>();
+
+    @Override
+    public void setAuthorization(Authorization authorization)
+    {
+        this.authorization = authorization;
+    }
+
+    @Override
+    public void init(ControllerConfiguration configuration)
+    {
+        checkDependency(authorization, Authorization.class);
+        super.init(configuration);
+
+        file = new File(configuration.getString(ControllerConfiguration.CACHE_SNAPSHOT_FILE));
+        period = configuration.getDuration(ControllerConfiguration.CACHE_SNAPSHOT_PERIOD);
+        maxAge = configuration.getDuration(ControllerConfiguration.CACHE_SNAPSHOT_MAX_AGE);
+
+        if (file.exists()) {
+            try {
+                load();
+            }
+            catch (Exception exception) {
+                logger.warn("Failed to load cache snapshot from " + file + ", it is ignored.", exception);
+            }
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        try {
+            store();
+        }
+        catch (Exception exception) {
+            logger.warn("Failed to store cache snapshot to " + file + ".", exception);
+        }
+        super.destroy();
+    }
+
+    @Override
+    public Thread getThread()
+    {
+        Thread thread = new Thread(this);
+        thread.setName("cache-snapshot");
+        return thread;
+    }
+
+    @Override
+    public void run()
+    {
+        logger.debug("Cache snapshot started!");
+
+        refreshRestored();
+
+        while (!Thread.interrupted()) {
+            try {
+                Thread.sleep(period.getMillis());
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                continue;
+            }
+            try {
+                store();
+            }
+            catch (Exception exception) {
+                logger.warn("Failed to store cache snapshot to " + file + ".", exception);
+            }
+        }
+
+        logger.debug("Cache snapshot stopped!");
+    }
+
+    /**
+     * @param file sets the {@link #file}
+     */
+    public void setFile(File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * @param maxAge sets the {@link #maxAge}
+     */
+    public void setMaxAge(Duration maxAge)
+    {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Store the snapshot to the {@link #file} (it is written to a temporary file which replaces the {@link #file}).
+     *
+     * @throws IOException
+     */
+    public synchronized void store() throws IOException
+    {
+        Timer timer = new Timer();
+        Collection<UserData> userDataList = authorization.listCachedUserData();
+
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(temporaryFile))));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(DateTime.now().getMillis());
+            output.writeInt(userDataList.size());
+            for (UserData userData : userDataList) {
+                writeUserData(output, userData);
+            }
+        }
+        finally {
+            output.close();
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        logger.debug("Cache snapshot with {} users stored in {} ms.", userDataList.size(), timer.stop());
+    }
+
+    /**
+     * Load the snapshot from the {@link #file} to the {@link #authorization} cache.
+     *
+     * @return true whether the snapshot was loaded, false whether it was ignored (unknown version or too old)
+     * @throws IOException
+     */
+    public synchronized boolean load() throws IOException
+    {
+        Timer timer = new Timer();
+        List<UserData> userDataList = new LinkedList<UserData>();
+        DateTime dateTime;
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))));
+        try {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("File isn't a cache snapshot.");
+            }
+            int formatVersion = input.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                logger.info("Cache snapshot has format version {} (expected {}), it is ignored.",
+                        formatVersion, FORMAT_VERSION);
+                return false;
+            }
+            dateTime = new DateTime(input.readLong());
+            if (dateTime.plus(maxAge).isBeforeNow()) {
+                logger.info("Cache snapshot from {} is too old, it is ignored.", dateTime);
+                return false;
+            }
+            for (int userIndex = input.readInt(); userIndex > 0; userIndex--) {
+                userDataList.add(readUserData(input));
+            }
+        }
+        finally {
+            input.close();
+        }
+
+        authorization.putCachedUserData(userDataList);
+        for (UserData userData : userDataList) {
+            restoredUserDataUserIds.add(userData.getUserId());
+        }
+
+        logger.info("Cache snapshot from {} with {} users loaded in {} ms.", new Object[]{
+                dateTime, userDataList.size(), timer.stop()
+        });
+        return true;
+    }
+
+    /**
+     * Refresh {@link UserData}s restored from the snapshot (by batched requests), so that they are up-to-date
+     * before they expire.
+     */
+    private void refreshRestored()
+    {
+        List<String> userIds;
+        synchronized (this) {
+            userIds = new ArrayList<String>(restoredUserDataUserIds);
+            restoredUserDataUserIds.clear();
+        }
+        for (int index = 0; index < userIds.size() && !Thread.currentThread().isInterrupted(); index += REFRESH_BATCH_SIZE) {
+            Set<String> batch = new HashSet<String>(
+                    userIds.subList(index, Math.min(index + REFRESH_BATCH_SIZE, userIds.size())));
+            try {
+                authorization.refreshCachedUserData(batch);
+            }
+            catch (Exception exception) {
+                logger.warn("Failed to refresh restored user information.", exception);
+            }
+        }
+    }
+
+    /**
+     * Write given {@code userData} to given {@code output}.
+     */
+    private static void writeUserData(DataOutputStream output, UserData userData) throws IOException
+    {
+        UserInformation userInformation = userData.getUserInformation();
+        output.writeUTF(userInformation.getUserId());
+        writeString(output, userInformation.getFirstName());
+        writeString(output, userInformation.getLastName());
+        writeString(output, userInformation.getOrganization());
+        writeString(output, userInformation.getEmail());
+        writeString(output, userInformation.getFullName());
+        writeString(output, userInformation.getLocale());
+        writeString(output, userInformation.getZoneInfo());
+        writeStrings(output, userInformation.getPrincipalNames());
+        writeStrings(output, userInformation.getEduPersonEntitlement());
+        Locale locale = userData.getLocale();
+        writeString(output, locale != null ? locale.toLanguageTag() : null);
+        DateTimeZone timeZone = userData.getTimeZone();
+        writeString(output, timeZone != null ? timeZone.getID() : null);
+        writeString(output, userData.getSecondaryId());
+        UserAuthorizationData userAuthorizationData = userData.getUserAuthorizationData();
+        output.writeBoolean(userAuthorizationData != null);
+        if (userAuthorizationData != null) {
+            writeString(output, userAuthorizationData.getProvider());
+            DateTime instant = userAuthorizationData.getInstant();
+            output.writeLong(instant != null ? instant.getMillis() : Long.MIN_VALUE);
+            output.writeInt(userAuthorizationData.getLoa());
+        }
+    }
+
+    /**
+     * @return {@link UserData} read from given {@code input}
+     */
+    private static UserData readUserData(DataInputStream input) throws IOException
+    {
+        UserData userData = new UserData();
+        UserInformation userInformation = userData.getUserInformation();
+        userInformation.setUserId(input.readUTF());
+        userInformation.setFirstName(readString(input));
+        userInformation.setLastName(readString(input));
+        userInformation.setOrganization(readString(input));
+        userInformation.setEmail(readString(input));
+        userInformation.setFullName(readString(input));
+        userInformation.setLocale(readString(input));
+        userInformation.setZoneInfo(readString(input));
+        userInformation.setPrincipalNames(readStrings(input));
+        userInformation.setEduPersonEntitlement(readStrings(input));
+        String locale = readString(input);
+        if (locale != null) {
+            userData.setLocale(Locale.forLanguageTag(locale));
+        }
+        String timeZone = readString(input);
+        if (timeZone != null) {
+            userData.setTimeZone(DateTimeZone.forID(timeZone));
+        }
+        userData.setSecondaryId(readString(input));
+        if (input.readBoolean()) {
+            String provider = readString(input);
+            long instant = input.readLong();
+            int loa = input.readInt();
+            userData.setUserAuthorizationData(new UserAuthorizationData(
+                    provider, (instant != Long.MIN_VALUE ? new DateTime(instant) : null), loa));
+        }
+        return userData;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException
+    {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException
+    {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static void writeStrings(DataOutputStream output, Set<String> values) throws IOException
+    {
+        output.writeInt(values.size());
+        for (String value : values) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static Set<String> readStrings(DataInputStream input) throws IOException
+    {
+        Set<String> values = new HashSet<String>();
+        for (int index = input.readInt(); index > 0; index--) {
+            values.add(input.readUTF());
+        }
+        return values;
+    }
+}
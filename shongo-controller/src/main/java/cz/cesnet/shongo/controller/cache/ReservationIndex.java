@@ -0,0 +1,795 @@
+package cz.cesnet.shongo.controller.cache;
+
+import cz.cesnet.shongo.controller.booking.recording.RecordingServiceReservation;
+import cz.cesnet.shongo.controller.booking.reservation.Reservation;
+import cz.cesnet.shongo.controller.booking.reservation.TargetedReservation;
+import cz.cesnet.shongo.controller.booking.resource.ResourceReservation;
+import cz.cesnet.shongo.controller.booking.room.RoomReservation;
+import org.hibernate.Session;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.Duration;
+import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory index of committed {@link ResourceReservation}, {@link RoomReservation} and
+ * {@link RecordingServiceReservation} slots by theirs targets (see {@link TargetedReservation#getTargetId()}).
+ * <p/>
+ * {@link ReservationSlotIndex} for a target is loaded lazily on the first query and it is afterwards kept
+ * consistent by Hibernate event listeners which record flushed reservation changes and apply them when
+ * the transaction is committed. A transaction which has flushed but not yet committed changes for a target
+ * must query the database directly (see {@link #findReservationIds}).
+ * <p/>
+ * Only slots which end in the {@link #history} before now are loaded and kept in memory and thus queries for slots
+ * which start before the {@link #history} must query the database directly too.
+ */
+public class ReservationIndex
+{
+    private static Logger logger = LoggerFactory.getLogger(ReservationIndex.class);
+
+    /**
+     * Indexed reservation types and JPQL attribute paths of theirs targets.
+     */
+    private static final Map<Class<? extends TargetedReservation>, String> TARGET_ATTRIBUTE_BY_TYPE;
+
+    static {
+        Map<Class<? extends TargetedReservation>, String> targetAttributeByType =
+                new LinkedHashMap<Class<? extends TargetedReservation>, String>();
+        targetAttributeByType.put(ResourceReservation.class, "resource");
+        targetAttributeByType.put(RoomReservation.class, "roomProviderCapability");
+        targetAttributeByType.put(RecordingServiceReservation.class, "recordingCapability");
+        TARGET_ATTRIBUTE_BY_TYPE = Collections.unmodifiableMap(targetAttributeByType);
+    }
+
+    /**
+     * Default value for {@link #history}.
+     */
+    public static final Duration DEFAULT_HISTORY = Duration.standardDays(7);
+
+    /**
+     * Period in milliseconds in which slots which ended before the {@link #history} are dropped.
+     */
+    private static final long PRUNE_PERIOD = Duration.standardHours(1).getMillis();
+
+    /**
+     * Duration before now in which slots must end to be kept in the index.
+     */
+    private volatile Duration history = DEFAULT_HISTORY;
+
+    /**
+     * Bound of slot ends (in milliseconds) at which the loaded {@link ReservationSlotIndex}es should be pruned next.
+     */
+    private long nextPruneSlotEnd = 0;
+
+    /**
+     * Loaded {@link ReservationSlotIndex}es by {@link Target}s.
+     */
+    private final Map<Target, ReservationSlotIndex> slotIndexByTarget = new HashMap<Target, ReservationSlotIndex>();
+
+    /**
+     * Number of committed modifications by {@link Target}s (used to detect concurrent modifications while loading).
+     */
+    private final Map<Target, Long> modificationCountByTarget = new HashMap<Target, Long>();
+
+    /**
+     * Not yet committed changes by Hibernate sessions which have flushed them.
+     */
+    private final Map<Object, TransactionChanges> transactionChangesBySession =
+            new IdentityHashMap<Object, TransactionChanges>();
+
+    /**
+     * {@link Listener} to which the index is registered.
+     */
+    private Listener listener;
+
+    /**
+     * Specifies whether the index is listening for reservation changes.
+     */
+    private volatile boolean active = false;
+
+    /**
+     * Number of queries answered from memory.
+     */
+    private long hitCount = 0;
+
+    /**
+     * Number of queries which had to be answered from database.
+     */
+    private long missCount = 0;
+
+    /**
+     * Register event listeners to given {@code entityManagerFactory} and activate the index.
+     *
+     * @param entityManagerFactory whose reservation changes should be tracked
+     * @return true whether the index has been activated, false when it isn't supported
+     */
+    public boolean init(EntityManagerFactory entityManagerFactory)
+    {
+        if (!(entityManagerFactory instanceof HibernateEntityManagerFactory)) {
+            logger.warn("Reservation index isn't supported for {}.", entityManagerFactory.getClass().getName());
+            return false;
+        }
+        HibernateEntityManagerFactory hibernateEntityManagerFactory =
+                (HibernateEntityManagerFactory) entityManagerFactory;
+        SessionFactoryImplementor sessionFactory =
+                (SessionFactoryImplementor) hibernateEntityManagerFactory.getSessionFactory();
+        EventListenerRegistry eventListenerRegistry =
+                sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        synchronized (eventListenerRegistry) {
+            // Single listener is registered for the session factory and it is shared by all indexes
+            for (PostInsertEventListener registeredListener :
+                    eventListenerRegistry.getEventListenerGroup(EventType.POST_INSERT).listeners()) {
+                if (registeredListener instanceof Listener) {
+                    listener = (Listener) registeredListener;
+                }
+            }
+            if (listener == null) {
+                listener = new Listener(sessionFactory);
+                eventListenerRegistry.appendListeners(EventType.POST_LOAD, listener);
+                eventListenerRegistry.appendListeners(EventType.POST_INSERT, listener);
+                eventListenerRegistry.appendListeners(EventType.POST_UPDATE, listener);
+                eventListenerRegistry.appendListeners(EventType.POST_DELETE, listener);
+            }
+            listener.reservationIndexes.add(this);
+        }
+        active = true;
+        return true;
+    }
+
+    /**
+     * Deactivate the index.
+     */
+    public synchronized void destroy()
+    {
+        active = false;
+        if (listener != null) {
+            listener.reservationIndexes.remove(this);
+            listener = null;
+        }
+        clear();
+    }
+
+    /**
+     * @return true whether the index is active, false otherwise
+     */
+    public boolean isActive()
+    {
+        return active;
+    }
+
+    /**
+     * Clear all loaded {@link ReservationSlotIndex}es.
+     */
+    public synchronized void clear()
+    {
+        slotIndexByTarget.clear();
+        modificationCountByTarget.clear();
+    }
+
+    /**
+     * @return {@link #history}
+     */
+    public Duration getHistory()
+    {
+        return history;
+    }
+
+    /**
+     * @param history sets the {@link #history}
+     */
+    public synchronized void setHistory(Duration history)
+    {
+        this.history = history;
+        clear();
+    }
+
+    /**
+     * @return {@link #hitCount}
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * @return {@link #missCount}
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Find identifiers of reservations of given {@code reservationType} for target with given {@code targetId}
+     * which overlap given {@code slot}.
+     *
+     * @param reservationType one of indexed reservation types
+     * @param targetId        identifier of target
+     * @param slot            which should be overlapped
+     * @param entityManager   which is used for the query and for loading of the {@link ReservationSlotIndex}
+     * @return list of reservation identifiers ordered by slot start or {@code null} when the query cannot be
+     *         answered from the index (the {@code entityManager} contains not committed changes for the target
+     *         or the {@code slot} starts before the {@link #history})
+     */
+    public List<Long> findReservationIds(Class<? extends TargetedReservation> reservationType, Long targetId,
+            Interval slot, EntityManager entityManager)
+    {
+        if (!active) {
+            return null;
+        }
+        Class<? extends TargetedReservation> indexedType = getIndexedType(reservationType);
+        if (indexedType == null) {
+            throw new IllegalArgumentException(reservationType.getSimpleName() + " isn't indexed.");
+        }
+        Target target = new Target(indexedType, targetId);
+        long minimumSlotEnd = DateTimeUtils.currentTimeMillis() - history.getMillis();
+        if (slot.getStartMillis() < minimumSlotEnd) {
+            synchronized (this) {
+                missCount++;
+            }
+            return null;
+        }
+
+        // Flush pending changes of indexed reservations to be recorded by the listener (as the database query would do)
+        Listener listener = this.listener;
+        EventSource session = (EventSource) entityManager.unwrap(Session.class);
+        if (listener != null && entityManager.getTransaction().isActive() && listener.hasPendingChanges(session)) {
+            entityManager.flush();
+        }
+
+        Long modificationCount;
+        synchronized (this) {
+            pruneSlotIndexes(minimumSlotEnd);
+            TransactionChanges transactionChanges = transactionChangesBySession.get(session);
+            if (transactionChanges != null && transactionChanges.containsTarget(target)) {
+                missCount++;
+                return null;
+            }
+            ReservationSlotIndex slotIndex = slotIndexByTarget.get(target);
+            if (slotIndex != null) {
+                hitCount++;
+                return slotIndex.find(slot);
+            }
+            missCount++;
+            modificationCount = modificationCountByTarget.get(target);
+        }
+
+        ReservationSlotIndex slotIndex = loadSlotIndex(target, minimumSlotEnd, entityManager);
+        synchronized (this) {
+            Long currentModificationCount = modificationCountByTarget.get(target);
+            boolean modified = (modificationCount == null) ? currentModificationCount != null
+                    : !modificationCount.equals(currentModificationCount);
+            if (active && !modified && !slotIndexByTarget.containsKey(target)) {
+                slotIndexByTarget.put(target, slotIndex);
+            }
+        }
+        return slotIndex.find(slot);
+    }
+
+    /**
+     * Drop slots which end before given {@code minimumSlotEnd} from all loaded {@link ReservationSlotIndex}es
+     * (at most once per {@link #PRUNE_PERIOD}).
+     *
+     * @param minimumSlotEnd in milliseconds
+     */
+    private void pruneSlotIndexes(long minimumSlotEnd)
+    {
+        if (minimumSlotEnd < nextPruneSlotEnd) {
+            return;
+        }
+        for (Map.Entry<Target, ReservationSlotIndex> entry : slotIndexByTarget.entrySet()) {
+            entry.setValue(entry.getValue().withoutEndedBy(minimumSlotEnd));
+        }
+        nextPruneSlotEnd = minimumSlotEnd + PRUNE_PERIOD;
+    }
+
+    /**
+     * @param target         for which the {@link ReservationSlotIndex} should be loaded
+     * @param minimumSlotEnd in milliseconds after which the loaded slots must end
+     * @param entityManager  to be used
+     * @return loaded {@link ReservationSlotIndex}
+     */
+    private ReservationSlotIndex loadSlotIndex(Target target, long minimumSlotEnd, EntityManager entityManager)
+    {
+        String targetAttribute = TARGET_ATTRIBUTE_BY_TYPE.get(target.reservationType);
+        List<Object[]> records = entityManager.createQuery(
+                "SELECT reservation.id, reservation.slotStart, reservation.slotEnd"
+                + " FROM "+ target.reservationType.getSimpleName() + " reservation"
+                + " WHERE reservation." + targetAttribute + ".id = :targetId"
+                + " AND reservation.slotEnd > :minimumSlotEnd", Object[].class)
+                .setParameter("targetId", target.targetId)
+                .setParameter("minimumSlotEnd", new DateTime(minimumSlotEnd))
+                .getResultList();
+        ReservationSlotIndex.Builder builder = new ReservationSlotIndex.Builder();
+        for (Object[] record : records) {
+            builder.add((Long) record[0], new Interval((DateTime) record[1], (DateTime) record[2]));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Apply committed {@code transactionChanges}.
+     *
+     * @param transactionChanges to be applied
+     */
+    private synchronized void applyChanges(TransactionChanges transactionChanges)
+    {
+        for (Map.Entry<Long, Change> entry : transactionChanges.changeByReservationId.entrySet()) {
+            Long reservationId = entry.getKey();
+            Change change = entry.getValue();
+            for (Target target : change.previousTargets) {
+                if (target.equals(change.target)) {
+                    continue;
+                }
+                ReservationSlotIndex slotIndex = slotIndexByTarget.get(target);
+                if (slotIndex != null) {
+                    slotIndexByTarget.put(target, slotIndex.without(reservationId));
+                }
+                incrementModificationCount(target);
+            }
+            ReservationSlotIndex slotIndex = slotIndexByTarget.get(change.target);
+            if (slotIndex != null) {
+                if (change.slot != null) {
+                    slotIndexByTarget.put(change.target, slotIndex.with(reservationId, change.slot));
+                }
+                else {
+                    slotIndexByTarget.put(change.target, slotIndex.without(reservationId));
+                }
+            }
+            incrementModificationCount(change.target);
+        }
+    }
+
+    /**
+     * @param target whose {@link #modificationCountByTarget} should be incremented
+     */
+    private void incrementModificationCount(Target target)
+    {
+        Long modificationCount = modificationCountByTarget.get(target);
+        modificationCountByTarget.put(target, (modificationCount != null ? modificationCount + 1 : 1));
+    }
+
+    /**
+     * Record change of given {@code entity} in given {@code session}.
+     *
+     * @param entity  which has been inserted, updated or deleted
+     * @param session in which the change has been flushed
+     * @param deleted specifies whether the {@code entity} has been deleted
+     */
+    private void onChange(Object entity, EventSource session, boolean deleted)
+    {
+        if (!active || !(entity instanceof TargetedReservation)) {
+            return;
+        }
+        TargetedReservation reservation = (TargetedReservation) entity;
+        Class<? extends TargetedReservation> indexedType = getIndexedType(reservation.getClass());
+        if (indexedType == null) {
+            return;
+        }
+        Long targetId = reservation.getTargetId();
+        if (targetId == null) {
+            return;
+        }
+        Target target = new Target(indexedType, targetId);
+        Interval slot = null;
+        if (!deleted && reservation.getSlotStart() != null && reservation.getSlotEnd() != null) {
+            slot = reservation.getSlot();
+        }
+        synchronized (this) {
+            TransactionChanges transactionChanges = transactionChangesBySession.get(session);
+            if (transactionChanges == null) {
+                transactionChanges = new TransactionChanges(session);
+                session.getTransactionCoordinator().getSynchronizationRegistry()
+                        .registerSynchronization(transactionChanges);
+                transactionChangesBySession.put(session, transactionChanges);
+            }
+            transactionChanges.addChange(reservation.getId(), target, slot);
+        }
+    }
+
+    /**
+     * @param reservationType
+     * @return indexed type for given {@code reservationType} or {@code null}
+     */
+    private static Class<? extends TargetedReservation> getIndexedType(Class<?> reservationType)
+    {
+        for (Class<? extends TargetedReservation> indexedType : TARGET_ATTRIBUTE_BY_TYPE.keySet()) {
+            if (indexedType.isAssignableFrom(reservationType)) {
+                return indexedType;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Target of reservations (e.g., {@link ResourceReservation}s for a single resource).
+     */
+    private static class Target
+    {
+        /**
+         * Indexed reservation type.
+         */
+        private final Class<? extends TargetedReservation> reservationType;
+
+        /**
+         * Identifier of the target.
+         */
+        private final Long targetId;
+
+        /**
+         * Constructor.
+         *
+         * @param reservationType sets the {@link #reservationType}
+         * @param targetId        sets the {@link #targetId}
+         */
+        public Target(Class<? extends TargetedReservation> reservationType, Long targetId)
+        {
+            this.reservationType = reservationType;
+            this.targetId = targetId;
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            if (this == object) {
+                return true;
+            }
+            if (object == null || getClass() != object.getClass()) {
+                return false;
+            }
+            Target target = (Target) object;
+            return reservationType.equals(target.reservationType) && targetId.equals(target.targetId);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * reservationType.hashCode() + targetId.hashCode();
+        }
+    }
+
+    /**
+     * Latest flushed state of a single reservation.
+     */
+    private static class Change
+    {
+        /**
+         * Current {@link Target} of the reservation.
+         */
+        private Target target;
+
+        /**
+         * Current slot of the reservation or {@code null} when the reservation has been deleted.
+         */
+        private Interval slot;
+
+        /**
+         * {@link Target}s of the reservation from previous changes in the same transaction.
+         */
+        private Set<Target> previousTargets = new HashSet<Target>();
+    }
+
+    /**
+     * Changes flushed in a single transaction which are applied to the index when the transaction is committed.
+     */
+    private class TransactionChanges implements Synchronization
+    {
+        /**
+         * Hibernate session in which the changes are flushed.
+         */
+        private final Object session;
+
+        /**
+         * Latest {@link Change}s by reservation identifiers.
+         */
+        private final Map<Long, Change> changeByReservationId = new LinkedHashMap<Long, Change>();
+
+        /**
+         * Set of all changed {@link Target}s.
+         */
+        private final Set<Target> targets = new HashSet<Target>();
+
+        /**
+         * Constructor.
+         *
+         * @param session sets the {@link #session}
+         */
+        public TransactionChanges(Object session)
+        {
+            this.session = session;
+        }
+
+        /**
+         * @param target
+         * @return true whether this {@link TransactionChanges} modifies given {@code target}, false otherwise
+         */
+        public boolean containsTarget(Target target)
+        {
+            return targets.contains(target);
+        }
+
+        /**
+         * @param reservationId identifier of changed reservation
+         * @param target        of changed reservation
+         * @param slot          of changed reservation ({@code null} for deleted reservation)
+         */
+        public void addChange(Long reservationId, Target target, Interval slot)
+        {
+            Change change = changeByReservationId.get(reservationId);
+            if (change == null) {
+                change = new Change();
+                changeByReservationId.put(reservationId, change);
+            }
+            else {
+                change.previousTargets.add(change.target);
+            }
+            change.target = target;
+            change.slot = slot;
+            targets.add(target);
+        }
+
+        @Override
+        public void beforeCompletion()
+        {
+        }
+
+        @Override
+        public void afterCompletion(int status)
+        {
+            synchronized (ReservationIndex.this) {
+                transactionChangesBySession.remove(session);
+                if (status == Status.STATUS_COMMITTED) {
+                    applyChanges(this);
+                }
+                else if (status != Status.STATUS_ROLLEDBACK) {
+                    // Outcome is unknown and thus the changed targets must be reloaded
+                    for (Target target : targets) {
+                        slotIndexByTarget.remove(target);
+                        incrementModificationCount(target);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Flushed state of an indexed reservation which is managed by a Hibernate session.
+     */
+    private static class FlushedState
+    {
+        /**
+         * Persister of the reservation.
+         */
+        private final EntityPersister persister;
+
+        /**
+         * Flushed {@link TargetedReservation#getTargetId()}.
+         */
+        private final Long targetId;
+
+        /**
+         * Flushed {@link TargetedReservation#getSlotStart()} in milliseconds.
+         */
+        private final Long slotStart;
+
+        /**
+         * Flushed {@link TargetedReservation#getSlotEnd()} in milliseconds.
+         */
+        private final Long slotEnd;
+
+        /**
+         * Constructor.
+         *
+         * @param persister   sets the {@link #persister}
+         * @param reservation from which the flushed state should be taken
+         */
+        public FlushedState(EntityPersister persister, TargetedReservation reservation)
+        {
+            this.persister = persister;
+            this.targetId = reservation.getTargetId();
+            this.slotStart = getMillis(reservation.getSlotStart());
+            this.slotEnd = getMillis(reservation.getSlotEnd());
+        }
+
+        /**
+         * @param reservation to be checked
+         * @return true whether target or slot of given {@code reservation} differs from this {@link FlushedState},
+         *         false otherwise
+         */
+        public boolean isModified(TargetedReservation reservation)
+        {
+            return !equals(targetId, reservation.getTargetId())
+                    || !equals(slotStart, getMillis(reservation.getSlotStart()))
+                    || !equals(slotEnd, getMillis(reservation.getSlotEnd()));
+        }
+
+        /**
+         * @param dateTime
+         * @return milliseconds of given {@code dateTime} or {@code null}
+         */
+        private static Long getMillis(DateTime dateTime)
+        {
+            return (dateTime != null ? dateTime.getMillis() : null);
+        }
+
+        /**
+         * @param value1
+         * @param value2
+         * @return true whether given values are equal, false otherwise
+         */
+        private static boolean equals(Long value1, Long value2)
+        {
+            return (value1 == null) ? value2 == null : value1.equals(value2);
+        }
+    }
+
+    /**
+     * Hibernate event listener which records flushed reservation changes to all registered indexes and which
+     * tracks flushed states of indexed reservations in each session to detect not flushed changes
+     * (see {@link #hasPendingChanges}).
+     */
+    private static class Listener implements PostLoadEventListener,
+            PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener
+    {
+        /**
+         * Registered {@link ReservationIndex}es.
+         */
+        private final List<ReservationIndex> reservationIndexes = new CopyOnWriteArrayList<ReservationIndex>();
+
+        /**
+         * Tables of indexed reservation types (without the {@link Reservation} table which is shared by all
+         * reservation types) which are modified by inserts and deletes of indexed reservations.
+         */
+        private final Set<Serializable> indexedTables = new HashSet<Serializable>();
+
+        /**
+         * {@link FlushedState}s by identifiers of indexed reservations by Hibernate sessions which manage them
+         * (sessions are weak keys so that the states of closed sessions are dropped).
+         */
+        private final Map<Object, Map<Long, FlushedState>> flushedStatesBySession =
+                Collections.synchronizedMap(new WeakHashMap<Object, Map<Long, FlushedState>>());
+
+        /**
+         * Constructor.
+         *
+         * @param sessionFactory for which the listener is registered
+         */
+        public Listener(SessionFactoryImplementor sessionFactory)
+        {
+            Set<Serializable> reservationTables = new HashSet<Serializable>(Arrays.asList(
+                    sessionFactory.getEntityPersister(Reservation.class.getName()).getPropertySpaces()));
+            for (Class<? extends TargetedReservation> indexedType : TARGET_ATTRIBUTE_BY_TYPE.keySet()) {
+                EntityPersister persister = sessionFactory.getEntityPersister(indexedType.getName());
+                for (Serializable table : persister.getPropertySpaces()) {
+                    if (!reservationTables.contains(table)) {
+                        indexedTables.add(table);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param session to be checked
+         * @return true whether given {@code session} contains not flushed inserts or deletes of indexed reservations
+         *         or not flushed changes of theirs targets or slots, false otherwise
+         */
+        public boolean hasPendingChanges(EventSource session)
+        {
+            // Inserts and deletes are queued until flush
+            if (session.getActionQueue().areTablesToBeUpdated(indexedTables)) {
+                return true;
+            }
+            // Updates are detected by comparing managed reservations with theirs flushed states
+            Map<Long, FlushedState> flushedStates = flushedStatesBySession.get(session);
+            if (flushedStates == null) {
+                return false;
+            }
+            PersistenceContext persistenceContext = session.getPersistenceContext();
+            Iterator<Map.Entry<Long, FlushedState>> iterator = flushedStates.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, FlushedState> entry = iterator.next();
+                FlushedState flushedState = entry.getValue();
+                Object reservation = persistenceContext.getEntity(
+                        session.generateEntityKey(entry.getKey(), flushedState.persister));
+                if (reservation == null) {
+                    // Reservation is no longer managed by the session (e.g., it has been evicted)
+                    iterator.remove();
+                }
+                else if (flushedState.isModified((TargetedReservation) reservation)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Store {@link FlushedState} of given {@code entity} when it is an indexed reservation.
+         *
+         * @param entity    which has been loaded or flushed
+         * @param persister of the {@code entity}
+         * @param session   which manages the {@code entity}
+         */
+        private void setFlushedState(Object entity, EntityPersister persister, EventSource session)
+        {
+            if (reservationIndexes.isEmpty() || getIndexedType(entity.getClass()) == null) {
+                return;
+            }
+            TargetedReservation reservation = (TargetedReservation) entity;
+            Map<Long, FlushedState> flushedStates;
+            synchronized (flushedStatesBySession) {
+                flushedStates = flushedStatesBySession.get(session);
+                if (flushedStates == null) {
+                    flushedStates = new HashMap<Long, FlushedState>();
+                    flushedStatesBySession.put(session, flushedStates);
+                }
+            }
+            flushedStates.put(reservation.getId(), new FlushedState(persister, reservation));
+        }
+
+        /**
+         * Remove {@link FlushedState} of given {@code entity}.
+         *
+         * @param entity  which has been deleted
+         * @param session which has deleted the {@code entity}
+         */
+        private void removeFlushedState(Object entity, EventSource session)
+        {
+            if (!(entity instanceof TargetedReservation)) {
+                return;
+            }
+            Map<Long, FlushedState> flushedStates = flushedStatesBySession.get(session);
+            if (flushedStates != null) {
+                flushedStates.remove(((TargetedReservation) entity).getId());
+            }
+        }
+
+        @Override
+        public void onPostLoad(PostLoadEvent event)
+        {
+            setFlushedState(event.getEntity(), event.getPersister(), event.getSession());
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event)
+        {
+            setFlushedState(event.getEntity(), event.getPersister(), event.getSession());
+            for (ReservationIndex reservationIndex : reservationIndexes) {
+                reservationIndex.onChange(event.getEntity(), event.getSession(), false);
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event)
+        {
+            setFlushedState(event.getEntity(), event.getPersister(), event.getSession());
+            for (ReservationIndex reservationIndex : reservationIndexes) {
+                reservationIndex.onChange(event.getEntity(), event.getSession(), false);
+            }
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event)
+        {
+            removeFlushedState(event.getEntity(), event.getSession());
+            for (ReservationIndex reservationIndex : reservationIndexes) {
+                reservationIndex.onChange(event.getEntity(), event.getSession(), true);
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package cz.cesnet.shongo.controller.cache;
+
+import org.joda.time.Interval;
+
+import java.util.*;
+
+/**
+ * Immutable sorted-interval index of reservation slots for a single allocation target (e.g., a resource).
+ * <p/>
+ * Slots are kept in primitive arrays sorted by their start. Because no slot is longer than
+ * {@link #maximumDuration}, only slots which start in {@code (start - maximumDuration, end)} can overlap
+ * the queried interval {@code [start, end)} and thus they are found by two binary searches.
+ */
+public class ReservationSlotIndex
+{
+    /**
+     * Empty {@link ReservationSlotIndex}.
+     */
+    public static final ReservationSlotIndex EMPTY = new ReservationSlotIndex(new long[0], new long[0], new long[0]);
+
+    /**
+     * Identifiers of reservations sorted by {@link #slotStarts}.
+     */
+    private final long[] reservationIds;
+
+    /**
+     * Slot starts in milliseconds (sorted ascending).
+     */
+    private final long[] slotStarts;
+
+    /**
+     * Slot ends in milliseconds.
+     */
+    private final long[] slotEnds;
+
+    /**
+     * Maximum duration of all slots in milliseconds.
+     */
+    private final long maximumDuration;
+
+    /**
+     * Constructor.
+     *
+     * @param reservationIds sets the {@link #reservationIds}
+     * @param slotStarts     sets the {@link #slotStarts}
+     * @param slotEnds       sets the {@link #slotEnds}
+     */
+    private ReservationSlotIndex(long[] reservationIds, long[] slotStarts, long[] slotEnds)
+    {
+        this.reservationIds = reservationIds;
+        this.slotStarts = slotStarts;
+        this.slotEnds = slotEnds;
+        long maximumDuration = 0;
+        for (int index = 0; index < slotStarts.length; index++) {
+            maximumDuration = Math.max(maximumDuration, slotEnds[index] - slotStarts[index]);
+        }
+        this.maximumDuration = maximumDuration;
+    }
+
+    /**
+     * @return number of slots in the index
+     */
+    public int size()
+    {
+        return reservationIds.length;
+    }
+
+    /**
+     * @param reservationId
+     * @return true whether the index contains slot for reservation with given {@code reservationId},
+     *         false otherwise
+     */
+    public boolean contains(long reservationId)
+    {
+        return indexOf(reservationId) >= 0;
+    }
+
+    /**
+     * @param slot to be overlapped
+     * @return identifiers of reservations whose slots overlap given {@code slot} (ordered by slot start)
+     */
+    public List<Long> find(Interval slot)
+    {
+        return find(slot.getStartMillis(), slot.getEndMillis());
+    }
+
+    /**
+     * @param start of interval to be overlapped
+     * @param end   of interval to be overlapped
+     * @return identifiers of reservations whose slots overlap interval {@code [start, end)} (ordered by slot start)
+     */
+    public List<Long> find(long start, long end)
+    {
+        int from = lowerBound(start - maximumDuration + 1);
+        int to = lowerBound(end);
+        List<Long> result = new ArrayList<Long>();
+        for (int index = from; index < to; index++) {
+            if (slotEnds[index] > start) {
+                result.add(reservationIds[index]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param reservationId
+     * @param slot
+     * @return new {@link ReservationSlotIndex} with added (or replaced) slot for reservation
+     *         with given {@code reservationId}
+     */
+    public ReservationSlotIndex with(long reservationId, Interval slot)
+    {
+        ReservationSlotIndex index = without(reservationId);
+        long start = slot.getStartMillis();
+        int position = index.upperBound(start);
+        int size = index.size();
+        long[] reservationIds = new long[size + 1];
+        long[] slotStarts = new long[size + 1];
+        long[] slotEnds = new long[size + 1];
+        System.arraycopy(index.reservationIds, 0, reservationIds, 0, position);
+        System.arraycopy(index.slotStarts, 0, slotStarts, 0, position);
+        System.arraycopy(index.slotEnds, 0, slotEnds, 0, position);
+        reservationIds[position] = reservationId;
+        slotStarts[position] = start;
+        slotEnds[position] = slot.getEndMillis();
+        System.arraycopy(index.reservationIds, position, reservationIds, position + 1, size - position);
+        System.arraycopy(index.slotStarts, position, slotStarts, position + 1, size - position);
+        System.arraycopy(index.slotEnds, position, slotEnds, position + 1, size - position);
+        return new ReservationSlotIndex(reservationIds, slotStarts, slotEnds);
+    }
+
+    /**
+     * @param reservationId
+     * @return new {@link ReservationSlotIndex} without slot for reservation with given {@code reservationId}
+     */
+    public ReservationSlotIndex without(long reservationId)
+    {
+        int position = indexOf(reservationId);
+        if (position < 0) {
+            return this;
+        }
+        int size = size() - 1;
+        long[] reservationIds = new long[size];
+        long[] slotStarts = new long[size];
+        long[] slotEnds = new long[size];
+        System.arraycopy(this.reservationIds, 0, reservationIds, 0, position);
+        System.arraycopy(this.slotStarts, 0, slotStarts, 0, position);
+        System.arraycopy(this.slotEnds, 0, slotEnds, 0, position);
+        System.arraycopy(this.reservationIds, position + 1, reservationIds, position, size - position);
+        System.arraycopy(this.slotStarts, position + 1, slotStarts, position, size - position);
+        System.arraycopy(this.slotEnds, position + 1, slotEnds, position, size - position);
+        return new ReservationSlotIndex(reservationIds, slotStarts, slotEnds);
+    }
+
+    /**
+     * @param dateTime in milliseconds
+     * @return new {@link ReservationSlotIndex} without slots which end at or before given {@code dateTime}
+     */
+    public ReservationSlotIndex withoutEndedBy(long dateTime)
+    {
+        int size = 0;
+        for (long slotEnd : slotEnds) {
+            if (slotEnd > dateTime) {
+                size++;
+            }
+        }
+        if (size == slotEnds.length) {
+            return this;
+        }
+        long[] reservationIds = new long[size];
+        long[] slotStarts = new long[size];
+        long[] slotEnds = new long[size];
+        int position = 0;
+        for (int index = 0; index < this.slotEnds.length; index++) {
+            if (this.slotEnds[index] > dateTime) {
+                reservationIds[position] = this.reservationIds[index];
+                slotStarts[position] = this.slotStarts[index];
+                slotEnds[position] = this.slotEnds[index];
+                position++;
+            }
+        }
+        return new ReservationSlotIndex(reservationIds, slotStarts, slotEnds);
+    }
+
+    /**
+     * @param value
+     * @return index of the first slot which starts at or after given {@code value}
+     */
+    private int lowerBound(long value)
+    {
+        int low = 0;
+        int high = slotStarts.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (slotStarts[middle] < value) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param value
+     * @return index of the first slot which starts after given {@code value}
+     */
+    private int upperBound(long value)
+    {
+        int low = 0;
+        int high = slotStarts.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (slotStarts[middle] <= value) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param reservationId
+     * @return position of slot for reservation with given {@code reservationId} or {@code -1}
+     */
+    private int indexOf(long reservationId)
+    {
+        for (int index = 0; index < reservationIds.length; index++) {
+            if (reservationIds[index] == reservationId) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builder for {@link ReservationSlotIndex}.
+     */
+    public static class Builder
+    {
+        /**
+         * Slots by reservation identifiers.
+         */
+        private final Map<Long, Interval> slotByReservationId = new HashMap<Long, Interval>();
+
+        /**
+         * @param reservationId
+         * @param slot
+         * @return this {@link Builder}
+         */
+        public Builder add(Long reservationId, Interval slot)
+        {
+            slotByReservationId.put(reservationId, slot);
+            return this;
+        }
+
+        /**
+         * @return new {@link ReservationSlotIndex}
+         */
+        public ReservationSlotIndex build()
+        {
+            List<Map.Entry<Long, Interval>> entries =
+                    new ArrayList<Map.Entry<Long, Interval>>(slotByReservationId.entrySet());
+            Collections.sort(entries, new Comparator<Map.Entry<Long, Interval>>()
+            {
+                @Override
+                public int compare(Map.Entry<Long, Interval> entry1, Map.Entry<Long, Interval> entry2)
+                {
+                    return Long.compare(entry1.getValue().getStartMillis(), entry2.getValue().getStartMillis());
+                }
+            });
+            int size = entries.size();
+            long[] reservationIds = new long[size];
+            long[] slotStarts = new long[size];
+            long[] slotEnds = new long[size];
+            for (int index = 0; index < size; index++) {
+                Map.Entry<Long, Interval> entry = entries.get(index);
+                reservationIds[index] = entry.getKey();
+                slotStarts[index] = entry.getValue().getStartMillis();
+                slotEnds[index] = entry.getValue().getEndMillis();
+            }
+            return new ReservationSlotIndex(reservationIds, slotStarts, slotEnds);
+        }
+    }
+}
@@ -2,18 +2,24 @@ package cz.cesnet.shongo.controller.cache;
 
 import cz.cesnet.shongo.Technology;
 import cz.cesnet.shongo.controller.authorization.Authorization;
+import cz.cesnet.shongo.controller.booking.recording.RecordingCapability;
+import cz.cesnet.shongo.controller.booking.recording.RecordingServiceReservation;
+import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
+import cz.cesnet.shongo.controller.booking.reservation.TargetedReservation;
 import cz.cesnet.shongo.controller.booking.resource.*;
 import cz.cesnet.shongo.controller.booking.resource.Capability;
 import cz.cesnet.shongo.controller.booking.resource.DeviceResource;
 import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.resource.ResourceReservation;
 import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
+import cz.cesnet.shongo.controller.booking.room.RoomReservation;
 import cz.cesnet.shongo.controller.scheduler.*;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.persistence.EntityManager;
 import java.util.*;
 
 /**
@@ -36,6 +42,11 @@ public class ResourceCache extends AbstractCache<Resource>
      */
     private DeviceTopology deviceTopology;
 
+    /**
+     * @see ReservationIndex
+     */
+    private final ReservationIndex reservationIndex = new ReservationIndex();
+
     /**
      * Constructor.
      */
@@ -51,6 +62,14 @@ public class ResourceCache extends AbstractCache<Resource>
         return deviceTopology;
     }
 
+    /**
+     * @return {@link #reservationIndex}
+     */
+    public ReservationIndex getReservationIndex()
+    {
+        return reservationIndex;
+    }
+
     @Override
     public void addObject(Resource resource)
     {
@@ -217,9 +236,8 @@ public class ResourceCache extends AbstractCache<Resource>
 
         // Check if resource is not already allocated
         Long resourceId = resource.getId();
-        ResourceManager resourceManager = new ResourceManager(schedulerContext.getEntityManager());
         List<ResourceReservation> resourceReservations =
-                resourceManager.listResourceReservationsInInterval(resourceId, slot);
+                getResourceReservations(resourceId, slot, schedulerContext.getEntityManager());
 
         // Apply transaction
         SchedulerContextState schedulerContextState = schedulerContext.getState();
@@ -229,6 +247,106 @@ public class ResourceCache extends AbstractCache<Resource>
         schedulerContext.detectCollisions(reservationTask, resourceReservations);
     }
 
+    /**
+     * @param resourceId    identifier of {@link Resource}
+     * @param slot          which should be overlapped
+     * @param entityManager to be used
+     * @return list of {@link ResourceReservation}s for resource with given {@code resourceId}
+     *         which overlap given {@code slot} (ordered by slot start)
+     */
+    public List<ResourceReservation> getResourceReservations(Long resourceId, Interval slot,
+            EntityManager entityManager)
+    {
+        List<ResourceReservation> reservations =
+                findReservations(ResourceReservation.class, resourceId, slot, entityManager);
+        if (reservations == null) {
+            ResourceManager resourceManager = new ResourceManager(entityManager);
+            reservations = resourceManager.listResourceReservationsInInterval(resourceId, slot);
+        }
+        return reservations;
+    }
+
+    /**
+     * @param roomProviderCapability
+     * @param slot                   which should be overlapped
+     * @param entityManager          to be used
+     * @return list of {@link RoomReservation}s for given {@code roomProviderCapability}
+     *         which overlap given {@code slot}
+     */
+    public List<RoomReservation> getRoomReservations(RoomProviderCapability roomProviderCapability, Interval slot,
+            EntityManager entityManager)
+    {
+        List<RoomReservation> reservations =
+                findReservations(RoomReservation.class, roomProviderCapability.getId(), slot, entityManager);
+        if (reservations == null) {
+            ReservationManager reservationManager = new ReservationManager(entityManager);
+            reservations = reservationManager.getRoomReservations(roomProviderCapability, slot);
+        }
+        return reservations;
+    }
+
+    /**
+     * @param recordingCapability
+     * @param slot                which should be overlapped
+     * @param entityManager       to be used
+     * @return list of {@link RecordingServiceReservation}s for given {@code recordingCapability}
+     *         which overlap given {@code slot}
+     */
+    public List<RecordingServiceReservation> getRecordingServiceReservations(RecordingCapability recordingCapability,
+            Interval slot, EntityManager entityManager)
+    {
+        List<RecordingServiceReservation> reservations =
+                findReservations(RecordingServiceReservation.class, recordingCapability.getId(), slot, entityManager);
+        if (reservations == null) {
+            ReservationManager reservationManager = new ReservationManager(entityManager);
+            reservations = reservationManager.getRecordingServiceReservations(recordingCapability, slot);
+        }
+        return reservations;
+    }
+
+    /**
+     * Find reservations by the {@link #reservationIndex}.
+     *
+     * @param reservationType type of reservations
+     * @param targetId        identifier of reservations target
+     * @param slot            which should be overlapped
+     * @param entityManager   to be used for loading of found reservations
+     * @return list of found reservations or {@code null} when the {@link #reservationIndex} cannot be used
+     */
+    private <T extends TargetedReservation> List<T> findReservations(Class<T> reservationType, Long targetId,
+            Interval slot, EntityManager entityManager)
+    {
+        List<Long> reservationIds = reservationIndex.findReservationIds(reservationType, targetId, slot, entityManager);
+        if (reservationIds == null) {
+            return null;
+        }
+        List<T> reservations = new ArrayList<T>(reservationIds.size());
+        if (reservationIds.isEmpty()) {
+            return reservations;
+        }
+
+        // Load all found reservations by single query (and keep the order of the index)
+        Map<Long, T> reservationById = new HashMap<Long, T>();
+        for (T reservation : entityManager.createQuery(
+                "SELECT reservation FROM " + reservationType.getSimpleName() + " reservation"
+                        + " WHERE reservation.id IN(:reservationIds)", reservationType)
+                .setParameter("reservationIds", reservationIds)
+                .getResultList()) {
+            reservationById.put(reservation.getId(), reservation);
+        }
+        for (Long reservationId : reservationIds) {
+            T reservation = reservationById.get(reservationId);
+            if (reservation == null) {
+                continue;
+            }
+            Interval reservationSlot = reservation.getSlot();
+            if (reservationSlot.getStart().isBefore(slot.getEnd()) && reservationSlot.getEnd().isAfter(slot.getStart())) {
+                reservations.add(reservation);
+            }
+        }
+        return reservations;
+    }
+
     /**
      * Checks whether given {@code capability} is available for given {@code reservationRequest}.
      * Device resources with {@link RoomProviderCapability} can be available even if theirs capacity is fully used.
@@ -14,7 +14,10 @@ import org.apache.commons.collections4.MultiMap;
 import org.apache.commons.collections4.map.MultiValueMap;
 import org.codehaus.jackson.map.ObjectReader;
 import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.net.HttpURLConnection;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -25,6 +28,8 @@ import java.util.concurrent.*;
  */
 public class CachedDomainsConnector extends DomainsConnector
 {
+    private static Logger logger = LoggerFactory.getLogger(CachedDomainsConnector.class);
+
     /**
      * Cache of available resources mapped by domains codes.
      *
@@ -64,7 +69,7 @@ public class CachedDomainsConnector extends DomainsConnector
     /**
      * Start periodic cache of foreign domain's resources (type of {@link cz.cesnet.shongo.controller.ObjectType#RESOURCE}).
      * When cache is initialized, it will add new domains. Removing from cache and {@link ScheduledThreadPoolExecutor}
-     * is handled by thread itself ({@link DomainTask}).
+     * is handled by thread itself ({@link ChangesTask}).
      */
     synchronized private void updateResourceCache()
     {
@@ -79,18 +84,27 @@ public class CachedDomainsConnector extends DomainsConnector
                 }
             }
         }
-        MultiMap<String, String> parameters = new MultiValueMap<>();
         CapabilitySpecificationRequest capabilitySpecificationRequest = new CapabilitySpecificationRequest(DomainCapability.Type.RESOURCE);
         List<CapabilitySpecificationRequest> capabilityListRequestSpecification = Collections.singletonList(capabilitySpecificationRequest);
-        submitCachedTypedListRequest(InterDomainAction.HttpMethod.POST, InterDomainAction.DOMAIN_CAPABILITY_LIST, null,
-                capabilityListRequestSpecification, domains, DomainCapability.class, availableResources, unavailableResources);
+        for (Domain domain : domains) {
+            submitChangesTask(new ChangesTask<DomainCapability>(InterDomainAction.DOMAIN_RESOURCE_CHANGES,
+                    InterDomainAction.HttpMethod.POST, InterDomainAction.DOMAIN_CAPABILITY_LIST,
+                    capabilityListRequestSpecification, domain, DomainCapability.class, availableResources,
+                    unavailableResources)
+            {
+                @Override
+                protected String getId(DomainCapability resource)
+                {
+                    return resource.getId();
+                }
+            });
+        }
     }
 
     /**
      * Start periodic cache of foreign domain's resourceReservations.
-     * TODO
      * When cache is initialized, it will add new domains. Removing from cache and {@link ScheduledThreadPoolExecutor}
-     * is handled by thread itself ({@link DomainTask}).
+     * is handled by thread itself ({@link ChangesTask}).
      */
     synchronized private void updateResourceReservationCache()
     {
@@ -103,39 +117,28 @@ public class CachedDomainsConnector extends DomainsConnector
                 }
             }
         }
-        submitCachedTypedListRequest(InterDomainAction.HttpMethod.GET, InterDomainAction.DOMAIN_RESOURCE_RESERVATION_LIST,
-                null, null, domains, Reservation.class, resourceReservations, unavailableReservationsDomains);
-    }
-
-    private <T> void submitCachedTypedListRequest(final InterDomainAction.HttpMethod method, final String action,
-                                                                    final MultiMap<String, String> parameters, Object data, final Collection<Domain> domains,
-                                                                    Class<T> objectClass, Map<String, ?> cache, Set<String> unavailableDomainsCache)
-    {
-        ObjectReader reader = mapper.reader(mapper.getTypeFactory().constructCollectionType(List.class, objectClass));
-        submitCachedRequests(method, action, parameters, data, domains, reader, cache, unavailableDomainsCache, List.class);
+        for (Domain domain : domains) {
+            submitChangesTask(new ChangesTask<Reservation>(InterDomainAction.DOMAIN_RESOURCE_RESERVATION_CHANGES,
+                    InterDomainAction.HttpMethod.GET, InterDomainAction.DOMAIN_RESOURCE_RESERVATION_LIST, null,
+                    domain, Reservation.class, resourceReservations, unavailableReservationsDomains)
+            {
+                @Override
+                protected String getId(Reservation reservation)
+                {
+                    return reservation.getForeignReservationId();
+                }
+            });
+        }
     }
 
     /**
-     * Submit action tasks to {#code getExecutor()} with periodic repetition (in controller configuration).
-     * @param method Http method
-     * @param action to call
-     * @param parameters of call
-     * @param domains to be used
-     * @param reader for parsing JSON response
-     * @param result concurrent map
-     * @param unavailableDomainsCache concurrent map
-     * @param returnClass class of result object(s)
-     * @param <T> type of the returned result
+     * Submit given {@code task} to {#code getExecutor()} with periodic repetition (in controller configuration).
+     *
+     * @param task to be submitted
      */
-    synchronized protected <T> void submitCachedRequests(InterDomainAction.HttpMethod method, String action,
-                                            MultiMap<String, String> parameters, Object data, Collection<Domain> domains,
-                                            ObjectReader reader, Map<String, ?> result,
-                                            Set<String> unavailableDomainsCache, Class<T> returnClass)
+    private void submitChangesTask(ChangesTask<?> task)
     {
-        for (final Domain domain : domains) {
-            Runnable task = new DomainTask<>(method, action, parameters, data, domain, reader, returnClass, result, unavailableDomainsCache);
-            getExecutor().scheduleWithFixedDelay(task, 0, getConfiguration().getInterDomainCacheRefreshRate(), TimeUnit.SECONDS);
-        }
+        getExecutor().scheduleWithFixedDelay(task, 0, getConfiguration().getInterDomainCacheRefreshRate(), TimeUnit.SECONDS);
     }
 
     /**
@@ -243,7 +246,7 @@ public class CachedDomainsConnector extends DomainsConnector
 
 
     /**
-     * Returns cached allocatable resources for now or will perform synchronized request to all foreign domains (can be slow, depending on {@code DomainsConnector.THREAD_TIMEOUT}).
+     * Returns cached allocatable resources for now or will perform synchronized request to all foreign domains (can be slow, each domain is waited for at most the inter-domain command timeout).
      * TODO: allows only capabilities from one domain, when resources is specified so must be domain
      *
      * @param request to filter foreign {@link DomainCapability}
@@ -422,4 +425,219 @@ public class CachedDomainsConnector extends DomainsConnector
 
         return result;
     }
+
+    /**
+     * Periodically refreshes cached objects of a single foreign domain. Only {@link ChangeSet}s since the last refresh
+     * are requested, the foreign domain returns all objects only when the last refresh is too old. When the foreign
+     * domain doesn't provide the {@link ChangeSet}s (the action is not found), all objects are requested by the
+     * list action on each refresh.
+     *
+     * @param <T> type of cached objects
+     */
+    private abstract class ChangesTask<T> implements Runnable
+    {
+        /**
+         * URL path of the action which returns {@link ChangeSet}
+         */
+        private final String action;
+
+        /**
+         * Http method, URL path and POST data of the action which returns all objects
+         */
+        private final InterDomainAction.HttpMethod listMethod;
+        private final String listAction;
+        private final Object listData;
+
+        /**
+         * Domain whose objects are cached
+         */
+        private final Domain domain;
+
+        /**
+         * Class of cached objects
+         */
+        private final Class<T> itemClass;
+
+        /**
+         * Reader to parse the JSON {@link ChangeSet}
+         */
+        private final ObjectReader reader;
+
+        /**
+         * Reader to parse the JSON list of all objects
+         */
+        private final ObjectReader listReader;
+
+        /**
+         * Cache to be filled
+         */
+        private final Map<String, List<T>> cache;
+
+        /**
+         * Set of domains for which the action fails
+         */
+        private final Set<String> unavailableDomainsCache;
+
+        /**
+         * Current objects by identifiers.
+         */
+        private final Map<String, T> items = new LinkedHashMap<>();
+
+        /**
+         * {@link ChangeSet#getEpoch()} and {@link ChangeSet#getSequence()} of the last refresh.
+         */
+        private Long epoch;
+        private Long sequence;
+
+        /**
+         * Specifies whether the foreign domain provides {@link ChangeSet}s by the {@link #action}.
+         */
+        private boolean changesSupported = true;
+
+        public ChangesTask(String action, InterDomainAction.HttpMethod listMethod, String listAction, Object listData,
+                Domain domain, Class<T> itemClass, Map<String, List<T>> cache, Set<String> unavailableDomainsCache)
+        {
+            this.action = action;
+            this.listMethod = listMethod;
+            this.listAction = listAction;
+            this.listData = listData;
+            this.domain = domain;
+            this.itemClass = itemClass;
+            this.reader = mapper.reader(mapper.getTypeFactory().constructParametricType(ChangeSet.class, itemClass));
+            this.listReader = mapper.reader(mapper.getTypeFactory().constructCollectionType(List.class, itemClass));
+            this.cache = cache;
+            this.unavailableDomainsCache = unavailableDomainsCache;
+        }
+
+        /**
+         * @param item
+         * @return identifier of given {@code item}
+         */
+        protected abstract String getId(T item);
+
+        /**
+         * Runnable will be terminated (throws {@link IllegalStateException}) if domain does not exist or is no allocatable.
+         */
+        @Override
+        public void run()
+        {
+            Domain internalDomain = getDomainService().getDomain(domain.getId());
+            if (internalDomain == null || !internalDomain.isAllocatable()) {
+                terminate();
+            }
+
+            ChangeSet<T> changeSet = null;
+            try {
+                if (changesSupported) {
+                    changeSet = getChanges();
+                }
+                if (!changesSupported) {
+                    changeSet = getAll();
+                }
+            }
+            catch (IllegalStateException exception) {
+                terminate();
+                return;
+            }
+            if (changeSet == null) {
+                synchronized (cache) {
+                    if (!cache.containsKey(domain.getName())) {
+                        cache.put(domain.getName(), null);
+                    }
+                    unavailableDomainsCache.add(domain.getName());
+                }
+                return;
+            }
+
+            if (changeSet.isFull()) {
+                items.clear();
+            }
+            for (String removedId : changeSet.getRemovedIds()) {
+                items.remove(removedId);
+            }
+            for (T item : changeSet.getItems()) {
+                items.put(getId(item), item);
+            }
+            if (changesSupported) {
+                epoch = changeSet.getEpoch();
+                sequence = changeSet.getSequence();
+            }
+
+            synchronized (cache) {
+                if (changeSet.isEmpty() && cache.get(domain.getName()) != null
+                        && !unavailableDomainsCache.contains(domain.getName())) {
+                    // Cached objects are up to date
+                    return;
+                }
+                // Cached objects can be modified by readers (e.g., marked as unavailable) and thus copies are cached
+                List<T> cachedItems = new ArrayList<>();
+                for (T item : items.values()) {
+                    cachedItems.add(mapper.convertValue(item, itemClass));
+                }
+                cache.put(domain.getName(), cachedItems);
+                unavailableDomainsCache.remove(domain.getName());
+            }
+            logger.debug("Cache of {} refreshed by {} changes (domain: {}, sequence: {}).",
+                    new Object[]{action, (changeSet.isFull() ? "all" : changeSet.getItems().size()
+                            + changeSet.getRemovedIds().size()), domain.getName(), sequence});
+        }
+
+        /**
+         * Request {@link ChangeSet} since the last refresh. When the {@link #action} is not found,
+         * the {@link #changesSupported} is unset.
+         *
+         * @return {@link ChangeSet} or {@code null} when the request has failed
+         */
+        private ChangeSet<T> getChanges()
+        {
+            MultiMap<String, String> parameters = new MultiValueMap<>();
+            if (epoch != null) {
+                parameters.put("epoch", epoch);
+                parameters.put("sequence", sequence);
+            }
+            DomainTask<ChangeSet> changesTask = new DomainTask<ChangeSet>(InterDomainAction.HttpMethod.GET, action,
+                    parameters, null, domain, reader, ChangeSet.class, null, null);
+            ChangeSet<T> changeSet = changesTask.call();
+            Exception failure = changesTask.getFailure();
+            if (changeSet == null && failure instanceof ForeignDomainConnectException) {
+                Integer responseCode = ((ForeignDomainConnectException) failure).getResponseCode();
+                if (Integer.valueOf(HttpURLConnection.HTTP_NOT_FOUND).equals(responseCode)) {
+                    logger.info("Domain '{}' does not provide {}, {} will be used instead.",
+                            new Object[]{domain.getName(), action, listAction});
+                    changesSupported = false;
+                }
+            }
+            return changeSet;
+        }
+
+        /**
+         * Request all objects by the {@link #listAction}.
+         *
+         * @return full {@link ChangeSet} or {@code null} when the request has failed
+         */
+        private ChangeSet<T> getAll()
+        {
+            List<T> items = new DomainTask<List>(listMethod, listAction, null, listData, domain, listReader,
+                    List.class, null, null).call();
+            if (items == null) {
+                return null;
+            }
+            ChangeSet<T> changeSet = new ChangeSet<>();
+            changeSet.setFull(true);
+            for (T item : items) {
+                changeSet.addItem(item);
+            }
+            return changeSet;
+        }
+
+        private void terminate() throws IllegalStateException
+        {
+            synchronized (cache) {
+                cache.remove(domain.getName());
+                unavailableDomainsCache.remove(domain.getName());
+            }
+            logger.info("Domain '" + domain.getName() + "' does not exist or is not allocatable. Domain task terminated.");
+            throw new IllegalStateException("Domain '" + domain.getName() + "' does not exist or is not allocatable.");
+        }
+    }
 }
@@ -0,0 +1,188 @@
+package cz.cesnet.shongo.controller.domains;
+
+import cz.cesnet.shongo.controller.api.domains.response.ChangeSet;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Numbers changes of a list of objects provided to a single foreign domain by monotonic sequence numbers, so that the
+ * foreign domain can request only the changes since the sequence number it has already seen (see {@link ChangeSet}).
+ * <p/>
+ * The current list is compared with the previous one by JSON representation of the objects. Only last
+ * {@link #maxSize} changes are kept and older sequence numbers get the full list.
+ *
+ * @param <T> type of objects
+ */
+public abstract class ChangeLog<T>
+{
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    static {
+        mapper.configure(SerializationConfig.Feature.WRITE_DATES_AS_TIMESTAMPS, false);
+    }
+
+    /**
+     * Identifies the {@link #sequence} (changes e.g. when the domain controller is restarted).
+     */
+    private final long epoch = System.currentTimeMillis();
+
+    /**
+     * Maximum number of kept {@link #changes}.
+     */
+    private final int maxSize;
+
+    /**
+     * Sequence number of the last change.
+     */
+    private long sequence = 0;
+
+    /**
+     * Oldest sequence number for which all following changes are kept in {@link #changes}.
+     */
+    private long firstSequence = 0;
+
+    /**
+     * JSON representations of current objects by their identifiers.
+     */
+    private Map<String, String> snapshot = new HashMap<String, String>();
+
+    /**
+     * Last {@link #maxSize} changes ordered by sequence numbers.
+     */
+    private final Deque<Change<T>> changes = new ArrayDeque<Change<T>>();
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize sets the {@link #maxSize}
+     */
+    public ChangeLog(int maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param item
+     * @return identifier of given {@code item}
+     */
+    protected abstract String getId(T item);
+
+    /**
+     * @return {@link #sequence}
+     */
+    public synchronized long getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * Record changes between previous and given {@code items} and return changes since given {@code sequence}.
+     *
+     * @param items    current objects
+     * @param epoch    of the {@code sequence} or {@code null} when the foreign domain has no objects yet
+     * @param sequence last sequence number which the foreign domain has seen
+     * @return {@link ChangeSet} since given {@code sequence}
+     */
+    public synchronized ChangeSet<T> getChanges(Collection<T> items, Long epoch, Long sequence)
+    {
+        update(items);
+
+        ChangeSet<T> changeSet = new ChangeSet<T>();
+        changeSet.setEpoch(this.epoch);
+        changeSet.setSequence(this.sequence);
+        if (epoch == null || sequence == null || epoch != this.epoch
+                || sequence < firstSequence || sequence > this.sequence) {
+            changeSet.setFull(true);
+            for (T item : items) {
+                changeSet.addItem(item);
+            }
+            return changeSet;
+        }
+
+        // Only the last change of each object is returned
+        Map<String, Change<T>> changesById = new LinkedHashMap<String, Change<T>>();
+        Iterator<Change<T>> iterator = changes.descendingIterator();
+        while (iterator.hasNext()) {
+            Change<T> change = iterator.next();
+            if (change.sequence <= sequence) {
+                break;
+            }
+            if (!changesById.containsKey(change.id)) {
+                changesById.put(change.id, change);
+            }
+        }
+        for (Change<T> change : changesById.values()) {
+            if (change.item != null) {
+                changeSet.addItem(change.item);
+            }
+            else {
+                changeSet.addRemovedId(change.id);
+            }
+        }
+        return changeSet;
+    }
+
+    /**
+     * Record changes between previous and given {@code items}.
+     *
+     * @param items current objects
+     */
+    private void update(Collection<T> items)
+    {
+        Map<String, String> previousSnapshot = snapshot;
+        snapshot = new HashMap<String, String>();
+        for (T item : items) {
+            String id = getId(item);
+            String json;
+            try {
+                json = mapper.writeValueAsString(item);
+            }
+            catch (IOException exception) {
+                throw new IllegalStateException("Failed to serialize " + id + ".", exception);
+            }
+            snapshot.put(id, json);
+            if (!json.equals(previousSnapshot.remove(id))) {
+                addChange(new Change<T>(++sequence, id, item));
+            }
+        }
+        for (String removedId : previousSnapshot.keySet()) {
+            addChange(new Change<T>(++sequence, removedId, null));
+        }
+    }
+
+    /**
+     * @param change to be added to the {@link #changes}
+     */
+    private void addChange(Change<T> change)
+    {
+        changes.addLast(change);
+        while (changes.size() > maxSize) {
+            firstSequence = changes.removeFirst().sequence;
+        }
+    }
+
+    /**
+     * Single change of an object.
+     */
+    private static class Change<T>
+    {
+        private final long sequence;
+
+        private final String id;
+
+        /**
+         * Added or modified object or {@code null} when the object has been removed.
+         */
+        private final T item;
+
+        private Change(long sequence, String id, T item)
+        {
+            this.sequence = sequence;
+            this.id = id;
+            this.item = item;
+        }
+    }
+}
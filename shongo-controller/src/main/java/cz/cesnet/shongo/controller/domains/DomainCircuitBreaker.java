@@ -0,0 +1,148 @@
+package cz.cesnet.shongo.controller.domains;
+
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-domain circuit breaker for requests to foreign domains.
+ *
+ * After {@link #failureThreshold} consecutive failed requests the domain is skipped for {@link #openDuration}.
+ * Afterwards a single request is allowed to probe the domain, and when it succeeds, the domain is used again.
+ */
+public class DomainCircuitBreaker
+{
+    private static Logger logger = LoggerFactory.getLogger(DomainCircuitBreaker.class);
+
+    /**
+     * Number of consecutive failures after which the domain is skipped.
+     */
+    private final int failureThreshold;
+
+    /**
+     * Duration in milliseconds for which the domain is skipped.
+     */
+    private final long openDuration;
+
+    /**
+     * {@link State}s by domain names (only for domains with some failures).
+     */
+    private final ConcurrentMap<String, State> states = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param failureThreshold sets the {@link #failureThreshold}
+     * @param openDuration     sets the {@link #openDuration}
+     */
+    public DomainCircuitBreaker(int failureThreshold, Duration openDuration)
+    {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be positive.");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration.getMillis();
+    }
+
+    /**
+     * @param domainName
+     * @return true when request to domain with given {@code domainName} should be performed, false otherwise
+     */
+    public boolean allowRequest(String domainName)
+    {
+        State state = states.get(domainName);
+        if (state == null) {
+            return true;
+        }
+        synchronized (state) {
+            if (state.failureCount < failureThreshold) {
+                return true;
+            }
+            long now = System.currentTimeMillis();
+            if (now - state.openedAt >= openDuration) {
+                // Allow one probe request per open duration
+                state.openedAt = now;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @param domainName
+     * @return true when requests to domain with given {@code domainName} are currently skipped
+     */
+    public boolean isOpen(String domainName)
+    {
+        State state = states.get(domainName);
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            return state.failureCount >= failureThreshold;
+        }
+    }
+
+    /**
+     * Record successful request to domain with given {@code domainName}.
+     *
+     * @param domainName
+     */
+    public void recordSuccess(String domainName)
+    {
+        State state = states.remove(domainName);
+        if (state != null) {
+            synchronized (state) {
+                if (state.failureCount >= failureThreshold) {
+                    logger.info("Domain {} is available again.", domainName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record failed request to domain with given {@code domainName}.
+     *
+     * @param domainName
+     */
+    public void recordFailure(String domainName)
+    {
+        State state = states.get(domainName);
+        if (state == null) {
+            State newState = new State();
+            state = states.putIfAbsent(domainName, newState);
+            if (state == null) {
+                state = newState;
+            }
+        }
+        synchronized (state) {
+            state.failureCount++;
+            if (state.failureCount >= failureThreshold) {
+                if (state.failureCount == failureThreshold) {
+                    logger.warn("Domain {} has failed {} times in a row, it will be skipped for {} ms.",
+                            new Object[]{domainName, failureThreshold, openDuration});
+                }
+                state.openedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Failure state of a single domain.
+     */
+    private static class State
+    {
+        /**
+         * Number of consecutive failures.
+         */
+        private int failureCount;
+
+        /**
+         * Time when the domain has been skipped or probed for the last time.
+         */
+        private long openedAt;
+    }
+}
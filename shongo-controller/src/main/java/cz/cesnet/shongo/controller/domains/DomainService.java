@@ -796,6 +796,87 @@ public class DomainService extends AbstractServiceImpl implements Component.Enti
         }
     }
 
+    /**
+     * @param reservationRequest which has been created for a foreign domain
+     * @return {@link Reservation} with current state of given {@code reservationRequest} for the foreign domain
+     */
+    public Reservation getForeignReservation(ReservationRequest reservationRequest)
+    {
+        cz.cesnet.shongo.controller.booking.reservation.Reservation currentReservation = reservationRequest.getAllocation().getCurrentReservation();
+        cz.cesnet.shongo.controller.booking.specification.Specification specification = reservationRequest.getSpecification();
+
+        Reservation reservation = new Reservation();
+
+        reservation.setForeignReservationRequestId(ObjectIdentifier.formatId(reservationRequest));
+        if (currentReservation != null) {
+            reservation.setSlot(currentReservation.getSlot());
+            if (currentReservation instanceof ResourceReservation) {
+                ResourceReservation resourceReservation = (ResourceReservation) currentReservation;
+                String resourceId = ObjectIdentifier.formatId(resourceReservation.getResource());
+
+                cz.cesnet.shongo.controller.api.domains.response.ResourceSpecification resourceSpecification;
+                resourceSpecification = new cz.cesnet.shongo.controller.api.domains.response.ResourceSpecification(resourceId);
+                reservation.setSpecification(resourceSpecification);
+            }
+            else if (currentReservation instanceof cz.cesnet.shongo.controller.booking.room.RoomReservation) {
+                cz.cesnet.shongo.controller.booking.room.RoomReservation roomReservation;
+                roomReservation = (cz.cesnet.shongo.controller.booking.room.RoomReservation) currentReservation;
+
+                cz.cesnet.shongo.controller.booking.room.RoomSpecification roomSpecification;
+                roomSpecification = (cz.cesnet.shongo.controller.booking.room.RoomSpecification) specification;
+
+                cz.cesnet.shongo.controller.api.domains.response.RoomSpecification foreignRoomSpecification;
+                foreignRoomSpecification = new cz.cesnet.shongo.controller.api.domains.response.RoomSpecification();
+                foreignRoomSpecification.setLicenseCount(roomReservation.getLicenseCount());
+                foreignRoomSpecification.setTechnologies(new HashSet<>(roomSpecification.getTechnologies()));
+                cz.cesnet.shongo.controller.api.ExecutableState state = roomReservation.getEndpoint().getState().toApi();
+                foreignRoomSpecification.setState(cz.cesnet.shongo.controller.api.domains.response.RoomSpecification.RoomState.fromApi(state));
+
+                String roomName = null;
+                for (cz.cesnet.shongo.controller.booking.alias.Alias alias : roomReservation.getEndpoint().getAliases()) {
+                    if (alias.getType() == AliasType.ROOM_NAME) {
+                        roomName = alias.getValue();
+                    }
+                }
+                foreignRoomSpecification.setRoomName(roomName);
+                for (cz.cesnet.shongo.controller.booking.alias.Alias alias : roomReservation.getEndpoint().getAliases()) {
+                    foreignRoomSpecification.addAlias(alias.getType(), alias.getValue());
+                }
+
+                //TODO:
+                for (cz.cesnet.shongo.controller.booking.executable.ExecutableService service : roomReservation.getEndpoint().getServices()) {
+                    if (service instanceof cz.cesnet.shongo.controller.booking.recording.RecordingService) {
+                        cz.cesnet.shongo.controller.booking.recording.RecordingService recordingService;
+                        recordingService = (cz.cesnet.shongo.controller.booking.recording.RecordingService) service;
+                        foreignRoomSpecification.setRecorded(true);
+                        foreignRoomSpecification.setRecordingActive(recordingService.isActive());
+                    } else {
+                        throw new TodoImplementException("Unsupported service" + service.getClass());
+                    }
+                }
+
+                reservation.setSpecification(foreignRoomSpecification);
+            }
+        }
+
+        switch (reservationRequest.getAllocationState()) {
+            case ALLOCATION_FAILED:
+                reservation.setStatus(AbstractResponse.Status.FAILED);
+
+                cz.cesnet.shongo.controller.scheduler.SchedulerReport report = reservationRequest.getReports().get(reservationRequest.getReports().size() - 1);
+                reservation.setMessage("TODO: " + report.toString());
+                break;
+            case ALLOCATED:
+                String reservationId = ObjectIdentifier.formatId(currentReservation);
+                reservation.setForeignReservationId(reservationId);
+                break;
+            default:
+                break;
+        }
+
+        return reservation;
+    }
+
     public cz.cesnet.shongo.controller.api.Domain getDomain(String domainId)
     {
         checkNotNull("domain-id", domainId);
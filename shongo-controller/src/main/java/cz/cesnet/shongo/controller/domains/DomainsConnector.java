@@ -43,6 +43,7 @@ import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Foreign domains connector for Inter Domain Agent
@@ -55,6 +56,15 @@ public class DomainsConnector
 
     private ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(CORE_POOL_SIZE);
 
+    /**
+     * Executor for requests performed by {@link #performRequests} (concurrently by any number of callers).
+     */
+    private final ThreadPoolExecutor requestExecutor;
+
+    private final DomainCircuitBreaker circuitBreaker;
+
+    private final ForeignReservationStates reservationStates;
+
     private final Logger logger = LoggerFactory.getLogger(InterDomainAgent.class);
 
     private final ConcurrentMap<String, String> clientAccessTokens = new ConcurrentHashMap<>();
@@ -69,7 +79,11 @@ public class DomainsConnector
 
     private final int COMMAND_TIMEOUT;
 
-    private final int THREAD_TIMEOUT = 500;
+    /**
+     * Maximum duration in milliseconds for which {@link #performDomainTasks} waits before it checks whether
+     * the tasks which were waiting for a free thread have started.
+     */
+    private static final long START_CHECK_PERIOD = 100;
 
     public DomainsConnector(ControllerConfiguration configuration, DomainService domainService, DomainAdminNotifier notifier)
     {
@@ -77,6 +91,24 @@ public class DomainsConnector
         this.configuration = configuration;
         COMMAND_TIMEOUT = configuration.getInterDomainCommandTimeout();
         this.notifier = notifier;
+        this.circuitBreaker = new DomainCircuitBreaker(configuration.getInterDomainCircuitBreakerFailures(),
+                configuration.getInterDomainCircuitBreakerDuration());
+        this.reservationStates = new ForeignReservationStates(configuration.getInterDomainReservationPollPeriod());
+        int threadCount = configuration.getInterDomainThreadCount();
+        this.requestExecutor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "domain-request-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.requestExecutor.allowCoreThreadTimeOut(true);
         mapper.configure(SerializationConfig.Feature.WRITE_DATES_AS_TIMESTAMPS, false);
     }
 
@@ -90,6 +122,16 @@ public class DomainsConnector
         return this.domainService;
     }
 
+    protected DomainCircuitBreaker getCircuitBreaker()
+    {
+        return circuitBreaker;
+    }
+
+    public ForeignReservationStates getReservationStates()
+    {
+        return reservationStates;
+    }
+
     public ControllerConfiguration getConfiguration()
     {
         return configuration;
@@ -147,32 +189,16 @@ public class DomainsConnector
      * @param result      collection to store the result
      * @param returnClass {@link Class<T>} of the object to return
      */
-    protected synchronized <T> void performRequests(final InterDomainAction.HttpMethod method, final String action,
-                                                    final MultiMap<String, String> parameters, final Object data,
-                                                    final Collection<Domain> domains, final ObjectReader reader,
-                                                    final Map<String, ?> result, final Class<T> returnClass)
+    protected <T> void performRequests(final InterDomainAction.HttpMethod method, final String action,
+                                       final MultiMap<String, String> parameters, final Object data,
+                                       final Collection<Domain> domains, final ObjectReader reader,
+                                       final Map<String, ?> result, final Class<T> returnClass)
     {
-        final ConcurrentMap<String, Future<T>> futureTasks = new ConcurrentHashMap<>();
-
+        Map<Domain, DomainTask<T>> tasks = new LinkedHashMap<>();
         for (final Domain domain : domains) {
-            Callable<T> task = new DomainTask<>(method, action, parameters, data, domain, reader, returnClass, result, null);
-            futureTasks.put(domain.getName(), executor.submit(task));
-        }
-
-        while (!futureTasks.isEmpty()) {
-            try {
-                Iterator<Map.Entry<String, Future<T>>> iterator = futureTasks.entrySet().iterator();
-                while (iterator.hasNext()) {
-                    Map.Entry<String, Future<T>> entry = iterator.next();
-                    if (entry.getValue().isDone()) {
-                        iterator.remove();
-                    }
-                }
-                Thread.sleep(THREAD_TIMEOUT);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+            tasks.put(domain, new DomainTask<>(method, action, parameters, data, domain, reader, returnClass, null, null));
         }
+        performDomainTasks(tasks, result);
     }
 
     /**
@@ -186,32 +212,16 @@ public class DomainsConnector
      * @param result      collection to store the result
      * @param returnClass {@link Class<T>} of the object to return
      */
-    protected synchronized <T> void performRequests(final InterDomainAction.HttpMethod method, final String action,
-                                                    final Map<Domain, MultiMap<String, String>> parametersByDomain,
-                                                    final Object data, final ObjectReader reader,
-                                                    final Map<String, ?> result, final Class<T> returnClass)
+    protected <T> void performRequests(final InterDomainAction.HttpMethod method, final String action,
+                                       final Map<Domain, MultiMap<String, String>> parametersByDomain,
+                                       final Object data, final ObjectReader reader,
+                                       final Map<String, ?> result, final Class<T> returnClass)
     {
-        final ConcurrentMap<String, Future<T>> futureTasks = new ConcurrentHashMap<>();
-
+        Map<Domain, DomainTask<T>> tasks = new LinkedHashMap<>();
         for (final Domain domain : parametersByDomain.keySet()) {
-            Callable<T> task = new DomainTask<>(method, action, parametersByDomain.get(domain), data, domain, reader, returnClass, result, null);
-            futureTasks.put(domain.getName(), executor.submit(task));
-        }
-
-        while (!futureTasks.isEmpty()) {
-            try {
-                Iterator<Map.Entry<String, Future<T>>> iterator = futureTasks.entrySet().iterator();
-                while (iterator.hasNext()) {
-                    Map.Entry<String, Future<T>> entry = iterator.next();
-                    if (entry.getValue().isDone()) {
-                        iterator.remove();
-                    }
-                }
-                Thread.sleep(THREAD_TIMEOUT);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+            tasks.put(domain, new DomainTask<>(method, action, parametersByDomain.get(domain), data, domain, reader, returnClass, null, null));
         }
+        performDomainTasks(tasks, result);
     }
 
     /**
@@ -225,31 +235,120 @@ public class DomainsConnector
      * @param result      collection to store the result
      * @param returnClass {@link Class<T>} of the object to return
      */
-    protected synchronized <T> void performRequests(final InterDomainAction.HttpMethod method, final String action,
-                                                    final MultiMap<String, String> parameters,
-                                                    final Map<Domain, Object> dataByDomain, final ObjectReader reader,
-                                                    final Map<String, ?> result, final Class<T> returnClass)
+    protected <T> void performRequests(final InterDomainAction.HttpMethod method, final String action,
+                                       final MultiMap<String, String> parameters,
+                                       final Map<Domain, Object> dataByDomain, final ObjectReader reader,
+                                       final Map<String, ?> result, final Class<T> returnClass)
     {
-        final ConcurrentMap<String, Future<T>> futureTasks = new ConcurrentHashMap<>();
-
+        Map<Domain, DomainTask<T>> tasks = new LinkedHashMap<>();
         for (final Domain domain : dataByDomain.keySet()) {
-            Callable<T> task = new DomainTask<>(method, action, parameters, dataByDomain.get(domain), domain, reader, returnClass, result, null);
-            futureTasks.put(domain.getName(), executor.submit(task));
+            tasks.put(domain, new DomainTask<>(method, action, parameters, dataByDomain.get(domain), domain, reader, returnClass, null, null));
         }
+        performDomainTasks(tasks, result);
+    }
 
-        while (!futureTasks.isEmpty()) {
-            try {
-                Iterator<Map.Entry<String, Future<T>>> iterator = futureTasks.entrySet().iterator();
-                while (iterator.hasNext()) {
-                    Map.Entry<String, Future<T>> entry = iterator.next();
-                    if (entry.getValue().isDone()) {
-                        iterator.remove();
+    /**
+     * Submit given {@code tasks} to {@link #requestExecutor} and wait until each of them is done or until its domain
+     * times out ({@link #COMMAND_TIMEOUT} since the task has started, the time for which the task waits for a free
+     * thread isn't counted). Tasks which are not done in time are cancelled and recorded as failures in
+     * {@link #circuitBreaker} and domains which are skipped by {@link #circuitBreaker} are not requested at all.
+     *
+     * @param tasks  to be performed by domains
+     * @param result map to store the non-null results by domain names
+     */
+    private <T> void performDomainTasks(Map<Domain, DomainTask<T>> tasks, Map<String, ?> result)
+    {
+        CompletionService<T> completionService = new ExecutorCompletionService<>(requestExecutor);
+        Map<Future<T>, Domain> pendingTasks = new HashMap<>();
+        Map<Future<T>, StartedTask<T>> startedTasks = new HashMap<>();
+        for (Map.Entry<Domain, DomainTask<T>> entry : tasks.entrySet()) {
+            Domain domain = entry.getKey();
+            if (!circuitBreaker.allowRequest(domain.getName())) {
+                logger.debug("Skipping request to domain {} which has failed repeatedly.", domain.getName());
+                continue;
+            }
+            StartedTask<T> startedTask = new StartedTask<>(entry.getValue());
+            Future<T> future = completionService.submit(startedTask);
+            pendingTasks.put(future, domain);
+            startedTasks.put(future, startedTask);
+        }
+
+        try {
+            while (!pendingTasks.isEmpty()) {
+                // Find the nearest deadline of started tasks
+                Future<T> nearestFuture = null;
+                long nearestDeadline = Long.MAX_VALUE;
+                boolean notStarted = false;
+                for (Future<T> pendingFuture : pendingTasks.keySet()) {
+                    long startTime = startedTasks.get(pendingFuture).getStartTime();
+                    if (startTime == 0) {
+                        notStarted = true;
+                    }
+                    else if (startTime + COMMAND_TIMEOUT < nearestDeadline) {
+                        nearestFuture = pendingFuture;
+                        nearestDeadline = startTime + COMMAND_TIMEOUT;
+                    }
+                }
+                long timeout = Math.max(nearestDeadline - System.currentTimeMillis(), 0);
+                if (notStarted) {
+                    // Deadlines of not started tasks are not known yet
+                    timeout = Math.min(timeout, START_CHECK_PERIOD);
+                }
+
+                Future<T> future = completionService.poll(timeout, TimeUnit.MILLISECONDS);
+                if (future == null) {
+                    if (nearestFuture == null || nearestDeadline > System.currentTimeMillis()) {
+                        continue;
                     }
+                    future = nearestFuture;
+                    // The task must not record its own failure caused by the cancellation
+                    startedTasks.get(future).getDomainTask().setTimedOut();
+                    if (future.cancel(true)) {
+                        Domain domain = pendingTasks.get(future);
+                        logger.warn("Request to domain {} has timed out.", domain.getName());
+                        circuitBreaker.recordFailure(domain.getName());
+                    }
+                }
+                Domain domain = pendingTasks.remove(future);
+                if (domain == null) {
+                    // Already cancelled task
+                    continue;
                 }
-                Thread.sleep(THREAD_TIMEOUT);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                T response = getDomainTaskResult(future, domain);
+                if (response != null) {
+                    ((Map<String, T>) result).put(domain.getName(), response);
+                }
+            }
+        }
+        catch (InterruptedException exception) {
+            for (Future<T> future : pendingTasks.keySet()) {
+                future.cancel(true);
             }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param future of the {@link DomainTask}
+     * @param domain of the {@link DomainTask}
+     * @return result of done {@link DomainTask} or {@code null} when it failed or was cancelled
+     */
+    private <T> T getDomainTaskResult(Future<T> future, Domain domain)
+    {
+        if (future.isCancelled()) {
+            return null;
+        }
+        try {
+            return future.get();
+        }
+        catch (ExecutionException exception) {
+            logger.debug("Request to domain " + domain.getName() + " has ended.", exception.getCause());
+            return null;
+        }
+        catch (InterruptedException exception) {
+            // Future is already done
+            Thread.currentThread().interrupt();
+            return null;
         }
     }
 
@@ -275,8 +374,8 @@ public class DomainsConnector
      * @param clazz  {@link Class<T>} of the object to return
      * @return result object as instance of given {@code clazz}
      */
-    private <T> T performRequest(final InterDomainAction.HttpMethod method, final String action, final MultiMap<String, String> parameters,
-                                 Object data, final Domain domain, final ObjectReader reader, Class<T> clazz)
+    protected <T> T performRequest(final InterDomainAction.HttpMethod method, final String action, final MultiMap<String, String> parameters,
+                                   Object data, final Domain domain, final ObjectReader reader, Class<T> clazz)
     throws ForeignDomainConnectException
     {
         if (action == null || domain == null || reader == null) {
@@ -424,18 +523,18 @@ public class DomainsConnector
             int errorCode = connection.getResponseCode();
             switch (errorCode) {
                 case 400:
-                    throw new ForeignDomainConnectException(domain, actionUrl, "400 Bad Request " + connection.getResponseMessage());
+                    throw new ForeignDomainConnectException(domain, actionUrl, errorCode, "400 Bad Request " + connection.getResponseMessage());
                 case 401:
-                    throw new ForeignDomainConnectException(domain, actionUrl, "401 Unauthorized " + connection.getResponseMessage());
+                    throw new ForeignDomainConnectException(domain, actionUrl, errorCode, "401 Unauthorized " + connection.getResponseMessage());
                 case 403:
-                    throw new ForeignDomainConnectException(domain, actionUrl, "401 Forbidden " + connection.getResponseMessage());
+                    throw new ForeignDomainConnectException(domain, actionUrl, errorCode, "401 Forbidden " + connection.getResponseMessage());
                 case 404:
-                    throw new ForeignDomainConnectException(domain, actionUrl, "404 Not Found " + connection.getResponseMessage());
+                    throw new ForeignDomainConnectException(domain, actionUrl, errorCode, "404 Not Found " + connection.getResponseMessage());
                 case 500:
-                    throw new ForeignDomainConnectException(domain, actionUrl, "500 Internal Server Error " + connection.getResponseMessage());
+                    throw new ForeignDomainConnectException(domain, actionUrl, errorCode, "500 Internal Server Error " + connection.getResponseMessage());
                 default:
                     if (errorCode > 400) {
-                        throw new ForeignDomainConnectException(domain, actionUrl, errorCode + " " + connection.getResponseMessage());
+                        throw new ForeignDomainConnectException(domain, actionUrl, errorCode, errorCode + " " + connection.getResponseMessage());
                     }
             }
         } catch (IOException e) {
@@ -611,11 +710,14 @@ public class DomainsConnector
         if (previousReservationRequestId != null) {
             parameters.put("reservationRequestId", previousReservationRequestId);
         }
+        // Subscribe for pushing of the allocation state
+        parameters.put("notifyState", true);
 
         Reservation reservation = performRequest(InterDomainAction.HttpMethod.GET, InterDomainAction.DOMAIN_ALLOCATE_RESOURCE, parameters, null, domain, reader, Reservation.class);
         if (reservation.getSlot() == null) {
             reservation.setSlot(slot);
         }
+        reservationStates.setPolled(reservation.getForeignReservationRequestId());
         return reservation;
     }
 
@@ -647,6 +749,8 @@ public class DomainsConnector
             }
             parameters.put("reservationRequestId", previousReservationRequestId);
         }
+        // Subscribe for pushing of the allocation state
+        parameters.put("notifyState", true);
         List<ForeignRoomParticipantRole> participants = new ArrayList<>();
         if (roomSettings.getParticipants() != null) {
             for (Map.Entry<UserInformation, ParticipantRole> entry : roomSettings.getParticipants().entrySet()) {
@@ -661,6 +765,9 @@ public class DomainsConnector
         //TODO:Map<Domain, Object> dataByDomains = null;
 
         Map<String, Reservation> reservations = performTypedRequests(InterDomainAction.HttpMethod.POST, InterDomainAction.DOMAIN_ALLOCATE_ROOM, parameters, participants, domainCapabilities.keySet(), Reservation.class);
+        for (Reservation reservation : reservations.values()) {
+            reservationStates.setPolled(reservation.getForeignReservationRequestId());
+        }
         return new ArrayList<>(reservations.values());
     }
 
@@ -683,10 +790,55 @@ public class DomainsConnector
         return reservation;
     }
 
+    /**
+     * @param foreignReservationRequestIds
+     * @return true when state of any of given {@code foreignReservationRequestIds} has been pushed by foreign domain
+     *         or when it should be polled, false otherwise
+     */
+    public boolean isReservationStateChanged(Collection<String> foreignReservationRequestIds)
+    {
+        for (String foreignReservationRequestId : foreignReservationRequestIds) {
+            if (reservationStates.isChanged(foreignReservationRequestId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param domain
+     * @param foreignReservationRequestId
+     * @return pushed state of reservation request with given {@code foreignReservationRequestId} or polled state
+     *         when no state has been pushed
+     * @throws ForeignDomainConnectException
+     */
+    public Reservation getPendingReservationByRequest(Domain domain, String foreignReservationRequestId)
+            throws ForeignDomainConnectException
+    {
+        Reservation reservation = reservationStates.get(foreignReservationRequestId);
+        if (reservation == null) {
+            reservation = getReservationByRequest(domain, foreignReservationRequestId);
+            reservationStates.setPolled(foreignReservationRequestId);
+        }
+        return reservation;
+    }
+
+    /**
+     * @param foreignReservationRequestIds
+     * @return pushed states of reservation requests with given {@code foreignReservationRequestIds} or polled states
+     *         for the ones which have not been pushed
+     */
     public List<Reservation> getReservationsByRequests(Set<String> foreignReservationRequestIds)
     {
+        List<Reservation> reservations = new ArrayList<>();
         Map<Domain, MultiMap<String, String>> parametersByDomain = new HashMap<>();
         for (String reservationRequestId : foreignReservationRequestIds) {
+            Reservation reservation = reservationStates.get(reservationRequestId);
+            if (reservation != null) {
+                reservations.add(reservation);
+                continue;
+            }
+            reservationStates.setPolled(reservationRequestId);
             MultiMap<String, String> parameters = new MultiValueMap<>();
             parameters.put("reservationRequestId", reservationRequestId);
 
@@ -695,8 +847,10 @@ public class DomainsConnector
             parametersByDomain.put(domain, parameters);
         }
 
+        if (parametersByDomain.isEmpty()) {
+            return reservations;
+        }
         Map<String, Reservation> response = performTypedRequests(InterDomainAction.HttpMethod.GET, InterDomainAction.DOMAIN_RESERVATION_DATA, parametersByDomain, null, Reservation.class);
-        List<Reservation> reservations = new ArrayList<>();
         for (String domainName : response.keySet()) {
 //            Domain domain = getDomainService().findDomainByName(domainName);
             Reservation reservation = response.get(domainName);
@@ -803,6 +957,78 @@ public class DomainsConnector
         }
     }
 
+    /**
+     * Push state of reservation request allocated for the foreign {@code domain}.
+     *
+     * @param domain         to which the state should be pushed
+     * @param notificationId idempotency key of the push (the same for all attempts)
+     * @param reservation    state to push
+     * @throws ForeignDomainConnectException
+     */
+    public void notifyReservationState(Domain domain, String notificationId, Reservation reservation)
+            throws ForeignDomainConnectException
+    {
+        ObjectReader reader = mapper.reader(AbstractResponse.class);
+        MultiMap<String, String> parameters = new MultiValueMap<>();
+        parameters.put("notificationId", notificationId);
+
+        AbstractResponse response = performRequest(InterDomainAction.HttpMethod.POST, InterDomainAction.DOMAIN_RESERVATION_STATE, parameters, reservation, domain, reader, AbstractResponse.class);
+
+        if (!AbstractResponse.Status.OK.equals(response.getStatus())) {
+            throw new ForeignDomainConnectException(domain, InterDomainAction.DOMAIN_RESERVATION_STATE, "Failed to push reservation state to foreign domain.");
+        }
+    }
+
+    /**
+     * {@link Callable} which remembers when the wrapped {@link DomainTask} has started
+     * (deadlines of {@link #performDomainTasks} are counted since the start).
+     *
+     * @param <T> class of the result
+     */
+    private static class StartedTask<T> implements Callable<T>
+    {
+        /**
+         * Wrapped {@link DomainTask}.
+         */
+        private final DomainTask<T> domainTask;
+
+        /**
+         * Time when the {@link #domainTask} has started or {@code 0} when it hasn't started yet.
+         */
+        private volatile long startTime = 0;
+
+        /**
+         * @param domainTask sets the {@link #domainTask}
+         */
+        public StartedTask(DomainTask<T> domainTask)
+        {
+            this.domainTask = domainTask;
+        }
+
+        /**
+         * @return {@link #domainTask}
+         */
+        public DomainTask<T> getDomainTask()
+        {
+            return domainTask;
+        }
+
+        /**
+         * @return {@link #startTime}
+         */
+        public long getStartTime()
+        {
+            return startTime;
+        }
+
+        @Override
+        public T call()
+        {
+            startTime = System.currentTimeMillis();
+            return domainTask.call();
+        }
+    }
+
     /**
      * Represents action to be called on domain. Returns result after successful call. If {@code result} or
      * {@code unavailableDomains} are set, result or failed action will be written to them (synchronized on the {@code result}).
@@ -856,6 +1082,17 @@ public class DomainsConnector
          */
         private Set<String> unavailableDomains;
 
+        /**
+         * Specifies whether the action has timed out (and its failure has been already recorded in
+         * {@link #circuitBreaker}).
+         */
+        private volatile boolean timedOut = false;
+
+        /**
+         * Failure of the last call (or {@code null} when it has succeeded).
+         */
+        private volatile Exception failure;
+
         public DomainTask(final InterDomainAction.HttpMethod method, final String action,
                           final MultiMap<String, String> parameters, final Object data, final Domain domain,
                           final ObjectReader reader, final Class<T> returnClass,
@@ -872,23 +1109,50 @@ public class DomainsConnector
             this.unavailableDomains = unavailableDomains;
         }
 
+        /**
+         * Set the {@link #timedOut}.
+         */
+        public void setTimedOut()
+        {
+            this.timedOut = true;
+        }
+
+        /**
+         * @return {@link #failure}
+         */
+        public Exception getFailure()
+        {
+            return failure;
+        }
+
         /**
          * Callable will be terminated (throws {@link IllegalStateException}) only if domains does not exist.
          *
          * @return result of remote domain call
          */
         @Override
-        synchronized public T call()
+        public T call()
         {
             if (!Thread.currentThread().getName().contains("domainTask")) {
                 Thread.currentThread().setName(Thread.currentThread().getName() + "-domainTask-" + domain.getName());
             }
             boolean failed = true;
+            failure = null;
             try {
-                if (InterDomainAgent.getInstance().getDomainService().getDomain(domain.getId()) == null) {
+                if (getDomainService().getDomain(domain.getId()) == null) {
                     terminateDomainTask();
                 }
-                T response = performRequest(method, action, parameters, data, domain, reader, returnClass);
+                T response;
+                try {
+                    response = performRequest(method, action, parameters, data, domain, reader, returnClass);
+                }
+                catch (ForeignDomainConnectException exception) {
+                    if (!timedOut) {
+                        circuitBreaker.recordFailure(domain.getName());
+                    }
+                    throw exception;
+                }
+                circuitBreaker.recordSuccess(domain.getName());
                 if (result != null && response != null) {
                     synchronized (result) {
                         ((Map<String, T>) result).put(domain.getName(), response);
@@ -904,6 +1168,7 @@ public class DomainsConnector
                 // Thread will be terminated (in {@link ScheduledThreadPoolExecutor}).
                 throw e;
             } catch (Exception e) {
+                failure = e;
                 try {
                     notifier.logAndNotifyDomainAdmins("Failed to perform request to domain " + domain.getName(), e);
                 } catch (Exception notifyEx) {
@@ -935,13 +1200,12 @@ public class DomainsConnector
          * Allows only request for allocatable domains.
          */
         @Override
-        synchronized public void run()
+        public void run()
         {
-
             if (!Thread.currentThread().getName().contains("domainTask")) {
                 Thread.currentThread().setName(Thread.currentThread().getName() + "-domainTask-" + domain.getName());
             }
-            Domain internalDomain = InterDomainAgent.getInstance().getDomainService().getDomain(domain.getId());
+            Domain internalDomain = getDomainService().getDomain(domain.getId());
             if (internalDomain == null || !internalDomain.isAllocatable()) {
                 terminateDomainTask();
             }
@@ -950,10 +1214,12 @@ public class DomainsConnector
 
         private void terminateDomainTask() throws IllegalStateException
         {
-            synchronized (result) {
-                result.remove(domain.getName());
-                if (unavailableDomains != null) {
-                    unavailableDomains.remove(domain.getName());
+            if (result != null) {
+                synchronized (result) {
+                    result.remove(domain.getName());
+                    if (unavailableDomains != null) {
+                        unavailableDomains.remove(domain.getName());
+                    }
                 }
             }
             logger.info("Domain '" + domain.getName() + "' does not exist or is not allocatable. Domain task terminated.");
@@ -0,0 +1,105 @@
+package cz.cesnet.shongo.controller.domains;
+
+import cz.cesnet.shongo.ExpirationMap;
+import cz.cesnet.shongo.controller.api.domains.response.Reservation;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+/**
+ * States of reservation requests allocated in foreign domains.
+ * <p/>
+ * Foreign domains push the states of allocated reservation requests (see
+ * {@link cz.cesnet.shongo.controller.api.domains.InterDomainAction#DOMAIN_RESERVATION_STATE}) and thus the states
+ * are polled only when no state has been pushed for the {@link #pollPeriod} (e.g., when the foreign domain doesn't
+ * support pushing of states or when the pushing has failed).
+ */
+public class ForeignReservationStates
+{
+    /**
+     * Expiration of pushed states and processed notifications.
+     */
+    private static final Duration EXPIRATION = Duration.standardHours(1);
+
+    /**
+     * Pushed {@link Reservation}s by foreign reservation request identifiers.
+     */
+    private final ExpirationMap<String, Reservation> reservations = new ExpirationMap<>(EXPIRATION);
+
+    /**
+     * Identifiers of already processed notifications (pushes are retried by foreign domains).
+     */
+    private final ExpirationMap<String, Boolean> notificationIds = new ExpirationMap<>(EXPIRATION);
+
+    /**
+     * Times of last polls by foreign reservation request identifiers.
+     */
+    private final ExpirationMap<String, DateTime> pollDateTimes = new ExpirationMap<>(EXPIRATION);
+
+    /**
+     * Duration after which the state of a reservation request should be polled when it hasn't been pushed.
+     */
+    private final Duration pollPeriod;
+
+    /**
+     * Constructor.
+     *
+     * @param pollPeriod sets the {@link #pollPeriod}
+     */
+    public ForeignReservationStates(Duration pollPeriod)
+    {
+        this.pollPeriod = pollPeriod;
+    }
+
+    /**
+     * Store pushed state of a reservation request.
+     *
+     * @param notificationId idempotency key of the push
+     * @param reservation    pushed state
+     * @return true when the state has been stored, false when the notification has been already processed
+     */
+    public synchronized boolean push(String notificationId, Reservation reservation)
+    {
+        DateTime now = DateTime.now();
+        notificationIds.clearExpired(now);
+        reservations.clearExpired(now);
+        pollDateTimes.clearExpired(now);
+        if (notificationIds.contains(notificationId)) {
+            return false;
+        }
+        notificationIds.put(notificationId, Boolean.TRUE);
+        reservations.put(reservation.getForeignReservationRequestId(), reservation);
+        return true;
+    }
+
+    /**
+     * @param foreignReservationRequestId
+     * @return pushed state for given {@code foreignReservationRequestId} or {@code null}
+     */
+    public Reservation get(String foreignReservationRequestId)
+    {
+        return reservations.get(foreignReservationRequestId);
+    }
+
+    /**
+     * @param foreignReservationRequestId
+     * @return true when the state for given {@code foreignReservationRequestId} has been pushed or should be polled
+     */
+    public boolean isChanged(String foreignReservationRequestId)
+    {
+        if (reservations.contains(foreignReservationRequestId)) {
+            return true;
+        }
+        DateTime pollDateTime = pollDateTimes.get(foreignReservationRequestId);
+        return pollDateTime == null || !pollDateTime.plus(pollPeriod).isAfterNow();
+    }
+
+    /**
+     * Record that the state for given {@code foreignReservationRequestId} has been just polled.
+     *
+     * @param foreignReservationRequestId
+     */
+    public void setPolled(String foreignReservationRequestId)
+    {
+        pollDateTimes.put(foreignReservationRequestId, DateTime.now());
+    }
+}
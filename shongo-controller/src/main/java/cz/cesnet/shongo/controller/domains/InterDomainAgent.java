@@ -2,6 +2,8 @@ package cz.cesnet.shongo.controller.domains;
 
 import cz.cesnet.shongo.controller.ControllerConfiguration;
 import cz.cesnet.shongo.controller.EmailSender;
+import cz.cesnet.shongo.controller.api.domains.response.DomainCapability;
+import cz.cesnet.shongo.controller.api.domains.response.Reservation;
 import cz.cesnet.shongo.controller.authorization.Authorization;
 import cz.cesnet.shongo.controller.cache.Cache;
 import org.slf4j.Logger;
@@ -9,6 +11,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * InterDomain agent for Domain Controller
@@ -28,6 +32,18 @@ public class InterDomainAgent{
 
     private final DomainAdminNotifier notifier;
 
+    private final ReservationStateNotifier reservationStateNotifier;
+
+    /**
+     * {@link ChangeLog}s of resources provided to foreign domains by domain identifiers.
+     */
+    private final ConcurrentMap<String, ChangeLog<DomainCapability>> resourceChangeLogs = new ConcurrentHashMap<>();
+
+    /**
+     * {@link ChangeLog}s of resource reservations provided to foreign domains by domain identifiers.
+     */
+    private final ConcurrentMap<String, ChangeLog<Reservation>> resourceReservationChangeLogs = new ConcurrentHashMap<>();
+
     private final Logger logger = LoggerFactory.getLogger(InterDomainAgent.class);
 
     private final ControllerConfiguration configuration;
@@ -52,6 +68,7 @@ public class InterDomainAgent{
         this.notifier = new DomainAdminNotifier(logger, emailSender, configuration);
         this.authentication = new DomainAuthentication(configuration, domainService, notifier);
         this.connector = new CachedDomainsConnector(configuration, domainService, notifier);
+        this.reservationStateNotifier = new ReservationStateNotifier(entityManagerFactory, domainService, connector);
 //        =========== for direct request without cache ===========
 //        this.connector = new DomainsConnector(entityManagerFactory, configuration, authorization, domainService, emailSender);
 //        =========== END ===========
@@ -98,6 +115,56 @@ public class InterDomainAgent{
         return connector;
     }
 
+    public ReservationStateNotifier getReservationStateNotifier() {
+        return reservationStateNotifier;
+    }
+
+    /**
+     * @param domainId identifier of foreign domain
+     * @return {@link ChangeLog} of resources provided to given foreign domain
+     */
+    public ChangeLog<DomainCapability> getResourceChangeLog(String domainId) {
+        ChangeLog<DomainCapability> changeLog = resourceChangeLogs.get(domainId);
+        if (changeLog == null) {
+            changeLog = new ChangeLog<DomainCapability>(configuration.getInterDomainCacheChangeLogSize())
+            {
+                @Override
+                protected String getId(DomainCapability resource)
+                {
+                    return resource.getId();
+                }
+            };
+            ChangeLog<DomainCapability> existingChangeLog = resourceChangeLogs.putIfAbsent(domainId, changeLog);
+            if (existingChangeLog != null) {
+                changeLog = existingChangeLog;
+            }
+        }
+        return changeLog;
+    }
+
+    /**
+     * @param domainId identifier of foreign domain
+     * @return {@link ChangeLog} of resource reservations provided to given foreign domain
+     */
+    public ChangeLog<Reservation> getResourceReservationChangeLog(String domainId) {
+        ChangeLog<Reservation> changeLog = resourceReservationChangeLogs.get(domainId);
+        if (changeLog == null) {
+            changeLog = new ChangeLog<Reservation>(configuration.getInterDomainCacheChangeLogSize())
+            {
+                @Override
+                protected String getId(Reservation reservation)
+                {
+                    return reservation.getForeignReservationId();
+                }
+            };
+            ChangeLog<Reservation> existingChangeLog = resourceReservationChangeLogs.putIfAbsent(domainId, changeLog);
+            if (existingChangeLog != null) {
+                changeLog = existingChangeLog;
+            }
+        }
+        return changeLog;
+    }
+
     protected DomainAuthentication getAuthentication() {
         return authentication;
     }
@@ -33,6 +33,7 @@ import cz.cesnet.shongo.controller.booking.recording.RecordingService;
 import cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest;
 import cz.cesnet.shongo.controller.booking.request.ReservationRequest;
 import cz.cesnet.shongo.controller.booking.request.ReservationRequestManager;
+import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
 import cz.cesnet.shongo.controller.booking.resource.*;
 import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.resource.ResourceReservation;
@@ -41,6 +42,7 @@ import cz.cesnet.shongo.controller.booking.room.RoomReservation;
 import cz.cesnet.shongo.controller.booking.specification.Specification;
 import cz.cesnet.shongo.controller.api.domains.response.RoomSpecification.RoomState;
 
+import cz.cesnet.shongo.controller.scheduler.SchedulerQueue;
 import cz.cesnet.shongo.controller.scheduler.SchedulerReport;
 import cz.cesnet.shongo.jade.SendLocalCommand;
 import cz.cesnet.shongo.report.Report;
@@ -140,7 +142,8 @@ public class InterDomainController implements InterDomainProtocol
                                               @RequestParam(value = "resourceId", required = true) String resourceId,
                                               @RequestParam(value = "userId", required = true) String userId,
                                               @RequestParam(value = "description", required = false) String description,
-                                              @RequestParam(value = "reservationRequestId", required = false) String reservationRequestId)
+                                              @RequestParam(value = "reservationRequestId", required = false) String reservationRequestId,
+                                              @RequestParam(value = "notifyState", required = false) Boolean notifyState)
             throws NotAuthorizedException, ForbiddenException
     {
         EntityManager entityManager = InterDomainAgent.getInstance().createEntityManager();
@@ -152,7 +155,8 @@ public class InterDomainController implements InterDomainProtocol
 
             Reservation reservation = new Reservation();
 
-            Long domainId = ObjectIdentifier.parseLocalId(getDomain(request).getId(), ObjectType.DOMAIN);
+            Domain domain = getDomain(request);
+            Long domainId = ObjectIdentifier.parseLocalId(domain.getId(), ObjectType.DOMAIN);
             ObjectIdentifier resourceIdentifier = ObjectIdentifier.parseTypedId(resourceId, ObjectType.RESOURCE);
             ObjectIdentifier reservationRequestIdentifier = null;
             if (!Strings.isNullOrEmpty(reservationRequestId)) {
@@ -205,6 +209,7 @@ public class InterDomainController implements InterDomainProtocol
             entityManager.getTransaction().commit();
 
             reservation.setForeignReservationRequestId(ObjectIdentifier.formatId(newReservationRequest));
+            allocate(newReservationRequest.getId(), domain, notifyState);
 
             return reservation;
         } finally {
@@ -228,6 +233,7 @@ public class InterDomainController implements InterDomainProtocol
                                           @RequestParam(value = "acRoomAccessMode", required = false) AdobeConnectPermissions acRoomAccessMode,
                                           @RequestParam(value = "roomRecorded", required = false) Boolean roomRecorded,
                                           @RequestParam(value = "reservationRequestId", required = false) String reservationRequestId,
+                                          @RequestParam(value = "notifyState", required = false) Boolean notifyState,
                                           @RequestBody List<ForeignRoomParticipantRole> participants)
             throws NotAuthorizedException, ForbiddenException
     {
@@ -322,6 +328,7 @@ public class InterDomainController implements InterDomainProtocol
             entityManager.getTransaction().commit();
 
             reservation.setForeignReservationRequestId(ObjectIdentifier.formatId(newReservationRequest));
+            allocate(newReservationRequest.getId(), domain, notifyState);
 
             return reservation;
         } finally {
@@ -349,7 +356,6 @@ public class InterDomainController implements InterDomainProtocol
             ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
             ResourceManager resourceManager = new ResourceManager(entityManager);
             ReservationRequest reservationRequest = (ReservationRequest) reservationRequestManager.get(requestIdentifier.getPersistenceId());
-            cz.cesnet.shongo.controller.booking.reservation.Reservation currentReservation = reservationRequest.getAllocation().getCurrentReservation();
 
             String createdByUserId = reservationRequest.getCreatedBy();
 
@@ -375,72 +381,7 @@ public class InterDomainController implements InterDomainProtocol
                 throw new ForbiddenException("Cannot get reservation");
             }
 
-            Reservation reservation = new Reservation();
-
-            reservation.setForeignReservationRequestId(reservationRequestId);
-            if (currentReservation != null) {
-                reservation.setSlot(currentReservation.getSlot());
-                if (currentReservation instanceof ResourceReservation) {
-                    ResourceReservation resourceReservation = (ResourceReservation) currentReservation;
-                    String resourceId = ObjectIdentifier.formatId(resourceReservation.getResource());
-
-                    cz.cesnet.shongo.controller.api.domains.response.ResourceSpecification resourceSpecification;
-                    resourceSpecification = new cz.cesnet.shongo.controller.api.domains.response.ResourceSpecification(resourceId);
-                    reservation.setSpecification(resourceSpecification);
-                }
-                else if (currentReservation instanceof RoomReservation) {
-                    RoomReservation roomReservation = (RoomReservation) currentReservation;
-
-                    cz.cesnet.shongo.controller.booking.room.RoomSpecification roomSpecification;
-                    roomSpecification = (cz.cesnet.shongo.controller.booking.room.RoomSpecification) specification;
-
-                    cz.cesnet.shongo.controller.api.domains.response.RoomSpecification foreignRoomSpecification;
-                    foreignRoomSpecification = new cz.cesnet.shongo.controller.api.domains.response.RoomSpecification();
-                    foreignRoomSpecification.setLicenseCount(roomReservation.getLicenseCount());
-                    foreignRoomSpecification.setTechnologies(new HashSet<>(roomSpecification.getTechnologies()));
-                    ExecutableState state = roomReservation.getEndpoint().getState().toApi();
-                    foreignRoomSpecification.setState(RoomState.fromApi(state));
-
-                    String roomName = null;
-                    for (Alias alias : roomReservation.getEndpoint().getAliases()) {
-                        if (alias.getType() == AliasType.ROOM_NAME) {
-                            roomName = alias.getValue();
-                        }
-                    }
-                    foreignRoomSpecification.setRoomName(roomName);
-                    for (cz.cesnet.shongo.controller.booking.alias.Alias alias : roomReservation.getEndpoint().getAliases()) {
-                        foreignRoomSpecification.addAlias(alias.getType(), alias.getValue());
-                    }
-
-                    //TODO:
-                    for (cz.cesnet.shongo.controller.booking.executable.ExecutableService service : roomReservation.getEndpoint().getServices()) {
-                        if (service instanceof cz.cesnet.shongo.controller.booking.recording.RecordingService) {
-                            RecordingService recordingService = (RecordingService) service;
-                            foreignRoomSpecification.setRecorded(true);
-                            foreignRoomSpecification.setRecordingActive(recordingService.isActive());
-                        } else {
-                            throw new TodoImplementException("Unsupported service" + service.getClass());
-                        }
-                    }
-
-                    reservation.setSpecification(foreignRoomSpecification);
-                }
-            }
-
-            switch (reservationRequest.getAllocationState()) {
-                case ALLOCATION_FAILED:
-                    reservation.setStatus(AbstractResponse.Status.FAILED);
-
-                    SchedulerReport report = reservationRequest.getReports().get(reservationRequest.getReports().size() - 1);
-                    reservation.setMessage("TODO: " + report.toString());
-                    break;
-                case ALLOCATED:
-                    String reservationId = ObjectIdentifier.formatId(currentReservation);
-                    reservation.setForeignReservationId(reservationId);
-                    break;
-                default:
-                    break;
-            }
+            Reservation reservation = getDomainService().getForeignReservation(reservationRequest);
 
             return reservation;
         } finally {
@@ -563,6 +504,33 @@ public class InterDomainController implements InterDomainProtocol
         }
     }
 
+    @Override
+    @RequestMapping(value = InterDomainAction.DOMAIN_RESOURCE_CHANGES, method = RequestMethod.GET)
+    @ResponseBody
+    public ChangeSet<DomainCapability> handleListResourceChanges(HttpServletRequest request,
+                                                                 @RequestParam(value = "epoch", required = false) Long epoch,
+                                                                 @RequestParam(value = "sequence", required = false) Long sequence)
+            throws NotAuthorizedException
+    {
+        Domain domain = getDomain(request);
+        Long domainId = ObjectIdentifier.parseLocalId(domain.getId(), ObjectType.DOMAIN);
+        List<DomainCapability> resources = getDomainService().listLocalResourcesByDomain(domainId, DomainCapability.Type.RESOURCE, null, null);
+        return InterDomainAgent.getInstance().getResourceChangeLog(domain.getId()).getChanges(resources, epoch, sequence);
+    }
+
+    @Override
+    @RequestMapping(value = InterDomainAction.DOMAIN_RESOURCE_RESERVATION_CHANGES, method = RequestMethod.GET)
+    @ResponseBody
+    public ChangeSet<Reservation> handleListResourceReservationChanges(HttpServletRequest request,
+                                                                      @RequestParam(value = "epoch", required = false) Long epoch,
+                                                                      @RequestParam(value = "sequence", required = false) Long sequence)
+            throws NotAuthorizedException, ForbiddenException
+    {
+        Domain domain = getDomain(request);
+        List<Reservation> reservations = handleListReservations(request, null, null);
+        return InterDomainAgent.getInstance().getResourceReservationChangeLog(domain.getId()).getChanges(reservations, epoch, sequence);
+    }
+
     @Override
     @RequestMapping(value = InterDomainAction.DOMAIN_VIRTUAL_ROOM_PARTICIPANT_UPDATE, method = RequestMethod.POST)
     @ResponseBody
@@ -723,6 +691,55 @@ public class InterDomainController implements InterDomainProtocol
         }
     }
 
+    @Override
+    @RequestMapping(value = InterDomainAction.DOMAIN_RESERVATION_STATE, method = RequestMethod.POST)
+    @ResponseBody
+    public AbstractResponse handleReservationState(HttpServletRequest request,
+                                                   @RequestParam(value = "notificationId", required = true) String notificationId,
+                                                   @RequestBody Reservation reservation)
+            throws NotAuthorizedException, ForbiddenException
+    {
+        Domain domain = getDomain(request);
+        String foreignReservationRequestId = reservation.getForeignReservationRequestId();
+        if (foreignReservationRequestId == null
+                || !domain.getName().equals(ObjectIdentifier.parseDomain(foreignReservationRequestId))) {
+            // Throw {@code ForbiddenException} for error 403 to return
+            throw new ForbiddenException("Cannot push reservation state");
+        }
+        if (!InterDomainAgent.getInstance().getConnector().getReservationStates().push(notificationId, reservation)) {
+            // Already processed (pushes are retried)
+            return returnOk();
+        }
+
+        EntityManager entityManager = InterDomainAgent.getInstance().createEntityManager();
+        try {
+            ReservationManager reservationManager = new ReservationManager(entityManager);
+            SchedulerQueue schedulerQueue = cz.cesnet.shongo.controller.Controller.getInstance().getSchedulerQueue();
+            for (Long reservationRequestId :
+                    reservationManager.getReservationRequestIdsByForeignReservationRequestId(foreignReservationRequestId)) {
+                schedulerQueue.add(reservationRequestId);
+            }
+            return returnOk();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Enqueue given reservation request for allocation and subscribe given {@code domain} for its allocation state.
+     *
+     * @param reservationRequestId identifier of reservation request which was created for given {@code domain}
+     * @param domain               which has requested the reservation request
+     * @param notifyState          whether the allocation state should be pushed to given {@code domain}
+     */
+    private void allocate(Long reservationRequestId, Domain domain, Boolean notifyState)
+    {
+        if (Boolean.TRUE.equals(notifyState)) {
+            InterDomainAgent.getInstance().getReservationStateNotifier().subscribe(reservationRequestId, domain);
+        }
+        cz.cesnet.shongo.controller.Controller.getInstance().getSchedulerQueue().add(reservationRequestId);
+    }
+
     private AbstractResponse returnOk()
     {
         return new AbstractResponse()
@@ -0,0 +1,184 @@
+package cz.cesnet.shongo.controller.domains;
+
+import cz.cesnet.shongo.CommonReportSet;
+import cz.cesnet.shongo.controller.api.Domain;
+import cz.cesnet.shongo.controller.api.domains.response.Reservation;
+import cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest;
+import cz.cesnet.shongo.controller.booking.request.ReservationRequest;
+import cz.cesnet.shongo.controller.booking.request.ReservationRequestManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes allocation states of reservation requests created for foreign domains to the foreign domains which have
+ * subscribed for them when requesting the allocation (see {@link InterDomainController#handleAllocateRoom} and
+ * {@link InterDomainController#handleAllocateResource}).
+ * <p/>
+ * Subscriptions are kept only in memory. When they are lost (or when all attempts to push a state fail), the foreign
+ * domains still poll the states periodically.
+ */
+public class ReservationStateNotifier
+{
+    private static Logger logger = LoggerFactory.getLogger(ReservationStateNotifier.class);
+
+    /**
+     * Maximum number of attempts to push a single state.
+     */
+    static final int MAX_ATTEMPTS = 5;
+
+    /**
+     * Delay in milliseconds before the first retry (it is doubled for each next retry).
+     */
+    private static final long RETRY_DELAY = 5000;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final DomainService domainService;
+
+    private final DomainsConnector connector;
+
+    /**
+     * Delay in milliseconds before the first retry (see {@link #RETRY_DELAY}).
+     */
+    private long retryDelay = RETRY_DELAY;
+
+    /**
+     * Identifiers of subscribed foreign domains by identifiers of reservation requests.
+     */
+    private final ConcurrentMap<Long, String> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param entityManagerFactory sets the {@link #entityManagerFactory}
+     * @param domainService        sets the {@link #domainService}
+     * @param connector            sets the {@link #connector}
+     */
+    public ReservationStateNotifier(EntityManagerFactory entityManagerFactory, DomainService domainService,
+            DomainsConnector connector)
+    {
+        this.entityManagerFactory = entityManagerFactory;
+        this.domainService = domainService;
+        this.connector = connector;
+    }
+
+    /**
+     * @param retryDelay sets the {@link #retryDelay}
+     */
+    void setRetryDelay(long retryDelay)
+    {
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Subscribe given foreign {@code domain} for the allocation state of given reservation request.
+     *
+     * @param reservationRequestId identifier of reservation request created for the {@code domain}
+     * @param domain               to which the state should be pushed
+     */
+    public void subscribe(Long reservationRequestId, Domain domain)
+    {
+        subscriptions.put(reservationRequestId, domain.getId());
+    }
+
+    /**
+     * Push states of subscribed reservation requests which have been allocated or whose allocation has failed.
+     * The states are pushed asynchronously and the subscriptions are removed.
+     */
+    public void notifySubscribers()
+    {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, String>> subscriptions = new ArrayList<>(this.subscriptions.entrySet());
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
+            for (Map.Entry<Long, String> subscription : subscriptions) {
+                Long reservationRequestId = subscription.getKey();
+                AbstractReservationRequest abstractReservationRequest;
+                try {
+                    abstractReservationRequest = reservationRequestManager.get(reservationRequestId);
+                }
+                catch (CommonReportSet.ObjectNotExistsException exception) {
+                    this.subscriptions.remove(reservationRequestId);
+                    continue;
+                }
+                if (!(abstractReservationRequest instanceof ReservationRequest)) {
+                    this.subscriptions.remove(reservationRequestId);
+                    continue;
+                }
+                ReservationRequest reservationRequest = (ReservationRequest) abstractReservationRequest;
+                switch (reservationRequest.getAllocationState()) {
+                    case ALLOCATED:
+                    case ALLOCATION_FAILED:
+                        break;
+                    default:
+                        // Not processed yet
+                        continue;
+                }
+                this.subscriptions.remove(reservationRequestId);
+
+                Domain domain = domainService.getDomain(subscription.getValue());
+                if (domain == null) {
+                    continue;
+                }
+                Reservation reservation = domainService.getForeignReservation(reservationRequest);
+                // The same state always has the same identifier, so that the foreign domain can ignore duplicates
+                String notificationId = reservation.getForeignReservationRequestId() + ":"
+                        + reservationRequest.getAllocationState() + ":" + reservation.getForeignReservationId();
+                push(domain, notificationId, reservation, 1);
+            }
+        }
+        catch (Exception exception) {
+            logger.error("Failed to push reservation states to foreign domains.", exception);
+        }
+        finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Push given {@code reservation} to given {@code domain} asynchronously and retry it when it fails.
+     *
+     * @param domain         to which the state should be pushed
+     * @param notificationId idempotency key of the push
+     * @param reservation    state to be pushed
+     * @param attempt        number of the attempt
+     */
+    void push(final Domain domain, final String notificationId, final Reservation reservation, final int attempt)
+    {
+        long delay = (attempt > 1 ? retryDelay << (attempt - 2) : 0);
+        connector.getExecutor().schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    connector.notifyReservationState(domain, notificationId, reservation);
+                    logger.debug("Reservation state {} pushed to domain {}.", notificationId, domain.getName());
+                }
+                catch (Exception exception) {
+                    if (attempt < MAX_ATTEMPTS) {
+                        logger.warn("Failed to push reservation state {} to domain {} (attempt {}), it will be retried.",
+                                new Object[]{notificationId, domain.getName(), attempt});
+                        push(domain, notificationId, reservation, attempt + 1);
+                    }
+                    else {
+                        logger.warn("Failed to push reservation state " + notificationId + " to domain "
+                                + domain.getName() + ", the domain has to poll it.", exception);
+                    }
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+}
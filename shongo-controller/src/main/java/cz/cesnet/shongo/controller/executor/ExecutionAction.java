@@ -2,7 +2,10 @@ package cz.cesnet.shongo.controller.executor;
 
 import cz.cesnet.shongo.controller.Reporter;
 import cz.cesnet.shongo.controller.booking.executable.*;
+import cz.cesnet.shongo.controller.booking.recording.RecordingService;
+import cz.cesnet.shongo.controller.booking.resource.DeviceResource;
 import cz.cesnet.shongo.controller.booking.room.RoomEndpoint;
+import cz.cesnet.shongo.controller.booking.streaming.StreamingService;
 import cz.cesnet.shongo.controller.util.DatabaseHelper;
 import org.joda.time.DateTime;
 
@@ -15,7 +18,7 @@ import java.util.Set;
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
-public abstract class ExecutionAction<T> extends Thread
+public abstract class ExecutionAction<T> implements Runnable
 {
     /**
      * Target for which the {@link ExecutionAction} is being executed.
@@ -92,6 +95,16 @@ public abstract class ExecutionAction<T> extends Thread
         return PRIORITY_DEFAULT;
     }
 
+    /**
+     * @return identifier of {@link DeviceResource} which is used by this {@link ExecutionAction}
+     *         (used for limiting number of concurrently performed {@link ExecutionAction}s for single device)
+     *         or {@code null} when the {@link ExecutionAction} doesn't use any device
+     */
+    public Long getDeviceResourceId()
+    {
+        return getDeviceResourceId(target);
+    }
+
     /**
      * @return true if this {@link ExecutionAction}s has some parents ({@link #parents}),
      *         false otherwise
@@ -569,6 +582,12 @@ public abstract class ExecutionAction<T> extends Thread
             }
         }
 
+        @Override
+        public Long getDeviceResourceId()
+        {
+            return getDeviceResourceId(target.getTargetExecutable());
+        }
+
         @Override
         protected void perform(ExecutableManager executableManager)
         {
@@ -776,6 +795,28 @@ public abstract class ExecutionAction<T> extends Thread
         }
     }
 
+    /**
+     * @param target of {@link ExecutionAction}
+     * @return identifier of {@link DeviceResource} which is used by given {@code target} or {@code null}
+     */
+    protected static Long getDeviceResourceId(Object target)
+    {
+        DeviceResource deviceResource = null;
+        if (target instanceof RoomEndpoint) {
+            deviceResource = ((RoomEndpoint) target).getResource();
+        }
+        else if (target instanceof ResourceEndpoint) {
+            deviceResource = ((ResourceEndpoint) target).getDeviceResource();
+        }
+        else if (target instanceof RecordingService) {
+            deviceResource = ((RecordingService) target).getRecordingCapability().getDeviceResource();
+        }
+        else if (target instanceof StreamingService) {
+            deviceResource = ((StreamingService) target).getStreamingCapability().getDeviceResource();
+        }
+        return (deviceResource != null ? deviceResource.getId() : null);
+    }
+
     /**
      * Action Priority.
      */
@@ -0,0 +1,407 @@
+package cz.cesnet.shongo.controller.executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of worker threads which performs {@link ExecutionAction}s from {@link ExecutionPlan}s.
+ * <p/>
+ * {@link ExecutionAction}s are popped from the {@link ExecutionPlan} whenever some {@link ExecutionAction} is done
+ * (so the dependencies and priorities of {@link ExecutionPlan#popExecutionActions()} are kept) and they are dispatched
+ * to the worker threads while the number of concurrently performed {@link ExecutionAction}s for single device
+ * doesn't exceed the configured limit. The limits are shared by all {@link ExecutionPlan}s which are performed
+ * concurrently.
+ */
+public class ExecutionActionPool
+{
+    private static Logger logger = LoggerFactory.getLogger(ExecutionActionPool.class);
+
+    /**
+     * Maximum number of concurrently performed {@link ExecutionAction}s.
+     */
+    private final int threadCount;
+
+    /**
+     * Maximum number of concurrently performed {@link ExecutionAction}s for single device
+     * ({@code 0} means unlimited).
+     */
+    private final int deviceActionCount;
+
+    /**
+     * {@link ExecutorService} for performing {@link ExecutionAction}s.
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * Number of currently performed {@link ExecutionAction}s (from all {@link ExecutionPlan}s).
+     */
+    private int runningCount = 0;
+
+    /**
+     * Number of currently performed {@link ExecutionAction}s (from all {@link ExecutionPlan}s) by device.
+     */
+    private final Map<Long, Integer> runningCountByDevice = new HashMap<Long, Integer>();
+
+    /**
+     * Number of performed {@link ExecutionAction}s which have released their {@link #runningCount}
+     * (used for waiting for free worker threads or devices).
+     */
+    private long releaseCount = 0;
+
+    /**
+     * Number of {@link ExecutionAction}s which have been popped and are waiting for a worker thread.
+     */
+    private volatile int queueDepth = 0;
+
+    /**
+     * Maximum of {@link #queueDepth}.
+     */
+    private int maxQueueDepth = 0;
+
+    /**
+     * Number of performed {@link ExecutionAction}s.
+     */
+    private long performedActionCount = 0;
+
+    /**
+     * Total duration in milliseconds for which the performed {@link ExecutionAction}s waited for a worker thread.
+     */
+    private long totalWaitingDuration = 0;
+
+    /**
+     * Total duration in milliseconds of performing of {@link ExecutionAction}s.
+     */
+    private long totalPerformingDuration = 0;
+
+    /**
+     * Maximum duration in milliseconds of performing of single {@link ExecutionAction}.
+     */
+    private long maxPerformingDuration = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param threadCount       sets the {@link #threadCount}
+     * @param deviceActionCount sets the {@link #deviceActionCount}
+     */
+    public ExecutionActionPool(int threadCount, int deviceActionCount)
+    {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        if (deviceActionCount < 0) {
+            throw new IllegalArgumentException("Device action count must not be negative.");
+        }
+        this.threadCount = threadCount;
+        this.deviceActionCount = deviceActionCount;
+
+        // Actions are submitted only when the number of running actions from all execution plans is lower than
+        // thread count (see reserve), so the queue never grows over thread count
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "executor-action-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        this.executorService = executor;
+    }
+
+    /**
+     * Stop all threads.
+     */
+    public void destroy()
+    {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * @return {@link #queueDepth}
+     */
+    public int getQueueDepth()
+    {
+        return queueDepth;
+    }
+
+    /**
+     * @return {@link #maxQueueDepth}
+     */
+    public synchronized int getMaxQueueDepth()
+    {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return {@link #performedActionCount}
+     */
+    public synchronized long getPerformedActionCount()
+    {
+        return performedActionCount;
+    }
+
+    /**
+     * @return average duration in milliseconds for which the {@link ExecutionAction}s waited for a worker thread
+     */
+    public synchronized long getAverageWaitingDuration()
+    {
+        return (performedActionCount > 0 ? totalWaitingDuration / performedActionCount : 0);
+    }
+
+    /**
+     * @return average duration in milliseconds of performing of {@link ExecutionAction}s
+     */
+    public synchronized long getAveragePerformingDuration()
+    {
+        return (performedActionCount > 0 ? totalPerformingDuration / performedActionCount : 0);
+    }
+
+    /**
+     * @return {@link #maxPerformingDuration}
+     */
+    public synchronized long getMaxPerformingDuration()
+    {
+        return maxPerformingDuration;
+    }
+
+    /**
+     * Perform all {@link ExecutionAction}s from given {@code executionPlan}.
+     *
+     * @param executionPlan to be performed
+     * @throws InterruptedException when the performing is interrupted
+     */
+    public void perform(ExecutionPlan executionPlan) throws InterruptedException
+    {
+        CompletionService<Task> completionService = new ExecutorCompletionService<Task>(executorService);
+        List<Task> pendingTasks = new LinkedList<Task>();
+        int planRunningCount = 0;
+        int planQueueDepth = 0;
+        try {
+            while (true) {
+                // Pop actions which can be performed
+                long popTime = System.currentTimeMillis();
+                int completedActionCount = executionPlan.getCompletedActionCount();
+                Set<ExecutionAction> executionActions = executionPlan.popExecutionActions();
+                for (ExecutionAction executionAction : executionActions) {
+                    pendingTasks.add(new Task(executionAction, executionAction.getDeviceResourceId(), popTime));
+                }
+
+                // Dispatch popped actions to free worker threads
+                long observedReleaseCount = getReleaseCount();
+                Iterator<Task> pendingTaskIterator = pendingTasks.iterator();
+                while (pendingTaskIterator.hasNext()) {
+                    Task task = pendingTaskIterator.next();
+                    if (!reserve(task)) {
+                        // No worker thread is free or the device is busy, the action will be dispatched
+                        // when some action is done
+                        continue;
+                    }
+                    pendingTaskIterator.remove();
+                    try {
+                        completionService.submit(task);
+                    }
+                    catch (RejectedExecutionException exception) {
+                        release(task);
+                        throw exception;
+                    }
+                    planRunningCount++;
+                }
+                updateQueueDepth(pendingTasks.size() - planQueueDepth);
+                planQueueDepth = pendingTasks.size();
+
+                if (planRunningCount == 0) {
+                    if (!pendingTasks.isEmpty()) {
+                        // All worker threads or devices are used by other execution plans
+                        awaitRelease(observedReleaseCount);
+                        continue;
+                    }
+                    if (executionPlan.isEmpty()) {
+                        break;
+                    }
+                    if (executionActions.isEmpty() && completedActionCount < executionPlan.getCompletedActionCount()) {
+                        // Popping only completed skipped actions, pop again their parents
+                        continue;
+                    }
+                    throw new IllegalStateException("Execution plan cannot be performed (no action can be started).");
+                }
+
+                // Wait for some action to be done
+                Task task;
+                try {
+                    task = completionService.take().get();
+                }
+                catch (ExecutionException exception) {
+                    throw new RuntimeException("Execution action failed.", exception.getCause());
+                }
+                planRunningCount--;
+                addPerformedTask(task);
+            }
+        }
+        finally {
+            updateQueueDepth(-planQueueDepth);
+        }
+    }
+
+    /**
+     * Reserve a worker thread (and a device) for given {@code task}.
+     *
+     * @param task to be performed
+     * @return true whether the {@code task} can be performed, false otherwise
+     */
+    private synchronized boolean reserve(Task task)
+    {
+        if (runningCount >= threadCount) {
+            return false;
+        }
+        if (task.deviceResourceId != null && deviceActionCount > 0) {
+            Integer deviceRunningCount = runningCountByDevice.get(task.deviceResourceId);
+            if (deviceRunningCount == null) {
+                deviceRunningCount = 0;
+            }
+            if (deviceRunningCount >= deviceActionCount) {
+                return false;
+            }
+            runningCountByDevice.put(task.deviceResourceId, deviceRunningCount + 1);
+        }
+        runningCount++;
+        return true;
+    }
+
+    /**
+     * Release a worker thread (and a device) reserved by {@link #reserve} for given {@code task}.
+     *
+     * @param task which has been performed
+     */
+    private synchronized void release(Task task)
+    {
+        runningCount--;
+        if (task.deviceResourceId != null && deviceActionCount > 0) {
+            int deviceRunningCount = runningCountByDevice.get(task.deviceResourceId) - 1;
+            if (deviceRunningCount > 0) {
+                runningCountByDevice.put(task.deviceResourceId, deviceRunningCount);
+            }
+            else {
+                runningCountByDevice.remove(task.deviceResourceId);
+            }
+        }
+        releaseCount++;
+        notifyAll();
+    }
+
+    /**
+     * @return {@link #releaseCount}
+     */
+    private synchronized long getReleaseCount()
+    {
+        return releaseCount;
+    }
+
+    /**
+     * Wait for some {@link #release} after the given {@code observedReleaseCount}.
+     *
+     * @param observedReleaseCount value of {@link #releaseCount} observed before a failed {@link #reserve}
+     * @throws InterruptedException when the waiting is interrupted
+     */
+    private synchronized void awaitRelease(long observedReleaseCount) throws InterruptedException
+    {
+        while (releaseCount == observedReleaseCount) {
+            wait();
+        }
+    }
+
+    /**
+     * @param queueDepthChange to be added to the {@link #queueDepth}
+     */
+    private synchronized void updateQueueDepth(int queueDepthChange)
+    {
+        this.queueDepth += queueDepthChange;
+        if (queueDepth > maxQueueDepth) {
+            maxQueueDepth = queueDepth;
+        }
+    }
+
+    /**
+     * @param task which has been performed
+     */
+    private synchronized void addPerformedTask(Task task)
+    {
+        long performingDuration = task.endTime - task.startTime;
+        performedActionCount++;
+        totalWaitingDuration += task.startTime - task.popTime;
+        totalPerformingDuration += performingDuration;
+        if (performingDuration > maxPerformingDuration) {
+            maxPerformingDuration = performingDuration;
+        }
+        logger.debug("{} performed in {} ms (waited {} ms).", new Object[]{
+                task.executionAction, performingDuration, task.startTime - task.popTime});
+    }
+
+    /**
+     * {@link ExecutionAction} which is performed by a worker thread.
+     */
+    private class Task implements Callable<Task>
+    {
+        /**
+         * {@link ExecutionAction} to be performed.
+         */
+        private final ExecutionAction executionAction;
+
+        /**
+         * Identifier of device for which the {@link #executionAction} is performed.
+         */
+        private final Long deviceResourceId;
+
+        /**
+         * Time when the {@link #executionAction} was popped from the {@link ExecutionPlan}.
+         */
+        private final long popTime;
+
+        /**
+         * Time when the performing of {@link #executionAction} started.
+         */
+        private long startTime;
+
+        /**
+         * Time when the performing of {@link #executionAction} ended.
+         */
+        private long endTime;
+
+        /**
+         * Constructor.
+         *
+         * @param executionAction  sets the {@link #executionAction}
+         * @param deviceResourceId sets the {@link #deviceResourceId}
+         * @param popTime          sets the {@link #popTime}
+         */
+        public Task(ExecutionAction executionAction, Long deviceResourceId, long popTime)
+        {
+            this.executionAction = executionAction;
+            this.deviceResourceId = deviceResourceId;
+            this.popTime = popTime;
+        }
+
+        @Override
+        public Task call() throws Exception
+        {
+            startTime = System.currentTimeMillis();
+            try {
+                executionAction.run();
+            }
+            finally {
+                endTime = System.currentTimeMillis();
+                release(this);
+            }
+            return this;
+        }
+    }
+}
@@ -57,6 +57,12 @@ public class ExecutionPlan
     final Map<Long, ExecutionAction.AbstractExecutionTargetAction> actionByExecutionTargetId =
             new HashMap<Long, ExecutionAction.AbstractExecutionTargetAction>();
 
+    /**
+     * Identifiers of {@link Executable}s and {@link ExecutableService}s which are executed by this
+     * {@link ExecutionPlan}.
+     */
+    private final Set<Long> executableIds = new HashSet<Long>();
+
     /**
      * Constructor.
      *
@@ -90,6 +96,29 @@ public class ExecutionPlan
     {
         remainingActions.add(executionAction);
         executionAction.init(this);
+
+        Object target = executionAction.getTarget();
+        if (target instanceof Executable) {
+            executableIds.add(((Executable) target).getId());
+        }
+        else if (target instanceof ExecutableService) {
+            ExecutableService executableService = (ExecutableService) target;
+            executableIds.add(executableService.getId());
+            executableIds.add(executableService.getExecutable().getId());
+        }
+        else if (target instanceof Migration) {
+            Migration migration = (Migration) target;
+            executableIds.add(migration.getSourceExecutable().getId());
+            executableIds.add(migration.getTargetExecutable().getId());
+        }
+    }
+
+    /**
+     * @return {@link #executableIds}
+     */
+    public Set<Long> getExecutableIds()
+    {
+        return Collections.unmodifiableSet(executableIds);
     }
 
     /**
@@ -252,6 +281,14 @@ public class ExecutionPlan
         }
     }
 
+    /**
+     * @return number of completed {@link ExecutionAction}s
+     */
+    public synchronized int getCompletedActionCount()
+    {
+        return completedActions.size();
+    }
+
     /**
      * @return true if the {@link ExecutionPlan} doesn't have any {@link ExecutionAction}s for performing
      *         false otherwise
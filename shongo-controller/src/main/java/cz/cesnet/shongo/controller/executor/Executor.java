@@ -40,6 +40,12 @@ public class Executor extends SwitchableComponent
      */
     private static Logger logger = LoggerFactory.getLogger(Executor.class);
 
+    /**
+     * Maximum number of attempts to load {@link ExecutionPlan} which doesn't overlap with commit of executables
+     * (see {@link CommitWatermark}).
+     */
+    private static final int LOAD_ATTEMPT_COUNT = 5;
+
     /**
      * @see NotificationManager
      */
@@ -90,6 +96,11 @@ public class Executor extends SwitchableComponent
      */
     private int maxAttemptCount;
 
+    /**
+     * {@link ExecutionActionPool} for performing {@link ExecutionAction}s.
+     */
+    private ExecutionActionPool executionActionPool;
+
     /**
      * Map of (maps of recording folders by recording capabilities) by recordable endpoint ids.
      */
@@ -219,6 +230,26 @@ public class Executor extends SwitchableComponent
         nextAttempt = configuration.getDuration(ControllerConfiguration.EXECUTOR_EXECUTABLE_NEXT_ATTEMPT);
         startingDurationRoom = configuration.getDuration(ControllerConfiguration.EXECUTOR_STARTING_DURATION_ROOM);
         maxAttemptCount = configuration.getInt(ControllerConfiguration.EXECUTOR_EXECUTABLE_MAX_ATTEMPT_COUNT);
+        executionActionPool = new ExecutionActionPool(
+                configuration.getInt(ControllerConfiguration.EXECUTOR_THREAD_COUNT),
+                configuration.getInt(ControllerConfiguration.EXECUTOR_DEVICE_ACTION_COUNT));
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (executionActionPool != null) {
+            executionActionPool.destroy();
+        }
+        super.destroy();
+    }
+
+    /**
+     * @return {@link #executionActionPool}
+     */
+    public ExecutionActionPool getExecutionActionPool()
+    {
+        return executionActionPool;
     }
 
     @Override
@@ -253,107 +284,131 @@ public class Executor extends SwitchableComponent
             return new ExecutionResult();
         }
 
-        // Globally synchronized (see ThreadLock documentation)
-        //logger.info("Executor waiting for lock...............................");
-        synchronized (ThreadLock.class) {
-            //logger.info("Executor lock acquired...     (((((");
-
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.getInstance(DateTimeFormatter.Type.LONG);
-            logger.debug("Checking executables for execution at '{}'...", dateTimeFormatter.formatDateTime(dateTime));
-
-            EntityManager entityManager = entityManagerFactory.createEntityManager();
-            ExecutableManager executableManager = new ExecutableManager(entityManager);
-            try {
-                // Create execution plan
-                DateTime start = dateTime.minus(executableStart);
-                DateTime stop = dateTime.minus(executableEnd);
-                ExecutionPlan executionPlan = new ExecutionPlan(this);
-                for (Executable executable : executableManager.listExecutablesForStart(start, maxAttemptCount)) {
-                    executionPlan.addExecutionAction(new ExecutionAction.StartExecutableAction(executable));
-                    Executable migrateFromExecutable = executable.getMigrateFromExecutable();
-                    if (migrateFromExecutable != null) {
-                        if (migrateFromExecutable.getState().isStarted()) {
-                            Migration migration = new Migration(migrateFromExecutable, executable);
-                            executionPlan.addExecutionAction(new ExecutionAction.MigrationAction(migration));
-                        }
-                        else {
-                            logger.warn("Cannot migrate executable {} ({}) from {} ({}, {}).", new Object[]{
-                                    executable.getId(), executable.getSlot(), migrateFromExecutable.getId(),
-                                    migrateFromExecutable.getSlot(), migrateFromExecutable.getState()});
-                        }
-                    }
-                }
-                for (Executable executable : executableManager.listExecutablesForStop(stop, maxAttemptCount)) {
-                    executionPlan.addExecutionAction(new ExecutionAction.StopExecutableAction(executable));
-                }
-                for (Executable executable : executableManager.listExecutablesForFinalization(dateTime, maxAttemptCount)) {
-                    executionPlan.addExecutionAction(new ExecutionAction.FinalizeExecutableAction(executable));
-                }
-                for (Executable executable : executableManager.listExecutablesForUpdate(dateTime, maxAttemptCount)) {
-                    ExecutionAction executionAction = executionPlan.getActionByExecutionTarget(executable);
-                    if (executionAction != null) {
-                        // Skip updating executable when other action is planned (i.e., start or stop)
-                        continue;
-                    }
-                    executionPlan.addExecutionAction(new ExecutionAction.UpdateExecutableAction(executable));
-                }
-                for (ExecutableService service : executableManager.listServicesForActivation(start, maxAttemptCount)) {
-                    executionPlan.addExecutionAction(new ExecutionAction.ActivateExecutableServiceAction(service));
-                }
-                for (ExecutableService service : executableManager.listServicesForDeactivation(stop, maxAttemptCount)) {
-                    executionPlan.addExecutionAction(new ExecutionAction.DeactivateExecutableServiceAction(service));
-                }
-                executionPlan.build();
-
-                // Perform execution plan
-                while (!executionPlan.isEmpty()) {
-                    Collection<ExecutionAction> executionActions = executionPlan.popExecutionActions();
-                    for (ExecutionAction executionAction : executionActions) {
-                        executionAction.start();
-                    }
-                    for (ExecutionAction executionAction : executionActions) {
-                        executionAction.join();
-                    }
+        DateTimeFormatter dateTimeFormatter = DateTimeFormatter.getInstance(DateTimeFormatter.Type.LONG);
+        logger.debug("Checking executables for execution at '{}'...", dateTimeFormatter.formatDateTime(dateTime));
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        ExecutableManager executableManager = new ExecutableManager(entityManager);
+        Set<Long> executingExecutableIds = null;
+        try {
+            // Create execution plan (when it is loaded concurrently with a commit of executables, load it again)
+            ExecutionPlan executionPlan = null;
+            for (int attempt = 0; attempt < LOAD_ATTEMPT_COUNT && executionPlan == null; attempt++) {
+                long commitWatermark = CommitWatermark.await();
+                executionPlan = createExecutionPlan(executableManager, dateTime);
+                // Executables must be marked as being executed before the watermark is checked, so that
+                // the scheduler either sees them (and doesn't delete them) or its commit invalidates the plan
+                ExecutableManager.beginExecution(executionPlan.getExecutableIds());
+                if (!CommitWatermark.isCurrent(commitWatermark)) {
+                    ExecutableManager.endExecution(executionPlan.getExecutableIds());
+                    executionPlan = null;
+                    entityManager.clear();
                 }
+            }
+            if (executionPlan == null) {
+                logger.debug("Skipping executor because executables are being committed...");
+                return new ExecutionResult();
+            }
+            executingExecutableIds = executionPlan.getExecutableIds();
+            executionPlan.build();
+
+            // Perform execution plan
+            long performedActionCount = executionActionPool.getPerformedActionCount();
+            executionActionPool.perform(executionPlan);
+            if (executionActionPool.getPerformedActionCount() > performedActionCount) {
+                logger.debug("Executor performed {} actions (max queue depth {}, average waiting {} ms,"
+                        + " average performing {} ms, max performing {} ms).", new Object[]{
+                        executionActionPool.getPerformedActionCount(), executionActionPool.getMaxQueueDepth(),
+                        executionActionPool.getAverageWaitingDuration(),
+                        executionActionPool.getAveragePerformingDuration(),
+                        executionActionPool.getMaxPerformingDuration()});
+            }
 
-                // Finish execution plan
-                entityManager.getTransaction().begin();
-                ExecutionResult executionResult = executionPlan.finish(entityManager, dateTime);
-                entityManager.getTransaction().commit();
+            // Finish execution plan
+            entityManager.getTransaction().begin();
+            ExecutionResult executionResult = executionPlan.finish(entityManager, dateTime);
+            entityManager.getTransaction().commit();
 
-                // Set all activated and deactivated services as checked
-                for (ExecutableService executableService : executionResult.getActivatedExecutableServices()) {
-                    addCheckedExecutableService(executableService);
-                }
-                for (ExecutableService executableService : executionResult.getDeactivatedExecutableServices()) {
-                    addCheckedExecutableService(executableService);
-                }
+            // Set all activated and deactivated services as checked
+            for (ExecutableService executableService : executionResult.getActivatedExecutableServices()) {
+                addCheckedExecutableService(executableService);
+            }
+            for (ExecutableService executableService : executionResult.getDeactivatedExecutableServices()) {
+                addCheckedExecutableService(executableService);
+            }
 
-                // Add notifications
-                entityManager.getTransaction().begin();
-                synchronized (notifications) {
-                    notificationManager.addNotifications(notifications, entityManager);
-                    notifications.clear();
-                }
-                entityManager.getTransaction().commit();
+            // Add notifications
+            entityManager.getTransaction().begin();
+            synchronized (notifications) {
+                notificationManager.addNotifications(notifications, entityManager);
+                notifications.clear();
+            }
+            entityManager.getTransaction().commit();
 
-                return executionResult;
+            return executionResult;
+        }
+        catch (Exception exception) {
+            Reporter.getInstance().reportInternalError(Reporter.EXECUTOR, exception);
+            return null;
+        }
+        finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
             }
-            catch (Exception exception) {
-                Reporter.getInstance().reportInternalError(Reporter.EXECUTOR, exception);
-                return null;
+            if (executingExecutableIds != null) {
+                ExecutableManager.endExecution(executingExecutableIds);
             }
-            finally {
-                if (entityManager.getTransaction().isActive()) {
-                    entityManager.getTransaction().rollback();
-                }
 
-                entityManager.close();
-            }
+            entityManager.close();
+        }
+    }
 
-            //logger.info("Executor releasing lock...    )))))");
+    /**
+     * @param executableManager to be used for loading {@link Executable}s
+     * @param dateTime          specifies date/time which should be used as "now" executing {@link Reservation}s
+     * @return new {@link ExecutionPlan} (not built yet)
+     */
+    private ExecutionPlan createExecutionPlan(ExecutableManager executableManager, DateTime dateTime)
+    {
+        DateTime start = dateTime.minus(executableStart);
+        DateTime stop = dateTime.minus(executableEnd);
+        ExecutionPlan executionPlan = new ExecutionPlan(this);
+        for (Executable executable : executableManager.listExecutablesForStart(start, maxAttemptCount)) {
+            executionPlan.addExecutionAction(new ExecutionAction.StartExecutableAction(executable));
+            Executable migrateFromExecutable = executable.getMigrateFromExecutable();
+            if (migrateFromExecutable != null) {
+                if (migrateFromExecutable.getState().isStarted()) {
+                    Migration migration = new Migration(migrateFromExecutable, executable);
+                    executionPlan.addExecutionAction(new ExecutionAction.MigrationAction(migration));
+                }
+                else {
+                    logger.warn("Cannot migrate executable {} ({}) from {} ({}, {}).", new Object[]{
+                            executable.getId(), executable.getSlot(), migrateFromExecutable.getId(),
+                            migrateFromExecutable.getSlot(), migrateFromExecutable.getState()});
+                }
+            }
+        }
+        for (Executable executable : executableManager.listExecutablesForStop(stop, maxAttemptCount)) {
+            executionPlan.addExecutionAction(new ExecutionAction.StopExecutableAction(executable));
+        }
+        for (Executable executable : executableManager.listExecutablesForFinalization(dateTime, maxAttemptCount)) {
+            executionPlan.addExecutionAction(new ExecutionAction.FinalizeExecutableAction(executable));
+        }
+        for (Executable executable : executableManager.listExecutablesForUpdate(dateTime, maxAttemptCount)) {
+            ExecutionAction executionAction = executionPlan.getActionByExecutionTarget(executable);
+            if (executionAction != null) {
+                // Skip updating executable when other action is planned (i.e., start or stop)
+                continue;
+            }
+            executionPlan.addExecutionAction(new ExecutionAction.UpdateExecutableAction(executable));
+        }
+        for (ExecutableService service : executableManager.listServicesForActivation(start, maxAttemptCount)) {
+            executionPlan.addExecutionAction(new ExecutionAction.ActivateExecutableServiceAction(service));
+        }
+        for (ExecutableService service : executableManager.listServicesForDeactivation(stop, maxAttemptCount)) {
+            executionPlan.addExecutionAction(new ExecutionAction.DeactivateExecutableServiceAction(service));
         }
-        //logger.info("Executor lock released...");
+        return executionPlan;
     }
 
     /**
@@ -0,0 +1,389 @@
+package cz.cesnet.shongo.controller.notification;
+
+import cz.cesnet.shongo.controller.Component;
+import cz.cesnet.shongo.controller.ControllerConfiguration;
+import cz.cesnet.shongo.controller.EmailSender;
+import cz.cesnet.shongo.controller.Reporter;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Persistent outbox of emails. Emails are stored as {@link EmailOutboxMessage}s in the transaction of the caller
+ * (e.g., the execution of notifications) and they are sent by a background thread, in batches through single
+ * connected {@link Transport}. Emails which fail to be sent are retried with exponential backoff.
+ */
+public class EmailOutbox extends Component
+        implements Component.WithThread, Component.EntityManagerFactoryAware, Runnable
+{
+    private static Logger logger = LoggerFactory.getLogger(EmailOutbox.class);
+
+    /**
+     * Maximum number of doublings of {@link #retryDelay} (i.e., the next attempt is postponed at most
+     * by 64 times the {@link #retryDelay}).
+     */
+    private static final int MAX_RETRY_DELAY_DOUBLING_COUNT = 6;
+
+    /**
+     * @see EmailSender
+     */
+    private final EmailSender emailSender;
+
+    /**
+     * {@link EntityManagerFactory} used for loading {@link EmailOutboxMessage}s.
+     */
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * @see ControllerConfiguration#SMTP_OUTBOX_PERIOD
+     */
+    private Duration period;
+
+    /**
+     * @see ControllerConfiguration#SMTP_OUTBOX_BATCH_SIZE
+     */
+    private int batchSize;
+
+    /**
+     * @see ControllerConfiguration#SMTP_OUTBOX_RETRY_DELAY
+     */
+    private Duration retryDelay;
+
+    /**
+     * @see ControllerConfiguration#SMTP_OUTBOX_MAX_ATTEMPT_COUNT
+     */
+    private int maxAttemptCount;
+
+    /**
+     * @see ControllerConfiguration#SMTP_OUTBOX_RETENTION
+     */
+    private Duration retention;
+
+    /**
+     * Lock which ensures that only one {@link #send} is performed at the same time.
+     */
+    private final Object sendLock = new Object();
+
+    /**
+     * Specifies whether new messages have been committed to the outbox since the last sending.
+     */
+    private boolean enqueued = false;
+
+    /**
+     * Number of sent messages.
+     */
+    private long sentCount = 0;
+
+    /**
+     * Number of failed attempts to send messages.
+     */
+    private long failedAttemptCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param emailSender sets the {@link #emailSender}
+     */
+    public EmailOutbox(EmailSender emailSender)
+    {
+        this.emailSender = emailSender;
+    }
+
+    /**
+     * @return {@link #emailSender}
+     */
+    public EmailSender getEmailSender()
+    {
+        return emailSender;
+    }
+
+    @Override
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory)
+    {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void init(ControllerConfiguration configuration)
+    {
+        checkDependency(entityManagerFactory, EntityManagerFactory.class);
+        super.init(configuration);
+
+        period = configuration.getDuration(ControllerConfiguration.SMTP_OUTBOX_PERIOD);
+        batchSize = configuration.getInt(ControllerConfiguration.SMTP_OUTBOX_BATCH_SIZE);
+        retryDelay = configuration.getDuration(ControllerConfiguration.SMTP_OUTBOX_RETRY_DELAY);
+        maxAttemptCount = configuration.getInt(ControllerConfiguration.SMTP_OUTBOX_MAX_ATTEMPT_COUNT);
+        retention = configuration.getDuration(ControllerConfiguration.SMTP_OUTBOX_RETENTION);
+    }
+
+    @Override
+    public Thread getThread()
+    {
+        Thread thread = new Thread(this);
+        thread.setName("email-outbox");
+        return thread;
+    }
+
+    /**
+     * @return true whether SMTP is configured, false otherwise
+     */
+    public boolean isInitialized()
+    {
+        return emailSender.isInitialized();
+    }
+
+    /**
+     * Store given {@code email} to the outbox. The email will be sent after the transaction of given
+     * {@code entityManager} is committed (the caller should {@link #wakeUp()} the outbox after the commit,
+     * otherwise the email is sent in the next {@link #period}).
+     *
+     * @param email         to be sent
+     * @param entityManager to be used for storing the email
+     * @return stored {@link EmailOutboxMessage}
+     * @throws MessagingException when the email cannot be created
+     */
+    public EmailOutboxMessage enqueue(EmailSender.Email email, EntityManager entityManager) throws MessagingException
+    {
+        MimeMessage message = emailSender.createMessage(email);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try {
+            message.writeTo(data);
+        }
+        catch (IOException exception) {
+            throw new MessagingException("Failed to write email.", exception);
+        }
+        EmailOutboxMessage outboxMessage = new EmailOutboxMessage(
+                EmailSender.getRecipientString(message), email.getSubject(), data.toByteArray());
+        entityManager.persist(outboxMessage);
+        logger.debug("Email '{}' to '{}' enqueued to outbox.", email.getSubject(), outboxMessage.getRecipients());
+        return outboxMessage;
+    }
+
+    /**
+     * Notify the background thread that new messages have been committed to the outbox.
+     */
+    public synchronized void wakeUp()
+    {
+        enqueued = true;
+        notifyAll();
+    }
+
+    @Override
+    public void run()
+    {
+        logger.debug("Email outbox started!");
+
+        while (!Thread.interrupted()) {
+            try {
+                awaitEnqueued();
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                continue;
+            }
+            try {
+                send(DateTime.now());
+            }
+            catch (Exception exception) {
+                Reporter.getInstance().reportInternalError(Reporter.NOTIFICATION, "Email outbox failed", exception);
+            }
+        }
+
+        logger.debug("Email outbox stopped!");
+    }
+
+    /**
+     * Wait for the {@link #period} or until the outbox is woken up by {@link #wakeUp()}.
+     *
+     * @throws InterruptedException
+     */
+    private synchronized void awaitEnqueued() throws InterruptedException
+    {
+        if (!enqueued) {
+            wait(period.getMillis());
+        }
+        enqueued = false;
+    }
+
+    /**
+     * Send all {@link EmailOutboxMessage}s which are pending and whose next attempt is before given {@code dateTime}.
+     * The messages are loaded and sent in batches and a single connected {@link Transport} is used for all of them.
+     *
+     * @param dateTime which represents "now"
+     * @return number of sent messages
+     */
+    public int send(DateTime dateTime)
+    {
+        if (!emailSender.isInitialized()) {
+            return 0;
+        }
+        synchronized (sendLock) {
+            int sentCount = sendMessages(dateTime);
+            synchronized (this) {
+                this.sentCount += sentCount;
+            }
+            return sentCount;
+        }
+    }
+
+    /**
+     * @param dateTime which represents "now"
+     * @return number of sent messages
+     * @see #send
+     */
+    private int sendMessages(DateTime dateTime)
+    {
+        int sentCount = 0;
+        Transport transport = null;
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            List<EmailOutboxMessage> messages;
+            do {
+                messages = entityManager.createQuery("SELECT message FROM EmailOutboxMessage message"
+                        + " WHERE message.state = :state AND message.nextAttemptAt <= :dateTime"
+                        + " ORDER BY message.nextAttemptAt, message.id", EmailOutboxMessage.class)
+                        .setParameter("state", EmailOutboxMessage.State.PENDING)
+                        .setParameter("dateTime", dateTime)
+                        .setMaxResults(batchSize)
+                        .getResultList();
+                if (messages.isEmpty()) {
+                    break;
+                }
+
+                // Send messages (without holding a transaction)
+                MessagingException connectException = null;
+                List<EmailOutboxMessage> failedMessages = new LinkedList<EmailOutboxMessage>();
+                for (EmailOutboxMessage message : messages) {
+                    if (connectException == null && (transport == null || !transport.isConnected())) {
+                        closeTransport(transport);
+                        transport = null;
+                        try {
+                            transport = emailSender.connectTransport();
+                        }
+                        catch (MessagingException exception) {
+                            connectException = exception;
+                        }
+                    }
+                    try {
+                        if (connectException != null) {
+                            throw connectException;
+                        }
+                        MimeMessage mimeMessage = emailSender.parseMessage(message.getData());
+                        transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+                        message.markSent(DateTime.now());
+                        sentCount++;
+                        logger.debug("Email '{}' to '{}' sent.", message.getSubject(), message.getRecipients());
+                    }
+                    catch (MessagingException exception) {
+                        if (!markNotSent(message, exception, dateTime)) {
+                            failedMessages.add(message);
+                        }
+                    }
+                }
+
+                // Store delivery states
+                entityManager.getTransaction().begin();
+                entityManager.getTransaction().commit();
+                entityManager.clear();
+
+                for (EmailOutboxMessage message : failedMessages) {
+                    Reporter.getInstance().reportInternalError(Reporter.NOTIFICATION, String.format(
+                            "Failed to send email '%s' to '%s' in %d attempts (%s).", message.getSubject(),
+                            message.getRecipients(), message.getAttemptCount(), message.getLastError()), null);
+                }
+                if (connectException != null) {
+                    // Next batches would fail too
+                    break;
+                }
+            }
+            while (messages.size() == batchSize);
+
+            // Delete old sent messages
+            entityManager.getTransaction().begin();
+            entityManager.createQuery("DELETE FROM EmailOutboxMessage"
+                    + " WHERE state = :state AND sentAt < :dateTime")
+                    .setParameter("state", EmailOutboxMessage.State.SENT)
+                    .setParameter("dateTime", dateTime.minus(retention))
+                    .executeUpdate();
+            entityManager.getTransaction().commit();
+        }
+        finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+            closeTransport(transport);
+        }
+        return sentCount;
+    }
+
+    /**
+     * Record failed attempt to send given {@code message}.
+     *
+     * @param message   which failed to be sent
+     * @param exception which occurred
+     * @param dateTime  which represents "now"
+     * @return true whether the message will be sent again, false when the maximum attempt count was reached
+     */
+    private boolean markNotSent(EmailOutboxMessage message, MessagingException exception, DateTime dateTime)
+    {
+        DateTime nextAttemptAt = null;
+        if ((message.getAttemptCount() + 1) < maxAttemptCount) {
+            int doublingCount = Math.min(message.getAttemptCount(), MAX_RETRY_DELAY_DOUBLING_COUNT);
+            nextAttemptAt = dateTime.plus(retryDelay.getMillis() << doublingCount);
+        }
+        message.markNotSent(exception.toString(), nextAttemptAt);
+        synchronized (this) {
+            failedAttemptCount++;
+        }
+        if (nextAttemptAt != null) {
+            logger.warn("Failed to send email '{}' to '{}', next attempt at {} ({}).", new Object[]{
+                    message.getSubject(), message.getRecipients(), nextAttemptAt, exception
+            });
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param transport to be closed
+     */
+    private void closeTransport(Transport transport)
+    {
+        if (transport != null) {
+            try {
+                transport.close();
+            }
+            catch (MessagingException exception) {
+                logger.warn("Failed to close SMTP transport.", exception);
+            }
+        }
+    }
+
+    /**
+     * @return {@link #sentCount}
+     */
+    public synchronized long getSentCount()
+    {
+        return sentCount;
+    }
+
+    /**
+     * @return {@link #failedAttemptCount}
+     */
+    public synchronized long getFailedAttemptCount()
+    {
+        return failedAttemptCount;
+    }
+}
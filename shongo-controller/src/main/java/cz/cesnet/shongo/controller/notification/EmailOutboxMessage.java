@@ -0,0 +1,310 @@
+package cz.cesnet.shongo.controller.notification;
+
+import cz.cesnet.shongo.SimplePersistentObject;
+import cz.cesnet.shongo.api.AbstractComplexType;
+import cz.cesnet.shongo.hibernate.PersistentDateTime;
+import org.hibernate.annotations.Index;
+import org.joda.time.DateTime;
+
+import javax.persistence.*;
+
+/**
+ * Represents an email in the {@link EmailOutbox} which is sent by the background thread.
+ */
+@Entity
+public class EmailOutboxMessage extends SimplePersistentObject
+{
+    /**
+     * Maximum length of {@link #recipients}, {@link #subject} and {@link #lastError}.
+     */
+    private static final int TEXT_COLUMN_LENGTH = AbstractComplexType.DEFAULT_COLUMN_LENGTH;
+
+    /**
+     * Date/time when the message was enqueued.
+     */
+    private DateTime createdAt;
+
+    /**
+     * Recipients of the message (for logging).
+     */
+    private String recipients;
+
+    /**
+     * Subject of the message (for logging).
+     */
+    private String subject;
+
+    /**
+     * Whole MIME message (see {@link javax.mail.internet.MimeMessage#writeTo}).
+     */
+    private byte[] data;
+
+    /**
+     * Delivery {@link State} of the message.
+     */
+    private State state;
+
+    /**
+     * Number of performed attempts to send the message.
+     */
+    private int attemptCount;
+
+    /**
+     * Date/time of the next attempt to send the message.
+     */
+    private DateTime nextAttemptAt;
+
+    /**
+     * Description of the last error which occurred while sending the message.
+     */
+    private String lastError;
+
+    /**
+     * Date/time when the message was sent.
+     */
+    private DateTime sentAt;
+
+    /**
+     * Constructor.
+     */
+    public EmailOutboxMessage()
+    {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param recipients sets the {@link #recipients}
+     * @param subject    sets the {@link #subject}
+     * @param data       sets the {@link #data}
+     */
+    public EmailOutboxMessage(String recipients, String subject, byte[] data)
+    {
+        DateTime dateTimeNow = DateTime.now();
+        this.createdAt = dateTimeNow;
+        this.nextAttemptAt = dateTimeNow;
+        this.state = State.PENDING;
+        setRecipients(recipients);
+        setSubject(subject);
+        setData(data);
+    }
+
+    /**
+     * @return {@link #createdAt}
+     */
+    @Column(nullable = false)
+    @org.hibernate.annotations.Type(type = PersistentDateTime.NAME)
+    public DateTime getCreatedAt()
+    {
+        return createdAt;
+    }
+
+    /**
+     * @param createdAt sets the {@link #createdAt}
+     */
+    public void setCreatedAt(DateTime createdAt)
+    {
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * @return {@link #recipients}
+     */
+    @Column(length = TEXT_COLUMN_LENGTH)
+    public String getRecipients()
+    {
+        return recipients;
+    }
+
+    /**
+     * @param recipients sets the {@link #recipients}
+     */
+    public void setRecipients(String recipients)
+    {
+        this.recipients = truncate(recipients);
+    }
+
+    /**
+     * @return {@link #subject}
+     */
+    @Column(length = TEXT_COLUMN_LENGTH)
+    public String getSubject()
+    {
+        return subject;
+    }
+
+    /**
+     * @param subject sets the {@link #subject}
+     */
+    public void setSubject(String subject)
+    {
+        this.subject = truncate(subject);
+    }
+
+    /**
+     * @return {@link #data}
+     */
+    @Column(nullable = false, length = Integer.MAX_VALUE)
+    public byte[] getData()
+    {
+        return data;
+    }
+
+    /**
+     * @param data sets the {@link #data}
+     */
+    public void setData(byte[] data)
+    {
+        this.data = data;
+    }
+
+    /**
+     * @return {@link #state}
+     */
+    @Column(nullable = false, length = AbstractComplexType.ENUM_COLUMN_LENGTH)
+    @Enumerated(EnumType.STRING)
+    @Index(name = "email_outbox_message_state_idx")
+    public State getState()
+    {
+        return state;
+    }
+
+    /**
+     * @param state sets the {@link #state}
+     */
+    public void setState(State state)
+    {
+        this.state = state;
+    }
+
+    /**
+     * @return {@link #attemptCount}
+     */
+    @Column(nullable = false)
+    public int getAttemptCount()
+    {
+        return attemptCount;
+    }
+
+    /**
+     * @param attemptCount sets the {@link #attemptCount}
+     */
+    public void setAttemptCount(int attemptCount)
+    {
+        this.attemptCount = attemptCount;
+    }
+
+    /**
+     * @return {@link #nextAttemptAt}
+     */
+    @Column
+    @org.hibernate.annotations.Type(type = PersistentDateTime.NAME)
+    public DateTime getNextAttemptAt()
+    {
+        return nextAttemptAt;
+    }
+
+    /**
+     * @param nextAttemptAt sets the {@link #nextAttemptAt}
+     */
+    public void setNextAttemptAt(DateTime nextAttemptAt)
+    {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    /**
+     * @return {@link #lastError}
+     */
+    @Column(length = TEXT_COLUMN_LENGTH)
+    public String getLastError()
+    {
+        return lastError;
+    }
+
+    /**
+     * @param lastError sets the {@link #lastError}
+     */
+    public void setLastError(String lastError)
+    {
+        this.lastError = truncate(lastError);
+    }
+
+    /**
+     * @return {@link #sentAt}
+     */
+    @Column
+    @org.hibernate.annotations.Type(type = PersistentDateTime.NAME)
+    public DateTime getSentAt()
+    {
+        return sentAt;
+    }
+
+    /**
+     * @param sentAt sets the {@link #sentAt}
+     */
+    public void setSentAt(DateTime sentAt)
+    {
+        this.sentAt = sentAt;
+    }
+
+    /**
+     * Mark the message as sent.
+     *
+     * @param dateTime when the message was sent
+     */
+    public void markSent(DateTime dateTime)
+    {
+        this.attemptCount++;
+        this.state = State.SENT;
+        this.sentAt = dateTime;
+        this.nextAttemptAt = null;
+        this.lastError = null;
+    }
+
+    /**
+     * Mark the message as not sent.
+     *
+     * @param error         description of the error
+     * @param nextAttemptAt date/time of the next attempt or {@code null} when the message should not be sent again
+     */
+    public void markNotSent(String error, DateTime nextAttemptAt)
+    {
+        this.attemptCount++;
+        this.state = (nextAttemptAt != null ? State.PENDING : State.FAILED);
+        this.nextAttemptAt = nextAttemptAt;
+        setLastError(error);
+    }
+
+    /**
+     * @param text
+     * @return given {@code text} truncated to {@link #TEXT_COLUMN_LENGTH}
+     */
+    private static String truncate(String text)
+    {
+        if (text != null && text.length() > TEXT_COLUMN_LENGTH) {
+            text = text.substring(0, TEXT_COLUMN_LENGTH - 3) + "...";
+        }
+        return text;
+    }
+
+    /**
+     * Delivery state of {@link EmailOutboxMessage}.
+     */
+    public static enum State
+    {
+        /**
+         * The message is waiting for (next attempt of) sending.
+         */
+        PENDING,
+
+        /**
+         * The message was sent.
+         */
+        SENT,
+
+        /**
+         * The message failed to be sent in the maximum number of attempts.
+         */
+        FAILED
+    }
+}
@@ -193,6 +193,11 @@ public class NotificationManager extends Component implements Component.Authoriz
                 removedNotifications.add(notification);
             }
             entityManager.getTransaction().commit();
+            if (!removedNotifications.isEmpty()) {
+                for (NotificationExecutor notificationExecutor : notificationExecutors) {
+                    notificationExecutor.onNotificationsCommitted();
+                }
+            }
         }
         finally {
             for (AbstractNotification notification : removedNotifications) {
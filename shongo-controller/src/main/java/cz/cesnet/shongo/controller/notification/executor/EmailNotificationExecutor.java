@@ -19,7 +19,8 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * {@link NotificationExecutor} for sending mails.
+ * {@link NotificationExecutor} for sending mails (the mails are only enqueued to the {@link EmailOutbox}
+ * from which they are sent by a background thread).
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
@@ -37,9 +38,9 @@ public class EmailNotificationExecutor extends NotificationExecutor
         }};
 
     /**
-     * @see EmailSender
+     * @see EmailOutbox
      */
-    private EmailSender emailSender;
+    private EmailOutbox emailOutbox;
 
     /**
      * @see ControllerConfiguration
@@ -49,11 +50,11 @@ public class EmailNotificationExecutor extends NotificationExecutor
     /**
      * Constructor.
      *
-     * @param emailSender sets the {@link #emailSender}
+     * @param emailOutbox sets the {@link #emailOutbox}
      */
-    public EmailNotificationExecutor(EmailSender emailSender, ControllerConfiguration configuration)
+    public EmailNotificationExecutor(EmailOutbox emailOutbox, ControllerConfiguration configuration)
     {
-        this.emailSender = emailSender;
+        this.emailOutbox = emailOutbox;
         this.configuration = configuration;
     }
 
@@ -61,7 +62,7 @@ public class EmailNotificationExecutor extends NotificationExecutor
     public void executeNotification(PersonInformation recipient, AbstractNotification notification,
             NotificationManager manager, EntityManager entityManager)
     {
-        if (!emailSender.isInitialized()) {
+        if (!emailOutbox.isInitialized()) {
             return;
         }
         try {
@@ -122,7 +123,7 @@ public class EmailNotificationExecutor extends NotificationExecutor
                 byte[] byteFileContent= null;
                 if (attachment instanceof iCalendarNotificationAttachment) {
                     iCalendarNotificationAttachment calendarAttachment = (iCalendarNotificationAttachment) attachment;
-                    fileContent = calendarAttachment.getFileContent(emailSender.getSender(), entityManager);
+                    fileContent = calendarAttachment.getFileContent(emailOutbox.getEmailSender().getSender(), entityManager);
                     email.addAttachment(fileName, fileContent);
                 }
                 else if (attachment instanceof PdfNotificationAttachment) {
@@ -141,11 +142,17 @@ public class EmailNotificationExecutor extends NotificationExecutor
 
             }
 
-            // Send email
-            emailSender.sendEmail(email);
+            // Enqueue email for sending
+            emailOutbox.enqueue(email, entityManager);
         }
         catch (Exception exception) {
-            Reporter.getInstance().reportInternalError(Reporter.NOTIFICATION, "Failed to send email", exception);
+            Reporter.getInstance().reportInternalError(Reporter.NOTIFICATION, "Failed to enqueue email", exception);
         }
     }
+
+    @Override
+    public void onNotificationsCommitted()
+    {
+        emailOutbox.wakeUp();
+    }
 }
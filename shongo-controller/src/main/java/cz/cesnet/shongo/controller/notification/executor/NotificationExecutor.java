@@ -35,4 +35,11 @@ public abstract class NotificationExecutor
      */
     public abstract void executeNotification(PersonInformation recipient, AbstractNotification notification,
             NotificationManager manager, EntityManager entityManager);
+
+    /**
+     * Called after the transaction in which the {@link #executeNotification} were called is committed.
+     */
+    public void onNotificationsCommitted()
+    {
+    }
 }
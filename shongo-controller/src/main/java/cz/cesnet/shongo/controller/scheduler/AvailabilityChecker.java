@@ -0,0 +1,541 @@
+package cz.cesnet.shongo.controller.scheduler;
+
+import cz.cesnet.shongo.controller.ObjectType;
+import cz.cesnet.shongo.controller.ReservationRequestPurpose;
+import cz.cesnet.shongo.controller.authorization.Authorization;
+import cz.cesnet.shongo.controller.authorization.AuthorizationManager;
+import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
+import cz.cesnet.shongo.controller.booking.recording.RecordingServiceReservation;
+import cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest;
+import cz.cesnet.shongo.controller.booking.request.ReservationRequest;
+import cz.cesnet.shongo.controller.booking.request.ReservationRequestManager;
+import cz.cesnet.shongo.controller.booking.reservation.Reservation;
+import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
+import cz.cesnet.shongo.controller.booking.reservation.TargetedReservation;
+import cz.cesnet.shongo.controller.booking.resource.ResourceReservation;
+import cz.cesnet.shongo.controller.booking.room.RoomReservation;
+import cz.cesnet.shongo.controller.booking.specification.Specification;
+import cz.cesnet.shongo.controller.cache.Cache;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks availability of a {@link Specification} in multiple time slots (e.g., all occurrences of a periodic
+ * reservation request) for {@link cz.cesnet.shongo.controller.api.rpc.ReservationService#checkPeriodicAvailability}.
+ * <p/>
+ * The time slots are sorted and split into continuous partitions which are evaluated in parallel by a bounded
+ * pool of threads. Each partition uses its own read-only {@link EntityManager} (a snapshot which is never flushed)
+ * and each time slot is checked by a {@link ReservationTask} in a new {@link SchedulerContext} in its own
+ * transaction which is rolled back and whose persistence context is cleared afterwards (so that entities created
+ * or modified by the check of one time slot cannot affect the check of another time slot). Before the check,
+ * the reservations which are queried by the {@link ReservationTask}s (see {@link #PRELOADED_RESERVATION_TYPES})
+ * and which overlap the time slot are loaded by a single query for each type.
+ */
+public class AvailabilityChecker
+{
+    private static Logger logger = LoggerFactory.getLogger(AvailabilityChecker.class);
+
+    /**
+     * Default number of threads which evaluate time slots.
+     */
+    public static final int DEFAULT_THREAD_COUNT = 4;
+
+    /**
+     * Types of {@link Reservation}s which are queried by {@link ReservationTask}s through
+     * {@link cz.cesnet.shongo.controller.cache.ResourceCache} and which are loaded before each check.
+     */
+    private static final List<Class<? extends TargetedReservation>> PRELOADED_RESERVATION_TYPES =
+            Collections.unmodifiableList(Arrays.<Class<? extends TargetedReservation>>asList(
+                    ResourceReservation.class, RoomReservation.class, RecordingServiceReservation.class));
+
+    /**
+     * Minimum number of time slots which are evaluated in one partition.
+     */
+    private static final int MINIMUM_PARTITION_SIZE = 4;
+
+    /**
+     * @see EntityManagerFactory
+     */
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * @see Cache
+     */
+    private final Cache cache;
+
+    /**
+     * @see Authorization
+     */
+    private final Authorization authorization;
+
+    /**
+     * Maximum number of partitions evaluated in parallel.
+     */
+    private final int threadCount;
+
+    /**
+     * {@link ExecutorService} for evaluating partitions.
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * Constructor.
+     *
+     * @param entityManagerFactory sets the {@link #entityManagerFactory}
+     * @param cache                sets the {@link #cache}
+     * @param authorization        sets the {@link #authorization}
+     * @param threadCount          sets the {@link #threadCount}
+     */
+    public AvailabilityChecker(EntityManagerFactory entityManagerFactory, Cache cache, Authorization authorization,
+            int threadCount)
+    {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        this.entityManagerFactory = entityManagerFactory;
+        this.cache = cache;
+        this.authorization = authorization;
+        this.threadCount = threadCount;
+
+        // When all threads are busy and the queue is full, the partition is evaluated by the calling thread
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(threadCount * 4), new ThreadFactory()
+        {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "availability-check-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        this.executorService = executor;
+    }
+
+    /**
+     * Stop all threads.
+     */
+    public void destroy()
+    {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Check availability of given {@code request} in given {@code slots}.
+     *
+     * @param request to be checked
+     * @param slots   in which the {@code request} should be checked
+     * @return list of {@link Failure}s for time slots in which the {@code request} isn't available
+     *         (in the order of given {@code slots}), empty list when the {@code request} is available in all slots
+     */
+    public List<Failure> check(Request request, List<Interval> slots)
+    {
+        // Sort time slots to get continuous partitions
+        List<Occurrence> occurrences = new ArrayList<Occurrence>(slots.size());
+        for (int index = 0; index < slots.size(); index++) {
+            occurrences.add(new Occurrence(index, slots.get(index)));
+        }
+        Collections.sort(occurrences, new Comparator<Occurrence>()
+        {
+            @Override
+            public int compare(Occurrence occurrence1, Occurrence occurrence2)
+            {
+                return Long.compare(occurrence1.slot.getStartMillis(), occurrence2.slot.getStartMillis());
+            }
+        });
+
+        // Split time slots into partitions
+        int partitionCount = Math.max(1, Math.min(threadCount, occurrences.size() / MINIMUM_PARTITION_SIZE));
+        int partitionSize = (occurrences.size() + partitionCount - 1) / partitionCount;
+        List<Partition> partitions = new ArrayList<Partition>(partitionCount);
+        for (int start = 0; start < occurrences.size(); start += partitionSize) {
+            int end = Math.min(start + partitionSize, occurrences.size());
+            partitions.add(new Partition(request, occurrences.subList(start, end)));
+        }
+
+        // Evaluate partitions
+        List<Failure> failures = new ArrayList<Failure>();
+        if (partitions.size() == 1) {
+            failures.addAll(partitions.get(0).call());
+        }
+        else {
+            List<Future<List<Failure>>> futures = new ArrayList<Future<List<Failure>>>(partitions.size());
+            try {
+                for (Partition partition : partitions) {
+                    futures.add(executorService.submit(partition));
+                }
+                for (Future<List<Failure>> future : futures) {
+                    failures.addAll(future.get());
+                }
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Availability check has been interrupted.", exception);
+            }
+            catch (ExecutionException exception) {
+                Throwable cause = exception.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new RuntimeException("Availability check failed.", cause);
+            }
+            finally {
+                for (Future<List<Failure>> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+        Collections.sort(failures, new Comparator<Failure>()
+        {
+            @Override
+            public int compare(Failure failure1, Failure failure2)
+            {
+                return Integer.compare(failure1.index, failure2.index);
+            }
+        });
+        logger.debug("Availability checked in {} time slots by {} partitions ({} failed).",
+                new Object[]{slots.size(), partitions.size(), failures.size()});
+        return failures;
+    }
+
+    /**
+     * Parameters of checked request.
+     */
+    public static class Request
+    {
+        /**
+         * Specification which should be checked.
+         */
+        private cz.cesnet.shongo.controller.api.Specification specification;
+
+        /**
+         * User-id of the user who is checking the availability.
+         */
+        private String userId;
+
+        /**
+         * {@link ReservationRequestPurpose} for checked {@link #specification}.
+         */
+        private ReservationRequestPurpose purpose;
+
+        /**
+         * Identifier of reservation request whose allocation should be reused.
+         */
+        private String reservationRequestId;
+
+        /**
+         * Identifier of reservation request whose reservations should be ignored.
+         */
+        private String ignoredReservationRequestId;
+
+        /**
+         * @param specification sets the {@link #specification}
+         */
+        public void setSpecification(cz.cesnet.shongo.controller.api.Specification specification)
+        {
+            this.specification = specification;
+        }
+
+        /**
+         * @param userId sets the {@link #userId}
+         */
+        public void setUserId(String userId)
+        {
+            this.userId = userId;
+        }
+
+        /**
+         * @param purpose sets the {@link #purpose}
+         */
+        public void setPurpose(ReservationRequestPurpose purpose)
+        {
+            this.purpose = purpose;
+        }
+
+        /**
+         * @param reservationRequestId sets the {@link #reservationRequestId}
+         */
+        public void setReservationRequestId(String reservationRequestId)
+        {
+            this.reservationRequestId = reservationRequestId;
+        }
+
+        /**
+         * @param ignoredReservationRequestId sets the {@link #ignoredReservationRequestId}
+         */
+        public void setIgnoredReservationRequestId(String ignoredReservationRequestId)
+        {
+            this.ignoredReservationRequestId = ignoredReservationRequestId;
+        }
+    }
+
+    /**
+     * Time slot in which the {@link Request} isn't available.
+     */
+    public static class Failure
+    {
+        /**
+         * Index of the time slot.
+         */
+        private final int index;
+
+        /**
+         * Time slot which failed.
+         */
+        private final Interval slot;
+
+        /**
+         * {@link SchedulerReport} describing the reason.
+         */
+        private final SchedulerReport report;
+
+        /**
+         * Constructor.
+         *
+         * @param index  sets the {@link #index}
+         * @param slot   sets the {@link #slot}
+         * @param report sets the {@link #report}
+         */
+        private Failure(int index, Interval slot, SchedulerReport report)
+        {
+            this.index = index;
+            this.slot = slot;
+            this.report = report;
+        }
+
+        /**
+         * @return {@link #slot}
+         */
+        public Interval getSlot()
+        {
+            return slot;
+        }
+
+        /**
+         * @return {@link #report}
+         */
+        public SchedulerReport getReport()
+        {
+            return report;
+        }
+    }
+
+    /**
+     * Single time slot with the original index.
+     */
+    private static class Occurrence
+    {
+        /**
+         * Index of the {@link #slot} in checked time slots.
+         */
+        private final int index;
+
+        /**
+         * Time slot.
+         */
+        private final Interval slot;
+
+        /**
+         * Constructor.
+         *
+         * @param index sets the {@link #index}
+         * @param slot  sets the {@link #slot}
+         */
+        private Occurrence(int index, Interval slot)
+        {
+            this.index = index;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * Continuous sorted list of {@link Occurrence}s which are evaluated in single read-only {@link EntityManager}
+     * (each in its own transaction and persistence context).
+     */
+    private class Partition implements Callable<List<Failure>>
+    {
+        /**
+         * @see Request
+         */
+        private final Request request;
+
+        /**
+         * {@link Occurrence}s sorted by slot start.
+         */
+        private final List<Occurrence> occurrences;
+
+        /**
+         * Constructor.
+         *
+         * @param request     sets the {@link #request}
+         * @param occurrences sets the {@link #occurrences}
+         */
+        private Partition(Request request, List<Occurrence> occurrences)
+        {
+            this.request = request;
+            this.occurrences = occurrences;
+        }
+
+        @Override
+        public List<Failure> call()
+        {
+            List<Failure> failures = new LinkedList<Failure>();
+            EntityManager entityManager = entityManagerFactory.createEntityManager();
+            try {
+                // Snapshot which never writes anything to the database
+                Session session = entityManager.unwrap(Session.class);
+                session.setDefaultReadOnly(true);
+                session.setFlushMode(FlushMode.MANUAL);
+
+                for (Occurrence occurrence : occurrences) {
+                    SchedulerReport report;
+                    entityManager.getTransaction().begin();
+                    try {
+                        report = checkOccurrence(occurrence.slot, entityManager);
+                    }
+                    finally {
+                        // Entities which have been created or modified by the check must not affect next checks
+                        entityManager.getTransaction().rollback();
+                        entityManager.clear();
+                    }
+                    if (report != null) {
+                        failures.add(new Failure(occurrence.index, occurrence.slot, report));
+                    }
+                }
+            }
+            finally {
+                entityManager.close();
+            }
+            return failures;
+        }
+
+        /**
+         * @param slot          to be checked
+         * @param entityManager to be used
+         * @return {@link SchedulerReport} when the {@link #request} isn't available in given {@code slot},
+         *         null otherwise
+         */
+        private SchedulerReport checkOccurrence(Interval slot, EntityManager entityManager)
+        {
+            ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
+            AuthorizationManager authorizationManager = new AuthorizationManager(entityManager, authorization);
+
+            // Load reservations which are queried by reservation tasks to the persistence context
+            ReservationManager reservationManager = new ReservationManager(entityManager);
+            for (Class<? extends TargetedReservation> reservationType : PRELOADED_RESERVATION_TYPES) {
+                reservationManager.listByOverlappingInterval(slot, reservationType);
+            }
+
+            Specification specification = null;
+            if (request.specification != null) {
+                specification = Specification.createFromApi(request.specification, entityManager);
+            }
+            AbstractReservationRequest ignoredReservationRequest = null;
+            if (request.ignoredReservationRequestId != null) {
+                ObjectIdentifier objectId = ObjectIdentifier.parse(
+                        request.ignoredReservationRequestId, ObjectType.RESERVATION_REQUEST);
+                ignoredReservationRequest = reservationRequestManager.get(objectId.getPersistenceId());
+            }
+            AbstractReservationRequest reusedReservationRequest = null;
+            if (request.reservationRequestId != null) {
+                ObjectIdentifier objectId = ObjectIdentifier.parse(
+                        request.reservationRequestId, ObjectType.RESERVATION_REQUEST);
+                reusedReservationRequest = reservationRequestManager.get(objectId.getPersistenceId());
+            }
+            return checkOccurrence(slot, specification, ignoredReservationRequest, reusedReservationRequest,
+                    entityManager, authorizationManager);
+        }
+
+        /**
+         * @param slot                      to be checked
+         * @param specification             to be checked
+         * @param ignoredReservationRequest whose reservations should be ignored
+         * @param reusedReservationRequest  whose allocation should be reused
+         * @param entityManager             to be used
+         * @param authorizationManager      to be used
+         * @return {@link SchedulerReport} when the {@code specification} isn't available in given {@code slot},
+         *         null otherwise
+         */
+        private SchedulerReport checkOccurrence(Interval slot, Specification specification,
+                AbstractReservationRequest ignoredReservationRequest,
+                AbstractReservationRequest reusedReservationRequest, EntityManager entityManager,
+                AuthorizationManager authorizationManager)
+        {
+            // We must check only the future (because scheduler allocates only in future)
+            DateTime minimumDateTime = DateTime.now();
+            if (slot.getStart().isBefore(minimumDateTime)) {
+                slot = slot.withStart(minimumDateTime);
+            }
+            Interval allocationSlot = slot;
+            if (specification instanceof SpecificationIntervalUpdater) {
+                SpecificationIntervalUpdater intervalUpdater = (SpecificationIntervalUpdater) specification;
+                allocationSlot = intervalUpdater.updateInterval(allocationSlot, minimumDateTime);
+            }
+
+            // Create scheduler context
+            SchedulerContext schedulerContext = new SchedulerContext(minimumDateTime, cache, entityManager,
+                    authorizationManager);
+            schedulerContext.setUserId(request.userId);
+            schedulerContext.setPurpose(request.purpose);
+
+            // Ignore reservations for already allocated reservation request
+            SchedulerContextState schedulerContextState = schedulerContext.getState();
+            if (ignoredReservationRequest != null) {
+                for (Reservation reservation : ignoredReservationRequest.getAllocation().getReservations()) {
+                    if (allocationSlot.overlaps(reservation.getSlot())) {
+                        schedulerContextState.addAvailableReservation(
+                                reservation, AvailableReservation.Type.REALLOCATABLE);
+                    }
+                }
+                for (ReservationRequest childReservationRequest :
+                        ignoredReservationRequest.getAllocation().getChildReservationRequests()) {
+                    for (Reservation reservation : childReservationRequest.getAllocation().getReservations()) {
+                        if (reservation.getSlot().overlaps(slot)) {
+                            schedulerContextState.addAvailableReservation(
+                                    reservation, AvailableReservation.Type.REALLOCATABLE);
+                        }
+                    }
+                }
+            }
+
+            try {
+                // Check reservation request reusability
+                if (reusedReservationRequest != null) {
+                    schedulerContext.setReusableAllocation(reusedReservationRequest.getAllocation(), slot);
+                }
+
+                // Check specification availability
+                if (specification != null) {
+                    if (specification instanceof ReservationTaskProvider) {
+                        schedulerContext.setAvailabilityCheck(true);
+                        ReservationTaskProvider reservationTaskProvider = (ReservationTaskProvider) specification;
+                        ReservationTask reservationTask =
+                                reservationTaskProvider.createReservationTask(schedulerContext, slot);
+                        reservationTask.perform();
+                    }
+                    else {
+                        throw new SchedulerReportSet.SpecificationNotAllocatableException(specification);
+                    }
+                }
+            }
+            catch (SchedulerException exception) {
+                // Specification cannot be allocated or reservation request cannot be reused in requested time slot
+                return exception.getReport();
+            }
+            return null;
+        }
+    }
+}
@@ -13,16 +13,15 @@ import cz.cesnet.shongo.controller.booking.reservation.Reservation;
 import cz.cesnet.shongo.controller.cache.Cache;
 import cz.cesnet.shongo.controller.notification.NotificationManager;
 import cz.cesnet.shongo.util.DateTimeFormatter;
-import org.joda.time.DateTime;
-import org.joda.time.DateTimeFieldType;
-import org.joda.time.Hours;
-import org.joda.time.Interval;
+import org.joda.time.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
-import java.util.LinkedList;
-import java.util.List;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a {@link cz.cesnet.shongo.controller.Component} that is responsible for enumerating {@link cz.cesnet.shongo.controller.booking.request.ReservationRequestSet}s
@@ -30,10 +29,22 @@ import java.util.List;
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
-public class Preprocessor extends SwitchableComponent implements Component.AuthorizationAware, Component.NotificationManagerAware
+public class Preprocessor extends SwitchableComponent
+        implements Component.AuthorizationAware, Component.NotificationManagerAware, Component.EntityManagerFactoryAware
 {
     private static Logger logger = LoggerFactory.getLogger(Preprocessor.class);
 
+    /**
+     * Maximum distance between slot start of child {@link ReservationRequest} and enumerated slot start of
+     * {@link ReservationRequestSet} for which the child {@link ReservationRequest} is modified instead of deleted.
+     */
+    private static final Duration CHILD_MATCHING_DURATION = Duration.standardHours(24);
+
+    /**
+     * @see EntityManagerFactory
+     */
+    private EntityManagerFactory entityManagerFactory;
+
     /**
      * @see {@link cz.cesnet.shongo.controller.cache.Cache}
      */
@@ -49,6 +60,17 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
      */
     private NotificationManager notificationManager;
 
+    /**
+     * Maximum number of slots of single {@link ReservationRequestSet} which are preprocessed in one transaction.
+     */
+    private int chunkSize;
+
+    /**
+     * {@link ExecutorService} for preprocessing of independent {@link ReservationRequestSet}s in parallel
+     * ({@code null} when they are preprocessed sequentially).
+     */
+    private ExecutorService executorService;
+
     /**
      * @param cache sets the {@link #cache}
      */
@@ -69,11 +91,47 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
         this.notificationManager = notificationManager;
     }
 
+    @Override
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory)
+    {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
     @Override
     public void init(ControllerConfiguration configuration)
     {
         checkDependency(cache, Cache.class);
         super.init(configuration);
+
+        chunkSize = Math.max(1, configuration.getInt(ControllerConfiguration.WORKER_PREPROCESSOR_CHUNK_SIZE, 50));
+        int threadCount = configuration.getInt(ControllerConfiguration.WORKER_PREPROCESSOR_THREAD_COUNT, 1);
+        if (threadCount > 1 && entityManagerFactory != null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                private final AtomicInteger threadNumber = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "preprocessor-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            executorService = executor;
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+        super.destroy();
     }
 
     /**
@@ -81,7 +139,21 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
      *
      * @param interval
      */
-    public synchronized Result run(Interval interval, EntityManager entityManager)
+    public Result run(Interval interval, EntityManager entityManager)
+    {
+        return run(interval, entityManager, null);
+    }
+
+    /**
+     * Run preprocessor for a given interval and for {@link ReservationRequestSet}s specified by given
+     * {@code reservationRequestSetIds} (see {@link SchedulerQueue}).
+     *
+     * @param interval
+     * @param reservationRequestSetIds identifiers of reservation requests which should be preprocessed
+     *                                 (only {@link ReservationRequestSet}s are preprocessed) or {@code null}
+     *                                 for all {@link ReservationRequestSet}s
+     */
+    public synchronized Result run(Interval interval, EntityManager entityManager, Set<Long> reservationRequestSetIds)
     {
         Result result = new Result();
         if (!isEnabled()) {
@@ -107,10 +179,23 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
         try {
 
             // Process all not-preprocessed reservation request sets
-            List<ReservationRequestSet> reservationRequestSets =
-                    reservationRequestManager.listNotPreprocessedReservationRequestSets(interval);
-            for (ReservationRequestSet reservationRequestSet : reservationRequestSets) {
-                processReservationRequestSet(reservationRequestSet, interval, entityManager, result);
+            List<ReservationRequestSet> reservationRequestSets;
+            if (reservationRequestSetIds != null) {
+                reservationRequestSets = reservationRequestManager.listNotPreprocessedReservationRequestSets(
+                        interval, reservationRequestSetIds);
+            }
+            else {
+                reservationRequestSets = reservationRequestManager.listNotPreprocessedReservationRequestSets(interval);
+            }
+            if (executorService != null && reservationRequestSets.size() > 1) {
+                processReservationRequestSets(reservationRequestSets, interval, result);
+                // Reservation request sets have been modified by other entity managers
+                entityManager.clear();
+            }
+            else {
+                for (ReservationRequestSet reservationRequestSet : reservationRequestSets) {
+                    processReservationRequestSet(reservationRequestSet, interval, entityManager, result);
+                }
             }
 
             if (!result.isEmpty()) {
@@ -127,145 +212,238 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
         return result;
     }
 
+    /**
+     * Synchronize (create/modify/delete) {@link ReservationRequest}s from given {@link ReservationRequestSet}s
+     * in parallel (each {@link ReservationRequestSet} is processed by {@link #executorService} in own
+     * {@link EntityManager}).
+     */
+    private void processReservationRequestSets(List<ReservationRequestSet> reservationRequestSets,
+            final Interval interval, Result result) throws Exception
+    {
+        List<Future<Result>> futures = new LinkedList<Future<Result>>();
+        for (ReservationRequestSet reservationRequestSet : reservationRequestSets) {
+            final Long reservationRequestSetId = reservationRequestSet.getId();
+            futures.add(executorService.submit(new Callable<Result>()
+            {
+                @Override
+                public Result call() throws Exception
+                {
+                    Result result = new Result();
+                    EntityManager entityManager = entityManagerFactory.createEntityManager();
+                    try {
+                        ReservationRequestManager reservationRequestManager =
+                                new ReservationRequestManager(entityManager);
+                        ReservationRequestSet reservationRequestSet =
+                                reservationRequestManager.getReservationRequestSet(reservationRequestSetId);
+                        processReservationRequestSet(reservationRequestSet, interval, entityManager, result);
+                    }
+                    catch (Exception exception) {
+                        // Other reservation request sets are independent and thus they are still processed
+                        Reporter.getInstance().reportInternalError(Reporter.PREPROCESSOR, exception);
+                    }
+                    finally {
+                        entityManager.close();
+                    }
+                    return result;
+                }
+            }));
+        }
+        for (Future<Result> future : futures) {
+            result.add(future.get());
+        }
+    }
+
     /**
      * Synchronize (create/modify/delete) {@link ReservationRequest}s from a single {@link ReservationRequestSet}.
+     * <p/>
+     * Enumerated slots and existing child {@link ReservationRequest}s are both sorted by slot start and thus they
+     * are matched in a single pass. The slots are processed in chunks of {@link #chunkSize} and each chunk is
+     * committed in own transaction together with {@link PreprocessorState#PREPROCESSED} state for the part of
+     * {@code interval} before the next chunk, so a failed run is resumed from the last committed chunk.
      */
     private void processReservationRequestSet(ReservationRequestSet reservationRequestSet, Interval interval,
             EntityManager entityManager, Result result) throws Exception
     {
         reservationRequestSet.checkPersisted();
 
+        logger.debug("Pre-processing reservation request '{}'...", reservationRequestSet.getId());
+
         ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
         AuthorizationManager authorizationManager = new AuthorizationManager(entityManager, authorization);
         PreprocessorStateManager stateManager = new PreprocessorStateManager(entityManager, reservationRequestSet);
-        try {
-            authorizationManager.beginTransaction();
-            entityManager.getTransaction().begin();
-
-            logger.debug("Pre-processing reservation request '{}'...", reservationRequestSet.getId());
-
-            // Get allocation for the reservation request set
-            Allocation allocation = reservationRequestSet.getAllocation();
-
-            // List all child reservation requests for the set
-            List<ReservationRequest> childReservationRequests =
-                    reservationRequestManager.listChildReservationRequests(reservationRequestSet, interval);
-
-            // For each requested slot we must create or modify reservation request.
-            // If we find date/time slot in prepared map we modify the corresponding request
-            // and remove it from map, otherwise we create a new reservation request.
-            for (Interval slot : reservationRequestSet.enumerateSlots(interval)) {
-                // Find existing child reservation request by date/time slot
-                ReservationRequest childReservationRequest = null;
-                int childReservationRequestHours = 0;
-                for (ReservationRequest possibleChildReservationRequest : childReservationRequests) {
-                    int possibleHours = Math.abs(Hours.hoursBetween(
-                            slot.getStart(), possibleChildReservationRequest.getSlot().getStart()).getHours());
-                    // If possible child reservation request overlaps current slot
-                    if (possibleHours < 24) {
-                        if (childReservationRequest != null) {
-//                            int hours = Math.abs(Hours.hoursBetween(
-//                                    slot.getStart(), possibleChildReservationRequest.getSlot().getEnd()).getHours());
-                            // If possible child reservation has already been found and new one does not fit better
-                            if (possibleHours >= childReservationRequestHours) {
-                                // Skip the new one
-                                continue;
-                            }
+
+        // Get allocation for the reservation request set
+        Allocation allocation = reservationRequestSet.getAllocation();
+
+        // List all requested slots and all child reservation requests for the set (both sorted by slot start)
+        List<Interval> slots = new ArrayList<Interval>(reservationRequestSet.enumerateSlots(interval));
+        List<ReservationRequest> childReservationRequests =
+                reservationRequestManager.listChildReservationRequests(reservationRequestSet, interval);
+        Set<ReservationRequest> matchedChildReservationRequests = new HashSet<ReservationRequest>();
+
+        // Index of the first child reservation request which can be matched to current or following slots
+        int childIndex = 0;
+        int slotIndex = 0;
+        do {
+            int chunkEnd = Math.min(slotIndex + chunkSize, slots.size());
+            try {
+                authorizationManager.beginTransaction();
+                entityManager.getTransaction().begin();
+
+                // Child reservation requests which can't be matched to any following slot
+                List<ReservationRequest> deletedChildReservationRequests = new LinkedList<ReservationRequest>();
+
+                // For each requested slot we must create or modify reservation request.
+                // If we find child reservation request near the slot we modify it and mark it as matched,
+                // otherwise we create a new reservation request.
+                for (; slotIndex < chunkEnd; slotIndex++) {
+                    Interval slot = slots.get(slotIndex);
+                    DateTime matchingStart = slot.getStart().minus(CHILD_MATCHING_DURATION);
+                    DateTime matchingEnd = slot.getStart().plus(CHILD_MATCHING_DURATION);
+
+                    // Skip child reservation requests which are too far before the slot (and following slots)
+                    while (childIndex < childReservationRequests.size()) {
+                        ReservationRequest possibleChildReservationRequest = childReservationRequests.get(childIndex);
+                        if (possibleChildReservationRequest.getSlotStart().isAfter(matchingStart)) {
+                            break;
+                        }
+                        if (!matchedChildReservationRequests.contains(possibleChildReservationRequest)) {
+                            deletedChildReservationRequests.add(possibleChildReservationRequest);
+                        }
+                        childIndex++;
+                    }
+
+                    // Find the nearest not matched child reservation request which overlaps the slot
+                    ReservationRequest childReservationRequest = null;
+                    int childReservationRequestHours = 0;
+                    for (int index = childIndex; index < childReservationRequests.size(); index++) {
+                        ReservationRequest possibleChildReservationRequest = childReservationRequests.get(index);
+                        DateTime possibleSlotStart = possibleChildReservationRequest.getSlotStart();
+                        if (!possibleSlotStart.isBefore(matchingEnd)) {
+                            break;
+                        }
+                        if (matchedChildReservationRequests.contains(possibleChildReservationRequest)) {
+                            continue;
+                        }
+                        int possibleHours = Math.abs(Hours.hoursBetween(slot.getStart(), possibleSlotStart).getHours());
+                        // If possible child reservation has already been found and new one does not fit better
+                        if (childReservationRequest != null && possibleHours >= childReservationRequestHours) {
+                            continue;
                         }
                         // Existing child reservation request was found
                         childReservationRequest = possibleChildReservationRequest;
                         childReservationRequestHours = possibleHours;
                     }
-                }
 
-                // Modify existing reservation request
-                if (childReservationRequest != null) {
-                    // When the parent reservation request is not preprocessed in the slot
-                    if (stateManager.getState(slot).equals(PreprocessorState.NOT_PREPROCESSED)) {
-                        // Update child reservation request
-                        boolean modified = childReservationRequest.synchronizeFrom(reservationRequestSet, entityManager);
-
-                        // Update child reservation request date/time slot
-//                        if (!slot.equals(childReservationRequest.getSlot())) {
-                        if (!Temporal.isIntervalEqualed(slot, childReservationRequest.getSlot())) {
-                            childReservationRequest.setSlot(slot);
-                            modified = true;
-                        }
+                    // Modify existing reservation request
+                    if (childReservationRequest != null) {
+                        // When the parent reservation request is not preprocessed in the slot
+                        if (stateManager.getState(slot).equals(PreprocessorState.NOT_PREPROCESSED)) {
+                            // Update child reservation request
+                            boolean modified = childReservationRequest.synchronizeFrom(reservationRequestSet, entityManager);
+
+                            // Update child reservation request date/time slot
+                            if (!Temporal.isIntervalEqualed(slot, childReservationRequest.getSlot())) {
+                                childReservationRequest.setSlot(slot);
+                                modified = true;
+                            }
 
-                        // When the child reservation request was modified it should be (re)allocated
-                        if (modified) {
-                            // We must reallocate child reservation request, so clear it's state
-                            childReservationRequest.clearState();
+                            // When the child reservation request was modified it should be (re)allocated
+                            if (modified) {
+                                // We must reallocate child reservation request, so clear it's state
+                                childReservationRequest.clearState();
 
-                            result.modifiedReservationRequests++;
+                                result.modifiedReservationRequests++;
+                            }
                         }
+
+                        // Mark the child reservation request to not be deleted
+                        matchedChildReservationRequests.add(childReservationRequest);
                     }
+                    else {
+                        // Create a new reservation request
+                        childReservationRequest = new ReservationRequest();
+                        childReservationRequest.setSlot(slot);
+                        childReservationRequest.synchronizeFrom(reservationRequestSet, entityManager);
+                        reservationRequestManager.create(childReservationRequest);
 
-                    // Remove the child reservation request from the list to not be deleted
-                    childReservationRequests.remove(childReservationRequest);
-                }
-                else {
-                    // Create a new reservation request
-                    childReservationRequest = new ReservationRequest();
-                    childReservationRequest.setSlot(slot);
-                    childReservationRequest.synchronizeFrom(reservationRequestSet, entityManager);
-                    reservationRequestManager.create(childReservationRequest);
+                        childReservationRequest.getSpecification().updateSpecificationSummary(entityManager, false);
 
-                    childReservationRequest.getSpecification().updateSpecificationSummary(entityManager, false);
+                        // Add the new reservation request as child to allocation
+                        allocation.addChildReservationRequest(childReservationRequest);
 
-                    // Add the new reservation request as child to allocation
-                    allocation.addChildReservationRequest(childReservationRequest);
+                        // Create ACL entries for the new reservation request
+                        authorizationManager.createAclEntriesForChildEntity(reservationRequestSet, childReservationRequest);
 
-                    // Create ACL entries for the new reservation request
-                    authorizationManager.createAclEntriesForChildEntity(reservationRequestSet, childReservationRequest);
+                        result.createdReservationRequests++;
+                    }
 
-                    result.createdReservationRequests++;
+                    // Update state for modified/new reservation request
+                    childReservationRequest.updateStateBySpecification();
                 }
 
-                // Update state for modified/new reservation request
-                childReservationRequest.updateStateBySpecification();
-            }
+                // In the last chunk all not matched child reservation requests must be deleted
+                boolean lastChunk = (slotIndex >= slots.size());
+                if (lastChunk) {
+                    for (; childIndex < childReservationRequests.size(); childIndex++) {
+                        ReservationRequest reservationRequest = childReservationRequests.get(childIndex);
+                        if (!matchedChildReservationRequests.contains(reservationRequest)) {
+                            deletedChildReservationRequests.add(reservationRequest);
+                        }
+                    }
+                }
 
-            // All child reservation requests that remains in list must be deleted
-            List<Reservation> detachedReservations = new LinkedList<Reservation>();
-            for (ReservationRequest reservationRequest : childReservationRequests) {
-                // Remove child reservation request from allocation
-                allocation.removeChildReservationRequest(reservationRequest);
+                // Delete child reservation requests which can't be matched
+                List<Reservation> detachedReservations = new LinkedList<Reservation>();
+                for (ReservationRequest reservationRequest : deletedChildReservationRequests) {
+                    // Remove child reservation request from allocation
+                    allocation.removeChildReservationRequest(reservationRequest);
 
-                // Delete child reservation request and all it's ACL entries
-                detachedReservations.addAll(
-                        reservationRequestManager.hardDelete(reservationRequest, authorizationManager));
+                    // Delete child reservation request and all it's ACL entries
+                    detachedReservations.addAll(
+                            reservationRequestManager.hardDelete(reservationRequest, authorizationManager));
 
-                result.deletedReservationRequests++;
-            }
-            for (Reservation reservation : detachedReservations) {
-                allocation.addReservation(reservation);
-            }
+                    result.deletedReservationRequests++;
+                }
+                for (Reservation reservation : detachedReservations) {
+                    allocation.addReservation(reservation);
+                }
 
-            // Update reservation request
-            reservationRequestManager.update(reservationRequestSet, false);
+                if (lastChunk) {
+                    // Update reservation request
+                    reservationRequestManager.update(reservationRequestSet, false);
 
-            // When the reservation request hasn't got any future requested slot, the preprocessed state
-            // is until "infinite".
-            if (!reservationRequestSet.hasSlotAfter(interval.getEnd())) {
-                interval = new Interval(interval.getStart(), PreprocessorStateManager.MAXIMUM_INTERVAL_END);
-            }
+                    // When the reservation request hasn't got any future requested slot, the preprocessed state
+                    // is until "infinite".
+                    if (!reservationRequestSet.hasSlotAfter(interval.getEnd())) {
+                        interval = new Interval(interval.getStart(), PreprocessorStateManager.MAXIMUM_INTERVAL_END);
+                    }
 
-            // Set state preprocessed state for the interval to reservation request
-            stateManager.setState(PreprocessorState.PREPROCESSED, interval);
+                    // Set state preprocessed state for the interval to reservation request
+                    stateManager.setState(PreprocessorState.PREPROCESSED, interval);
+                }
+                else {
+                    // Set state preprocessed state for the interval before the next chunk
+                    DateTime nextSlotStart = slots.get(slotIndex).getStart();
+                    if (nextSlotStart.isAfter(interval.getStart())) {
+                        stateManager.setState(PreprocessorState.PREPROCESSED, interval.getStart(), nextSlotStart);
+                    }
+                }
 
-            entityManager.getTransaction().commit();
-            authorizationManager.commitTransaction(null);
-        }
-        catch (Exception exception) {
-            if (authorizationManager.isTransactionActive()) {
-                authorizationManager.rollbackTransaction();
+                entityManager.getTransaction().commit();
+                authorizationManager.commitTransaction(null);
             }
-            if (entityManager.getTransaction().isActive()) {
-                entityManager.getTransaction().rollback();
+            catch (Exception exception) {
+                if (authorizationManager.isTransactionActive()) {
+                    authorizationManager.rollbackTransaction();
+                }
+                if (entityManager.getTransaction().isActive()) {
+                    entityManager.getTransaction().rollback();
+                }
+                throw exception;
             }
-            throw exception;
         }
+        while (slotIndex < slots.size());
     }
 
     public static class Result
@@ -295,5 +473,15 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
         {
             return deletedReservationRequests;
         }
+
+        /**
+         * @param result to be added to this {@link Result}
+         */
+        private void add(Result result)
+        {
+            createdReservationRequests += result.createdReservationRequests;
+            modifiedReservationRequests += result.modifiedReservationRequests;
+            deletedReservationRequests += result.deletedReservationRequests;
+        }
     }
 }
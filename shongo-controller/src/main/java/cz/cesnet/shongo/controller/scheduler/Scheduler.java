@@ -26,12 +26,14 @@ import cz.cesnet.shongo.controller.calendar.ReservationCalendar;
 import cz.cesnet.shongo.controller.domains.InterDomainAgent;
 import cz.cesnet.shongo.controller.notification.*;
 import cz.cesnet.shongo.util.DateTimeFormatter;
+import org.hibernate.StaleStateException;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
+import javax.persistence.OptimisticLockException;
 import java.util.*;
 
 /**
@@ -44,6 +46,12 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
 {
     private static Logger logger = LoggerFactory.getLogger(Scheduler.class);
 
+    /**
+     * Maximum number of attempts to allocate a single reservation request in one run when the allocation conflicts
+     * with concurrently executed executables (afterwards the reservation request is postponed to the next run).
+     */
+    private static final int CONFLICT_ATTEMPT_COUNT = 2;
+
     /**
      * @see Cache
      */
@@ -109,6 +117,23 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
      * @param bypassEntityManager to be used when persisting entity while error
      */
     public Result run(Interval interval, EntityManager entityManager, EntityManager bypassEntityManager)
+    {
+        return run(interval, entityManager, bypassEntityManager, null);
+    }
+
+    /**
+     * Allocate reservation requests which intersects given {@code interval} and which are specified by
+     * given {@code reservationRequestIds} (see {@link SchedulerQueue}). Reservations which should be deleted are
+     * deleted regardless of the {@code reservationRequestIds}.
+     *
+     * @param interval              only reservation requests which intersects this interval should be allocated
+     * @param entityManager         to be used
+     * @param bypassEntityManager   to be used when persisting entity while error
+     * @param reservationRequestIds identifiers of reservation requests (or of parent reservation request sets)
+     *                              which should be allocated or {@code null} for all reservation requests
+     */
+    public Result run(Interval interval, EntityManager entityManager, EntityManager bypassEntityManager,
+            Set<Long> reservationRequestIds)
     {
         Result result = new Result();
         if (!isEnabled()) {
@@ -215,19 +240,41 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                 }
             }
 
-            entityManager.getTransaction().commit();
-            authorizationManager.commitTransaction(null);
-            removeModifiedReservationsFromCache();
+            try {
+                commitTransaction(entityManager, authorizationManager);
+                removeModifiedReservationsFromCache();
 
-            // Add reservation notifications
-            if (notificationManager != null) {
-                notificationManager.addNotifications(reservationNotifications, entityManager);
+                // Add reservation notifications
+                if (notificationManager != null) {
+                    notificationManager.addNotifications(reservationNotifications, entityManager);
+                }
+            }
+            catch (RuntimeException exception) {
+                if (!isConcurrentModification(exception)) {
+                    throw exception;
+                }
+                // Executables which are being executed will be deleted by the next run
+                rollbackTransaction(entityManager, authorizationManager);
+                logger.info("Deletion of reservations is postponed because theirs executables are being executed.");
             }
 
 
             // Get all reservation requests which should be allocated
+            List<ReservationRequest> completedReservationRequests;
+            if (reservationRequestIds != null) {
+                completedReservationRequests = reservationRequestManager.listCompletedReservationRequests(
+                        interval, reservationRequestIds);
+            }
+            else {
+                completedReservationRequests = reservationRequestManager.listCompletedReservationRequests(interval);
+            }
+
+            // Fetch associations which are needed for allocation of all reservation requests at once
+            reservationRequestManager.fetchForAllocation(completedReservationRequests);
+
             ReservationRequestQueue reservationRequestQueue = new ReservationRequestQueue();
-            reservationRequestQueue.add(reservationRequestManager.listCompletedReservationRequests(interval));
+            reservationRequestQueue.add(completedReservationRequests);
+            Map<Long, Integer> conflictCountByReservationRequestId = new HashMap<>();
 
             // Allocate all reservation requests
             while (!reservationRequestQueue.isEmpty()) {
@@ -237,8 +284,14 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                     authorizationManager.beginTransaction();
                     entityManager.getTransaction().begin();
 
-                    // Reload the request (rollback may happened)
-                    reservationRequest = reservationRequestManager.getReservationRequest(reservationRequest.getId());
+                    // Reload the request (rollback may happened), it is usually already fetched
+                    ReservationRequest reloadedReservationRequest =
+                            entityManager.find(ReservationRequest.class, reservationRequest.getId());
+                    if (reloadedReservationRequest == null) {
+                        reloadedReservationRequest =
+                                reservationRequestManager.getReservationRequest(reservationRequest.getId());
+                    }
+                    reservationRequest = reloadedReservationRequest;
 
                     // Allocate reservation request
                     SchedulerContext context = new SchedulerContext(start, cache, entityManager, authorizationManager, bypassEntityManager);
@@ -276,8 +329,7 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                     // Finalize (delete old reservations, etc)
                     List<AbstractNotification> contextNotifications = context.finish(result);
 
-                    entityManager.getTransaction().commit();
-                    authorizationManager.commitTransaction(null);
+                    commitTransaction(entityManager, authorizationManager);
 
                     removeModifiedReservationsFromCache();
 
@@ -287,9 +339,28 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                         notificationManager.addNotifications(contextNotifications, entityManager);
                     }
 
-                    result.allocatedReservationRequests++;
+                    result.addAllocatedReservationRequest(reservationRequest);
                 }
                 catch (Exception exception) {
+                    if (isConcurrentModification(exception)) {
+                        // Executables have been modified concurrently by the executor and thus allocate
+                        // the reservation request again (with reloaded executables) or in the next run
+                        rollbackTransaction(entityManager, authorizationManager);
+                        Long reservationRequestId = reservationRequest.getId();
+                        Integer conflictCount = conflictCountByReservationRequestId.get(reservationRequestId);
+                        conflictCount = (conflictCount != null ? conflictCount + 1 : 1);
+                        conflictCountByReservationRequestId.put(reservationRequestId, conflictCount);
+                        if (conflictCount < CONFLICT_ATTEMPT_COUNT) {
+                            reservationRequestQueue.add(Collections.singletonList(reservationRequest));
+                        }
+                        else {
+                            logger.info("Allocation of reservation request '{}' is postponed because its executables"
+                                    + " are being executed.", reservationRequestId);
+                            result.postponedReservationRequests++;
+                        }
+                        continue;
+                    }
+
                     result.failedReservationRequests++;
 
                     // Allocation of reservation request has failed and thus rollback transaction
@@ -350,11 +421,25 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
             authorizationManager.beginTransaction();
             entityManager.getTransaction().begin();
 
-            // Delete all executables which should be deleted
-            executableManager.deleteAllNotReferenced(authorizationManager);
-
-            entityManager.getTransaction().commit();
-            authorizationManager.commitTransaction(null);
+            // Delete all executables which should be deleted (the commit begins before the executables are
+            // determined so that the executor either has already marked executables which it is executing
+            // or it will reload its execution plan)
+            CommitWatermark.beginCommit();
+            try {
+                executableManager.deleteAllNotReferenced(authorizationManager);
+                commitTransaction(entityManager, authorizationManager);
+            }
+            catch (RuntimeException exception) {
+                if (!isConcurrentModification(exception)) {
+                    throw exception;
+                }
+                // Executables which have been modified by the executor will be deleted by the next run
+                rollbackTransaction(entityManager, authorizationManager);
+                logger.info("Deletion of executables is postponed because they have been executed concurrently.");
+            }
+            finally {
+                CommitWatermark.endCommit();
+            }
         }
         catch (Exception exception) {
             if (authorizationManager.isTransactionActive()) {
@@ -367,9 +452,9 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
         }
 
         if (!result.isEmpty()) {
-            logger.info("Scheduling done in {} ms (failed: {}, allocated: {}, deleted: {}).", new Object[]{
-                    timer.stop(), result.failedReservationRequests, result.allocatedReservationRequests,
-                    result.deletedReservations
+            logger.info("Scheduling done in {} ms (failed: {}, allocated: {}, postponed: {}, deleted: {}).",
+                    new Object[]{timer.stop(), result.failedReservationRequests, result.allocatedReservationRequests,
+                            result.postponedReservationRequests, result.deletedReservations
             });
             logger.debug("End of scheduler in time: " + DateTime.now());
         }
@@ -379,6 +464,62 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
         return result;
     }
 
+    /**
+     * Commit active transactions in given {@code entityManager} and {@code authorizationManager}
+     * (see {@link CommitWatermark}).
+     *
+     * @param entityManager
+     * @param authorizationManager
+     * @throws OptimisticLockException when executables which are being executed have been modified
+     *                                 (see {@link ExecutableManager#checkExecutingNotModified()})
+     */
+    private void commitTransaction(EntityManager entityManager, AuthorizationManager authorizationManager)
+    {
+        CommitWatermark.beginCommit();
+        try {
+            new ExecutableManager(entityManager).checkExecutingNotModified();
+            entityManager.getTransaction().commit();
+            authorizationManager.commitTransaction(null);
+        }
+        finally {
+            CommitWatermark.endCommit();
+        }
+    }
+
+    /**
+     * Rollback active transactions in given {@code entityManager} and {@code authorizationManager} and clear
+     * the {@code entityManager} (so that the entities modified concurrently are reloaded).
+     *
+     * @param entityManager
+     * @param authorizationManager
+     */
+    private void rollbackTransaction(EntityManager entityManager, AuthorizationManager authorizationManager)
+    {
+        if (authorizationManager.isTransactionActive()) {
+            authorizationManager.rollbackTransaction();
+        }
+        if (entityManager.getTransaction().isActive()) {
+            entityManager.getTransaction().rollback();
+        }
+        entityManager.clear();
+    }
+
+    /**
+     * @param exception to be checked
+     * @return true whether given {@code exception} has been caused by concurrent modification of executables
+     *         (by optimistic locking or by {@link ExecutableManager#checkExecutingNotModified()}), false otherwise
+     */
+    private static boolean isConcurrentModification(Throwable exception)
+    {
+        while (exception != null) {
+            if (exception instanceof OptimisticLockException || exception instanceof StaleStateException) {
+                return true;
+            }
+            exception = exception.getCause();
+        }
+        return false;
+    }
+
     /**
      * Allocate given {@code reservationRequest}.
      *
@@ -746,11 +887,36 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
          */
         int allocatedReservationRequests = 0;
 
+        /**
+         * Number of reservation requests whose allocation has been postponed to the next run (because theirs
+         * executables are being executed).
+         */
+        int postponedReservationRequests = 0;
+
         /**
          * Number of reservations which have been deleted.
          */
         int deletedReservations = 0;
 
+        /**
+         * Identifiers of reservation requests which have been successfully allocated (and of their parent
+         * reservation requests).
+         */
+        private Set<Long> allocatedReservationRequestIds = new HashSet<Long>();
+
+        /**
+         * @param reservationRequest which has been successfully allocated
+         */
+        private void addAllocatedReservationRequest(ReservationRequest reservationRequest)
+        {
+            allocatedReservationRequests++;
+            allocatedReservationRequestIds.add(reservationRequest.getId());
+            Allocation parentAllocation = reservationRequest.getParentAllocation();
+            if (parentAllocation != null && parentAllocation.getReservationRequest() != null) {
+                allocatedReservationRequestIds.add(parentAllocation.getReservationRequest().getId());
+            }
+        }
+
         /**
          * @return true whether no reservation request has failed or has been allocated and not reservation has been deleted,
          *         false otherwise
@@ -759,6 +925,7 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
         {
             return failedReservationRequests == 0 &&
                     allocatedReservationRequests == 0 &&
+                    postponedReservationRequests == 0 &&
                     deletedReservations == 0;
         }
 
@@ -778,6 +945,14 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
             return allocatedReservationRequests;
         }
 
+        /**
+         * @return {@link #postponedReservationRequests}
+         */
+        public int getPostponedReservationRequests()
+        {
+            return postponedReservationRequests;
+        }
+
         /**
          * @return {@link #deletedReservations}
          */
@@ -785,6 +960,14 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
         {
             return deletedReservations;
         }
+
+        /**
+         * @return {@link #allocatedReservationRequestIds}
+         */
+        public Set<Long> getAllocatedReservationRequestIds()
+        {
+            return allocatedReservationRequestIds;
+        }
     }
 
     /**
@@ -9,7 +9,6 @@ import cz.cesnet.shongo.controller.authorization.UserIdSet;
 import cz.cesnet.shongo.controller.booking.Allocation;
 import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
 import cz.cesnet.shongo.controller.booking.executable.Executable;
-import cz.cesnet.shongo.controller.booking.recording.RecordingBucket;
 import cz.cesnet.shongo.controller.booking.recording.RecordingCapability;
 import cz.cesnet.shongo.controller.booking.recording.RecordingServiceReservation;
 import cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest;
@@ -19,13 +18,12 @@ import cz.cesnet.shongo.controller.booking.reservation.Reservation;
 import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
 import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.room.AvailableRoom;
-import cz.cesnet.shongo.controller.booking.room.RoomBucket;
 import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
 import cz.cesnet.shongo.controller.booking.room.RoomReservation;
 import cz.cesnet.shongo.controller.cache.Cache;
 import cz.cesnet.shongo.controller.cache.ResourceCache;
 import cz.cesnet.shongo.controller.notification.AbstractNotification;
-import cz.cesnet.shongo.util.RangeSet;
+import cz.cesnet.shongo.util.IntervalPeak;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 
@@ -343,9 +341,8 @@ public class SchedulerContext
         int usedLicenseCount = 0;
         ResourceCache resourceCache = cache.getResourceCache();
         if (resourceCache.isResourceAvailable(roomProviderCapability.getResource(), slot, this, reservationTask)) {
-            ReservationManager reservationManager = new ReservationManager(entityManager);
             List<RoomReservation> roomReservations =
-                    reservationManager.getRoomReservations(roomProviderCapability, slot);
+                    resourceCache.getRoomReservations(roomProviderCapability, slot, entityManager);
 
             usedLicenseCount = getLicenseCountPeak(slot, roomReservations, roomProviderCapability);
         }
@@ -364,36 +361,17 @@ public class SchedulerContext
     public int getLicenseCountPeak(Interval slot, List<RoomReservation> roomReservations, RoomProviderCapability roomProviderCapability)
     {
         state.applyReservations(roomProviderCapability.getId(), slot, roomReservations, RoomReservation.class);
-        RangeSet<RoomReservation, DateTime> rangeSet = new RangeSet<RoomReservation, DateTime>()
-        {
-            @Override
-            protected Bucket<DateTime, RoomReservation> createBucket(DateTime rangeValue)
-            {
-                return new RoomBucket(rangeValue);
-            }
-        };
+        IntervalPeak intervalPeak = new IntervalPeak(roomReservations.size());
+        Set<RoomReservation> addedReservations = Collections.newSetFromMap(new IdentityHashMap<RoomReservation, Boolean>());
         for (RoomReservation roomReservation : roomReservations) {
-            rangeSet.add(roomReservation, roomReservation.getSlotStart(), roomReservation.getSlotEnd());
-        }
-
-        List<RoomBucket> roomBuckets = new LinkedList<>();
-        roomBuckets.addAll(rangeSet.getBuckets(slot.getStart(), slot.getEnd(), RoomBucket.class));
-        Collections.sort(roomBuckets, new Comparator<RoomBucket>()
-        {
-            @Override
-            public int compare(RoomBucket roomBucket1, RoomBucket roomBucket2)
-            {
-                return -Double.compare(roomBucket1.getLicenseCount(), roomBucket2.getLicenseCount());
+            if (addedReservations.add(roomReservation)) {
+                intervalPeak.add(roomReservation.getSlotStart().getMillis(), roomReservation.getSlotEnd().getMillis(),
+                        roomReservation.getLicenseCount());
             }
-        });
-        if (roomBuckets.size() > 0) {
-            RoomBucket roomBucket = roomBuckets.get(0);
-            return roomBucket.getLicenseCount();
         }
-        return 0;
+        return intervalPeak.getPeak(slot.getStartMillis(), slot.getEndMillis());
     }
 
-
     /**
      * @param slot
      * @param recordingReservations
@@ -403,33 +381,16 @@ public class SchedulerContext
     public int getLicenseCountPeak(Interval slot, List<RecordingServiceReservation> recordingReservations, RecordingCapability recordingCapability)
     {
         state.applyReservations(recordingCapability.getId(), slot, recordingReservations, RecordingServiceReservation.class);
-        RangeSet<RecordingServiceReservation, DateTime> rangeSet = new RangeSet<RecordingServiceReservation, DateTime>()
-        {
-            @Override
-            protected Bucket<DateTime, RecordingServiceReservation> createBucket(DateTime rangeValue)
-            {
-                return new RecordingBucket(rangeValue);
-            }
-        };
+        IntervalPeak intervalPeak = new IntervalPeak(recordingReservations.size());
+        Set<RecordingServiceReservation> addedReservations =
+                Collections.newSetFromMap(new IdentityHashMap<RecordingServiceReservation, Boolean>());
         for (RecordingServiceReservation recordingReservation : recordingReservations) {
-            rangeSet.add(recordingReservation, recordingReservation.getSlotStart(), recordingReservation.getSlotEnd());
-        }
-
-        List<RecordingBucket> recordingBuckets = new LinkedList<>();
-        recordingBuckets.addAll(rangeSet.getBuckets(slot.getStart(), slot.getEnd(), RecordingBucket.class));
-        Collections.sort(recordingBuckets, new Comparator<RecordingBucket>()
-        {
-            @Override
-            public int compare(RecordingBucket recordingBucket1, RecordingBucket recordingBucket2)
-            {
-                return -Double.compare(recordingBucket1.getLicenseCount(), recordingBucket2.getLicenseCount());
+            if (addedReservations.add(recordingReservation)) {
+                intervalPeak.add(recordingReservation.getSlotStart().getMillis(),
+                        recordingReservation.getSlotEnd().getMillis(), 1);
             }
-        });
-        if (recordingBuckets.size() > 0) {
-            RecordingBucket recordingBucket = recordingBuckets.get(0);
-            return recordingBucket.getLicenseCount();
         }
-        return 0;
+        return intervalPeak.getPeak(slot.getStartMillis(), slot.getEndMillis());
     }
 
     /**
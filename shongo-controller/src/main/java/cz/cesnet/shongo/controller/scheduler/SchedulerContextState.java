@@ -550,24 +550,20 @@ public class SchedulerContextState
     }
 
     /**
-     * Apply {@link #reservationTransactionByType} to given map of {@link ValueReservation}s.
-     *
-     * @param resourceId
-     * @param valueReservations
+     * @param valueProvider for which the {@link ValueReservation}s should be returned
+     * @param slot
+     * @return {@link ValueReservation}s for given {@code valueProvider} which have been allocated in the current
+     *         transaction and which overlaps with given {@code slot}
      */
-    public <T extends TargetedReservation> void applyValueReservations(Long resourceId, Interval slot, Map<Long, Map.Entry<String, Interval>> valueReservations)
+    public List<ValueReservation> getAllocatedValueReservations(ValueProvider valueProvider, Interval slot)
     {
-        @SuppressWarnings("unchecked")
-        ReservationTransaction<T> reservationTransaction = (ReservationTransaction<T>)
+        ReservationTransaction<? extends Reservation> reservationTransaction =
                 reservationTransactionByType.get(getReservationTransactionType(ValueReservation.class));
         if (reservationTransaction != null) {
-            reservationTransaction.removeSeparateReservations(resourceId, slot, valueReservations);
-            List<ValueReservation> overlapsReservations = reservationTransaction.getAllocatedOverlapsReservations(resourceId, slot, ValueReservation.class);
-            for (ValueReservation reservation : overlapsReservations) {
-                Map.Entry<String, Interval> value = new AbstractMap.SimpleEntry<>(reservation.getValue(), reservation.getSlot());
-                valueReservations.put(reservation.getId(), value);
-            }
+            return reservationTransaction.getAllocatedOverlapsReservations(valueProvider.getId(), slot,
+                    ValueReservation.class);
         }
+        return Collections.emptyList();
     }
 
     /**
@@ -0,0 +1,185 @@
+package cz.cesnet.shongo.controller.scheduler;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Queue of identifiers of reservation requests which have been created, modified or deleted and thus they should be
+ * processed by the {@link Preprocessor} and {@link Scheduler} as soon as possible (instead of waiting for the next
+ * periodic run of the {@link cz.cesnet.shongo.controller.WorkerThread}).
+ * <p/>
+ * The queue is fed by the RPC services and consumed by the {@link cz.cesnet.shongo.controller.WorkerThread}, which
+ * waits in {@link #await(long)} until the changes settle down for the {@link #debounce} duration (so a burst of
+ * changes is processed in one run) or until the deadline of the next periodic run.
+ */
+public class SchedulerQueue
+{
+    /**
+     * Maximum number of {@link #debounce} durations for which the changed reservation requests can be postponed.
+     */
+    private static final int MAX_DEBOUNCE_COUNT = 10;
+
+    /**
+     * Duration in milliseconds for which the {@link #await(long)} waits for next changes.
+     */
+    private long debounce = 0;
+
+    /**
+     * Map of identifiers of changed reservation requests to time in milliseconds when they have been firstly changed.
+     */
+    private Map<Long, Long> changedReservationRequests = new HashMap<Long, Long>();
+
+    /**
+     * Time in milliseconds when the {@link #changedReservationRequests} were firstly added.
+     */
+    private long firstChangeTime;
+
+    /**
+     * Time in milliseconds when the {@link #changedReservationRequests} were lastly added.
+     */
+    private long lastChangeTime;
+
+    /**
+     * Number of reservation requests for which the latency was added.
+     */
+    private long allocatedCount = 0;
+
+    /**
+     * Total latency in milliseconds from change to allocation of reservation requests.
+     */
+    private long totalLatency = 0;
+
+    /**
+     * Maximum latency in milliseconds from change to allocation of single reservation request.
+     */
+    private long maxLatency = 0;
+
+    /**
+     * @param debounce sets the {@link #debounce}
+     */
+    public synchronized void setDebounce(long debounce)
+    {
+        if (debounce < 0) {
+            throw new IllegalArgumentException("Debounce must not be negative.");
+        }
+        this.debounce = debounce;
+    }
+
+    /**
+     * @param reservationRequestId identifier of created/modified/deleted reservation request
+     */
+    public synchronized void add(Long reservationRequestId)
+    {
+        if (reservationRequestId == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (changedReservationRequests.isEmpty()) {
+            firstChangeTime = now;
+        }
+        lastChangeTime = now;
+        if (!changedReservationRequests.containsKey(reservationRequestId)) {
+            changedReservationRequests.put(reservationRequestId, now);
+        }
+        notifyAll();
+    }
+
+    /**
+     * @return true whether the queue contains no changed reservation requests, false otherwise
+     */
+    public synchronized boolean isEmpty()
+    {
+        return changedReservationRequests.isEmpty();
+    }
+
+    /**
+     * Wait until the changed reservation requests are ready to be processed or until given {@code deadline}.
+     * Changed reservation requests are ready when no other change has been added for the {@link #debounce}
+     * duration or when they have been already postponed for {@link #MAX_DEBOUNCE_COUNT} debounce durations.
+     *
+     * @param deadline time in milliseconds until which it should be waited at most
+     * @return true whether the changed reservation requests are ready, false when the {@code deadline} was reached
+     * @throws InterruptedException when the waiting is interrupted
+     */
+    public synchronized boolean await(long deadline) throws InterruptedException
+    {
+        while (true) {
+            long now = System.currentTimeMillis();
+            long wakeUpTime = deadline;
+            if (!changedReservationRequests.isEmpty()) {
+                long readyTime = Math.min(lastChangeTime + debounce, firstChangeTime + MAX_DEBOUNCE_COUNT * debounce);
+                if (readyTime <= now) {
+                    return true;
+                }
+                wakeUpTime = Math.min(wakeUpTime, readyTime);
+            }
+            if (deadline <= now) {
+                return false;
+            }
+            wait(wakeUpTime - now);
+        }
+    }
+
+    /**
+     * Remove all changed reservation requests from the queue.
+     *
+     * @return map of identifiers of removed reservation requests to time in milliseconds when they have been changed
+     */
+    public synchronized Map<Long, Long> drain()
+    {
+        Map<Long, Long> changedReservationRequests = this.changedReservationRequests;
+        this.changedReservationRequests = new HashMap<Long, Long>();
+        return changedReservationRequests;
+    }
+
+    /**
+     * Add latencies from change to allocation for reservation requests which have been allocated.
+     *
+     * @param changedReservationRequests     result of {@link #drain()}
+     * @param allocatedReservationRequestIds identifiers of allocated reservation requests
+     * @param allocatedTime                  time in milliseconds when the reservation requests were allocated
+     * @return number of reservation requests for which the latencies were added
+     */
+    public synchronized int addLatencies(Map<Long, Long> changedReservationRequests,
+            Collection<Long> allocatedReservationRequestIds, long allocatedTime)
+    {
+        int count = 0;
+        for (Map.Entry<Long, Long> entry : changedReservationRequests.entrySet()) {
+            if (allocatedReservationRequestIds.contains(entry.getKey())) {
+                long latency = allocatedTime - entry.getValue();
+                allocatedCount++;
+                totalLatency += latency;
+                if (latency > maxLatency) {
+                    maxLatency = latency;
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return {@link #allocatedCount}
+     */
+    public synchronized long getAllocatedCount()
+    {
+        return allocatedCount;
+    }
+
+    /**
+     * @return average latency in milliseconds from change to allocation of reservation requests
+     */
+    public synchronized long getAverageLatency()
+    {
+        return (allocatedCount > 0 ? totalLatency / allocatedCount : 0);
+    }
+
+    /**
+     * @return {@link #maxLatency}
+     */
+    public synchronized long getMaxLatency()
+    {
+        return maxLatency;
+    }
+}
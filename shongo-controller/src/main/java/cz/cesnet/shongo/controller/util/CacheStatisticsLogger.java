@@ -0,0 +1,120 @@
+package cz.cesnet.shongo.controller.util;
+
+import cz.cesnet.shongo.controller.Component;
+import cz.cesnet.shongo.controller.ControllerConfiguration;
+import org.hibernate.SessionFactory;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Periodically logs hit/miss statistics of the Hibernate second-level and query cache.
+ */
+public class CacheStatisticsLogger extends Component
+        implements Component.WithThread, Component.EntityManagerFactoryAware, Runnable
+{
+    private static Logger logger = LoggerFactory.getLogger(CacheStatisticsLogger.class);
+
+    /**
+     * {@link EntityManagerFactory} whose cache statistics are logged.
+     */
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * @see ControllerConfiguration#DATABASE_CACHE_STATISTICS_PERIOD
+     */
+    private Duration period;
+
+    @Override
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory)
+    {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void init(ControllerConfiguration configuration)
+    {
+        checkDependency(entityManagerFactory, EntityManagerFactory.class);
+        super.init(configuration);
+
+        period = configuration.getDuration(ControllerConfiguration.DATABASE_CACHE_STATISTICS_PERIOD);
+        getStatistics().setStatisticsEnabled(true);
+    }
+
+    @Override
+    public Thread getThread()
+    {
+        Thread thread = new Thread(this);
+        thread.setName("cache-statistics-logger");
+        return thread;
+    }
+
+    @Override
+    public void run()
+    {
+        logger.debug("Cache statistics logger started!");
+
+        while (!Thread.interrupted()) {
+            try {
+                Thread.sleep(period.getMillis());
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                continue;
+            }
+            try {
+                logStatistics();
+            }
+            catch (Exception exception) {
+                logger.warn("Failed to log cache statistics.", exception);
+            }
+        }
+
+        logger.debug("Cache statistics logger stopped!");
+    }
+
+    /**
+     * @return {@link Statistics} of the {@link #entityManagerFactory}
+     */
+    public Statistics getStatistics()
+    {
+        SessionFactory sessionFactory = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory();
+        return sessionFactory.getStatistics();
+    }
+
+    /**
+     * Log current cache statistics (totals, query cache and each second-level cache region).
+     */
+    public void logStatistics()
+    {
+        Statistics statistics = getStatistics();
+        logger.info("Second-level cache: {} hits, {} misses, {} puts.", new Object[]{
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                statistics.getSecondLevelCachePutCount()
+        });
+        logger.info("Query cache: {} hits, {} misses, {} puts.", new Object[]{
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount()
+        });
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(regionName);
+            if (regionStatistics == null) {
+                continue;
+            }
+            logger.info("Cache region {}: {} hits, {} misses, {} puts, {} elements in memory.", new Object[]{
+                    regionName,
+                    regionStatistics.getHitCount(),
+                    regionStatistics.getMissCount(),
+                    regionStatistics.getPutCount(),
+                    regionStatistics.getElementCountInMemory()
+            });
+        }
+    }
+}
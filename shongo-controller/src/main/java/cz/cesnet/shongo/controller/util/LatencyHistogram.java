@@ -0,0 +1,137 @@
+package cz.cesnet.shongo.controller.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of latencies (in milliseconds) of requests to a single backend.
+ */
+public class LatencyHistogram
+{
+    /**
+     * Upper bounds (inclusive, in milliseconds) of histogram buckets (the last bucket is unbounded).
+     */
+    private static final long[] BUCKET_BOUNDS = new long[]{10, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    /**
+     * Name of the backend.
+     */
+    private final String name;
+
+    /**
+     * Number of requests in each bucket.
+     */
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+    /**
+     * Total number of requests.
+     */
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * Total number of failed requests.
+     */
+    private final AtomicLong errorCount = new AtomicLong();
+
+    /**
+     * Sum of latencies of all requests.
+     */
+    private final AtomicLong totalLatency = new AtomicLong();
+
+    /**
+     * Maximum latency.
+     */
+    private final AtomicLong maximumLatency = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param name sets the {@link #name}
+     */
+    public LatencyHistogram(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * @return {@link #name}
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return {@link #count}
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * @return {@link #errorCount}
+     */
+    public long getErrorCount()
+    {
+        return errorCount.get();
+    }
+
+    /**
+     * Record a single request.
+     *
+     * @param latency of the request in milliseconds
+     * @param success specifies whether the request succeeded
+     */
+    public void record(long latency, boolean success)
+    {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && latency > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        bucketCounts.incrementAndGet(bucket);
+        count.incrementAndGet();
+        if (!success) {
+            errorCount.incrementAndGet();
+        }
+        totalLatency.addAndGet(latency);
+        long maximum = maximumLatency.get();
+        while (latency > maximum && !maximumLatency.compareAndSet(maximum, latency)) {
+            maximum = maximumLatency.get();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        long count = this.count.get();
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(name);
+        stringBuilder.append(": ");
+        stringBuilder.append(count);
+        stringBuilder.append(" requests (");
+        stringBuilder.append(errorCount.get());
+        stringBuilder.append(" failed), average ");
+        stringBuilder.append(count > 0 ? totalLatency.get() / count : 0);
+        stringBuilder.append(" ms, maximum ");
+        stringBuilder.append(maximumLatency.get());
+        stringBuilder.append(" ms, histogram [");
+        for (int bucket = 0; bucket < bucketCounts.length(); bucket++) {
+            if (bucket > 0) {
+                stringBuilder.append(", ");
+            }
+            if (bucket < BUCKET_BOUNDS.length) {
+                stringBuilder.append("<=");
+                stringBuilder.append(BUCKET_BOUNDS[bucket]);
+            }
+            else {
+                stringBuilder.append(">");
+                stringBuilder.append(BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1]);
+            }
+            stringBuilder.append(" ms: ");
+            stringBuilder.append(bucketCounts.get(bucket));
+        }
+        stringBuilder.append("]");
+        return stringBuilder.toString();
+    }
+}
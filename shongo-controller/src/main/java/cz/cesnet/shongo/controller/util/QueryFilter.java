@@ -5,8 +5,8 @@ import cz.cesnet.shongo.PersistentObject;
 import cz.cesnet.shongo.Technology;
 import cz.cesnet.shongo.api.Converter;
 import cz.cesnet.shongo.controller.ObjectPermission;
-import cz.cesnet.shongo.controller.acl.AclObjectClass;
 import cz.cesnet.shongo.controller.api.SecurityToken;
+import cz.cesnet.shongo.controller.authorization.AclPermissionFilter;
 import cz.cesnet.shongo.controller.authorization.Authorization;
 
 import javax.persistence.Query;
@@ -39,6 +39,11 @@ public class QueryFilter
      */
     private Map<String, Object> parameters = new HashMap<String, Object>();
 
+    /**
+     * Number of filters created by {@link #createFilterAcl} (for unique parameter names).
+     */
+    private int aclFilterCount = 0;
+
     /**
      * Constructor.
      *
@@ -118,16 +123,50 @@ public class QueryFilter
     public void addFilterIn(String column, Set<?> values)
     {
         if (values != null) {
-            if (values.isEmpty()) {
-                addFilter(alias + "." + column + " IN (0)");
-            }
-            else {
-                addFilter(alias + "." + column + " IN (:ids)");
-                addFilterParameter("ids", values);
-            }
+            addFilter(createFilterIn(column, values));
+        }
+    }
+
+    /**
+     * @param column of the {@link #alias} which must contain one of given {@code values}
+     * @param values allowed identifiers of the entity
+     * @return filter for given {@code column} and {@code values}
+     */
+    public String createFilterIn(String column, Set<?> values)
+    {
+        if (values.isEmpty()) {
+            return alias + "." + column + " IN (0)";
+        }
+        else {
+            addFilterParameter("ids", values);
+            return alias + "." + column + " IN (:ids)";
         }
     }
 
+    /**
+     * @param column of the {@link #alias} which must contain identifier of object matching given {@code aclFilter}
+     * @param aclFilter which must be matched
+     * @return native SQL filter which joins the ACL tables for given {@code column} and {@code aclFilter}
+     */
+    public String createFilterAcl(String column, AclPermissionFilter aclFilter)
+    {
+        if (aclFilter.isEmpty()) {
+            return alias + "." + column + " IN (0)";
+        }
+        String suffix = (aclFilterCount > 0 ? String.valueOf(aclFilterCount) : "");
+        aclFilterCount++;
+        addFilterParameter("aclObjectClassId" + suffix, aclFilter.getAclObjectClassId());
+        addFilterParameter("aclIdentityIds" + suffix, aclFilter.getAclIdentityIds());
+        addFilterParameter("aclRoles" + suffix, aclFilter.getRoles());
+        return "EXISTS ("
+                + " SELECT 1 FROM acl_object_identity"
+                + " INNER JOIN acl_entry ON acl_entry.acl_object_identity_id = acl_object_identity.id"
+                + " WHERE acl_object_identity.acl_object_class_id = :aclObjectClassId" + suffix
+                + " AND acl_object_identity.object_id = " + alias + "." + column
+                + " AND acl_entry.acl_identity_id IN(:aclIdentityIds" + suffix + ")"
+                + " AND acl_entry.role IN(:aclRoles" + suffix + "))";
+    }
+
     /**
      * Add identifier filter.
      *
@@ -154,7 +193,35 @@ public class QueryFilter
     public void addFilterId(String column, Authorization authorization, SecurityToken securityToken,
             Class<? extends PersistentObject> objectClass, ObjectPermission objectPermission)
     {
-        addFilterIn(column, authorization.getEntitiesWithPermission(securityToken, objectClass, objectPermission));
+        String filter = createFilterId(column, authorization, securityToken, objectClass, objectPermission);
+        if (filter != null) {
+            addFilter(filter);
+        }
+    }
+
+    /**
+     * Create filter for objects for which the user has given {@code objectPermission} (the filter is created
+     * by {@link #createFilterAcl} or by {@link #createFilterIn} based on {@link Authorization#getAclQueryMode()}).
+     *
+     * @param column
+     * @param authorization
+     * @param securityToken
+     * @param objectClass
+     * @param objectPermission
+     * @return native SQL filter for given {@code column} or null when the user has permission for all objects
+     */
+    public String createFilterId(String column, Authorization authorization, SecurityToken securityToken,
+            Class<? extends PersistentObject> objectClass, ObjectPermission objectPermission)
+    {
+        if (AclPermissionFilter.Mode.JOIN.equals(authorization.getAclQueryMode())) {
+            AclPermissionFilter aclFilter =
+                    authorization.getEntitiesWithPermissionFilter(securityToken, objectClass, objectPermission);
+            return (aclFilter != null ? createFilterAcl(column, aclFilter) : null);
+        }
+        else {
+            Set<Long> ids = authorization.getEntitiesWithPermission(securityToken, objectClass, objectPermission);
+            return (ids != null ? createFilterIn(column, ids) : null);
+        }
     }
 
     /**
@@ -0,0 +1,293 @@
+package cz.cesnet.shongo.controller.util;
+
+import org.apache.commons.codec.binary.Base64;
+
+import javax.persistence.Query;
+import java.nio.charset.Charset;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Utility class which represents ORDER BY columns of a native query which can be used for keyset (seek) pagination.
+ * <p/>
+ * The position in the result is passed between requests as an opaque cursor string (see {@link #formatCursor})
+ * which contains the position and the values of ORDER BY columns of the last returned record. When the cursor
+ * is parsed by {@link #parseCursor}, the query is restricted by {@link #toQueryWhere} to records following
+ * the last returned record (instead of skipping all previous records by offset). When the cursor doesn't contain
+ * the values (e.g., the columns cannot be used for seeking), the position is used as offset.
+ * <p/>
+ * All columns are sorted in the same direction and must not contain {@code NULL} values
+ * (the last column should be unique, e.g., identifier).
+ */
+public class QueryKeyset
+{
+    /**
+     * Charset for cursor.
+     */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Separator of cursor parts.
+     */
+    private static final String SEPARATOR = ":";
+
+    /**
+     * Prefix of parameter names for column values.
+     */
+    private static final String PARAMETER_PREFIX = "keyset";
+
+    /**
+     * ORDER BY columns.
+     */
+    private List<String> columns = new ArrayList<String>();
+
+    /**
+     * Indexes of {@link #columns} in query records or {@code null} when the column cannot be used for seeking.
+     */
+    private List<Integer> recordIndexes = new ArrayList<Integer>();
+
+    /**
+     * Specifies whether the columns are sorted descending.
+     */
+    private boolean descending;
+
+    /**
+     * Position of the first record from the parsed cursor.
+     */
+    private Integer cursorPosition;
+
+    /**
+     * Values of {@link #columns} from the parsed cursor or {@code null}.
+     */
+    private Object[] cursorValues;
+
+    /**
+     * Constructor.
+     *
+     * @param descending sets the {@link #descending}
+     */
+    public QueryKeyset(boolean descending)
+    {
+        this.descending = descending;
+    }
+
+    /**
+     * @param column      to be added to the {@link #columns}
+     * @param recordIndex index of the {@code column} in query records or {@code null} when the column cannot be
+     *                    used for seeking (cursor will contain only position)
+     */
+    public void addColumn(String column, Integer recordIndex)
+    {
+        columns.add(column);
+        recordIndexes.add(recordIndex);
+    }
+
+    /**
+     * @return {@link #columns} formatted to query order by string
+     */
+    public String toQueryOrderBy()
+    {
+        StringBuilder queryOrderBy = new StringBuilder();
+        for (String column : columns) {
+            if (queryOrderBy.length() > 0) {
+                queryOrderBy.append(", ");
+            }
+            queryOrderBy.append(column);
+            if (descending) {
+                queryOrderBy.append(" DESC");
+            }
+        }
+        return queryOrderBy.toString();
+    }
+
+    /**
+     * @return true whether the {@link #parseCursor parsed cursor} contains values for seeking,
+     *         false otherwise
+     */
+    public boolean isSeeking()
+    {
+        return cursorValues != null;
+    }
+
+    /**
+     * @return position of the first record from {@link #parseCursor parsed cursor} or {@code null}
+     */
+    public Integer getCursorPosition()
+    {
+        return cursorPosition;
+    }
+
+    /**
+     * @return filter restricting records to those which follows the {@link #parseCursor parsed cursor}
+     */
+    public String toQueryWhere()
+    {
+        if (cursorValues == null) {
+            throw new IllegalStateException("Cursor with values must be parsed.");
+        }
+        String operator = (descending ? " < " : " > ");
+        StringBuilder queryWhere = new StringBuilder();
+        for (int index = 0; index < columns.size(); index++) {
+            if (index > 0) {
+                queryWhere.append(" OR ");
+            }
+            queryWhere.append("(");
+            for (int equalIndex = 0; equalIndex < index; equalIndex++) {
+                queryWhere.append(columns.get(equalIndex));
+                queryWhere.append(" = :");
+                queryWhere.append(PARAMETER_PREFIX);
+                queryWhere.append(equalIndex);
+                queryWhere.append(" AND ");
+            }
+            queryWhere.append(columns.get(index));
+            queryWhere.append(operator);
+            queryWhere.append(":");
+            queryWhere.append(PARAMETER_PREFIX);
+            queryWhere.append(index);
+            queryWhere.append(")");
+        }
+        return queryWhere.toString();
+    }
+
+    /**
+     * @param query to which the values from {@link #parseCursor parsed cursor} should be added
+     */
+    public void fillQueryParameters(Query query)
+    {
+        for (int index = 0; index < cursorValues.length; index++) {
+            query.setParameter(PARAMETER_PREFIX + index, cursorValues[index]);
+        }
+    }
+
+    /**
+     * @param cursor to be parsed (invalid cursor or cursor for other {@link #columns} is ignored)
+     */
+    public void parseCursor(String cursor)
+    {
+        cursorPosition = null;
+        cursorValues = null;
+        if (cursor == null) {
+            return;
+        }
+        String[] parts = new String(Base64.decodeBase64(cursor), CHARSET).split(SEPARATOR, -1);
+        if (parts.length < 2 || !parts[1].equals(getSignature())) {
+            return;
+        }
+        try {
+            int position = Integer.parseInt(parts[0]);
+            if (position < 0) {
+                return;
+            }
+            cursorPosition = position;
+            if (parts.length == columns.size() + 2) {
+                Object[] values = new Object[columns.size()];
+                for (int index = 0; index < values.length; index++) {
+                    values[index] = parseValue(parts[index + 2]);
+                }
+                cursorValues = values;
+            }
+        }
+        catch (IllegalArgumentException exception) {
+            cursorPosition = null;
+        }
+    }
+
+    /**
+     * @param position of the record which follows given {@code record}
+     * @param record   last returned record
+     * @return cursor for records which follows given {@code record}
+     */
+    public String formatCursor(int position, Object[] record)
+    {
+        StringBuilder cursor = new StringBuilder();
+        cursor.append(position);
+        cursor.append(SEPARATOR);
+        cursor.append(getSignature());
+        StringBuilder values = new StringBuilder();
+        for (Integer recordIndex : recordIndexes) {
+            String value = (recordIndex != null ? formatValue(record[recordIndex]) : null);
+            if (value == null) {
+                // Column cannot be used for seeking and thus only position is used
+                values = null;
+                break;
+            }
+            values.append(SEPARATOR);
+            values.append(value);
+        }
+        if (values != null) {
+            cursor.append(values);
+        }
+        return Base64.encodeBase64URLSafeString(cursor.toString().getBytes(CHARSET));
+    }
+
+    /**
+     * @return signature of {@link #columns} and {@link #descending} to detect cursor from different query
+     */
+    private String getSignature()
+    {
+        return Integer.toHexString(toQueryOrderBy().hashCode());
+    }
+
+    /**
+     * @param value to be formatted
+     * @return given {@code value} formatted for cursor or {@code null} when it is not supported
+     */
+    private static String formatValue(Object value)
+    {
+        if (value instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) value;
+            return "T" + timestamp.getTime() + "." + timestamp.getNanos();
+        }
+        else if (value instanceof Date) {
+            return "T" + ((Date) value).getTime() + ".-1";
+        }
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof java.math.BigInteger) {
+            return "L" + value;
+        }
+        else if (value instanceof String) {
+            return "S" + Base64.encodeBase64URLSafeString(((String) value).getBytes(CHARSET));
+        }
+        else if (value instanceof Boolean) {
+            return "B" + value;
+        }
+        return null;
+    }
+
+    /**
+     * @param value to be parsed
+     * @return given {@code value} parsed from cursor
+     * @throws IllegalArgumentException when the value is not valid
+     */
+    private static Object parseValue(String value)
+    {
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("Empty value.");
+        }
+        String content = value.substring(1);
+        switch (value.charAt(0)) {
+            case 'T': {
+                int separator = content.indexOf('.');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Invalid value " + value + ".");
+                }
+                long time = Long.parseLong(content.substring(0, separator));
+                int nanos = Integer.parseInt(content.substring(separator + 1));
+                if (nanos < 0) {
+                    return new Date(time);
+                }
+                Timestamp timestamp = new Timestamp(time);
+                timestamp.setNanos(nanos);
+                return timestamp;
+            }
+            case 'L':
+                return Long.parseLong(content);
+            case 'S':
+                return new String(Base64.decodeBase64(content), CHARSET);
+            case 'B':
+                return Boolean.parseBoolean(content);
+            default:
+                throw new IllegalArgumentException("Unknown value " + value + ".");
+        }
+    }
+}
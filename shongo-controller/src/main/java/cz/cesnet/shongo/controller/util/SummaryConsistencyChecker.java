@@ -0,0 +1,139 @@
+package cz.cesnet.shongo.controller.util;
+
+import cz.cesnet.shongo.controller.Component;
+import cz.cesnet.shongo.controller.ControllerConfiguration;
+import cz.cesnet.shongo.controller.Reporter;
+import org.hibernate.Session;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+
+/**
+ * Periodically checks whether the summary tables (see {@link SummaryRefreshQueue.Summary}) are consistent with
+ * the summary views (based on the *_summary_check.sql queries) and refreshes the rows which aren't.
+ */
+public class SummaryConsistencyChecker extends Component
+        implements Component.WithThread, Component.EntityManagerFactoryAware, Runnable
+{
+    private static Logger logger = LoggerFactory.getLogger(SummaryConsistencyChecker.class);
+
+    /**
+     * {@link EntityManagerFactory} used for checking the summaries.
+     */
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * @see ControllerConfiguration#DATABASE_SUMMARY_CHECK_PERIOD
+     */
+    private Duration period;
+
+    @Override
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory)
+    {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void init(ControllerConfiguration configuration)
+    {
+        checkDependency(entityManagerFactory, EntityManagerFactory.class);
+        super.init(configuration);
+
+        period = configuration.getDuration(ControllerConfiguration.DATABASE_SUMMARY_CHECK_PERIOD);
+    }
+
+    @Override
+    public Thread getThread()
+    {
+        Thread thread = new Thread(this);
+        thread.setName("summary-consistency-checker");
+        return thread;
+    }
+
+    @Override
+    public void run()
+    {
+        logger.debug("Summary consistency checker started!");
+
+        while (!Thread.interrupted()) {
+            try {
+                Thread.sleep(period.getMillis());
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                continue;
+            }
+            try {
+                check();
+            }
+            catch (Exception exception) {
+                Reporter.getInstance().reportInternalError(Reporter.WORKER,
+                        "Summary consistency check failed", exception);
+            }
+        }
+
+        logger.debug("Summary consistency checker stopped!");
+    }
+
+    /**
+     * Check all summaries and repair inconsistent rows.
+     *
+     * @return number of repaired rows
+     */
+    public int check()
+    {
+        int repairedCount = 0;
+        for (SummaryRefreshQueue.Summary summary : SummaryRefreshQueue.Summary.values()) {
+            repairedCount += check(summary);
+        }
+        return repairedCount;
+    }
+
+    /**
+     * Check given {@code summary} and repair inconsistent rows.
+     *
+     * @param summary to be checked
+     * @return number of repaired rows
+     */
+    public int check(SummaryRefreshQueue.Summary summary)
+    {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+
+            // Rows which are missing or different in the table and rows which should not be in the table
+            Set<Long> ids = new TreeSet<Long>();
+            String checkQuery = NativeQuery.getNativeQuery(summary.getCheckQuery());
+            for (Object record : entityManager.createNativeQuery(checkQuery).getResultList()) {
+                ids.add(((Number) ((Object[]) record)[0]).longValue());
+            }
+            String staleQuery = "SELECT * FROM " + summary.getTable() + " EXCEPT SELECT * FROM " + summary.getView();
+            for (Object record : entityManager.createNativeQuery(staleQuery).getResultList()) {
+                ids.add(((Number) ((Object[]) record)[0]).longValue());
+            }
+
+            if (!ids.isEmpty()) {
+                logger.warn("Refreshing {} inconsistent rows in {}: {}.",
+                        new Object[]{ids.size(), summary.getTable(), ids});
+                Map<Long, Boolean> refreshIds = new LinkedHashMap<Long, Boolean>();
+                for (Long id : ids) {
+                    refreshIds.put(id, Boolean.TRUE);
+                }
+                SummaryRefreshQueue.refresh(entityManager.unwrap(Session.class), summary, refreshIds);
+            }
+
+            entityManager.getTransaction().commit();
+            return ids.size();
+        }
+        finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+        }
+    }
+}
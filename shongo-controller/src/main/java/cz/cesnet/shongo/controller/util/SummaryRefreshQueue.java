@@ -0,0 +1,279 @@
+package cz.cesnet.shongo.controller.util;
+
+import org.hibernate.Session;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+
+/**
+ * Queue of identifiers of objects whose rows in summary tables (e.g., specification_summary or executable_summary,
+ * for more see init.sql) must be refreshed from the summary views.
+ * <p/>
+ * Identifiers are collected during a transaction and they are refreshed by set-based DELETE and INSERT ... SELECT
+ * right before the transaction is committed (i.e., after all entity changes are flushed). Thus each row is refreshed
+ * only once per transaction, no matter how many times the object has been changed.
+ */
+public class SummaryRefreshQueue implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess
+{
+    /**
+     * Maximum number of identifiers which are refreshed by single statement.
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * {@link SummaryRefreshQueue}s for sessions with active transaction.
+     */
+    private static final Map<Session, SummaryRefreshQueue> queues = new WeakHashMap<Session, SummaryRefreshQueue>();
+
+    /**
+     * Identifiers which should be refreshed by summary (value specifies whether the row should be inserted again
+     * or only deleted).
+     */
+    private final Map<Summary, Map<Long, Boolean>> summaryIds = new EnumMap<Summary, Map<Long, Boolean>>(Summary.class);
+
+    /**
+     * Refresh given {@code summary} for object with given {@code id} at the end of the active transaction
+     * of given {@code entityManager} (or immediately when no transaction is active).
+     *
+     * @param entityManager in which the object has been changed
+     * @param summary       which should be refreshed
+     * @param id            of the object
+     * @param deleteOnly    specifies whether the summary row should be only deleted
+     */
+    public static void enqueue(EntityManager entityManager, Summary summary, Long id, boolean deleteOnly)
+    {
+        Session session = entityManager.unwrap(Session.class);
+        if (!entityManager.getTransaction().isActive()) {
+            refresh(session, summary, Collections.singletonMap(id, !deleteOnly));
+            return;
+        }
+        SummaryRefreshQueue queue;
+        synchronized (queues) {
+            queue = queues.get(session);
+            if (queue == null) {
+                queue = new SummaryRefreshQueue();
+                ActionQueue actionQueue = ((EventSource) session).getActionQueue();
+                actionQueue.registerProcess((BeforeTransactionCompletionProcess) queue);
+                actionQueue.registerProcess((AfterTransactionCompletionProcess) queue);
+                queues.put(session, queue);
+            }
+        }
+        queue.add(summary, id, !deleteOnly);
+    }
+
+    /**
+     * Refresh all summaries which are enqueued in the active transaction of given {@code entityManager} now
+     * (e.g., before the summary is read in the same transaction).
+     *
+     * @param entityManager
+     */
+    public static void flush(EntityManager entityManager)
+    {
+        Session session = entityManager.unwrap(Session.class);
+        SummaryRefreshQueue queue;
+        synchronized (queues) {
+            queue = queues.get(session);
+        }
+        if (queue != null) {
+            entityManager.flush();
+            queue.refresh(session);
+        }
+    }
+
+    /**
+     * @param summary
+     * @param id
+     * @param insert
+     */
+    private synchronized void add(Summary summary, Long id, boolean insert)
+    {
+        Map<Long, Boolean> ids = summaryIds.get(summary);
+        if (ids == null) {
+            ids = new LinkedHashMap<Long, Boolean>();
+            summaryIds.put(summary, ids);
+        }
+        ids.put(id, insert);
+    }
+
+    /**
+     * Refresh all enqueued summaries in given {@code session}.
+     *
+     * @param session
+     */
+    private void refresh(Session session)
+    {
+        Map<Summary, Map<Long, Boolean>> summaryIds;
+        synchronized (this) {
+            summaryIds = new EnumMap<Summary, Map<Long, Boolean>>(this.summaryIds);
+            this.summaryIds.clear();
+        }
+        for (Map.Entry<Summary, Map<Long, Boolean>> entry : summaryIds.entrySet()) {
+            refresh(session, entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void doBeforeTransactionCompletion(SessionImplementor session)
+    {
+        refresh((Session) session);
+    }
+
+    @Override
+    public void doAfterTransactionCompletion(boolean success, SessionImplementor session)
+    {
+        synchronized (queues) {
+            if (queues.get(session) == this) {
+                queues.remove(session);
+            }
+        }
+        synchronized (this) {
+            summaryIds.clear();
+        }
+    }
+
+    /**
+     * Refresh given {@code summary} for given {@code ids}.
+     *
+     * @param session in which the refresh should be performed
+     * @param summary to be refreshed
+     * @param ids     map of identifiers to be refreshed (value specifies whether the row should be inserted again)
+     */
+    public static void refresh(Session session, Summary summary, Map<Long, Boolean> ids)
+    {
+        List<Long> deleteIds = new ArrayList<Long>(ids.keySet());
+        List<Long> insertIds = new ArrayList<Long>();
+        for (Map.Entry<Long, Boolean> entry : ids.entrySet()) {
+            if (entry.getValue()) {
+                insertIds.add(entry.getKey());
+            }
+        }
+        execute(session, summary, summary.getDeleteQuery(), deleteIds);
+        execute(session, summary, summary.getInsertQuery(), insertIds);
+    }
+
+    /**
+     * @param session
+     * @param summary
+     * @param nativeQuery with "ids" parameter
+     * @param ids         to be used for the "ids" parameter
+     */
+    private static void execute(Session session, Summary summary, String nativeQuery, List<Long> ids)
+    {
+        String query = NativeQuery.getNativeQuery(nativeQuery);
+        for (int index = 0; index < ids.size(); index += BATCH_SIZE) {
+            List<Long> batchIds = ids.subList(index, Math.min(index + BATCH_SIZE, ids.size()));
+            session.createSQLQuery(query)
+                    .addSynchronizedQuerySpace(summary.getTable())
+                    .setParameterList("ids", batchIds)
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Summary tables which can be refreshed.
+     */
+    public static enum Summary
+    {
+        /**
+         * Table specification_summary.
+         */
+        SPECIFICATION("specification_summary", "specification_summary_view",
+                NativeQuery.SPECIFICATION_SUMMARY_DELETE, NativeQuery.SPECIFICATION_SUMMARY_INSERT,
+                NativeQuery.SPECIFICATION_SUMMARY_CHECK),
+
+        /**
+         * Table executable_summary.
+         */
+        EXECUTABLE("executable_summary", "executable_summary_view",
+                NativeQuery.EXECUTABLE_SUMMARY_DELETE, NativeQuery.EXECUTABLE_SUMMARY_INSERT,
+                NativeQuery.EXECUTABLE_SUMMARY_CHECK);
+
+        /**
+         * Name of the summary table.
+         */
+        private final String table;
+
+        /**
+         * Name of the summary view from which the {@link #table} is refreshed.
+         */
+        private final String view;
+
+        /**
+         * Native query which deletes rows with given ids.
+         */
+        private final String deleteQuery;
+
+        /**
+         * Native query which inserts rows with given ids from the summary view.
+         */
+        private final String insertQuery;
+
+        /**
+         * Native query which returns rows from the summary view which are not consistent with the summary table.
+         */
+        private final String checkQuery;
+
+        /**
+         * Constructor.
+         *
+         * @param table       sets the {@link #table}
+         * @param view        sets the {@link #view}
+         * @param deleteQuery sets the {@link #deleteQuery}
+         * @param insertQuery sets the {@link #insertQuery}
+         * @param checkQuery  sets the {@link #checkQuery}
+         */
+        private Summary(String table, String view, String deleteQuery, String insertQuery, String checkQuery)
+        {
+            this.table = table;
+            this.view = view;
+            this.deleteQuery = deleteQuery;
+            this.insertQuery = insertQuery;
+            this.checkQuery = checkQuery;
+        }
+
+        /**
+         * @return {@link #table}
+         */
+        public String getTable()
+        {
+            return table;
+        }
+
+        /**
+         * @return {@link #view}
+         */
+        public String getView()
+        {
+            return view;
+        }
+
+        /**
+         * @return {@link #deleteQuery}
+         */
+        public String getDeleteQuery()
+        {
+            return deleteQuery;
+        }
+
+        /**
+         * @return {@link #insertQuery}
+         */
+        public String getInsertQuery()
+        {
+            return insertQuery;
+        }
+
+        /**
+         * @return {@link #checkQuery}
+         */
+        public String getCheckQuery()
+        {
+            return checkQuery;
+        }
+    }
+}
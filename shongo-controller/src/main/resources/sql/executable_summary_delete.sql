@@ -1,4 +1,4 @@
 /**
- *
+ * Delete rows with given identifiers from executable_summary.
  */
-DELETE FROM executable_summary WHERE id = ${executable_id}
\ No newline at end of file
+DELETE FROM executable_summary WHERE id IN (:ids)
\ No newline at end of file
@@ -1 +1 @@
-INSERT INTO executable_summary SELECT * FROM executable_summary_view WHERE id = ${executable_id}
\ No newline at end of file
+INSERT INTO executable_summary SELECT * FROM executable_summary_view WHERE id IN (:ids)
\ No newline at end of file
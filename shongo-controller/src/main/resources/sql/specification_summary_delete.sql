@@ -1,4 +1,4 @@
 /**
- *
+ * Delete rows with given identifiers from specification_summary.
  */
-DELETE FROM specification_summary WHERE id = ${specification_id}
\ No newline at end of file
+DELETE FROM specification_summary WHERE id IN (:ids)
\ No newline at end of file
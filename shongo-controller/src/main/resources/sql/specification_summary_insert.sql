@@ -1 +1 @@
-INSERT INTO specification_summary SELECT * FROM specification_summary_view WHERE id = ${specification_id}
\ No newline at end of file
+INSERT INTO specification_summary SELECT * FROM specification_summary_view WHERE id IN (:ids)
\ No newline at end of file
@@ -140,6 +140,14 @@ public abstract class AbstractControllerTest extends AbstractDatabaseTest
         return authorization;
     }
 
+    /**
+     * @return {@link #cache}
+     */
+    public Cache getCache()
+    {
+        return cache;
+    }
+
     /**
      * @return {@link #schedulerResult}
      */
@@ -464,6 +472,23 @@ public abstract class AbstractControllerTest extends AbstractDatabaseTest
         return runScheduler(workingInterval);
     }
 
+    /**
+     * Run {@link Scheduler} only for given {@code reservationRequestIds}.
+     *
+     * @param reservationRequestIds see {@link Scheduler#run(Interval, EntityManager, EntityManager, Set)}
+     */
+    protected Scheduler.Result runScheduler(Set<Long> reservationRequestIds)
+    {
+        EntityManager entityManager = createEntityManager();
+        schedulerResult = scheduler.run(workingInterval, entityManager, null, reservationRequestIds);
+        if (notificationExecutionEnabled) {
+            executeNotifications(entityManager);
+        }
+        entityManager.close();
+        checkSpecificationSummaryConsistency();
+        return schedulerResult;
+    }
+
     /**
      * Run {@link cz.cesnet.shongo.controller.scheduler.Preprocessor} and {@link Scheduler}.
      */
@@ -1,6 +1,8 @@
 package cz.cesnet.shongo.controller;
 
 import cz.cesnet.shongo.util.Timer;
+import org.hibernate.Cache;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
 import org.junit.After;
 import org.junit.Before;
 import org.slf4j.Logger;
@@ -115,6 +117,13 @@ public abstract class AbstractDatabaseTest
                 entityManager.createNativeQuery(
                         "TRUNCATE SCHEMA PUBLIC RESTART IDENTITY AND COMMIT NO CHECK").executeUpdate();
                 entityManager.getTransaction().commit();
+
+                // Evict all cached entities and query results which belong to the cleared data
+                Cache cache = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getCache();
+                cache.evictEntityRegions();
+                cache.evictCollectionRegions();
+                cache.evictDefaultQueryRegion();
+                cache.evictQueryRegions();
                 logger.info("Database data cleared.");
             }
             finally {
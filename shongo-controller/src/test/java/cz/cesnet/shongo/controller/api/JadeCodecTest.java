@@ -0,0 +1,244 @@
+package cz.cesnet.shongo.controller.api;
+
+import cz.cesnet.shongo.AliasType;
+import cz.cesnet.shongo.Technology;
+import cz.cesnet.shongo.api.H323RoomSetting;
+import cz.cesnet.shongo.api.Recording;
+import cz.cesnet.shongo.api.Room;
+import cz.cesnet.shongo.api.RoomSummary;
+import cz.cesnet.shongo.api.jade.Command;
+import cz.cesnet.shongo.connector.api.jade.ConnectorOntology;
+import cz.cesnet.shongo.connector.api.jade.multipoint.CreateRoom;
+import cz.cesnet.shongo.connector.api.jade.multipoint.ListRooms;
+import cz.cesnet.shongo.connector.api.jade.recording.ListRecordings;
+import cz.cesnet.shongo.jade.BinaryCodec;
+import jade.content.ContentElement;
+import jade.content.ContentManager;
+import jade.content.lang.Codec;
+import jade.content.lang.sl.SLCodec;
+import jade.content.onto.basic.Action;
+import jade.content.onto.basic.Result;
+import jade.core.AID;
+import jade.domain.FIPANames;
+import jade.lang.acl.ACLMessage;
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark of encoding and decoding representative JADE messages in SL and {@link BinaryCodec} content languages.
+ */
+public class JadeCodecTest
+{
+    private static Logger logger = LoggerFactory.getLogger(JadeCodecTest.class);
+
+    /**
+     * Number of encoded and decoded messages for each content language.
+     */
+    private static final int ITERATIONS = 200;
+
+    private ContentManager contentManager;
+
+    private AID agentId = new AID("agent", AID.ISLOCALNAME);
+
+    @Before
+    public void setUp()
+    {
+        contentManager = new ContentManager();
+        contentManager.registerLanguage(new SLCodec());
+        contentManager.registerLanguage(new BinaryCodec());
+        contentManager.registerOntology(ConnectorOntology.getInstance());
+    }
+
+    /**
+     * Test {@link ListRooms} result.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testListRooms() throws Exception
+    {
+        List<RoomSummary> roomSummaries = new ArrayList<RoomSummary>();
+        for (int index = 0; index < 500; index++) {
+            RoomSummary roomSummary = new RoomSummary();
+            roomSummary.setId("room" + index);
+            roomSummary.setName("Room " + index);
+            roomSummary.setDescription("Description of room " + index);
+            roomSummary.setAlias("950087" + index);
+            roomSummary.setStartDateTime(DateTime.parse("2014-01-01T12:00:00").plusMinutes(index));
+            roomSummaries.add(roomSummary);
+        }
+        Result result = new Result(new Action(agentId, new ListRooms()), roomSummaries);
+
+        for (String language : new String[]{FIPANames.ContentLanguage.FIPA_SL, BinaryCodec.NAME}) {
+            Result decodedResult = (Result) benchmark("ListRooms", language, result);
+            List decodedRoomSummaries = (List) decodedResult.getValue();
+            Assert.assertEquals(roomSummaries.size(), decodedRoomSummaries.size());
+            for (int index = 0; index < roomSummaries.size(); index++) {
+                RoomSummary roomSummary = roomSummaries.get(index);
+                RoomSummary decodedRoomSummary = (RoomSummary) decodedRoomSummaries.get(index);
+                Assert.assertEquals(roomSummary.getId(), decodedRoomSummary.getId());
+                Assert.assertEquals(roomSummary.getName(), decodedRoomSummary.getName());
+                Assert.assertEquals(roomSummary.getAlias(), decodedRoomSummary.getAlias());
+                Assert.assertEquals(roomSummary.getStartDateTime(), decodedRoomSummary.getStartDateTime());
+            }
+        }
+    }
+
+    /**
+     * Test {@link ListRecordings} result.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testListRecordings() throws Exception
+    {
+        List<Recording> recordings = new ArrayList<Recording>();
+        for (int index = 0; index < 500; index++) {
+            Recording recording = new Recording();
+            recording.setId("recording" + index);
+            recording.setRecordingFolderId("folder");
+            recording.setName("Recording " + index);
+            recording.setFileName("recording" + index + ".mp4");
+            recording.setDownloadUrl("https://recording.example.org/download/recording" + index + ".mp4");
+            recording.setViewUrl("https://recording.example.org/view/recording" + index);
+            recording.setBeginDate(DateTime.parse("2014-01-01T12:00:00").plusHours(index));
+            recording.setSize(1024L * 1024L * index);
+            recordings.add(recording);
+        }
+        Result result = new Result(new Action(agentId, new ListRecordings("folder")), recordings);
+
+        for (String language : new String[]{FIPANames.ContentLanguage.FIPA_SL, BinaryCodec.NAME}) {
+            Result decodedResult = (Result) benchmark("ListRecordings", language, result);
+            List decodedRecordings = (List) decodedResult.getValue();
+            Assert.assertEquals(recordings.size(), decodedRecordings.size());
+            for (int index = 0; index < recordings.size(); index++) {
+                Recording recording = recordings.get(index);
+                Recording decodedRecording = (Recording) decodedRecordings.get(index);
+                Assert.assertEquals(recording.getId(), decodedRecording.getId());
+                Assert.assertEquals(recording.getDownloadUrl(), decodedRecording.getDownloadUrl());
+                Assert.assertEquals(recording.getBeginDate(), decodedRecording.getBeginDate());
+                Assert.assertEquals(recording.getSize(), decodedRecording.getSize());
+            }
+        }
+    }
+
+    /**
+     * Test {@link CreateRoom} command with room settings.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCreateRoom() throws Exception
+    {
+        Room room = new Room();
+        room.setDescription("Description of the room");
+        room.addTechnology(Technology.H323);
+        room.addTechnology(Technology.SIP);
+        room.setLicenseCount(10);
+        room.addAlias(AliasType.ROOM_NAME, "room");
+        room.addAlias(AliasType.H323_E164, "9500872");
+        room.addAlias(AliasType.SIP_URI, "9500872@cesnet.cz");
+        H323RoomSetting roomSetting = new H323RoomSetting();
+        roomSetting.setPin("1234");
+        roomSetting.setListedPublicly(true);
+        roomSetting.setAllowContent(true);
+        room.addRoomSetting(roomSetting);
+        Action action = new Action(agentId, new CreateRoom(room));
+
+        for (String language : new String[]{FIPANames.ContentLanguage.FIPA_SL, BinaryCodec.NAME}) {
+            Action decodedAction = (Action) benchmark("CreateRoom", language, action);
+            Room decodedRoom = ((CreateRoom) decodedAction.getAction()).getRoom();
+            Assert.assertEquals(room.getName(), decodedRoom.getName());
+            Assert.assertEquals(room.getTechnologies(), decodedRoom.getTechnologies());
+            Assert.assertEquals(room.getLicenseCount(), decodedRoom.getLicenseCount());
+            Assert.assertEquals(room.getAliases().size(), decodedRoom.getAliases().size());
+            Assert.assertEquals("1234", decodedRoom.getRoomSetting(H323RoomSetting.class).getPin());
+        }
+    }
+
+    /**
+     * Test that compressed content with invalid length is rejected before the data are allocated.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInvalidCompressedLength() throws Exception
+    {
+        BinaryCodec codec = new BinaryCodec();
+        for (int length : new int[]{-1, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            byte[] content = new byte[]{1, (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8),
+                    (byte) length, 0};
+            try {
+                codec.decode(ConnectorOntology.getInstance(), content);
+                Assert.fail("Content with length " + length + " should be rejected.");
+            }
+            catch (Codec.CodecException exception) {
+                // Expected
+            }
+        }
+    }
+
+    /**
+     * Encode and decode given {@code content} {@link #ITERATIONS} times in given {@code language} and log the
+     * encoding and decoding time and the size of encoded content.
+     *
+     * @param name     of the benchmark
+     * @param language content language
+     * @param content  to be encoded
+     * @return decoded {@code content}
+     * @throws Exception
+     */
+    private ContentElement benchmark(String name, String language, ContentElement content) throws Exception
+    {
+        // Warm up
+        ACLMessage message = encode(language, content);
+        ContentElement decodedContent = contentManager.extractContent(message);
+
+        long encodeTime = 0;
+        long decodeTime = 0;
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            long start = System.nanoTime();
+            message = encode(language, content);
+            encodeTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            decodedContent = contentManager.extractContent(message);
+            decodeTime += System.nanoTime() - start;
+        }
+
+        int size;
+        if (message.hasByteSequenceContent()) {
+            size = message.getByteSequenceContent().length;
+        }
+        else {
+            size = message.getContent().getBytes(Charset.forName("UTF-8")).length;
+        }
+        logger.info("{} in {}: encode {} us, decode {} us, size {} bytes.", new Object[]{
+                name, language, encodeTime / ITERATIONS / 1000, decodeTime / ITERATIONS / 1000, size
+        });
+        return decodedContent;
+    }
+
+    /**
+     * @param language content language
+     * @param content  to be encoded
+     * @return {@link ACLMessage} with given {@code content} encoded in given {@code language}
+     * @throws Exception
+     */
+    private ACLMessage encode(String language, ContentElement content) throws Exception
+    {
+        ACLMessage message = new ACLMessage(ACLMessage.INFORM);
+        message.setLanguage(language);
+        message.setOntology(ConnectorOntology.getInstance().getName());
+        contentManager.fillContent(message, content);
+        return message;
+    }
+}
@@ -0,0 +1,199 @@
+package cz.cesnet.shongo.controller.authorization;
+
+import cz.cesnet.shongo.controller.util.QueryFilter;
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.Query;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of list queries filtered by {@link AclPermissionFilter.Mode#IN} (identifiers of all visible objects
+ * passed as parameter list by {@link QueryFilter#createFilterIn}) and by {@link AclPermissionFilter.Mode#JOIN}
+ * (ACL tables joined by {@link QueryFilter#createFilterAcl}) for a user with given number of visible objects
+ * (the same number of objects is invisible).
+ * <p/>
+ * Run by {@link #main} from the test classpath (e.g., from IDE) or by
+ * {@code java -cp <test-classpath> org.openjdk.jmh.Main AclQueryBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AclQueryBenchmark
+{
+    /**
+     * Identifier of {@link cz.cesnet.shongo.controller.acl.AclObjectClass} of benchmark objects.
+     */
+    private static final long ACL_OBJECT_CLASS_ID = 1;
+
+    /**
+     * Identifier of {@link cz.cesnet.shongo.controller.acl.AclIdentity} of the user.
+     */
+    private static final long ACL_IDENTITY_ID = 1;
+
+    /**
+     * Identifier of {@link cz.cesnet.shongo.controller.acl.AclIdentity} of other user.
+     */
+    private static final long OTHER_ACL_IDENTITY_ID = 2;
+
+    /**
+     * Number of objects in a page.
+     */
+    private static final int PAGE_SIZE = 20;
+
+    /**
+     * Number of objects which are visible for the user.
+     */
+    @Param({"100", "10000", "100000"})
+    public int visibleObjectCount;
+
+    /**
+     * In-memory database with ACL tables and benchmark objects.
+     */
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * {@link EntityManager} for the queries.
+     */
+    private EntityManager entityManager;
+
+    /**
+     * Identifiers of visible objects (as they are cached in {@link AclUserState}).
+     */
+    private Set<Long> visibleObjectIds;
+
+    @Setup
+    public void setup()
+    {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("hibernate.connection.driver_class", "org.hsqldb.jdbcDriver");
+        properties.put("hibernate.connection.url", "jdbc:hsqldb:mem:acl-benchmark-" + visibleObjectCount + "; shutdown=true;");
+        properties.put("hibernate.connection.username", "sa");
+        properties.put("hibernate.connection.password", "");
+        entityManagerFactory = Persistence.createEntityManagerFactory("controller", properties);
+        entityManager = entityManagerFactory.createEntityManager();
+
+        visibleObjectIds = new HashSet<Long>();
+        for (long objectId = 1; objectId <= visibleObjectCount * 2; objectId += 2) {
+            visibleObjectIds.add(objectId);
+        }
+        entityManager.getTransaction().begin();
+        entityManager.unwrap(Session.class).doWork(new Work()
+        {
+            @Override
+            public void execute(Connection connection) throws SQLException
+            {
+                Statement statement = connection.createStatement();
+                statement.execute("CREATE TABLE benchmark_object (id BIGINT PRIMARY KEY, name VARCHAR(255))");
+                statement.execute("INSERT INTO acl_object_class (id, class) VALUES (1, 'EXECUTABLE')");
+                statement.execute("INSERT INTO acl_identity (id, type, principal_id) VALUES (1, 'USER', '1')");
+                statement.execute("INSERT INTO acl_identity (id, type, principal_id) VALUES (2, 'USER', '2')");
+                statement.close();
+
+                PreparedStatement objectStatement = connection.prepareStatement(
+                        "INSERT INTO benchmark_object (id, name) VALUES (?, ?)");
+                PreparedStatement objectIdentityStatement = connection.prepareStatement(
+                        "INSERT INTO acl_object_identity (id, acl_object_class_id, object_id) VALUES (?, ?, ?)");
+                PreparedStatement entryStatement = connection.prepareStatement(
+                        "INSERT INTO acl_entry (id, acl_identity_id, acl_object_identity_id, role)"
+                                + " VALUES (?, ?, ?, ?)");
+                for (long objectId = 1; objectId <= visibleObjectCount * 2; objectId++) {
+                    objectStatement.setLong(1, objectId);
+                    objectStatement.setString(2, "object" + objectId);
+                    objectStatement.addBatch();
+                    objectIdentityStatement.setLong(1, objectId);
+                    objectIdentityStatement.setLong(2, ACL_OBJECT_CLASS_ID);
+                    objectIdentityStatement.setLong(3, objectId);
+                    objectIdentityStatement.addBatch();
+                    entryStatement.setLong(1, objectId);
+                    entryStatement.setLong(2, visibleObjectIds.contains(objectId)
+                            ? ACL_IDENTITY_ID : OTHER_ACL_IDENTITY_ID);
+                    entryStatement.setLong(3, objectId);
+                    entryStatement.setString(4, "OWNER");
+                    entryStatement.addBatch();
+                    if (objectId % 1000 == 0 || objectId == visibleObjectCount * 2) {
+                        objectStatement.executeBatch();
+                        objectIdentityStatement.executeBatch();
+                        entryStatement.executeBatch();
+                    }
+                }
+                objectStatement.close();
+                objectIdentityStatement.close();
+                entryStatement.close();
+            }
+        });
+        entityManager.getTransaction().commit();
+
+        if (!in().equals(join())) {
+            throw new IllegalStateException("Both modes must return the same objects.");
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        entityManager.close();
+        entityManagerFactory.close();
+    }
+
+    @Benchmark
+    public List<Long> in()
+    {
+        QueryFilter queryFilter = new QueryFilter("benchmark_object");
+        queryFilter.addFilter(queryFilter.createFilterIn("id", visibleObjectIds));
+        return list(queryFilter);
+    }
+
+    @Benchmark
+    public List<Long> join()
+    {
+        QueryFilter queryFilter = new QueryFilter("benchmark_object");
+        queryFilter.addFilter(queryFilter.createFilterAcl("id", new AclPermissionFilter(ACL_OBJECT_CLASS_ID,
+                Collections.singleton(ACL_IDENTITY_ID), new HashSet<String>(Arrays.asList("OWNER", "READER")))));
+        return list(queryFilter);
+    }
+
+    /**
+     * Perform count and first page queries as a list request does.
+     *
+     * @param queryFilter
+     * @return total count and identifiers of objects in the first page
+     */
+    private List<Long> list(QueryFilter queryFilter)
+    {
+        String where = queryFilter.toQueryWhere();
+        Query countQuery = entityManager.createNativeQuery(
+                "SELECT COUNT(*) FROM benchmark_object WHERE " + where);
+        queryFilter.fillQueryParameters(countQuery);
+        List<Long> result = new ArrayList<Long>();
+        result.add(((Number) countQuery.getSingleResult()).longValue());
+
+        Query pageQuery = entityManager.createNativeQuery(
+                "SELECT benchmark_object.id FROM benchmark_object WHERE " + where + " ORDER BY benchmark_object.id");
+        queryFilter.fillQueryParameters(pageQuery);
+        pageQuery.setMaxResults(PAGE_SIZE);
+        for (Object id : pageQuery.getResultList()) {
+            result.add(((Number) id).longValue());
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        new Runner(new OptionsBuilder().include(AclQueryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -8,6 +8,7 @@ import cz.cesnet.shongo.controller.api.request.AclEntryListRequest;
 import cz.cesnet.shongo.controller.api.request.ListResponse;
 import cz.cesnet.shongo.controller.api.request.ObjectPermissionListRequest;
 import cz.cesnet.shongo.controller.api.request.ReservationListRequest;
+import cz.cesnet.shongo.controller.api.request.ReservationRequestListRequest;
 import cz.cesnet.shongo.controller.api.rpc.AuthorizationService;
 import cz.cesnet.shongo.controller.booking.datetime.*;
 import cz.cesnet.shongo.controller.booking.datetime.PeriodicDateTimeSlot;
@@ -247,6 +248,65 @@ public class AuthorizationTest extends AbstractControllerTest
         getReservationService().deleteReservationRequest(SECURITY_TOKEN_USER1, reservationRequest2Id);
     }
 
+    /**
+     * Test that list queries filtered by {@link AclPermissionFilter.Mode#IN} and {@link AclPermissionFilter.Mode#JOIN}
+     * return the same objects.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAclQueryMode() throws Exception
+    {
+        String user2Id = getUserId(SECURITY_TOKEN_USER2);
+
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.setAllocatable(true);
+        String resourceId = createResource(SECURITY_TOKEN, resource);
+        getAuthorizationService().createAclEntry(SECURITY_TOKEN_ROOT,
+                new AclEntry(AclIdentityType.GROUP, Authorization.EVERYONE_GROUP_ID, resourceId, ObjectRole.RESERVATION));
+
+        ReservationRequest reservationRequest1 = new ReservationRequest();
+        reservationRequest1.setSlot("2013-01-01T12:00", "PT2H");
+        reservationRequest1.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest1.setSpecification(new ResourceSpecification(resourceId));
+        String reservationRequest1Id = allocate(SECURITY_TOKEN_USER1, reservationRequest1);
+        Reservation reservation1 = checkAllocated(reservationRequest1Id);
+
+        ReservationRequest reservationRequest2 = new ReservationRequest();
+        reservationRequest2.setSlot("2013-01-02T12:00", "PT2H");
+        reservationRequest2.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest2.setSpecification(new ResourceSpecification(resourceId));
+        String reservationRequest2Id = allocate(SECURITY_TOKEN_USER1, reservationRequest2);
+        checkAllocated(reservationRequest2Id);
+
+        getAuthorizationService().createAclEntry(SECURITY_TOKEN_USER1,
+                new AclEntry(user2Id, reservationRequest1Id, ObjectRole.READER));
+
+        Map<AclPermissionFilter.Mode, Set<String>> user1ObjectIds = new HashMap<AclPermissionFilter.Mode, Set<String>>();
+        Map<AclPermissionFilter.Mode, Set<String>> user2ObjectIds = new HashMap<AclPermissionFilter.Mode, Set<String>>();
+        try {
+            for (AclPermissionFilter.Mode mode : AclPermissionFilter.Mode.values()) {
+                getAuthorization().setAclQueryMode(mode);
+                user1ObjectIds.put(mode, listObjectIds(SECURITY_TOKEN_USER1));
+                user2ObjectIds.put(mode, listObjectIds(SECURITY_TOKEN_USER2));
+            }
+        }
+        finally {
+            getAuthorization().setAclQueryMode(AclPermissionFilter.Mode.JOIN);
+        }
+
+        Set<String> user2ExpectedObjectIds = new HashSet<String>();
+        user2ExpectedObjectIds.add(reservationRequest1Id);
+        user2ExpectedObjectIds.add(reservation1.getId());
+        for (AclPermissionFilter.Mode mode : AclPermissionFilter.Mode.values()) {
+            Assert.assertEquals(mode.toString(), user2ExpectedObjectIds, user2ObjectIds.get(mode));
+            Assert.assertEquals(mode.toString(), 4, user1ObjectIds.get(mode).size());
+        }
+        Assert.assertEquals(user1ObjectIds.get(AclPermissionFilter.Mode.IN),
+                user1ObjectIds.get(AclPermissionFilter.Mode.JOIN));
+    }
+
     @Test
     public void multipleAclRequestSpeedTest() throws Exception
     {
@@ -310,6 +370,28 @@ public class AuthorizationTest extends AbstractControllerTest
         Assert.assertTrue("List all is not quicker than by one.", listPermissionsTime < listPermissionsByOneTime);
     }
 
+    /**
+     * @param securityToken
+     * @return identifiers of reservation requests and reservations which are readable by user with given
+     *         {@code securityToken}
+     * @throws Exception
+     */
+    private Set<String> listObjectIds(SecurityToken securityToken) throws Exception
+    {
+        Set<String> objectIds = new HashSet<String>();
+        ReservationRequestListRequest reservationRequestListRequest =
+                new ReservationRequestListRequest(securityToken);
+        for (ReservationRequestSummary reservationRequest :
+                getReservationService().listReservationRequests(reservationRequestListRequest)) {
+            objectIds.add(reservationRequest.getId());
+        }
+        ReservationListRequest reservationListRequest = new ReservationListRequest(securityToken);
+        for (ReservationSummary reservation : getReservationService().listReservations(reservationListRequest)) {
+            objectIds.add(reservation.getId());
+        }
+        return objectIds;
+    }
+
     /**
      * @return collection of all {@link cz.cesnet.shongo.controller.api.AclEntry} for user with {@link #SECURITY_TOKEN}
      * @throws Exception
@@ -0,0 +1,113 @@
+package cz.cesnet.shongo.controller.authorization;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link RequestCoalescer}.
+ */
+public class RequestCoalescerTest
+{
+    /**
+     * Number of concurrent threads.
+     */
+    private static final int THREAD_COUNT = 10;
+
+    /**
+     * Test that concurrent requests with the same key are performed only once.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCoalescing() throws Exception
+    {
+        final RequestCoalescer<String> requestCoalescer = new RequestCoalescer<String>();
+        final AtomicInteger requestCount = new AtomicInteger();
+        final CountDownLatch requestStarted = new CountDownLatch(1);
+        final CountDownLatch requestFinish = new CountDownLatch(1);
+        final Callable<String> request = new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                requestCount.incrementAndGet();
+                requestStarted.countDown();
+                requestFinish.await();
+                return "result";
+            }
+        };
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            results.add(executorService.submit(new Callable<String>()
+            {
+                @Override
+                public String call() throws Exception
+                {
+                    return requestCoalescer.perform("key", request);
+                }
+            }));
+            requestStarted.await();
+            for (int index = 1; index < THREAD_COUNT; index++) {
+                results.add(executorService.submit(new Callable<String>()
+                {
+                    @Override
+                    public String call() throws Exception
+                    {
+                        return requestCoalescer.perform("key", request);
+                    }
+                }));
+            }
+            // Wait until other threads are waiting for the pending request
+            while (requestCoalescer.getWaitingCount() < THREAD_COUNT - 1) {
+                Thread.yield();
+            }
+            requestFinish.countDown();
+            for (Future<String> result : results) {
+                Assert.assertEquals("result", result.get());
+            }
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+        Assert.assertEquals(1, requestCount.get());
+        Assert.assertEquals(0, requestCoalescer.getPendingRequestCount());
+        Assert.assertEquals(0, requestCoalescer.getWaitingCount());
+
+        // Next request is performed again
+        requestCoalescer.perform("key", request);
+        Assert.assertEquals(2, requestCount.get());
+    }
+
+    /**
+     * Test that exception from request is thrown to the caller.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testException() throws Exception
+    {
+        RequestCoalescer<String> requestCoalescer = new RequestCoalescer<String>();
+        try {
+            requestCoalescer.perform("key", new Callable<String>()
+            {
+                @Override
+                public String call() throws Exception
+                {
+                    throw new IllegalStateException("failed");
+                }
+            });
+            Assert.fail("Exception should be thrown.");
+        }
+        catch (IllegalStateException exception) {
+            Assert.assertEquals("failed", exception.getMessage());
+        }
+        Assert.assertEquals(0, requestCoalescer.getPendingRequestCount());
+    }
+}
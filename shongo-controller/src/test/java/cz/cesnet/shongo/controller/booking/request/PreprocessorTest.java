@@ -12,6 +12,7 @@ import cz.cesnet.shongo.controller.booking.person.AnonymousPerson;
 import cz.cesnet.shongo.controller.booking.datetime.PeriodicDateTime;
 import cz.cesnet.shongo.controller.scheduler.Preprocessor;
 import cz.cesnet.shongo.report.Report;
+import org.apache.commons.configuration.MapConfiguration;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.joda.time.LocalDate;
@@ -20,6 +21,8 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -120,6 +123,111 @@ public class PreprocessorTest extends AbstractDatabaseTest
         entityManager.close();
     }
 
+    @Test
+    public void testChunks() throws Exception
+    {
+        // Preprocess slots by small chunks
+        ControllerConfiguration configuration = new ControllerConfiguration();
+        configuration.addConfiguration(new MapConfiguration(
+                Collections.singletonMap(ControllerConfiguration.WORKER_PREPROCESSOR_CHUNK_SIZE, "4")));
+        Preprocessor preprocessor = new Preprocessor();
+        preprocessor.setCache(new Cache());
+        preprocessor.setAuthorization(new DummyAuthorization(getEntityManagerFactory()));
+        preprocessor.init(configuration);
+
+        EntityManager entityManager = createEntityManager();
+        ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
+        try {
+            Interval interval = Interval.parse("2012-06-01/2012-07-01");
+
+            // Create reservation request set with daily slots
+            ReservationRequestSet reservationRequestSet = new ReservationRequestSet();
+            reservationRequestSet.setCreatedBy(Authorization.ROOT_USER_ID);
+            reservationRequestSet.setUpdatedBy(Authorization.ROOT_USER_ID);
+            reservationRequestSet.setPurpose(ReservationRequestPurpose.SCIENCE);
+            reservationRequestSet.addSlot(new PeriodicDateTime(
+                    DateTime.parse("2012-06-01T14:00"), Period.parse("P1D"), LocalDate.parse("2012-06-30")), "PT1H");
+            reservationRequestSet.setSpecification(new CompartmentSpecification());
+
+            entityManager.getTransaction().begin();
+            reservationRequestManager.create(reservationRequestSet);
+            entityManager.getTransaction().commit();
+
+            Preprocessor.Result result = preprocessor.run(interval, entityManager);
+            Assert.assertEquals(30, result.getCreatedReservationRequests());
+            Assert.assertEquals(30, reservationRequestManager.listChildReservationRequests(reservationRequestSet).size());
+            Assert.assertEquals(0, reservationRequestManager.listNotPreprocessedReservationRequestSets(interval).size());
+
+            // Move slots and shorten the set
+            reservationRequestSet.removeSlot(reservationRequestSet.getSlots().get(0));
+            reservationRequestSet.addSlot(new PeriodicDateTime(
+                    DateTime.parse("2012-06-01T16:00"), Period.parse("P1D"), LocalDate.parse("2012-06-20")), "PT1H");
+            reservationRequestManager.update(reservationRequestSet);
+
+            result = preprocessor.run(interval, entityManager);
+            Assert.assertEquals(0, result.getCreatedReservationRequests());
+            Assert.assertEquals(20, result.getModifiedReservationRequests());
+            Assert.assertEquals(10, result.getDeletedReservationRequests());
+            List<ReservationRequest> reservationRequests =
+                    reservationRequestManager.listChildReservationRequests(reservationRequestSet);
+            Assert.assertEquals(20, reservationRequests.size());
+            Assert.assertEquals(new Interval(DateTime.parse("2012-06-01T16:00"), Period.parse("PT1H")),
+                    reservationRequests.get(0).getSlot());
+            Assert.assertEquals(new Interval(DateTime.parse("2012-06-20T16:00"), Period.parse("PT1H")),
+                    reservationRequests.get(19).getSlot());
+        }
+        finally {
+            entityManager.close();
+        }
+    }
+
+    @Test
+    public void testChangedReservationRequestSets() throws Exception
+    {
+        Preprocessor preprocessor = new Preprocessor();
+        preprocessor.setCache(new Cache());
+        preprocessor.setAuthorization(new DummyAuthorization(getEntityManagerFactory()));
+        preprocessor.init();
+
+        EntityManager entityManager = createEntityManager();
+        ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
+        try {
+            Interval interval = Interval.parse("2012-06-01/2012-07-01");
+
+            // Create two reservation request sets
+            List<ReservationRequestSet> reservationRequestSets = new ArrayList<ReservationRequestSet>();
+            entityManager.getTransaction().begin();
+            for (int index = 0; index < 2; index++) {
+                ReservationRequestSet reservationRequestSet = new ReservationRequestSet();
+                reservationRequestSet.setCreatedBy(Authorization.ROOT_USER_ID);
+                reservationRequestSet.setUpdatedBy(Authorization.ROOT_USER_ID);
+                reservationRequestSet.setPurpose(ReservationRequestPurpose.SCIENCE);
+                reservationRequestSet.addSlot(new PeriodicDateTime(
+                        DateTime.parse("2012-06-01T14:00"), Period.parse("P1W"), LocalDate.parse("2012-06-30")), "PT1H");
+                reservationRequestSet.setSpecification(new CompartmentSpecification());
+                reservationRequestManager.create(reservationRequestSet);
+                reservationRequestSets.add(reservationRequestSet);
+            }
+            entityManager.getTransaction().commit();
+
+            // Only the changed reservation request set should be preprocessed
+            ReservationRequestSet changedReservationRequestSet = reservationRequestSets.get(0);
+            Preprocessor.Result result = preprocessor.run(interval, entityManager,
+                    Collections.singleton(changedReservationRequestSet.getId()));
+            Assert.assertEquals(5, result.getCreatedReservationRequests());
+            Assert.assertEquals(Collections.singletonList(reservationRequestSets.get(1)),
+                    reservationRequestManager.listNotPreprocessedReservationRequestSets(interval));
+
+            // Periodic run preprocesses all reservation request sets
+            result = preprocessor.run(interval, entityManager);
+            Assert.assertEquals(5, result.getCreatedReservationRequests());
+            Assert.assertEquals(0, reservationRequestManager.listNotPreprocessedReservationRequestSets(interval).size());
+        }
+        finally {
+            entityManager.close();
+        }
+    }
+
     @Test
     public void testClonedSpecifications() throws Exception
     {
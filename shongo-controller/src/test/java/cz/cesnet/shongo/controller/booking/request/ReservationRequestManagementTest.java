@@ -17,6 +17,7 @@ import cz.cesnet.shongo.controller.api.request.*;
 import cz.cesnet.shongo.controller.api.rpc.ReservationService;
 import cz.cesnet.shongo.controller.scheduler.Preprocessor;
 import cz.cesnet.shongo.controller.scheduler.Scheduler;
+import cz.cesnet.shongo.controller.util.SummaryConsistencyChecker;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.joda.time.LocalDate;
@@ -25,6 +26,7 @@ import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import javax.persistence.EntityManager;
 import java.util.*;
 
 import static org.hamcrest.CoreMatchers.not;
@@ -440,6 +442,89 @@ public class ReservationRequestManagementTest extends AbstractControllerTest
                 response.getItem(2).getSpecificationType());
     }
 
+    /**
+     * Test listing reservation requests by {@link ListRequest#getCursor()} and {@link ListRequest#isSkipCount()}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testListReservationRequestsByCursor() throws Exception
+    {
+        for (int index = 0; index < 7; index++) {
+            ReservationRequest request = new ReservationRequest();
+            request.setDescription("request " + (index + 1));
+            request.setSlot("2012-01-01T12:00", "PT2H");
+            request.setPurpose(ReservationRequestPurpose.SCIENCE);
+            request.setSpecification(new RoomSpecification(5, Technology.H323));
+            getReservationService().createReservationRequest(SECURITY_TOKEN, request);
+        }
+
+        for (ReservationRequestListRequest.Sort sort : new ReservationRequestListRequest.Sort[]{
+                null, ReservationRequestListRequest.Sort.DATETIME, ReservationRequestListRequest.Sort.SLOT}) {
+            ReservationRequestListRequest request = new ReservationRequestListRequest(SECURITY_TOKEN);
+            request.setSort(sort);
+            request.setSortDescending(true);
+            List<String> expectedIds = new LinkedList<String>();
+            for (ReservationRequestSummary reservationRequest :
+                    getReservationService().listReservationRequests(request)) {
+                expectedIds.add(reservationRequest.getId());
+            }
+            Assert.assertEquals(7, expectedIds.size());
+
+            for (boolean skipCount : new boolean[]{false, true}) {
+                request.setCount(3);
+                request.setSkipCount(skipCount);
+                request.setCursor(null);
+                List<String> ids = new LinkedList<String>();
+                ListResponse<ReservationRequestSummary> response;
+                do {
+                    response = getReservationService().listReservationRequests(request);
+                    Assert.assertEquals(ids.size(), response.getStart());
+                    for (ReservationRequestSummary reservationRequest : response) {
+                        ids.add(reservationRequest.getId());
+                    }
+                    if (!skipCount) {
+                        Assert.assertEquals(7, response.getCount());
+                    }
+                    request.setCursor(response.getCursor());
+                }
+                while (response.getCursor() != null);
+                Assert.assertEquals(sort + " " + skipCount, expectedIds, ids);
+                Assert.assertEquals(7, response.getCount());
+            }
+        }
+    }
+
+    /**
+     * Test repairing of inconsistent rows in specification_summary by {@link SummaryConsistencyChecker}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSummaryConsistencyChecker() throws Exception
+    {
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot("2012-01-01T12:00", "PT2H");
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(new RoomSpecification(5, Technology.H323));
+        getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest);
+
+        SummaryConsistencyChecker summaryConsistencyChecker = new SummaryConsistencyChecker();
+        summaryConsistencyChecker.setEntityManagerFactory(getEntityManagerFactory());
+        Assert.assertEquals(0, summaryConsistencyChecker.check());
+
+        // Corrupt specification_summary
+        EntityManager entityManager = createEntityManager();
+        entityManager.getTransaction().begin();
+        entityManager.createNativeQuery("DELETE FROM specification_summary").executeUpdate();
+        entityManager.getTransaction().commit();
+        entityManager.close();
+
+        Assert.assertEquals(1, summaryConsistencyChecker.check());
+        checkSpecificationSummaryConsistency();
+        Assert.assertEquals(0, summaryConsistencyChecker.check());
+    }
+
     /**
      * Test listing reservation requests based on {@link Technology} of
      * {@link cz.cesnet.shongo.controller.api.AliasSpecification},
@@ -615,6 +700,56 @@ public class ReservationRequestManagementTest extends AbstractControllerTest
         Assert.assertEquals(AllocationStateReport.class, result.getClass());
     }
 
+    /**
+     * Test that all occurrences of periodic slot in which the specification isn't available are reported.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCheckPeriodicAvailability() throws Exception
+    {
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.setAllocatable(true);
+        String resourceId = createResource(resource);
+
+        DateTime start = DateTime.now().withTimeAtStartOfDay().plusDays(1).withHourOfDay(12);
+        for (int week : new int[]{3, 7}) {
+            ReservationRequest reservationRequest = new ReservationRequest();
+            reservationRequest.setSlot(new Interval(start.plusWeeks(week), Period.hours(1)));
+            reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+            reservationRequest.setSpecification(new ResourceSpecification(resourceId));
+            allocateAndCheck(reservationRequest);
+        }
+
+        // Single occurrence which isn't available
+        AvailabilityCheckRequest availabilityCheckRequest = new AvailabilityCheckRequest(SECURITY_TOKEN);
+        availabilityCheckRequest.addSlot(new Interval(start.plusWeeks(3), Period.hours(1)));
+        availabilityCheckRequest.setSpecification(new ResourceSpecification(resourceId));
+        availabilityCheckRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        Object result = getReservationService().checkPeriodicAvailability(availabilityCheckRequest);
+        Assert.assertEquals(AllocationStateReport.class, result.getClass());
+        int singleReportCount = ((AllocationStateReport) result).getReports().size();
+
+        // Twenty weekly occurrences from which two aren't available
+        availabilityCheckRequest = new AvailabilityCheckRequest(SECURITY_TOKEN);
+        availabilityCheckRequest.addSlot(new PeriodicDateTimeSlot(start, Period.hours(1), Period.weeks(1),
+                start.plusWeeks(19).toLocalDate()));
+        availabilityCheckRequest.setSpecification(new ResourceSpecification(resourceId));
+        availabilityCheckRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        result = getReservationService().checkPeriodicAvailability(availabilityCheckRequest);
+        Assert.assertEquals(AllocationStateReport.class, result.getClass());
+        Assert.assertEquals(2 * singleReportCount, ((AllocationStateReport) result).getReports().size());
+
+        // Weekly occurrences which are all available
+        availabilityCheckRequest = new AvailabilityCheckRequest(SECURITY_TOKEN);
+        availabilityCheckRequest.addSlot(new PeriodicDateTimeSlot(start.plusHours(2), Period.hours(1),
+                Period.weeks(1), start.plusWeeks(19).toLocalDate()));
+        availabilityCheckRequest.setSpecification(new ResourceSpecification(resourceId));
+        availabilityCheckRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        Assert.assertEquals(Boolean.TRUE, getReservationService().checkPeriodicAvailability(availabilityCheckRequest));
+    }
+
     @Test
     public void testReservationRequestReusementAclEntryPropagation() throws Exception
     {
@@ -188,4 +188,71 @@ public class PatternValueProviderTest
         catch (ValueProvider.InvalidValueException exception) {
         }
     }
+
+    @Test
+    public void testLargeRange() throws Exception
+    {
+        PatternValueProvider generator = new PatternValueProvider();
+        generator.addPattern("950{digit:9}");
+        generator.addPattern("{number:1000000:9999999}");
+        Set<String> generatedValues = new HashSet<String>();
+        for (int index = 1; index <= 100000; index++) {
+            generatedValues.add(String.format("950%09d", index));
+        }
+        generatedValues.add("950x00100002");
+        generatedValues.add("9500001000020");
+        Assert.assertEquals("950000100001", generator.generateAddedValue(generatedValues));
+        Assert.assertEquals("950000100002", generator.generateAddedValue(generatedValues));
+        generatedValues.remove("950000050000");
+        Assert.assertEquals("950000050000", generator.generateAddedValue(generatedValues));
+
+        generator = new PatternValueProvider();
+        generator.addPattern("{number:1000000:9999999}");
+        generatedValues = new HashSet<String>();
+        generatedValues.add("1000000");
+        generatedValues.add("01000001");
+        Assert.assertEquals("1000001", generator.generateAddedValue(generatedValues));
+        Assert.assertEquals("1000002", generator.generateAddedValue(generatedValues));
+    }
+
+    @Test
+    public void testOrdinals() throws Exception
+    {
+        Pattern pattern = new Pattern();
+        pattern.parse("950{digit:2}-{digit:1}");
+        Assert.assertTrue(pattern.isNumeric());
+        Assert.assertEquals(1, pattern.getFirstOrdinal());
+        Assert.assertEquals(1000, pattern.getOrdinalCount());
+        pattern.reset();
+        for (long ordinal = pattern.getFirstOrdinal(); ordinal < pattern.getOrdinalCount(); ordinal++) {
+            String value = pattern.generate();
+            Assert.assertEquals(value, pattern.generate(ordinal));
+            Assert.assertEquals(ordinal, pattern.getOrdinal(value));
+        }
+        Assert.assertNull(pattern.generate());
+        Assert.assertEquals(-1, pattern.getOrdinal("95012-"));
+        Assert.assertEquals(-1, pattern.getOrdinal("95012-34"));
+        Assert.assertEquals(-1, pattern.getOrdinal("96012-3"));
+
+        pattern = new Pattern();
+        pattern.parse("room {number:8:120}");
+        Assert.assertTrue(pattern.isNumeric());
+        Assert.assertEquals(0, pattern.getFirstOrdinal());
+        Assert.assertEquals(113, pattern.getOrdinalCount());
+        pattern.reset();
+        for (long ordinal = pattern.getFirstOrdinal(); ordinal < pattern.getOrdinalCount(); ordinal++) {
+            String value = pattern.generate();
+            Assert.assertEquals(value, pattern.generate(ordinal));
+            Assert.assertEquals(ordinal, pattern.getOrdinal(value));
+        }
+        Assert.assertEquals(-1, pattern.getOrdinal("room 08"));
+        Assert.assertEquals(-1, pattern.getOrdinal("room 7"));
+
+        pattern = new Pattern();
+        pattern.parse("{hash}");
+        Assert.assertFalse(pattern.isNumeric());
+        pattern = new Pattern();
+        pattern.parse("{digit:1}{number:1:5}");
+        Assert.assertFalse(pattern.isNumeric());
+    }
 }
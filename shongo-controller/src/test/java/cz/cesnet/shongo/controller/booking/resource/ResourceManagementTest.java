@@ -18,6 +18,9 @@ import cz.cesnet.shongo.controller.api.StandaloneTerminalCapability;
 import cz.cesnet.shongo.controller.api.ValueProviderCapability;
 import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
 import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
 import org.joda.time.Interval;
 import org.junit.Assert;
 import org.junit.Test;
@@ -77,6 +80,65 @@ public class ResourceManagementTest extends AbstractControllerTest
         }
     }
 
+    /**
+     * Test that modifications of resources are visible although the resources and their capabilities
+     * are stored in the second-level and query cache.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testResourceCache() throws Exception
+    {
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.addCapability(new ValueProviderCapability("{hash}"));
+        String resourceId = createResource(SECURITY_TOKEN, resource);
+        Assert.assertEquals(1, listValueProviderCapabilities().size());
+
+        Statistics statistics = ((HibernateEntityManagerFactory) getEntityManagerFactory())
+                .getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        // Check that the resource is read from cache
+        resource = getResource(resourceId, Resource.class);
+        Assert.assertEquals("resource", resource.getName());
+        Assert.assertEquals(1, listValueProviderCapabilities().size());
+        SecondLevelCacheStatistics resourceStatistics = statistics.getSecondLevelCacheStatistics(
+                cz.cesnet.shongo.controller.booking.resource.Resource.class.getName());
+        Assert.assertTrue("Resource should be read from cache.", resourceStatistics.getHitCount() > 0);
+        Assert.assertTrue("Capabilities should be read from query cache.", statistics.getQueryCacheHitCount() > 0);
+
+        // Modify resource and check that the cached data are invalidated
+        resource.setName("resourceModified");
+        resource.addCapability(new ValueProviderCapability("{hash}"));
+        getResourceService().modifyResource(SECURITY_TOKEN, resource);
+        resource = getResource(resourceId, Resource.class);
+        Assert.assertEquals("resourceModified", resource.getName());
+        Assert.assertEquals(2, resource.getCapabilities().size());
+        Assert.assertEquals(2, listValueProviderCapabilities().size());
+
+        // Delete resource and check that it is no longer cached
+        getResourceService().deleteResource(SECURITY_TOKEN, resourceId);
+        Assert.assertEquals(0, listValueProviderCapabilities().size());
+    }
+
+    /**
+     * @return list of all {@link cz.cesnet.shongo.controller.booking.value.ValueProviderCapability}s
+     *         by {@link ResourceManager#listCapabilities}
+     */
+    private List<cz.cesnet.shongo.controller.booking.value.ValueProviderCapability> listValueProviderCapabilities()
+    {
+        EntityManager entityManager = createEntityManager();
+        try {
+            ResourceManager resourceManager = new ResourceManager(entityManager);
+            return resourceManager.listCapabilities(cz.cesnet.shongo.controller.booking.value.ValueProviderCapability.class);
+        }
+        finally {
+            entityManager.close();
+        }
+    }
+
     /**
      * Test device resource.
      *
@@ -0,0 +1,96 @@
+package cz.cesnet.shongo.controller.cache;
+
+import cz.cesnet.shongo.controller.AbstractControllerTest;
+import cz.cesnet.shongo.controller.ObjectRole;
+import cz.cesnet.shongo.controller.ObjectType;
+import cz.cesnet.shongo.controller.api.Resource;
+import cz.cesnet.shongo.controller.authorization.Authorization;
+import cz.cesnet.shongo.controller.authorization.UserData;
+import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Tests for {@link CacheSnapshot}.
+ */
+public class CacheSnapshotTest extends AbstractControllerTest
+{
+    @Test
+    public void testStoreAndLoad() throws Exception
+    {
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.setAllocatable(true);
+        String resourceId = createResource(SECURITY_TOKEN, resource);
+        Long resourceLocalId = ObjectIdentifier.parseLocalId(resourceId, ObjectType.RESOURCE);
+
+        // Fill authorization cache
+        Authorization authorization = getAuthorization();
+        String userId = getUserId(SECURITY_TOKEN);
+        UserData userData = authorization.getUserData(userId);
+        Set<Long> ownedResourceIds = authorization.getEntitiesWithRole(SECURITY_TOKEN,
+                cz.cesnet.shongo.controller.booking.resource.Resource.class, ObjectRole.OWNER);
+        Assert.assertTrue(ownedResourceIds.contains(resourceLocalId));
+
+        File file = File.createTempFile("controller", ".snapshot");
+        file.deleteOnExit();
+        CacheSnapshot cacheSnapshot = new CacheSnapshot();
+        cacheSnapshot.setAuthorization(authorization);
+        cacheSnapshot.setFile(file);
+        cacheSnapshot.setMaxAge(Duration.standardHours(1));
+        cacheSnapshot.store();
+
+        // Only user data should be restored
+        authorization.clearCache();
+        Assert.assertTrue(authorization.listCachedUserData().isEmpty());
+        Assert.assertTrue(cacheSnapshot.load());
+        UserData restoredUserData = getUserData(authorization.listCachedUserData(), userId);
+        Assert.assertNotNull(restoredUserData);
+        Assert.assertEquals(userData.getFullName(), restoredUserData.getFullName());
+        Assert.assertEquals(userData.getUserInformation().getPrincipalNames(),
+                restoredUserData.getUserInformation().getPrincipalNames());
+        Assert.assertEquals(userData.getUserInformation().getEmail(),
+                restoredUserData.getUserInformation().getEmail());
+
+        // ACL is built with freshly resolved groups and thus it reflects entries created after the snapshot
+        resource = new Resource();
+        resource.setName("resource2");
+        resource.setAllocatable(true);
+        Long resource2LocalId = ObjectIdentifier.parseLocalId(createResource(SECURITY_TOKEN, resource),
+                ObjectType.RESOURCE);
+        authorization.clearCache();
+        Assert.assertTrue(cacheSnapshot.load());
+        Assert.assertNotNull(getUserData(authorization.listCachedUserData(), userId));
+        ownedResourceIds = authorization.getEntitiesWithRole(SECURITY_TOKEN,
+                cz.cesnet.shongo.controller.booking.resource.Resource.class, ObjectRole.OWNER);
+        Assert.assertTrue(ownedResourceIds.contains(resourceLocalId));
+        Assert.assertTrue(ownedResourceIds.contains(resource2LocalId));
+
+        // Too old snapshot should be ignored
+        authorization.clearCache();
+        cacheSnapshot.setMaxAge(Duration.ZERO);
+        Thread.sleep(10);
+        Assert.assertFalse(cacheSnapshot.load());
+        Assert.assertTrue(authorization.listCachedUserData().isEmpty());
+    }
+
+    /**
+     * @param userDataList
+     * @param userId
+     * @return {@link UserData} from given {@code userDataList} with given {@code userId}
+     */
+    private static UserData getUserData(Collection<UserData> userDataList, String userId)
+    {
+        for (UserData userData : userDataList) {
+            if (userId.equals(userData.getUserId())) {
+                return userData;
+            }
+        }
+        return null;
+    }
+}
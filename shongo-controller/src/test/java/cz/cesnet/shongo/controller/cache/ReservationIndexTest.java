@@ -0,0 +1,121 @@
+package cz.cesnet.shongo.controller.cache;
+
+import cz.cesnet.shongo.controller.AbstractControllerTest;
+import cz.cesnet.shongo.controller.ReservationRequestPurpose;
+import cz.cesnet.shongo.controller.api.ReservationRequest;
+import cz.cesnet.shongo.controller.api.Resource;
+import cz.cesnet.shongo.controller.api.ResourceSpecification;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.joda.time.Period;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for {@link ReservationIndex} and {@link ReservationSlotIndex}.
+ */
+public class ReservationIndexTest extends AbstractControllerTest
+{
+    @Test
+    public void testSlotIndex() throws Exception
+    {
+        ReservationSlotIndex slotIndex = new ReservationSlotIndex.Builder()
+                .add(1l, Interval.parse("2012-01-01T12:00/2012-01-01T14:00"))
+                .add(2l, Interval.parse("2012-01-01T10:00/2012-01-01T11:00"))
+                .add(3l, Interval.parse("2012-01-01T13:00/2012-01-01T13:30"))
+                .build();
+        Assert.assertEquals(3, slotIndex.size());
+        Assert.assertEquals(Arrays.asList(2l, 1l, 3l),
+                slotIndex.find(Interval.parse("2012-01-01T00:00/2012-01-02T00:00")));
+        Assert.assertEquals(Arrays.asList(1l, 3l),
+                slotIndex.find(Interval.parse("2012-01-01T13:15/2012-01-01T13:20")));
+        Assert.assertEquals(Collections.<Long>emptyList(),
+                slotIndex.find(Interval.parse("2012-01-01T11:00/2012-01-01T12:00")));
+        Assert.assertEquals(Arrays.asList(1l),
+                slotIndex.find(Interval.parse("2012-01-01T13:30/2012-01-01T15:00")));
+
+        slotIndex = slotIndex.with(3l, Interval.parse("2012-01-01T11:00/2012-01-01T12:00"));
+        Assert.assertEquals(3, slotIndex.size());
+        Assert.assertEquals(Arrays.asList(3l),
+                slotIndex.find(Interval.parse("2012-01-01T11:00/2012-01-01T12:00")));
+
+        slotIndex = slotIndex.without(1l);
+        Assert.assertEquals(2, slotIndex.size());
+        Assert.assertFalse(slotIndex.contains(1l));
+        Assert.assertEquals(Arrays.asList(2l, 3l),
+                slotIndex.find(Interval.parse("2012-01-01T00:00/2012-01-02T00:00")));
+        Assert.assertSame(slotIndex, slotIndex.without(1l));
+
+        slotIndex = slotIndex.withoutEndedBy(DateTime.parse("2012-01-01T11:00").getMillis());
+        Assert.assertEquals(1, slotIndex.size());
+        Assert.assertEquals(Arrays.asList(3l),
+                slotIndex.find(Interval.parse("2012-01-01T00:00/2012-01-02T00:00")));
+        Assert.assertSame(slotIndex, slotIndex.withoutEndedBy(DateTime.parse("2012-01-01T11:00").getMillis()));
+    }
+
+    @Test
+    public void testAllocationAndDeallocation() throws Exception
+    {
+        ReservationIndex reservationIndex = getCache().getResourceCache().getReservationIndex();
+        Assert.assertTrue(reservationIndex.isActive());
+
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.setAllocatable(true);
+        String resourceId = createResource(resource);
+        DateTime start = DateTime.now().withTimeAtStartOfDay().plusDays(1);
+
+        ReservationRequest reservationRequest1 = new ReservationRequest();
+        reservationRequest1.setSlot(start.plusHours(12), Period.hours(2));
+        reservationRequest1.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest1.setSpecification(new ResourceSpecification(resourceId));
+        String request1Id = allocate(reservationRequest1);
+        checkAllocated(request1Id);
+
+        ReservationRequest reservationRequest2 = new ReservationRequest();
+        reservationRequest2.setSlot(start.plusHours(13), Period.hours(2));
+        reservationRequest2.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest2.setSpecification(new ResourceSpecification(resourceId));
+        String request2Id = allocate(reservationRequest2);
+        checkAllocationFailed(request2Id);
+        Assert.assertTrue("Committed reservation should be found in memory.", reservationIndex.getHitCount() > 0);
+
+        // Deallocation must make the resource available again
+        getReservationService().deleteReservationRequest(SECURITY_TOKEN, request1Id);
+        runScheduler();
+        getReservationService().updateReservationRequest(SECURITY_TOKEN, request2Id);
+        runScheduler();
+        checkAllocated(request2Id);
+    }
+
+    @Test
+    public void testHistory() throws Exception
+    {
+        ReservationIndex reservationIndex = getCache().getResourceCache().getReservationIndex();
+
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.setAllocatable(true);
+        String resourceId = createResource(resource);
+
+        // Slots before the history must be checked in the database
+        ReservationRequest reservationRequest1 = new ReservationRequest();
+        reservationRequest1.setSlot("2012-01-01T12:00", "PT2H");
+        reservationRequest1.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest1.setSpecification(new ResourceSpecification(resourceId));
+        String request1Id = allocate(reservationRequest1);
+        checkAllocated(request1Id);
+
+        long hitCount = reservationIndex.getHitCount();
+        ReservationRequest reservationRequest2 = new ReservationRequest();
+        reservationRequest2.setSlot("2012-01-01T13:00", "PT2H");
+        reservationRequest2.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest2.setSpecification(new ResourceSpecification(resourceId));
+        String request2Id = allocate(reservationRequest2);
+        checkAllocationFailed(request2Id);
+        Assert.assertEquals(hitCount, reservationIndex.getHitCount());
+    }
+}
@@ -0,0 +1,120 @@
+package cz.cesnet.shongo.controller.domains;
+
+import cz.cesnet.shongo.controller.api.domains.response.ChangeSet;
+import cz.cesnet.shongo.controller.api.domains.response.DomainCapability;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Tests for {@link ChangeLog}.
+ */
+public class ChangeLogTest
+{
+    /**
+     * Test that only changed objects are returned since given sequence number.
+     */
+    @Test
+    public void testChanges()
+    {
+        ChangeLog<DomainCapability> changeLog = createChangeLog(10);
+        List<DomainCapability> resources = new ArrayList<>();
+        resources.add(createResource("1", "first"));
+        resources.add(createResource("2", "second"));
+
+        // Initial refresh returns all objects
+        ChangeSet<DomainCapability> changeSet = changeLog.getChanges(resources, null, null);
+        Assert.assertTrue(changeSet.isFull());
+        Assert.assertEquals(2, changeSet.getItems().size());
+        long epoch = changeSet.getEpoch();
+        long sequence = changeSet.getSequence();
+
+        // Nothing has changed
+        changeSet = changeLog.getChanges(resources, epoch, sequence);
+        Assert.assertTrue(changeSet.isEmpty());
+        Assert.assertEquals(sequence, changeSet.getSequence());
+
+        // Modify, remove and add objects
+        resources.set(0, createResource("1", "first modified"));
+        resources.remove(1);
+        resources.add(createResource("3", "third"));
+        changeSet = changeLog.getChanges(resources, epoch, sequence);
+        Assert.assertFalse(changeSet.isFull());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("1", "3")), getIds(changeSet.getItems()));
+        Assert.assertEquals(Collections.singletonList("2"), changeSet.getRemovedIds());
+        Assert.assertTrue(changeSet.getSequence() > sequence);
+
+        // Object which was modified several times is returned only once
+        sequence = changeSet.getSequence();
+        resources.set(0, createResource("1", "first modified again"));
+        changeLog.getChanges(resources, epoch, sequence);
+        resources.set(0, createResource("1", "first modified once more"));
+        changeSet = changeLog.getChanges(resources, epoch, sequence);
+        Assert.assertEquals(1, changeSet.getItems().size());
+        Assert.assertEquals("first modified once more", changeSet.getItems().get(0).getName());
+    }
+
+    /**
+     * Test that all objects are returned when the sequence number is too old or from different epoch.
+     */
+    @Test
+    public void testFullResync()
+    {
+        ChangeLog<DomainCapability> changeLog = createChangeLog(2);
+        List<DomainCapability> resources = new ArrayList<>();
+        resources.add(createResource("1", "first"));
+        ChangeSet<DomainCapability> changeSet = changeLog.getChanges(resources, null, null);
+        long epoch = changeSet.getEpoch();
+        long sequence = changeSet.getSequence();
+
+        // Different epoch
+        changeSet = changeLog.getChanges(resources, epoch + 1, sequence);
+        Assert.assertTrue(changeSet.isFull());
+        Assert.assertEquals(1, changeSet.getItems().size());
+
+        // More changes than the change log keeps
+        resources.add(createResource("2", "second"));
+        resources.add(createResource("3", "third"));
+        resources.add(createResource("4", "fourth"));
+        changeSet = changeLog.getChanges(resources, epoch, sequence);
+        Assert.assertTrue(changeSet.isFull());
+        Assert.assertEquals(4, changeSet.getItems().size());
+
+        // Recent sequence number still gets only changes
+        sequence = changeSet.getSequence();
+        resources.remove(3);
+        changeSet = changeLog.getChanges(resources, epoch, sequence);
+        Assert.assertFalse(changeSet.isFull());
+        Assert.assertEquals(Collections.singletonList("4"), changeSet.getRemovedIds());
+    }
+
+    private ChangeLog<DomainCapability> createChangeLog(int maxSize)
+    {
+        return new ChangeLog<DomainCapability>(maxSize)
+        {
+            @Override
+            protected String getId(DomainCapability resource)
+            {
+                return resource.getId();
+            }
+        };
+    }
+
+    private DomainCapability createResource(String id, String name)
+    {
+        DomainCapability resource = new DomainCapability();
+        resource.setId(id);
+        resource.setName(name);
+        return resource;
+    }
+
+    private Set<String> getIds(List<DomainCapability> resources)
+    {
+        Set<String> ids = new HashSet<>();
+        for (DomainCapability resource : resources) {
+            ids.add(resource.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,290 @@
+package cz.cesnet.shongo.controller.domains;
+
+import cz.cesnet.shongo.controller.ControllerConfiguration;
+import cz.cesnet.shongo.controller.ForeignDomainConnectException;
+import cz.cesnet.shongo.controller.api.Domain;
+import cz.cesnet.shongo.controller.api.domains.InterDomainAction;
+import cz.cesnet.shongo.controller.api.domains.response.DomainStatus;
+import org.apache.commons.collections4.MultiMap;
+import org.codehaus.jackson.map.ObjectReader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for concurrent requests of {@link DomainsConnector} to several stub domains with different latencies.
+ */
+public class DomainsConnectorTest
+{
+    private static Logger logger = LoggerFactory.getLogger(DomainsConnectorTest.class);
+
+    /**
+     * Timeout for each domain in milliseconds.
+     */
+    private static final int COMMAND_TIMEOUT = 1000;
+
+    /**
+     * Latencies of available stub domains in milliseconds.
+     */
+    private static final int FAST_LATENCY = 50;
+    private static final int MEDIUM_LATENCY = 150;
+    private static final int SLOW_LATENCY = 300;
+
+    /**
+     * Latency of stub domain which does not respond in {@link #COMMAND_TIMEOUT}.
+     */
+    private static final int HANGING_LATENCY = 10000;
+
+    /**
+     * Latencies by domain names (domain without latency is not available).
+     */
+    private final Map<String, Integer> latencies = new LinkedHashMap<>();
+
+    /**
+     * Number of performed requests by domain names.
+     */
+    private final ConcurrentMap<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+
+    private TestDomainsConnector connector;
+
+    @Before
+    public void before() throws Exception
+    {
+        System.setProperty(ControllerConfiguration.INTERDOMAIN_COMMAND_TIMEOUT, "PT" + (COMMAND_TIMEOUT / 1000) + "S");
+        ControllerConfiguration configuration = new ControllerConfiguration();
+        DomainService domainService = new DomainService(null, null, null)
+        {
+            @Override
+            public List<Domain> listForeignDomains()
+            {
+                List<Domain> domains = new ArrayList<>();
+                for (String domainName : latencies.keySet()) {
+                    Domain domain = new Domain();
+                    domain.setId("shongo:" + domainName + ":dom:1");
+                    domain.setName(domainName);
+                    domains.add(domain);
+                }
+                return domains;
+            }
+
+            @Override
+            public Domain getDomain(String domainId)
+            {
+                return new Domain();
+            }
+        };
+        connector = new TestDomainsConnector(configuration, domainService,
+                new DomainAdminNotifier(logger, null, configuration));
+    }
+
+    @After
+    public void after() throws Exception
+    {
+        System.clearProperty(ControllerConfiguration.INTERDOMAIN_COMMAND_TIMEOUT);
+    }
+
+    /**
+     * Test that slow domains do not delay the others more than by {@link #COMMAND_TIMEOUT}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDifferentLatencies() throws Exception
+    {
+        latencies.put("fast", FAST_LATENCY);
+        latencies.put("medium", MEDIUM_LATENCY);
+        latencies.put("slow", SLOW_LATENCY);
+        latencies.put("hanging", HANGING_LATENCY);
+        latencies.put("unavailable", null);
+
+        long start = System.currentTimeMillis();
+        Map<String, Domain.Status> statuses = getForeignDomainsStatuses();
+        long duration = System.currentTimeMillis() - start;
+        logger.info("Statuses of {} domains fetched in {} ms.", statuses.size(), duration);
+
+        Assert.assertEquals(Domain.Status.AVAILABLE, statuses.get("fast"));
+        Assert.assertEquals(Domain.Status.AVAILABLE, statuses.get("medium"));
+        Assert.assertEquals(Domain.Status.AVAILABLE, statuses.get("slow"));
+        Assert.assertEquals(Domain.Status.NOT_AVAILABLE, statuses.get("hanging"));
+        Assert.assertEquals(Domain.Status.NOT_AVAILABLE, statuses.get("unavailable"));
+        Assert.assertTrue(duration >= COMMAND_TIMEOUT);
+        Assert.assertTrue(duration < COMMAND_TIMEOUT + SLOW_LATENCY * 2);
+
+        // Without the hanging domain only the slowest domain should be waited for
+        latencies.remove("hanging");
+        start = System.currentTimeMillis();
+        statuses = getForeignDomainsStatuses();
+        duration = System.currentTimeMillis() - start;
+        Assert.assertEquals(Domain.Status.AVAILABLE, statuses.get("slow"));
+        Assert.assertTrue(duration >= SLOW_LATENCY);
+        Assert.assertTrue(duration < SLOW_LATENCY * 2);
+    }
+
+    /**
+     * Test that requests from several callers are performed concurrently.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentCallers() throws Exception
+    {
+        latencies.put("fast", FAST_LATENCY);
+        latencies.put("medium", MEDIUM_LATENCY);
+        latencies.put("slow", SLOW_LATENCY);
+
+        int callerCount = 4;
+        ExecutorService executorService = Executors.newFixedThreadPool(callerCount);
+        try {
+            long start = System.currentTimeMillis();
+            List<Future<Map<String, Domain.Status>>> results = new ArrayList<>();
+            for (int index = 0; index < callerCount; index++) {
+                results.add(executorService.submit(new Callable<Map<String, Domain.Status>>()
+                {
+                    @Override
+                    public Map<String, Domain.Status> call() throws Exception
+                    {
+                        return getForeignDomainsStatuses();
+                    }
+                }));
+            }
+            for (Future<Map<String, Domain.Status>> result : results) {
+                Assert.assertEquals(Domain.Status.AVAILABLE, result.get().get("slow"));
+            }
+            long duration = System.currentTimeMillis() - start;
+            logger.info("{} concurrent callers have fetched statuses in {} ms.", callerCount, duration);
+
+            // Callers must not be serialized
+            Assert.assertTrue(duration < callerCount * SLOW_LATENCY);
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that repeatedly failing domain is skipped.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCircuitBreaker() throws Exception
+    {
+        latencies.put("fast", FAST_LATENCY);
+        latencies.put("unavailable", null);
+
+        ControllerConfiguration configuration = connector.getConfiguration();
+        int failureThreshold = configuration.getInterDomainCircuitBreakerFailures();
+        for (int index = 0; index < failureThreshold; index++) {
+            Assert.assertFalse(connector.getCircuitBreaker().isOpen("unavailable"));
+            getForeignDomainsStatuses();
+        }
+        Assert.assertTrue(connector.getCircuitBreaker().isOpen("unavailable"));
+        Assert.assertEquals(failureThreshold, requestCounts.get("unavailable").get());
+
+        // Unavailable domain should not be requested anymore
+        Map<String, Domain.Status> statuses = getForeignDomainsStatuses();
+        Assert.assertEquals(Domain.Status.AVAILABLE, statuses.get("fast"));
+        Assert.assertEquals(Domain.Status.NOT_AVAILABLE, statuses.get("unavailable"));
+        Assert.assertEquals(failureThreshold, requestCounts.get("unavailable").get());
+        Assert.assertEquals(failureThreshold + 1, requestCounts.get("fast").get());
+    }
+
+    /**
+     * Test that timed out requests are recorded as failures (once for each request).
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTimeoutRecordedAsFailure() throws Exception
+    {
+        latencies.put("fast", FAST_LATENCY);
+        latencies.put("hanging", HANGING_LATENCY);
+
+        ControllerConfiguration configuration = connector.getConfiguration();
+        int failureThreshold = configuration.getInterDomainCircuitBreakerFailures();
+        for (int index = 0; index < failureThreshold - 1; index++) {
+            getForeignDomainsStatuses();
+        }
+        Assert.assertFalse(connector.getCircuitBreaker().isOpen("hanging"));
+        getForeignDomainsStatuses();
+        Assert.assertTrue(connector.getCircuitBreaker().isOpen("hanging"));
+        Assert.assertFalse(connector.getCircuitBreaker().isOpen("fast"));
+    }
+
+    /**
+     * Test that the timeout is counted since the request has started and not since it has been submitted.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTimeoutSinceStart() throws Exception
+    {
+        // Occupy all request threads by more domains than threads, each request takes more than a half of timeout
+        int threadCount = connector.getConfiguration().getInterDomainThreadCount();
+        for (int index = 0; index < threadCount * 2; index++) {
+            latencies.put("medium" + index, COMMAND_TIMEOUT * 2 / 3);
+        }
+
+        Map<String, Domain.Status> statuses = getForeignDomainsStatuses();
+        for (Map.Entry<String, Domain.Status> entry : statuses.entrySet()) {
+            Assert.assertEquals(entry.getKey(), Domain.Status.AVAILABLE, entry.getValue());
+        }
+    }
+
+    /**
+     * @return map of statuses by domain names
+     */
+    private Map<String, Domain.Status> getForeignDomainsStatuses()
+    {
+        Map<String, Domain.Status> statuses = new HashMap<>();
+        for (Domain domain : connector.getForeignDomainsStatuses()) {
+            statuses.put(domain.getName(), domain.getStatus());
+        }
+        return statuses;
+    }
+
+    /**
+     * {@link DomainsConnector} which simulates requests to domains with {@link #latencies}.
+     */
+    private class TestDomainsConnector extends DomainsConnector
+    {
+        public TestDomainsConnector(ControllerConfiguration configuration, DomainService domainService,
+                DomainAdminNotifier notifier)
+        {
+            super(configuration, domainService, notifier);
+        }
+
+        @Override
+        protected <T> T performRequest(InterDomainAction.HttpMethod method, String action,
+                MultiMap<String, String> parameters, Object data, Domain domain, ObjectReader reader, Class<T> clazz)
+                throws ForeignDomainConnectException
+        {
+            String domainName = domain.getName();
+            AtomicInteger requestCount = requestCounts.get(domainName);
+            if (requestCount == null) {
+                requestCounts.putIfAbsent(domainName, new AtomicInteger());
+                requestCount = requestCounts.get(domainName);
+            }
+            requestCount.incrementAndGet();
+
+            Integer latency = latencies.get(domainName);
+            if (latency == null) {
+                throw new ForeignDomainConnectException(domain, action, "Domain is not available.");
+            }
+            try {
+                Thread.sleep(latency);
+            }
+            catch (InterruptedException exception) {
+                throw new ForeignDomainConnectException(domain, action, exception);
+            }
+            return clazz.cast(new DomainStatus(Domain.Status.AVAILABLE.toString()));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package cz.cesnet.shongo.controller.domains;
+
+import cz.cesnet.shongo.controller.api.domains.response.Reservation;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ForeignReservationStates}.
+ */
+public class ForeignReservationStatesTest
+{
+    private static final Duration POLL_PERIOD = Duration.standardMinutes(5);
+
+    private static final String RESERVATION_REQUEST_ID = "shongo:foreign:req:1";
+
+    private ForeignReservationStates reservationStates;
+
+    private DateTime now;
+
+    @Before
+    public void before() throws Exception
+    {
+        now = DateTime.parse("2015-01-01T12:00");
+        DateTimeUtils.setCurrentMillisFixed(now.getMillis());
+        reservationStates = new ForeignReservationStates(POLL_PERIOD);
+    }
+
+    @After
+    public void after() throws Exception
+    {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    /**
+     * Test that duplicated push (with the same notification identifier) is ignored.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDuplicatedPush() throws Exception
+    {
+        Reservation reservation = createReservation("shongo:foreign:rsv:1");
+        Assert.assertTrue(reservationStates.push("notification", reservation));
+        Assert.assertSame(reservation, reservationStates.get(RESERVATION_REQUEST_ID));
+
+        Assert.assertFalse(reservationStates.push("notification", createReservation("shongo:foreign:rsv:2")));
+        Assert.assertSame(reservation, reservationStates.get(RESERVATION_REQUEST_ID));
+
+        // Other notification for the same reservation request should be stored
+        Reservation newReservation = createReservation("shongo:foreign:rsv:3");
+        Assert.assertTrue(reservationStates.push("notification2", newReservation));
+        Assert.assertSame(newReservation, reservationStates.get(RESERVATION_REQUEST_ID));
+    }
+
+    /**
+     * Test that state which hasn't been pushed is polled only once per poll period.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPollPeriod() throws Exception
+    {
+        // Never polled state should be polled
+        Assert.assertTrue(reservationStates.isChanged(RESERVATION_REQUEST_ID));
+
+        reservationStates.setPolled(RESERVATION_REQUEST_ID);
+        Assert.assertFalse(reservationStates.isChanged(RESERVATION_REQUEST_ID));
+
+        setNow(now.plus(POLL_PERIOD).minusSeconds(1));
+        Assert.assertFalse(reservationStates.isChanged(RESERVATION_REQUEST_ID));
+
+        setNow(now.plusSeconds(1));
+        Assert.assertTrue(reservationStates.isChanged(RESERVATION_REQUEST_ID));
+
+        // Pushed state should be processed immediately
+        reservationStates.setPolled(RESERVATION_REQUEST_ID);
+        Assert.assertFalse(reservationStates.isChanged(RESERVATION_REQUEST_ID));
+        reservationStates.push("notification", createReservation("shongo:foreign:rsv:1"));
+        Assert.assertTrue(reservationStates.isChanged(RESERVATION_REQUEST_ID));
+    }
+
+    /**
+     * @param dateTime to be used as current date/time
+     */
+    private void setNow(DateTime dateTime)
+    {
+        now = dateTime;
+        DateTimeUtils.setCurrentMillisFixed(now.getMillis());
+    }
+
+    /**
+     * @param foreignReservationId
+     * @return new pushed state of {@link #RESERVATION_REQUEST_ID}
+     */
+    private Reservation createReservation(String foreignReservationId)
+    {
+        Reservation reservation = new Reservation();
+        reservation.setForeignReservationRequestId(RESERVATION_REQUEST_ID);
+        reservation.setForeignReservationId(foreignReservationId);
+        return reservation;
+    }
+}
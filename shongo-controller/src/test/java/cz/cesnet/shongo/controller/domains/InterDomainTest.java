@@ -7,6 +7,7 @@ import cz.cesnet.shongo.controller.api.*;
 import cz.cesnet.shongo.controller.api.DomainResource;
 import cz.cesnet.shongo.controller.api.domains.request.CapabilitySpecificationRequest;
 import cz.cesnet.shongo.controller.api.domains.response.*;
+import cz.cesnet.shongo.controller.api.domains.response.Reservation;
 import cz.cesnet.shongo.controller.api.request.DomainCapabilityListRequest;
 import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
 import cz.cesnet.shongo.ssl.SSLCommunication;
@@ -363,6 +364,48 @@ public class InterDomainTest extends AbstractControllerTest
         Assert.assertEquals(tcsId, capabilities.get(0).getId());
     }
 
+    /**
+     * Test of pushing reservation states (duplicated pushes are ignored and states of reservation requests which
+     * don't belong to the pushing domain are rejected).
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPushReservationState() throws Exception
+    {
+        String reservationRequestId = ObjectIdentifier.formatId(ObjectType.RESERVATION_REQUEST, 1L);
+        Reservation reservation = new Reservation();
+        reservation.setForeignReservationRequestId(reservationRequestId);
+        reservation.setForeignReservationId(ObjectIdentifier.formatId(ObjectType.RESERVATION, 1L));
+        getConnector().notifyReservationState(loopbackDomain, "notification", reservation);
+        ForeignReservationStates reservationStates = getConnector().getReservationStates();
+        Assert.assertEquals(reservation.getForeignReservationId(),
+                reservationStates.get(reservationRequestId).getForeignReservationId());
+        Assert.assertTrue(reservationStates.isChanged(reservationRequestId));
+
+        // Duplicated push (retried by the foreign domain) should be accepted but ignored
+        Reservation duplicateReservation = new Reservation();
+        duplicateReservation.setForeignReservationRequestId(reservationRequestId);
+        duplicateReservation.setForeignReservationId(ObjectIdentifier.formatId(ObjectType.RESERVATION, 2L));
+        getConnector().notifyReservationState(loopbackDomain, "notification", duplicateReservation);
+        Assert.assertEquals(reservation.getForeignReservationId(),
+                reservationStates.get(reservationRequestId).getForeignReservationId());
+
+        // Reservation request of other domain should be rejected (403)
+        String foreignReservationRequestId = ObjectIdentifier.formatId(
+                "other." + LocalDomain.getLocalDomainName(), ObjectType.RESERVATION_REQUEST, 1L);
+        Reservation foreignReservation = new Reservation();
+        foreignReservation.setForeignReservationRequestId(foreignReservationRequestId);
+        try {
+            getConnector().notifyReservationState(loopbackDomain, "notification2", foreignReservation);
+            Assert.fail("Push of reservation state of other domain should be rejected.");
+        }
+        catch (ForeignDomainConnectException exception) {
+            // Expected
+        }
+        Assert.assertNull(reservationStates.get(foreignReservationRequestId));
+    }
+
     /**
      * Test of reservation serialization
      * @throws Exception
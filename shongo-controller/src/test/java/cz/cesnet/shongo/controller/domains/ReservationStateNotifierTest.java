@@ -0,0 +1,149 @@
+package cz.cesnet.shongo.controller.domains;
+
+import cz.cesnet.shongo.controller.ControllerConfiguration;
+import cz.cesnet.shongo.controller.ForeignDomainConnectException;
+import cz.cesnet.shongo.controller.api.Domain;
+import cz.cesnet.shongo.controller.api.domains.InterDomainAction;
+import cz.cesnet.shongo.controller.api.domains.response.Reservation;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for retrying of pushes by {@link ReservationStateNotifier}.
+ */
+public class ReservationStateNotifierTest
+{
+    private static Logger logger = LoggerFactory.getLogger(ReservationStateNotifierTest.class);
+
+    /**
+     * Delay in milliseconds before the first retry.
+     */
+    private static final long RETRY_DELAY = 20;
+
+    /**
+     * Number of failing pushes before the push succeeds (all pushes fail when it is greater than
+     * {@link ReservationStateNotifier#MAX_ATTEMPTS}).
+     */
+    private int failureCount;
+
+    /**
+     * Times of performed pushes in milliseconds.
+     */
+    private final List<Long> pushTimes = new ArrayList<>();
+
+    /**
+     * Count of performed pushes.
+     */
+    private CountDownLatch pushLatch;
+
+    private ReservationStateNotifier notifier;
+
+    private Domain domain;
+
+    @Before
+    public void before() throws Exception
+    {
+        ControllerConfiguration configuration = new ControllerConfiguration();
+        DomainService domainService = new DomainService(null, null, null);
+        DomainsConnector connector = new TestDomainsConnector(configuration, domainService,
+                new DomainAdminNotifier(logger, null, configuration));
+        notifier = new ReservationStateNotifier(null, domainService, connector);
+        notifier.setRetryDelay(RETRY_DELAY);
+
+        domain = new Domain();
+        domain.setId("shongo:foreign:dom:1");
+        domain.setName("foreign");
+    }
+
+    /**
+     * Test that failing push is retried with exponential backoff at most
+     * {@link ReservationStateNotifier#MAX_ATTEMPTS} times.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRetryWithBackoff() throws Exception
+    {
+        failureCount = Integer.MAX_VALUE;
+        pushLatch = new CountDownLatch(ReservationStateNotifier.MAX_ATTEMPTS);
+        notifier.push(domain, "notification", createReservation(), 1);
+        Assert.assertTrue(pushLatch.await(10, TimeUnit.SECONDS));
+
+        // No more attempts should be performed (the next one would be delayed by 16 * RETRY_DELAY)
+        Thread.sleep(RETRY_DELAY << ReservationStateNotifier.MAX_ATTEMPTS);
+        synchronized (pushTimes) {
+            Assert.assertEquals(ReservationStateNotifier.MAX_ATTEMPTS, pushTimes.size());
+            for (int attempt = 2; attempt <= pushTimes.size(); attempt++) {
+                long delay = pushTimes.get(attempt - 1) - pushTimes.get(attempt - 2);
+                Assert.assertTrue("Retry " + attempt + " was delayed only by " + delay + " ms.",
+                        delay >= RETRY_DELAY << (attempt - 2));
+            }
+        }
+    }
+
+    /**
+     * Test that successful push isn't retried.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRetryUntilSuccess() throws Exception
+    {
+        failureCount = 2;
+        pushLatch = new CountDownLatch(failureCount + 1);
+        notifier.push(domain, "notification", createReservation(), 1);
+        Assert.assertTrue(pushLatch.await(10, TimeUnit.SECONDS));
+
+        Thread.sleep(RETRY_DELAY << ReservationStateNotifier.MAX_ATTEMPTS);
+        synchronized (pushTimes) {
+            Assert.assertEquals(failureCount + 1, pushTimes.size());
+        }
+    }
+
+    /**
+     * @return new {@link Reservation} to be pushed
+     */
+    private Reservation createReservation()
+    {
+        Reservation reservation = new Reservation();
+        reservation.setForeignReservationRequestId("shongo:local:req:1");
+        return reservation;
+    }
+
+    /**
+     * {@link DomainsConnector} which records pushes instead of performing them and fails first
+     * {@link #failureCount} of them.
+     */
+    private class TestDomainsConnector extends DomainsConnector
+    {
+        public TestDomainsConnector(ControllerConfiguration configuration, DomainService domainService,
+                DomainAdminNotifier notifier)
+        {
+            super(configuration, domainService, notifier);
+        }
+
+        @Override
+        public void notifyReservationState(Domain domain, String notificationId, Reservation reservation)
+                throws ForeignDomainConnectException
+        {
+            int pushCount;
+            synchronized (pushTimes) {
+                pushTimes.add(System.currentTimeMillis());
+                pushCount = pushTimes.size();
+            }
+            pushLatch.countDown();
+            if (pushCount <= failureCount) {
+                throw new ForeignDomainConnectException(domain, InterDomainAction.DOMAIN_RESERVATION_STATE,
+                        "Domain is not available.");
+            }
+        }
+    }
+}
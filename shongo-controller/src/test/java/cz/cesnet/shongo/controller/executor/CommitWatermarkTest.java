@@ -0,0 +1,354 @@
+package cz.cesnet.shongo.controller.executor;
+
+import cz.cesnet.shongo.ParticipantRole;
+import cz.cesnet.shongo.Technology;
+import cz.cesnet.shongo.api.jade.Command;
+import cz.cesnet.shongo.api.jade.CommandException;
+import cz.cesnet.shongo.connector.api.jade.multipoint.CreateRoom;
+import cz.cesnet.shongo.controller.AbstractExecutorTest;
+import cz.cesnet.shongo.controller.CommitWatermark;
+import cz.cesnet.shongo.controller.ReservationRequestPurpose;
+import cz.cesnet.shongo.controller.api.*;
+import jade.core.AID;
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests for coordination of {@link cz.cesnet.shongo.controller.scheduler.Scheduler} and {@link Executor}
+ * by {@link CommitWatermark}.
+ */
+public class CommitWatermarkTest extends AbstractExecutorTest
+{
+    /**
+     * Test that {@link Executor} doesn't load executables while a commit is active.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExecutorWaitsForCommit() throws Exception
+    {
+        final AtomicBoolean executed = new AtomicBoolean();
+        Thread executorThread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                getExecutor().execute(DateTime.parse("2012-01-01T12:00"));
+                executed.set(true);
+            }
+        };
+        CommitWatermark.beginCommit();
+        try {
+            executorThread.start();
+            executorThread.join(500);
+            Assert.assertFalse("Executor should wait for the commit.", executed.get());
+        }
+        finally {
+            CommitWatermark.endCommit();
+        }
+        executorThread.join();
+        Assert.assertTrue("Executor should be done when the commit ends.", executed.get());
+    }
+
+    /**
+     * Test that no room is started before ACL entries for it are created when the {@link Executor} runs
+     * concurrently with the {@link cz.cesnet.shongo.controller.scheduler.Scheduler}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentSchedulerAndExecutor() throws Exception
+    {
+        CheckingMcuTestAgent mcuAgent = getController().addJadeAgent("mcu", new CheckingMcuTestAgent());
+
+        final DateTime dateTime = DateTime.parse("2012-01-01T12:00");
+        final int roomCount = 20;
+
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(roomCount * 5));
+        mcu.setAllocatable(true);
+        mcu.setMode(new ManagedMode(mcuAgent.getName()));
+        createResource(mcu);
+
+        for (int index = 0; index < roomCount; index++) {
+            ReservationRequest reservationRequest = new ReservationRequest();
+            reservationRequest.setSlot(dateTime, Period.parse("PT2H"));
+            reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+            reservationRequest.setSpecification(new RoomSpecification(5, Technology.H323));
+            getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest);
+        }
+
+        // Run executor repeatedly while the scheduler is allocating (readers must not block writers as in production)
+        setTransactionControl("MVCC");
+        final AtomicBoolean schedulerRunning = new AtomicBoolean(true);
+        Thread executorThread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                while (schedulerRunning.get()) {
+                    getExecutor().execute(dateTime);
+                }
+            }
+        };
+        executorThread.start();
+        try {
+            runScheduler();
+        }
+        finally {
+            schedulerRunning.set(false);
+            executorThread.join();
+            setTransactionControl("LOCKS");
+        }
+        getExecutor().execute(dateTime);
+
+        Assert.assertEquals(roomCount, mcuAgent.getCreatedRoomCount());
+        Assert.assertEquals("All rooms should be started with owners as administrators.",
+                new ArrayList<String>(), mcuAgent.getRoomsWithoutAdministrator());
+    }
+
+    /**
+     * Test that the {@link cz.cesnet.shongo.controller.scheduler.Scheduler} doesn't delete an executable which is
+     * being started by the {@link Executor} (the reservation of which has been deleted in the meantime).
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSchedulerDoesNotDeleteExecutingExecutable() throws Exception
+    {
+        BlockingMcuTestAgent mcuAgent = getController().addJadeAgent("mcu", new BlockingMcuTestAgent());
+
+        final DateTime dateTime = DateTime.parse("2012-01-01T12:00");
+
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(10));
+        mcu.setAllocatable(true);
+        mcu.setMode(new ManagedMode(mcuAgent.getName()));
+        createResource(mcu);
+
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot(dateTime, Period.parse("PT2H"));
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(new RoomSpecification(5, Technology.H323));
+        String reservationRequestId = allocate(reservationRequest);
+        String roomExecutableId = checkAllocated(reservationRequestId).getExecutable().getId();
+
+        // Start the room and block the executor while the room is being created
+        final AtomicBoolean executed = new AtomicBoolean();
+        Thread executorThread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                getExecutor().execute(dateTime);
+                executed.set(true);
+            }
+        };
+        executorThread.start();
+        try {
+            Assert.assertTrue("Room should be being created.", mcuAgent.awaitCreateRoom());
+
+            // Delete the reservation of the room executable which is being executed
+            getReservationService().deleteReservationRequest(SECURITY_TOKEN, reservationRequestId);
+            runScheduler();
+            Assert.assertNotNull("Executing room shouldn't be deleted.",
+                    getExecutable(roomExecutableId, RoomExecutable.class));
+        }
+        finally {
+            mcuAgent.releaseCreateRoom();
+            executorThread.join();
+        }
+        Assert.assertTrue("Executor should be done.", executed.get());
+        Assert.assertEquals("Room should be started.", ExecutableState.STARTED,
+                getExecutable(roomExecutableId, RoomExecutable.class).getState());
+    }
+
+    /**
+     * Test that the {@link cz.cesnet.shongo.controller.scheduler.Scheduler} doesn't overwrite an executable which is
+     * being started by the {@link Executor} (the reservation request of which has been modified in the meantime).
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSchedulerDoesNotModifyExecutingExecutable() throws Exception
+    {
+        BlockingMcuTestAgent mcuAgent = getController().addJadeAgent("mcu", new BlockingMcuTestAgent());
+
+        final DateTime dateTime = DateTime.parse("2012-01-01T12:00");
+
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(10));
+        mcu.setAllocatable(true);
+        mcu.setMode(new ManagedMode(mcuAgent.getName()));
+        createResource(mcu);
+
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot(dateTime, Period.parse("PT2H"));
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(new RoomSpecification(5, Technology.H323));
+        String reservationRequestId = allocate(reservationRequest);
+        String roomExecutableId = checkAllocated(reservationRequestId).getExecutable().getId();
+
+        // Start the room and block the executor while the room is being created
+        final AtomicBoolean executed = new AtomicBoolean();
+        Thread executorThread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                getExecutor().execute(dateTime);
+                executed.set(true);
+            }
+        };
+        executorThread.start();
+        try {
+            Assert.assertTrue("Room should be being created.", mcuAgent.awaitCreateRoom());
+
+            // Modify the reservation request of the room executable which is being executed
+            reservationRequest = getReservationRequest(reservationRequestId, ReservationRequest.class);
+            reservationRequest.setSlot(dateTime, Period.parse("PT3H"));
+            reservationRequestId = getReservationService().modifyReservationRequest(SECURITY_TOKEN,
+                    reservationRequest);
+            Assert.assertEquals("Allocation should be postponed.", 1, runScheduler().getPostponedReservationRequests());
+        }
+        finally {
+            mcuAgent.releaseCreateRoom();
+            executorThread.join();
+        }
+        Assert.assertTrue("Executor should be done.", executed.get());
+        Assert.assertEquals("Room should be started.", ExecutableState.STARTED,
+                getExecutable(roomExecutableId, RoomExecutable.class).getState());
+
+        // The modification is allocated when the room isn't being executed
+        runScheduler();
+        checkAllocated(reservationRequestId);
+        RoomExecutable roomExecutable = getExecutable(roomExecutableId, RoomExecutable.class);
+        Assert.assertEquals("Room should stay started.", ExecutableState.STARTED, roomExecutable.getState());
+        Assert.assertEquals(dateTime.plusHours(3), roomExecutable.getSlot().getEnd());
+    }
+
+    /**
+     * @param transactionControl to be set to the testing database
+     */
+    private void setTransactionControl(String transactionControl)
+    {
+        EntityManager entityManager = createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            entityManager.createNativeQuery("SET DATABASE TRANSACTION CONTROL " + transactionControl).executeUpdate();
+            entityManager.getTransaction().commit();
+        }
+        finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * {@link McuTestAgent} which checks that rooms are created with administrators
+     * (which are filled from ACL entries of room executables).
+     */
+    public class CheckingMcuTestAgent extends McuTestAgent
+    {
+        /**
+         * Number of created rooms.
+         */
+        private int createdRoomCount = 0;
+
+        /**
+         * Descriptions of rooms which were created without any administrator.
+         */
+        private List<String> roomsWithoutAdministrator = new ArrayList<String>();
+
+        /**
+         * @return {@link #createdRoomCount}
+         */
+        public synchronized int getCreatedRoomCount()
+        {
+            return createdRoomCount;
+        }
+
+        /**
+         * @return {@link #roomsWithoutAdministrator}
+         */
+        public synchronized List<String> getRoomsWithoutAdministrator()
+        {
+            return roomsWithoutAdministrator;
+        }
+
+        @Override
+        public synchronized Object handleCommand(Command command, AID sender) throws CommandException
+        {
+            if (command instanceof CreateRoom) {
+                CreateRoom createRoom = (CreateRoom) command;
+                createdRoomCount++;
+                if (!createRoom.getRoom().hasParticipantWithRole(ParticipantRole.ADMINISTRATOR)) {
+                    roomsWithoutAdministrator.add(createRoom.getRoom().getDescription());
+                }
+            }
+            return super.handleCommand(command, sender);
+        }
+    }
+
+    /**
+     * {@link McuTestAgent} which blocks creation of rooms until {@link #releaseCreateRoom()} is called.
+     */
+    public class BlockingMcuTestAgent extends McuTestAgent
+    {
+        /**
+         * Counted down when a room is being created.
+         */
+        private final CountDownLatch createRoomStarted = new CountDownLatch(1);
+
+        /**
+         * Counted down when room creation can continue.
+         */
+        private final CountDownLatch createRoomReleased = new CountDownLatch(1);
+
+        /**
+         * @return true whether a room is being created, false when no room is being created in 10 seconds
+         * @throws InterruptedException
+         */
+        public boolean awaitCreateRoom() throws InterruptedException
+        {
+            return createRoomStarted.await(10, TimeUnit.SECONDS);
+        }
+
+        /**
+         * Let blocked room creation continue.
+         */
+        public void releaseCreateRoom()
+        {
+            createRoomReleased.countDown();
+        }
+
+        @Override
+        public Object handleCommand(Command command, AID sender) throws CommandException
+        {
+            if (command instanceof CreateRoom) {
+                createRoomStarted.countDown();
+                try {
+                    createRoomReleased.await();
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.handleCommand(command, sender);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package cz.cesnet.shongo.controller.executor;
+
+import cz.cesnet.shongo.controller.booking.executable.ExecutableManager;
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link ExecutionActionPool}.
+ */
+public class ExecutionActionPoolTest
+{
+    /**
+     * Test that limits for concurrently performed actions are kept.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLimits() throws Exception
+    {
+        ExecutionActionPool executionActionPool = new ExecutionActionPool(6, 2);
+        try {
+            Counter counter = new Counter();
+            ExecutionPlan executionPlan = new ExecutionPlan(null);
+            for (int index = 0; index < 40; index++) {
+                executionPlan.addExecutionAction(new TestExecutionAction((long) (index % 4), counter));
+            }
+            executionPlan.build();
+            executionActionPool.perform(executionPlan);
+
+            Assert.assertTrue(executionPlan.isEmpty());
+            Assert.assertEquals(40, executionPlan.getCompletedActionCount());
+            Assert.assertEquals(40, executionActionPool.getPerformedActionCount());
+            Assert.assertEquals(0, executionActionPool.getQueueDepth());
+            Assert.assertTrue(executionActionPool.getMaxQueueDepth() > 0);
+            Assert.assertTrue(counter.maxRunningCount.get() <= 6);
+            for (AtomicInteger maxDeviceRunningCount : counter.maxRunningCountByDevice.values()) {
+                Assert.assertTrue(maxDeviceRunningCount.get() <= 2);
+            }
+        }
+        finally {
+            executionActionPool.destroy();
+        }
+    }
+
+    /**
+     * Test that dependent actions are performed after the actions they depend on.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDependencies() throws Exception
+    {
+        ExecutionActionPool executionActionPool = new ExecutionActionPool(4, 0);
+        try {
+            Counter counter = new Counter();
+            ExecutionPlan executionPlan = new ExecutionPlan(null);
+            List<TestExecutionAction> executionActions = new ArrayList<TestExecutionAction>();
+            TestExecutionAction previousExecutionAction = null;
+            for (int index = 0; index < 10; index++) {
+                TestExecutionAction executionAction = new TestExecutionAction(null, counter);
+                executionAction.dependency = previousExecutionAction;
+                executionPlan.addExecutionAction(executionAction);
+                executionActions.add(executionAction);
+                previousExecutionAction = executionAction;
+            }
+            executionPlan.build();
+            executionActionPool.perform(executionPlan);
+
+            Assert.assertTrue(executionPlan.isEmpty());
+            Assert.assertEquals(1, counter.maxRunningCount.get());
+            for (TestExecutionAction executionAction : executionActions) {
+                if (executionAction.dependency != null) {
+                    Assert.assertTrue(executionAction.order > executionAction.dependency.order);
+                }
+            }
+        }
+        finally {
+            executionActionPool.destroy();
+        }
+    }
+
+    /**
+     * Test that limits for concurrently performed actions are kept across concurrently performed plans.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentPlans() throws Exception
+    {
+        final ExecutionActionPool executionActionPool = new ExecutionActionPool(3, 1);
+        try {
+            Counter counter = new Counter();
+            final List<ExecutionPlan> executionPlans = new ArrayList<ExecutionPlan>();
+            for (int planIndex = 0; planIndex < 4; planIndex++) {
+                ExecutionPlan executionPlan = new ExecutionPlan(null);
+                for (int index = 0; index < 10; index++) {
+                    executionPlan.addExecutionAction(new TestExecutionAction((long) (index % 2), counter));
+                }
+                executionPlan.build();
+                executionPlans.add(executionPlan);
+            }
+            List<Thread> threads = new ArrayList<Thread>();
+            for (final ExecutionPlan executionPlan : executionPlans) {
+                Thread thread = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try {
+                            executionActionPool.perform(executionPlan);
+                        }
+                        catch (InterruptedException exception) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                };
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            for (ExecutionPlan executionPlan : executionPlans) {
+                Assert.assertTrue(executionPlan.isEmpty());
+            }
+            Assert.assertEquals(40, executionActionPool.getPerformedActionCount());
+            Assert.assertEquals(0, executionActionPool.getQueueDepth());
+            Assert.assertTrue(counter.maxRunningCount.get() <= 2);
+            for (AtomicInteger maxDeviceRunningCount : counter.maxRunningCountByDevice.values()) {
+                Assert.assertEquals(1, maxDeviceRunningCount.get());
+            }
+        }
+        finally {
+            executionActionPool.destroy();
+        }
+    }
+
+    /**
+     * Counters of concurrently performed {@link TestExecutionAction}s.
+     */
+    private static class Counter
+    {
+        private final AtomicInteger order = new AtomicInteger();
+
+        private final AtomicInteger runningCount = new AtomicInteger();
+
+        private final AtomicInteger maxRunningCount = new AtomicInteger();
+
+        private final Map<Long, AtomicInteger> runningCountByDevice = new ConcurrentHashMap<Long, AtomicInteger>();
+
+        private final Map<Long, AtomicInteger> maxRunningCountByDevice = new ConcurrentHashMap<Long, AtomicInteger>();
+
+        private synchronized AtomicInteger get(Map<Long, AtomicInteger> map, Long deviceResourceId)
+        {
+            AtomicInteger value = map.get(deviceResourceId);
+            if (value == null) {
+                value = new AtomicInteger();
+                map.put(deviceResourceId, value);
+            }
+            return value;
+        }
+
+        private static void updateMax(AtomicInteger max, int value)
+        {
+            int current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            }
+        }
+    }
+
+    /**
+     * {@link ExecutionAction} which only simulates performing for device with {@link #target} identifier.
+     */
+    private static class TestExecutionAction extends ExecutionAction<Long>
+    {
+        private final Counter counter;
+
+        private TestExecutionAction dependency;
+
+        private int order;
+
+        public TestExecutionAction(Long deviceResourceId, Counter counter)
+        {
+            super(deviceResourceId);
+            this.counter = counter;
+        }
+
+        @Override
+        public Long getDeviceResourceId()
+        {
+            return target;
+        }
+
+        @Override
+        public void buildDependencies()
+        {
+            if (dependency != null) {
+                createDependency(this, dependency);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                Counter.updateMax(counter.maxRunningCount, counter.runningCount.incrementAndGet());
+                AtomicInteger deviceRunningCount = null;
+                if (target != null) {
+                    deviceRunningCount = counter.get(counter.runningCountByDevice, target);
+                    Counter.updateMax(counter.get(counter.maxRunningCountByDevice, target),
+                            deviceRunningCount.incrementAndGet());
+                }
+                order = counter.order.incrementAndGet();
+                Thread.sleep(10);
+                if (deviceRunningCount != null) {
+                    deviceRunningCount.decrementAndGet();
+                }
+                counter.runningCount.decrementAndGet();
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            finally {
+                executionPlan.removeExecutionAction(this);
+            }
+        }
+
+        @Override
+        protected void perform(ExecutableManager executableManager)
+        {
+        }
+
+        @Override
+        public boolean finish(EntityManager entityManager, DateTime referenceDateTime,
+                ExecutionResult executionResult)
+        {
+            return true;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("Test [dev:%d]", target);
+        }
+    }
+}
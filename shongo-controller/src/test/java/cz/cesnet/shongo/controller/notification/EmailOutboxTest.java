@@ -0,0 +1,132 @@
+package cz.cesnet.shongo.controller.notification;
+
+import cz.cesnet.shongo.controller.AbstractControllerTest;
+import cz.cesnet.shongo.controller.ControllerConfiguration;
+import cz.cesnet.shongo.controller.EmailSender;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * Tests for {@link EmailOutbox} (with {@link FakeSmtpServer}).
+ */
+public class EmailOutboxTest extends AbstractControllerTest
+{
+    /**
+     * Test that enqueued emails are sent in batches through single connection and that failed emails are retried.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSend() throws Exception
+    {
+        FakeSmtpServer smtpServer = new FakeSmtpServer();
+        try {
+            EmailOutbox emailOutbox = new EmailOutbox(smtpServer.createEmailSender("shongo@test.cz"));
+            emailOutbox.setEntityManagerFactory(getEntityManagerFactory());
+            emailOutbox.init(getConfiguration());
+
+            // Enqueue emails (more than the batch size)
+            int batchSize = getConfiguration().getInt(ControllerConfiguration.SMTP_OUTBOX_BATCH_SIZE);
+            int emailCount = batchSize + 5;
+            EmailOutboxMessage rejectedMessage;
+            EntityManager entityManager = createEntityManager();
+            try {
+                entityManager.getTransaction().begin();
+                for (int index = 0; index < emailCount; index++) {
+                    emailOutbox.enqueue(new EmailSender.Email("user@test.cz", "Test " + index, "content"),
+                            entityManager);
+                }
+                rejectedMessage = emailOutbox.enqueue(new EmailSender.Email(
+                        FakeSmtpServer.REJECTED_RECIPIENT_PREFIX + "@test.cz", "Rejected", "content"), entityManager);
+                entityManager.getTransaction().commit();
+            }
+            finally {
+                entityManager.close();
+            }
+
+            // All emails except the rejected are sent by single connection
+            DateTime dateTime = DateTime.now();
+            Assert.assertEquals(emailCount, emailOutbox.send(dateTime));
+            Assert.assertEquals(1, smtpServer.getConnectionCount());
+            List<String> messages = smtpServer.getMessages();
+            Assert.assertEquals(emailCount, messages.size());
+            Assert.assertTrue(messages.get(0).contains("Subject: Test 0"));
+            Assert.assertEquals(emailCount, getMessages(EmailOutboxMessage.State.SENT).size());
+
+            // Rejected email is retried with backoff
+            Duration retryDelay = getConfiguration().getDuration(ControllerConfiguration.SMTP_OUTBOX_RETRY_DELAY);
+            rejectedMessage = getMessage(rejectedMessage.getId());
+            Assert.assertEquals(EmailOutboxMessage.State.PENDING, rejectedMessage.getState());
+            Assert.assertEquals(1, rejectedMessage.getAttemptCount());
+            Assert.assertNotNull(rejectedMessage.getLastError());
+            Assert.assertEquals(dateTime.plus(retryDelay).getMillis(), rejectedMessage.getNextAttemptAt().getMillis());
+            Assert.assertEquals(0, emailOutbox.send(dateTime));
+            Assert.assertEquals(1, smtpServer.getConnectionCount());
+            dateTime = rejectedMessage.getNextAttemptAt();
+            Assert.assertEquals(0, emailOutbox.send(dateTime));
+            rejectedMessage = getMessage(rejectedMessage.getId());
+            Assert.assertEquals(2, rejectedMessage.getAttemptCount());
+            Assert.assertEquals(dateTime.plus(retryDelay.getMillis() * 2).getMillis(),
+                    rejectedMessage.getNextAttemptAt().getMillis());
+
+            // Rejected email fails after maximum number of attempts
+            int maxAttemptCount = getConfiguration().getInt(ControllerConfiguration.SMTP_OUTBOX_MAX_ATTEMPT_COUNT);
+            getController().setThrowInternalErrorsForTesting(false);
+            try {
+                for (int attempt = 2; attempt < maxAttemptCount; attempt++) {
+                    emailOutbox.send(getMessage(rejectedMessage.getId()).getNextAttemptAt());
+                }
+            }
+            finally {
+                getController().setThrowInternalErrorsForTesting(true);
+            }
+            rejectedMessage = getMessage(rejectedMessage.getId());
+            Assert.assertEquals(EmailOutboxMessage.State.FAILED, rejectedMessage.getState());
+            Assert.assertEquals(maxAttemptCount, rejectedMessage.getAttemptCount());
+            Assert.assertNull(rejectedMessage.getNextAttemptAt());
+            Assert.assertEquals(emailCount, emailOutbox.getSentCount());
+            Assert.assertEquals(maxAttemptCount, emailOutbox.getFailedAttemptCount());
+        }
+        finally {
+            smtpServer.stop();
+        }
+    }
+
+    /**
+     * @param id
+     * @return {@link EmailOutboxMessage} with given {@code id}
+     */
+    private EmailOutboxMessage getMessage(Long id)
+    {
+        EntityManager entityManager = createEntityManager();
+        try {
+            return entityManager.find(EmailOutboxMessage.class, id);
+        }
+        finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * @param state
+     * @return list of {@link EmailOutboxMessage}s in given {@code state}
+     */
+    private List<EmailOutboxMessage> getMessages(EmailOutboxMessage.State state)
+    {
+        EntityManager entityManager = createEntityManager();
+        try {
+            return entityManager.createQuery("SELECT message FROM EmailOutboxMessage message"
+                    + " WHERE message.state = :state", EmailOutboxMessage.class)
+                    .setParameter("state", state)
+                    .getResultList();
+        }
+        finally {
+            entityManager.close();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package cz.cesnet.shongo.controller.notification;
+
+import cz.cesnet.shongo.controller.EmailSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.mail.Session;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Minimal local SMTP server for testing of sending emails. It accepts all messages except those for recipients
+ * which start by {@link #REJECTED_RECIPIENT_PREFIX}.
+ */
+public class FakeSmtpServer implements Runnable
+{
+    private static Logger logger = LoggerFactory.getLogger(FakeSmtpServer.class);
+
+    /**
+     * Recipients starting with this prefix are rejected.
+     */
+    public static final String REJECTED_RECIPIENT_PREFIX = "rejected";
+
+    /**
+     * Listening socket.
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * Thread accepting connections.
+     */
+    private final Thread thread;
+
+    /**
+     * Number of accepted connections.
+     */
+    private int connectionCount = 0;
+
+    /**
+     * Received messages (whole DATA).
+     */
+    private final List<String> messages = new ArrayList<String>();
+
+    /**
+     * Constructor which starts the server on a free local port.
+     *
+     * @throws IOException
+     */
+    public FakeSmtpServer() throws IOException
+    {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("localhost"));
+        thread = new Thread(this, "fake-smtp-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return port on which the server listens
+     */
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @param sender email address of the sender
+     * @return new {@link EmailSender} which sends emails to this server
+     */
+    public EmailSender createEmailSender(String sender)
+    {
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.host", "localhost");
+        properties.setProperty("mail.smtp.port", String.valueOf(getPort()));
+        return new EmailSender(sender, null, Session.getInstance(properties));
+    }
+
+    /**
+     * @return {@link #connectionCount}
+     */
+    public synchronized int getConnectionCount()
+    {
+        return connectionCount;
+    }
+
+    /**
+     * @return copy of {@link #messages}
+     */
+    public synchronized List<String> getMessages()
+    {
+        return new ArrayList<String>(messages);
+    }
+
+    /**
+     * Stop the server.
+     *
+     * @throws Exception
+     */
+    public void stop() throws Exception
+    {
+        serverSocket.close();
+        thread.join();
+    }
+
+    @Override
+    public void run()
+    {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                synchronized (this) {
+                    connectionCount++;
+                }
+                try {
+                    handleConnection(socket);
+                }
+                finally {
+                    socket.close();
+                }
+            }
+            catch (SocketException exception) {
+                // Server socket has been closed
+            }
+            catch (IOException exception) {
+                logger.warn("Fake SMTP connection failed.", exception);
+            }
+        }
+    }
+
+    /**
+     * Handle single SMTP session.
+     *
+     * @param socket
+     * @throws IOException
+     */
+    private void handleConnection(Socket socket) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+        Writer writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+        reply(writer, "220 localhost fake SMTP");
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String command = line.toUpperCase();
+            if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+                reply(writer, "250 localhost");
+            }
+            else if (command.startsWith("RCPT TO:")) {
+                String recipient = line.substring("RCPT TO:".length()).trim().replaceAll("[<>]", "");
+                if (recipient.startsWith(REJECTED_RECIPIENT_PREFIX)) {
+                    reply(writer, "550 Mailbox unavailable");
+                }
+                else {
+                    reply(writer, "250 OK");
+                }
+            }
+            else if (command.startsWith("DATA")) {
+                reply(writer, "354 End data with <CR><LF>.<CR><LF>");
+                StringBuilder data = new StringBuilder();
+                while ((line = reader.readLine()) != null && !line.equals(".")) {
+                    data.append(line);
+                    data.append("\n");
+                }
+                synchronized (this) {
+                    messages.add(data.toString());
+                }
+                reply(writer, "250 OK");
+            }
+            else if (command.startsWith("QUIT")) {
+                reply(writer, "221 Bye");
+                return;
+            }
+            else {
+                reply(writer, "250 OK");
+            }
+        }
+    }
+
+    /**
+     * @param writer
+     * @param reply to be written
+     * @throws IOException
+     */
+    private void reply(Writer writer, String reply) throws IOException
+    {
+        writer.write(reply);
+        writer.write("\r\n");
+        writer.flush();
+    }
+}
@@ -0,0 +1,114 @@
+package cz.cesnet.shongo.controller.scheduler;
+
+import cz.cesnet.shongo.controller.booking.room.RoomBucket;
+import cz.cesnet.shongo.controller.booking.room.RoomReservation;
+import cz.cesnet.shongo.util.IntervalPeak;
+import cz.cesnet.shongo.util.RangeSet;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link SchedulerContext#getLicenseCountPeak} computed by {@link RangeSet} with {@link RoomBucket}s
+ * (the former implementation) and by the {@link IntervalPeak} sweep-line.
+ * <p/>
+ * Run by {@link #main} from the test classpath (e.g., from IDE) or by
+ * {@code java -cp <test-classpath> org.openjdk.jmh.Main LicenseCountPeakBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LicenseCountPeakBenchmark
+{
+    /**
+     * Number of overlapping {@link RoomReservation}s.
+     */
+    @Param({"10", "100", "1000"})
+    public int reservationCount;
+
+    /**
+     * Slot for which the peak is computed.
+     */
+    private Interval slot;
+
+    /**
+     * {@link RoomReservation}s overlapping the {@link #slot}.
+     */
+    private List<RoomReservation> roomReservations;
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(reservationCount);
+        DateTime start = DateTime.parse("2012-01-01T00:00");
+        slot = new Interval(start, start.plusDays(1));
+        roomReservations = new ArrayList<RoomReservation>(reservationCount);
+        for (int index = 0; index < reservationCount; index++) {
+            DateTime slotStart = start.plusMinutes(random.nextInt(24 * 60));
+            RoomReservation roomReservation = new RoomReservation();
+            roomReservation.setSlot(slotStart, slotStart.plusMinutes(15 + random.nextInt(4 * 60)));
+            roomReservation.setLicenseCount(1 + random.nextInt(10));
+            roomReservations.add(roomReservation);
+        }
+        if (rangeSet() != intervalPeak()) {
+            throw new IllegalStateException("Both implementations must compute the same peak.");
+        }
+    }
+
+    @Benchmark
+    public int rangeSet()
+    {
+        RangeSet<RoomReservation, DateTime> rangeSet = new RangeSet<RoomReservation, DateTime>()
+        {
+            @Override
+            protected Bucket<DateTime, RoomReservation> createBucket(DateTime rangeValue)
+            {
+                return new RoomBucket(rangeValue);
+            }
+        };
+        for (RoomReservation roomReservation : roomReservations) {
+            rangeSet.add(roomReservation, roomReservation.getSlotStart(), roomReservation.getSlotEnd());
+        }
+        List<RoomBucket> roomBuckets = new LinkedList<RoomBucket>();
+        roomBuckets.addAll(rangeSet.getBuckets(slot.getStart(), slot.getEnd(), RoomBucket.class));
+        Collections.sort(roomBuckets, new Comparator<RoomBucket>()
+        {
+            @Override
+            public int compare(RoomBucket roomBucket1, RoomBucket roomBucket2)
+            {
+                return -Double.compare(roomBucket1.getLicenseCount(), roomBucket2.getLicenseCount());
+            }
+        });
+        if (roomBuckets.size() > 0) {
+            return roomBuckets.get(0).getLicenseCount();
+        }
+        return 0;
+    }
+
+    @Benchmark
+    public int intervalPeak()
+    {
+        IntervalPeak intervalPeak = new IntervalPeak(roomReservations.size());
+        Set<RoomReservation> addedReservations = Collections.newSetFromMap(new IdentityHashMap<RoomReservation, Boolean>());
+        for (RoomReservation roomReservation : roomReservations) {
+            if (addedReservations.add(roomReservation)) {
+                intervalPeak.add(roomReservation.getSlotStart().getMillis(), roomReservation.getSlotEnd().getMillis(),
+                        roomReservation.getLicenseCount());
+            }
+        }
+        return intervalPeak.getPeak(slot.getStartMillis(), slot.getEndMillis());
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        new Runner(new OptionsBuilder().include(LicenseCountPeakBenchmark.class.getSimpleName()).build()).run();
+    }
+}
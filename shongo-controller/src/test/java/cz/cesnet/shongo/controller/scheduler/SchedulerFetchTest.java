@@ -0,0 +1,121 @@
+package cz.cesnet.shongo.controller.scheduler;
+
+import cz.cesnet.shongo.Temporal;
+import cz.cesnet.shongo.controller.AbstractControllerTest;
+import cz.cesnet.shongo.controller.ReservationRequestPurpose;
+import cz.cesnet.shongo.controller.api.ReservationRequest;
+import cz.cesnet.shongo.controller.api.Resource;
+import cz.cesnet.shongo.controller.api.ResourceSpecification;
+import cz.cesnet.shongo.controller.booking.request.ReservationRequestManager;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * Tests for fetching of data which are needed by {@link Scheduler} for allocation of reservation requests.
+ */
+public class SchedulerFetchTest extends AbstractControllerTest
+{
+    /**
+     * Number of created reservation requests.
+     */
+    private static final int RESERVATION_REQUEST_COUNT = 10;
+
+    /**
+     * Maximum number of SQL statements which can be executed for single allocated reservation request
+     * (it covers inserting of reservations, ACL entries, summaries, etc.).
+     */
+    private static final int MAX_STATEMENT_COUNT_PER_RESERVATION_REQUEST = 100;
+
+    /**
+     * Test that {@link ReservationRequestManager#fetchForAllocation} fetches all associations needed by
+     * {@link Scheduler} and thus no more statements are executed when they are accessed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFetchForAllocation() throws Exception
+    {
+        createReservationRequests();
+
+        Statistics statistics = getStatistics();
+        EntityManager entityManager = createEntityManager();
+        try {
+            ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
+            List<cz.cesnet.shongo.controller.booking.request.ReservationRequest> reservationRequests =
+                    reservationRequestManager.listCompletedReservationRequests(Temporal.INTERVAL_INFINITE);
+            Assert.assertEquals(RESERVATION_REQUEST_COUNT, reservationRequests.size());
+            reservationRequestManager.fetchForAllocation(reservationRequests);
+
+            statistics.clear();
+            for (cz.cesnet.shongo.controller.booking.request.ReservationRequest reservationRequest :
+                    reservationRequests) {
+                reservationRequest.getAllocation().getReservations().size();
+                reservationRequest.getSpecification().getId();
+                reservationRequest.getParentAllocation();
+                reservationRequest.getReusedAllocation();
+            }
+            Assert.assertEquals("No statement should be executed for fetched reservation requests.",
+                    0, statistics.getPrepareStatementCount());
+        }
+        finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Test that number of SQL statements executed by {@link Scheduler} for single allocated reservation request
+     * has an upper bound.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStatementCount() throws Exception
+    {
+        createReservationRequests();
+
+        Statistics statistics = getStatistics();
+        statistics.clear();
+        Scheduler.Result result = runScheduler();
+        long statementCount = statistics.getPrepareStatementCount();
+        Assert.assertEquals(RESERVATION_REQUEST_COUNT, result.getAllocatedReservationRequests());
+        Assert.assertTrue("Too many statements (" + statementCount + ") executed for allocation.",
+                statementCount <= RESERVATION_REQUEST_COUNT * MAX_STATEMENT_COUNT_PER_RESERVATION_REQUEST);
+    }
+
+    /**
+     * @return enabled {@link Statistics} for {@link #getEntityManagerFactory()}
+     */
+    private Statistics getStatistics()
+    {
+        HibernateEntityManagerFactory entityManagerFactory = (HibernateEntityManagerFactory) getEntityManagerFactory();
+        Statistics statistics = entityManagerFactory.getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+        return statistics;
+    }
+
+    /**
+     * Create {@link #RESERVATION_REQUEST_COUNT} reservation requests for single resource in different slots.
+     *
+     * @throws Exception
+     */
+    private void createReservationRequests() throws Exception
+    {
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.setAllocatable(true);
+        String resourceId = createResource(resource);
+
+        for (int index = 1; index <= RESERVATION_REQUEST_COUNT; index++) {
+            ReservationRequest reservationRequest = new ReservationRequest();
+            reservationRequest.setSlot(String.format("2012-01-%02dT12:00", index), "PT2H");
+            reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+            reservationRequest.setSpecification(new ResourceSpecification(resourceId));
+            getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest);
+        }
+    }
+}
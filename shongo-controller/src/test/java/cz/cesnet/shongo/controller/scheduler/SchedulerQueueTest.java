@@ -0,0 +1,115 @@
+package cz.cesnet.shongo.controller.scheduler;
+
+import cz.cesnet.shongo.Technology;
+import cz.cesnet.shongo.controller.AbstractControllerTest;
+import cz.cesnet.shongo.controller.ObjectType;
+import cz.cesnet.shongo.controller.ReservationRequestPurpose;
+import cz.cesnet.shongo.controller.api.DeviceResource;
+import cz.cesnet.shongo.controller.api.ReservationRequest;
+import cz.cesnet.shongo.controller.api.RoomProviderCapability;
+import cz.cesnet.shongo.controller.api.RoomSpecification;
+import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Tests for {@link SchedulerQueue}.
+ */
+public class SchedulerQueueTest extends AbstractControllerTest
+{
+    /**
+     * Test that changed reservation requests are ready after the debounce duration.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDebounce() throws Exception
+    {
+        SchedulerQueue schedulerQueue = new SchedulerQueue();
+        schedulerQueue.setDebounce(200);
+
+        long start = System.currentTimeMillis();
+        Assert.assertFalse(schedulerQueue.await(start + 100));
+        Assert.assertTrue(System.currentTimeMillis() - start >= 100);
+
+        start = System.currentTimeMillis();
+        schedulerQueue.add(1l);
+        schedulerQueue.add(2l);
+        schedulerQueue.add(1l);
+        Assert.assertTrue(schedulerQueue.await(start + 10000));
+        long duration = System.currentTimeMillis() - start;
+        Assert.assertTrue(duration >= 200 && duration < 10000);
+
+        Map<Long, Long> changedReservationRequests = schedulerQueue.drain();
+        Assert.assertEquals(2, changedReservationRequests.size());
+        Assert.assertTrue(schedulerQueue.isEmpty());
+
+        Assert.assertEquals(1, schedulerQueue.addLatencies(changedReservationRequests,
+                Collections.singleton(2l), start + 50));
+        Assert.assertEquals(1, schedulerQueue.getAllocatedCount());
+        Assert.assertTrue(schedulerQueue.getMaxLatency() <= 50);
+    }
+
+    /**
+     * Test that the RPC services feed the {@link SchedulerQueue} and that the {@link Scheduler} allocates
+     * only the changed reservation requests.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testChangedReservationRequests() throws Exception
+    {
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(10));
+        mcu.setAllocatable(true);
+        createResource(mcu);
+
+        SchedulerQueue schedulerQueue = getController().getSchedulerQueue();
+        schedulerQueue.drain();
+
+        String firstReservationRequestId = getReservationService().createReservationRequest(SECURITY_TOKEN,
+                createRoomReservationRequest());
+        Map<Long, Long> changedReservationRequests = schedulerQueue.drain();
+        Long firstId = ObjectIdentifier.parseLocalId(firstReservationRequestId, ObjectType.RESERVATION_REQUEST);
+        Assert.assertEquals(Collections.singleton(firstId), changedReservationRequests.keySet());
+
+        String secondReservationRequestId = getReservationService().createReservationRequest(SECURITY_TOKEN,
+                createRoomReservationRequest());
+        Assert.assertFalse(schedulerQueue.isEmpty());
+
+        // Only the first reservation request should be allocated
+        Scheduler.Result result = runScheduler(changedReservationRequests.keySet());
+        Assert.assertEquals(1, result.getAllocatedReservationRequests());
+        checkAllocated(firstReservationRequestId);
+        checkNotAllocated(secondReservationRequestId);
+        Assert.assertEquals(1, schedulerQueue.addLatencies(changedReservationRequests,
+                result.getAllocatedReservationRequestIds(), System.currentTimeMillis()));
+
+        // Periodic run allocates all reservation requests
+        runScheduler();
+        checkAllocated(secondReservationRequestId);
+
+        // Deletion is also reported to the queue
+        schedulerQueue.drain();
+        getReservationService().deleteReservationRequest(SECURITY_TOKEN, firstReservationRequestId);
+        Assert.assertEquals(Collections.singleton(firstId), schedulerQueue.drain().keySet());
+    }
+
+    /**
+     * @return new {@link ReservationRequest} for a room
+     */
+    private ReservationRequest createRoomReservationRequest()
+    {
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot("2012-06-22T14:00", "PT2H");
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        RoomSpecification roomSpecification = new RoomSpecification(2, Technology.H323);
+        reservationRequest.setSpecification(roomSpecification);
+        return reservationRequest;
+    }
+}
@@ -0,0 +1,145 @@
+package cz.cesnet.shongo.tests.jade_load;
+
+import cz.cesnet.shongo.api.jade.Command;
+import cz.cesnet.shongo.api.jade.CommandException;
+import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
+import cz.cesnet.shongo.api.jade.PingCommand;
+import cz.cesnet.shongo.jade.Agent;
+import cz.cesnet.shongo.jade.CommandHandlerPool;
+import cz.cesnet.shongo.jade.Container;
+import cz.cesnet.shongo.jade.SendLocalCommand;
+import jade.core.AID;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test which drives a connector-like agent (which handles each command for a configured duration, e.g., like
+ * a connector polling room participants from a device) by concurrent commands and prints throughput, latencies and
+ * metrics of the agent {@link CommandHandlerPool}.
+ * <p/>
+ * Usage: {@code CommandLoadTest [client-count] [command-count] [handling-duration] [handler-thread-count]
+ * [handler-queue-size]}
+ */
+public class CommandLoadTest
+{
+    /**
+     * Agent which simulates a connector.
+     */
+    private static class ConnectorAgent extends Agent
+    {
+        /**
+         * Duration in milliseconds of handling of single command.
+         */
+        private final long handlingDuration;
+
+        /**
+         * Constructor.
+         *
+         * @param handlingDuration sets the {@link #handlingDuration}
+         */
+        public ConnectorAgent(long handlingDuration)
+        {
+            this.handlingDuration = handlingDuration;
+        }
+
+        @Override
+        public Object handleCommand(Command command, AID sender) throws CommandException, CommandUnsupportedException
+        {
+            try {
+                Thread.sleep(handlingDuration);
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            return super.handleCommand(command, sender);
+        }
+    }
+
+    /**
+     * @param arguments arguments
+     * @param index     of argument
+     * @param value     default value
+     * @return value of argument with given {@code index} or given default {@code value}
+     */
+    private static int getArgument(String[] arguments, int index, int value)
+    {
+        return (arguments.length > index ? Integer.parseInt(arguments[index]) : value);
+    }
+
+    public static void main(String[] arguments) throws Exception
+    {
+        final int clientCount = getArgument(arguments, 0, 100);
+        final int commandCount = getArgument(arguments, 1, 50);
+        int handlingDuration = getArgument(arguments, 2, 20);
+        int handlerThreadCount = getArgument(arguments, 3, CommandHandlerPool.DEFAULT_THREAD_COUNT);
+        int handlerQueueSize = getArgument(arguments, 4, CommandHandlerPool.DEFAULT_QUEUE_SIZE);
+
+        Container container = Container.createMainContainer("localhost", 8686, "ShongoLoadTest");
+        if (!container.start()) {
+            throw new RuntimeException("Failed to start JADE container.");
+        }
+        try {
+            final Agent controllerAgent = new Agent();
+            controllerAgent.setCommandTimeout(60000);
+            ConnectorAgent connectorAgent = new ConnectorAgent(handlingDuration);
+            connectorAgent.setCommandHandlerPoolSize(handlerThreadCount, handlerQueueSize);
+            container.addAgent("controller", controllerAgent, null);
+            container.addAgent("connector", connectorAgent, null);
+            container.waitForJadeAgentsToStart();
+
+            System.out.printf("Sending %d commands from each of %d clients (handling %d ms, %d threads, queue %d)...%n",
+                    commandCount, clientCount, handlingDuration, handlerThreadCount, handlerQueueSize);
+
+            final AtomicInteger successfulCount = new AtomicInteger();
+            final AtomicInteger failedCount = new AtomicInteger();
+            final AtomicLong totalLatency = new AtomicLong();
+            final AtomicLong maxLatency = new AtomicLong();
+            Thread[] clients = new Thread[clientCount];
+            long start = System.currentTimeMillis();
+            for (int clientIndex = 0; clientIndex < clientCount; clientIndex++) {
+                clients[clientIndex] = new Thread("client-" + clientIndex)
+                {
+                    @Override
+                    public void run()
+                    {
+                        for (int commandIndex = 0; commandIndex < commandCount; commandIndex++) {
+                            long commandStart = System.currentTimeMillis();
+                            SendLocalCommand sendLocalCommand =
+                                    controllerAgent.sendCommand("connector", new PingCommand());
+                            long latency = System.currentTimeMillis() - commandStart;
+                            if (SendLocalCommand.State.SUCCESSFUL.equals(sendLocalCommand.getState())) {
+                                successfulCount.incrementAndGet();
+                            }
+                            else if (failedCount.incrementAndGet() == 1) {
+                                System.out.printf("First failure: %s%n", sendLocalCommand.getJadeReport());
+                            }
+                            totalLatency.addAndGet(latency);
+                            long currentMaxLatency;
+                            while (latency > (currentMaxLatency = maxLatency.get())
+                                    && !maxLatency.compareAndSet(currentMaxLatency, latency)) {
+                            }
+                        }
+                    }
+                };
+                clients[clientIndex].start();
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+            long duration = System.currentTimeMillis() - start;
+
+            int totalCount = clientCount * commandCount;
+            System.out.printf("Commands: %d (successful: %d, failed: %d) in %d ms (%.1f commands/s)%n",
+                    totalCount, successfulCount.get(), failedCount.get(), duration, totalCount * 1000.0 / duration);
+            System.out.printf("Latency: average %d ms, maximum %d ms%n",
+                    totalLatency.get() / totalCount, maxLatency.get());
+            System.out.printf("Handler pool: %s%n", connectorAgent.getCommandHandlerPool());
+            System.out.printf("Peak JVM thread count: %d%n", ManagementFactory.getThreadMXBean().getPeakThreadCount());
+        }
+        finally {
+            container.stop();
+        }
+    }
+}